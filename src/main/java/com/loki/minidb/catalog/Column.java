@@ -6,10 +6,19 @@ package com.loki.minidb.catalog;
 public class Column {
     private final String columnName;
     private final Type columnType;
+    private final boolean nullable;
 
+    /**
+     * Creates a column that cannot hold NULL.
+     */
     public Column(String columnName, Type columnType) {
+        this(columnName, columnType, false);
+    }
+
+    public Column(String columnName, Type columnType, boolean nullable) {
         this.columnName = columnName;
         this.columnType = columnType;
+        this.nullable = nullable;
     }
 
     public String getColumnName() {
@@ -20,7 +29,14 @@ public class Column {
         return columnType;
     }
 
+    public boolean isNullable() {
+        return nullable;
+    }
+
+    /**
+     * @return The number of bytes this column takes in the fixed-width part of a row.
+     */
     public int getLength() {
         return columnType.getSize();
     }
-}
\ No newline at end of file
+}
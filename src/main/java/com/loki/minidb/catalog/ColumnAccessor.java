@@ -0,0 +1,327 @@
+package com.loki.minidb.catalog;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * ColumnAccessor reads and writes one column of a row, with everything about the
+ * column resolved when the Schema is built: its offset, its NULL bit and its type.
+ *
+ * There is one final subclass per type, and each reads through a static final
+ * VarHandle. A call such as getInt(row) is therefore a single bounds-checked load
+ * at a constant offset, which the JIT can inline, instead of a list lookup, a switch
+ * on the type and a boxed result. Rows can be read from a byte[] (a Tuple) or in
+ * place from a ByteBuffer (a page frame, on-heap or off-heap).
+ *
+ * The typed getters throw UnsupportedOperationException for a column of another type.
+ * They do not look at the NULL bit; check isNull() first for nullable columns.
+ */
+public abstract class ColumnAccessor {
+
+    // Rows are big-endian, the ByteBuffer default.
+    private static final VarHandle SHORT_ARRAY = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle SHORT_BUFFER = MethodHandles.byteBufferViewVarHandle(short[].class, ByteOrder.BIG_ENDIAN);
+
+    protected final int offset;   // The value's offset, or the offset-table entry for a variable-length column.
+    private final int nullByte;   // Where the column's NULL bit is.
+    private final int nullMask;   // 0 if the schema has no null bitmap.
+
+    ColumnAccessor(int offset, int columnIndex, boolean hasNullBitmap) {
+        this.offset = offset;
+        this.nullByte = columnIndex / 8;
+        this.nullMask = hasNullBitmap ? 1 << (columnIndex % 8) : 0;
+    }
+
+    /**
+     * Creates the accessor for a column of a schema.
+     */
+    static ColumnAccessor create(Type type, int offset, int columnIndex, boolean hasNullBitmap,
+                                 int varTableOffset, int varDataOffset) {
+        return switch (type) {
+            case INTEGER -> new IntAccessor(offset, columnIndex, hasNullBitmap);
+            case BIGINT -> new LongAccessor(offset, columnIndex, hasNullBitmap);
+            case DOUBLE -> new DoubleAccessor(offset, columnIndex, hasNullBitmap);
+            case BOOLEAN -> new BooleanAccessor(offset, columnIndex, hasNullBitmap);
+            case VARCHAR, VARBINARY -> new VarAccessor(type, offset, columnIndex, hasNullBitmap, varTableOffset, varDataOffset);
+        };
+    }
+
+    // --- NULL bit ---
+
+    public final boolean isNull(byte[] row) {
+        return nullMask != 0 && (row[nullByte] & nullMask) != 0;
+    }
+
+    public final boolean isNull(ByteBuffer buffer, int rowOffset) {
+        return nullMask != 0 && (buffer.get(rowOffset + nullByte) & nullMask) != 0;
+    }
+
+    /**
+     * Sets or clears the NULL bit. The schema must have a null bitmap.
+     */
+    public final void setNull(byte[] row, boolean isNull) {
+        row[nullByte] = (byte) (isNull ? row[nullByte] | nullMask : row[nullByte] & ~nullMask);
+    }
+
+    // --- Typed access, overridden by the matching subclass ---
+
+    public int getInt(byte[] row) {
+        throw unsupported("getInt");
+    }
+
+    public int getInt(ByteBuffer buffer, int rowOffset) {
+        throw unsupported("getInt");
+    }
+
+    public long getLong(byte[] row) {
+        throw unsupported("getLong");
+    }
+
+    public long getLong(ByteBuffer buffer, int rowOffset) {
+        throw unsupported("getLong");
+    }
+
+    public double getDouble(byte[] row) {
+        throw unsupported("getDouble");
+    }
+
+    public double getDouble(ByteBuffer buffer, int rowOffset) {
+        throw unsupported("getDouble");
+    }
+
+    public boolean getBoolean(byte[] row) {
+        throw unsupported("getBoolean");
+    }
+
+    public boolean getBoolean(ByteBuffer buffer, int rowOffset) {
+        throw unsupported("getBoolean");
+    }
+
+    /**
+     * @return Where a variable-length value starts, relative to the start of the row.
+     */
+    public int getVarStart(byte[] row) {
+        throw unsupported("getVarStart");
+    }
+
+    public int getVarStart(ByteBuffer buffer, int rowOffset) {
+        throw unsupported("getVarStart");
+    }
+
+    /**
+     * @return Where a variable-length value ends, relative to the start of the row.
+     */
+    public int getVarEnd(byte[] row) {
+        throw unsupported("getVarEnd");
+    }
+
+    public int getVarEnd(ByteBuffer buffer, int rowOffset) {
+        throw unsupported("getVarEnd");
+    }
+
+    /**
+     * Reads the value as an Object (boxed, or a String or byte[] for variable-length columns).
+     */
+    public abstract Object getValue(byte[] row);
+
+    /**
+     * Writes a fixed-width value. Variable-length values change the row's length,
+     * so Tuple writes them itself.
+     */
+    public abstract void setValue(byte[] row, Object value);
+
+    private UnsupportedOperationException unsupported(String method) {
+        return new UnsupportedOperationException(method + " is not supported by " + getClass().getSimpleName() + ".");
+    }
+
+    // --- One final subclass per type ---
+
+    public static final class IntAccessor extends ColumnAccessor {
+        private static final VarHandle ARRAY = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+        private static final VarHandle BUFFER = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+        IntAccessor(int offset, int columnIndex, boolean hasNullBitmap) {
+            super(offset, columnIndex, hasNullBitmap);
+        }
+
+        @Override
+        public int getInt(byte[] row) {
+            return (int) ARRAY.get(row, offset);
+        }
+
+        @Override
+        public int getInt(ByteBuffer buffer, int rowOffset) {
+            return (int) BUFFER.get(buffer, rowOffset + offset);
+        }
+
+        public void setInt(byte[] row, int value) {
+            ARRAY.set(row, offset, value);
+        }
+
+        @Override
+        public Object getValue(byte[] row) {
+            return getInt(row);
+        }
+
+        @Override
+        public void setValue(byte[] row, Object value) {
+            setInt(row, (Integer) value);
+        }
+    }
+
+    public static final class LongAccessor extends ColumnAccessor {
+        private static final VarHandle ARRAY = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+        private static final VarHandle BUFFER = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+        LongAccessor(int offset, int columnIndex, boolean hasNullBitmap) {
+            super(offset, columnIndex, hasNullBitmap);
+        }
+
+        @Override
+        public long getLong(byte[] row) {
+            return (long) ARRAY.get(row, offset);
+        }
+
+        @Override
+        public long getLong(ByteBuffer buffer, int rowOffset) {
+            return (long) BUFFER.get(buffer, rowOffset + offset);
+        }
+
+        public void setLong(byte[] row, long value) {
+            ARRAY.set(row, offset, value);
+        }
+
+        @Override
+        public Object getValue(byte[] row) {
+            return getLong(row);
+        }
+
+        @Override
+        public void setValue(byte[] row, Object value) {
+            setLong(row, (Long) value);
+        }
+    }
+
+    public static final class DoubleAccessor extends ColumnAccessor {
+        private static final VarHandle ARRAY = MethodHandles.byteArrayViewVarHandle(double[].class, ByteOrder.BIG_ENDIAN);
+        private static final VarHandle BUFFER = MethodHandles.byteBufferViewVarHandle(double[].class, ByteOrder.BIG_ENDIAN);
+
+        DoubleAccessor(int offset, int columnIndex, boolean hasNullBitmap) {
+            super(offset, columnIndex, hasNullBitmap);
+        }
+
+        @Override
+        public double getDouble(byte[] row) {
+            return (double) ARRAY.get(row, offset);
+        }
+
+        @Override
+        public double getDouble(ByteBuffer buffer, int rowOffset) {
+            return (double) BUFFER.get(buffer, rowOffset + offset);
+        }
+
+        public void setDouble(byte[] row, double value) {
+            ARRAY.set(row, offset, value);
+        }
+
+        @Override
+        public Object getValue(byte[] row) {
+            return getDouble(row);
+        }
+
+        @Override
+        public void setValue(byte[] row, Object value) {
+            setDouble(row, (Double) value);
+        }
+    }
+
+    public static final class BooleanAccessor extends ColumnAccessor {
+
+        BooleanAccessor(int offset, int columnIndex, boolean hasNullBitmap) {
+            super(offset, columnIndex, hasNullBitmap);
+        }
+
+        @Override
+        public boolean getBoolean(byte[] row) {
+            return row[offset] != 0;
+        }
+
+        @Override
+        public boolean getBoolean(ByteBuffer buffer, int rowOffset) {
+            return buffer.get(rowOffset + offset) != 0;
+        }
+
+        public void setBoolean(byte[] row, boolean value) {
+            row[offset] = (byte) (value ? 1 : 0);
+        }
+
+        @Override
+        public Object getValue(byte[] row) {
+            return getBoolean(row);
+        }
+
+        @Override
+        public void setValue(byte[] row, Object value) {
+            setBoolean(row, (Boolean) value);
+        }
+    }
+
+    /**
+     * Reads VARCHAR and VARBINARY columns through the row's offset table.
+     */
+    public static final class VarAccessor extends ColumnAccessor {
+        private final Type type;
+        // The first column in the offset table starts right after it; the others start where the previous one ends.
+        private final boolean firstInTable;
+        private final int varDataOffset;
+
+        VarAccessor(Type type, int offset, int columnIndex, boolean hasNullBitmap, int varTableOffset, int varDataOffset) {
+            super(offset, columnIndex, hasNullBitmap);
+            this.type = type;
+            this.firstInTable = offset == varTableOffset;
+            this.varDataOffset = varDataOffset;
+        }
+
+        @Override
+        public int getVarStart(byte[] row) {
+            return firstInTable ? varDataOffset : Short.toUnsignedInt((short) SHORT_ARRAY.get(row, offset - 2));
+        }
+
+        @Override
+        public int getVarStart(ByteBuffer buffer, int rowOffset) {
+            return firstInTable ? varDataOffset : Short.toUnsignedInt((short) SHORT_BUFFER.get(buffer, rowOffset + offset - 2));
+        }
+
+        @Override
+        public int getVarEnd(byte[] row) {
+            return Short.toUnsignedInt((short) SHORT_ARRAY.get(row, offset));
+        }
+
+        @Override
+        public int getVarEnd(ByteBuffer buffer, int rowOffset) {
+            return Short.toUnsignedInt((short) SHORT_BUFFER.get(buffer, rowOffset + offset));
+        }
+
+        /**
+         * @return The value's bytes. For VARCHAR they are UTF-8.
+         */
+        public byte[] getBytes(byte[] row) {
+            return Arrays.copyOfRange(row, getVarStart(row), getVarEnd(row));
+        }
+
+        @Override
+        public Object getValue(byte[] row) {
+            byte[] bytes = getBytes(row);
+            return type == Type.VARCHAR ? new String(bytes, StandardCharsets.UTF_8) : bytes;
+        }
+
+        @Override
+        public void setValue(byte[] row, Object value) {
+            throw new UnsupportedOperationException("A variable-length value changes the row length; use Tuple.setValue.");
+        }
+    }
+}
@@ -2,49 +2,150 @@ package com.loki.minidb.catalog;
 
 import java.util.List;
 
-public class Schema {
+/**
+ * Schema describes the columns of a table and how a row of them is laid out in bytes.
+ *
+ * Row Layout:
+ * ------------------------------------------------------------------------------------
+ * | NULL_BITMAP | FIXED_WIDTH_COLUMNS | VAR_OFFSET_TABLE | VARIABLE_LENGTH_DATA      |
+ * ------------------------------------------------------------------------------------
+ *
+ * - The null bitmap has one bit per column (bit i of byte i / 8, set means NULL). It is
+ *   only present if some column is nullable.
+ * - Every fixed-width column has its own place in the fixed section, even when it is
+ *   NULL, so reading it is a single read at a known offset.
+ * - The offset table has a 2-byte entry per variable-length column: the offset, from the
+ *   start of the row, where that column's data ends. A column's data starts where the
+ *   previous one ends; the first one starts right after the table. It is only present
+ *   if some column has a variable length.
+ *
+ * A schema of non-nullable fixed-width columns therefore stores a row as just its
+ * columns back to back, exactly as before variable-length types existed.
+ *
+ * Once the layout is known, the schema builds a ColumnAccessor per column, so code
+ * that reads many rows can resolve a column once and then read it with a single load.
+ */
+public final class Schema {
 
     private final List<Column> columns;
     private final int tupleLength;
     private final int[] columnOffsets;
+    private final int nullBitmapLength;
+    private final int varColumnCount;
+    private final int varDataOffset;
+    private final ColumnAccessor[] accessors;
 
     /**
      * Creates a new schema.
-     * For now, we only support fixed-length tuples.
      * @param columns The list of columns for this schema.
      */
     public Schema(List<Column> columns) {
         this.columns = columns;
-
-        int currentOffset = 0;
         this.columnOffsets = new int[columns.size()];
-        
-        // --- YOUR LOGIC HERE ---
-        // 1. Loop through the list of columns.
-        // 2. For each column, store its starting offset in the columnOffsets array.
-        // 3. Update the currentOffset for the next column.
+
+        // 1. The null bitmap comes first, if any column can be NULL.
+        boolean anyNullable = false;
+        int varCount = 0;
+        for (Column column : columns) {
+            anyNullable |= column.isNullable();
+            if (column.getColumnType().isVariableLength()) {
+                varCount++;
+            }
+        }
+        this.nullBitmapLength = anyNullable ? (columns.size() + 7) / 8 : 0;
+        this.varColumnCount = varCount;
+
+        // 2. Loop through the fixed-width columns and store each one's starting offset.
+        int currentOffset = nullBitmapLength;
+        for (int i = 0; i < columns.size(); i++) {
+            if (!columns.get(i).getColumnType().isVariableLength()) {
+                this.columnOffsets[i] = currentOffset; // The offset for the i-th column
+                currentOffset += columns.get(i).getLength();     // Add the size of the i-th column
+            }
+        }
+
+        // 3. A variable-length column's "offset" is the position of its entry in the offset table.
         for (int i = 0; i < columns.size(); i++) {
-            this.columnOffsets[i] = currentOffset; // The offset for the i-th column
-            currentOffset += columns.get(i).getLength();     // Add the size of the i-th column
+            if (columns.get(i).getColumnType().isVariableLength()) {
+                this.columnOffsets[i] = currentOffset;
+                currentOffset += 2;
+            }
         }
 
-        // The final offset is the total length of the tuple.
+        // The final offset is the length of a row whose variable-length columns are all empty.
+        this.varDataOffset = currentOffset;
         this.tupleLength = currentOffset;
+
+        // 4. Resolve each column's accessor now that every offset is known.
+        this.accessors = new ColumnAccessor[columns.size()];
+        for (int i = 0; i < columns.size(); i++) {
+            accessors[i] = ColumnAccessor.create(getColumnType(i), columnOffsets[i], i, anyNullable,
+                    getVarTableOffset(), varDataOffset);
+        }
     }
 
     public List<Column> getColumns() {
         return columns;
     }
 
+    /**
+     * @return The length of a row. With variable-length columns, this is the length of
+     *         a row whose variable-length values are all empty; real rows are longer.
+     */
     public int getTupleLength() {
         return tupleLength;
     }
 
+    /**
+     * @param columnIndex The index of the column.
+     * @return For a fixed-width column, the offset of its value in the row. For a variable-length
+     *         column, the offset of its entry in the offset table.
+     */
     public int getColumnOffset(int columnIndex) {
         return columnOffsets[columnIndex];
     }
-    
+
+    /**
+     * @param columnIndex The index of the column.
+     * @return The accessor that reads and writes the column in a row of this schema.
+     */
+    public ColumnAccessor getAccessor(int columnIndex) {
+        return accessors[columnIndex];
+    }
+
     public int getColumnCount() {
         return columns.size();
     }
-}
\ No newline at end of file
+
+    public Type getColumnType(int columnIndex) {
+        return columns.get(columnIndex).getColumnType();
+    }
+
+    /**
+     * @return The length of the null bitmap at the start of each row, 0 if no column is nullable.
+     */
+    public int getNullBitmapLength() {
+        return nullBitmapLength;
+    }
+
+    /**
+     * @return The number of variable-length columns.
+     */
+    public int getVarColumnCount() {
+        return varColumnCount;
+    }
+
+    /**
+     * @return Where the data of the first variable-length column starts in a row.
+     */
+    public int getVarDataOffset() {
+        return varDataOffset;
+    }
+
+    /**
+     * @return Where the offset table starts in a row.
+     */
+    public int getVarTableOffset() {
+        return varDataOffset - varColumnCount * 2;
+    }
+}
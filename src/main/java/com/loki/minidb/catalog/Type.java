@@ -4,16 +4,30 @@ package com.loki.minidb.catalog;
  * An enum representing the supported data types in our database.
  */
 public enum Type {
-    INTEGER; // For now, we only support 4-byte integers.
+    INTEGER,    // 4-byte signed integer.
+    BIGINT,     // 8-byte signed integer.
+    DOUBLE,     // 8-byte IEEE 754 floating point number.
+    BOOLEAN,    // 1 byte, 0 or 1.
+    VARCHAR,    // A UTF-8 string of any length.
+    VARBINARY;  // A byte array of any length.
 
     /**
-     * @return The size of this data type in bytes.
+     * @return The size of this data type in bytes. Variable-length types take no room
+     *         in the fixed-width part of a row, so their size is 0.
      */
     public int getSize() {
         return switch (this) {
             case INTEGER -> 4;
-            // In the future, we would add:
-            // case VARCHAR -> ... some logic for variable size ...
+            case BIGINT, DOUBLE -> 8;
+            case BOOLEAN -> 1;
+            case VARCHAR, VARBINARY -> 0;
         };
     }
-}
\ No newline at end of file
+
+    /**
+     * @return true if values of this type can have any length.
+     */
+    public boolean isVariableLength() {
+        return this == VARCHAR || this == VARBINARY;
+    }
+}
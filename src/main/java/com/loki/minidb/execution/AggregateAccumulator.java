@@ -0,0 +1,149 @@
+package com.loki.minidb.execution;
+
+import com.loki.minidb.catalog.Type;
+
+import java.util.Arrays;
+
+/**
+ * AggregateAccumulator keeps the running state of a list of aggregates over batches.
+ *
+ * Every aggregate keeps the same four values, in flat arrays indexed by aggregate:
+ * the count, sum, minimum and maximum of its non-NULL inputs. Each function's result
+ * is computed from them at the end (AVG is sum / count), so adding a batch is a plain
+ * loop per aggregate, and two accumulators over different rows can be merged.
+ *
+ * Inputs are INTEGER or BIGINT columns; a column of -1 means COUNT(*).
+ */
+final class AggregateAccumulator {
+
+    static final int COUNT_STAR = -1;
+
+    private final AggregateFunction[] functions;
+    private final int[] columns;
+    private final long[] counts;
+    private final long[] sums;
+    private final long[] mins;
+    private final long[] maxs;
+
+    /**
+     * @param functions The aggregate functions.
+     * @param columns The input column of each function, or COUNT_STAR.
+     * @param inputTypes The types of the input columns.
+     */
+    AggregateAccumulator(AggregateFunction[] functions, int[] columns, Type[] inputTypes) {
+        if (functions.length != columns.length) {
+            throw new IllegalArgumentException("Each aggregate function needs one input column.");
+        }
+        for (int i = 0; i < functions.length; i++) {
+            if (columns[i] == COUNT_STAR) {
+                if (functions[i] != AggregateFunction.COUNT) {
+                    throw new IllegalArgumentException(functions[i] + " needs an input column.");
+                }
+            } else if (inputTypes[columns[i]] != Type.INTEGER && inputTypes[columns[i]] != Type.BIGINT) {
+                throw new IllegalArgumentException("Cannot aggregate a " + inputTypes[columns[i]] + " column.");
+            }
+        }
+        this.functions = functions.clone();
+        this.columns = columns.clone();
+        this.counts = new long[functions.length];
+        this.sums = new long[functions.length];
+        this.mins = new long[functions.length];
+        this.maxs = new long[functions.length];
+        Arrays.fill(mins, Long.MAX_VALUE);
+        Arrays.fill(maxs, Long.MIN_VALUE);
+    }
+
+    /**
+     * @return The type of each result column.
+     */
+    static Type[] getResultTypes(AggregateFunction[] functions) {
+        Type[] types = new Type[functions.length];
+        for (int i = 0; i < functions.length; i++) {
+            types[i] = functions[i].getResultType();
+        }
+        return types;
+    }
+
+    /**
+     * Adds the selected rows of a batch.
+     */
+    void accumulate(VectorBatch batch) {
+        int count = batch.getSelectedCount();
+        for (int a = 0; a < functions.length; a++) {
+            int column = columns[a];
+            if (column == COUNT_STAR) {
+                counts[a] += count;
+                continue;
+            }
+            boolean[] nulls = batch.getNulls(column);
+            long n = 0;
+            long sum = 0;
+            long min = mins[a];
+            long max = maxs[a];
+            if (batch.getType(column) == Type.INTEGER) {
+                int[] values = batch.getInts(column);
+                for (int i = 0; i < count; i++) {
+                    int row = batch.getSelectedRow(i);
+                    if (!nulls[row]) {
+                        int value = values[row];
+                        n++;
+                        sum += value;
+                        min = Math.min(min, value);
+                        max = Math.max(max, value);
+                    }
+                }
+            } else {
+                long[] values = batch.getLongs(column);
+                for (int i = 0; i < count; i++) {
+                    int row = batch.getSelectedRow(i);
+                    if (!nulls[row]) {
+                        long value = values[row];
+                        n++;
+                        sum += value;
+                        min = Math.min(min, value);
+                        max = Math.max(max, value);
+                    }
+                }
+            }
+            counts[a] += n;
+            sums[a] += sum;
+            mins[a] = min;
+            maxs[a] = max;
+        }
+    }
+
+    /**
+     * Adds the state of another accumulator for the same aggregates, such as one that
+     * saw another part of the input.
+     */
+    void merge(AggregateAccumulator other) {
+        for (int a = 0; a < functions.length; a++) {
+            counts[a] += other.counts[a];
+            sums[a] += other.sums[a];
+            mins[a] = Math.min(mins[a], other.mins[a]);
+            maxs[a] = Math.max(maxs[a], other.maxs[a]);
+        }
+    }
+
+    /**
+     * Writes the result of every aggregate into one row of a batch, one column per aggregate.
+     * @param batch A batch with the columns of getResultTypes().
+     * @param row The row to write.
+     */
+    void writeResult(VectorBatch batch, int row) {
+        for (int a = 0; a < functions.length; a++) {
+            boolean isNull = functions[a] != AggregateFunction.COUNT && counts[a] == 0;
+            batch.getNulls(a)[row] = isNull;
+            if (isNull) {
+                continue;
+            }
+            switch (functions[a]) {
+                case COUNT -> batch.getLongs(a)[row] = counts[a];
+                case SUM -> batch.getLongs(a)[row] = sums[a];
+                case MIN -> batch.getLongs(a)[row] = mins[a];
+                case MAX -> batch.getLongs(a)[row] = maxs[a];
+                case AVG -> batch.getDoubles(a)[row] = (double) sums[a] / counts[a];
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.loki.minidb.execution;
+
+import com.loki.minidb.catalog.Type;
+
+/**
+ * The aggregate functions, as in SQL. NULL inputs are ignored; over no input COUNT
+ * gives 0 and the others give NULL.
+ */
+public enum AggregateFunction {
+    COUNT,  // The number of non-NULL values, or of rows for COUNT(*).
+    SUM,
+    MIN,
+    MAX,
+    AVG;
+
+    /**
+     * @return The type of the function's result: DOUBLE for AVG, BIGINT for the others.
+     */
+    public Type getResultType() {
+        return this == AVG ? Type.DOUBLE : Type.BIGINT;
+    }
+}
@@ -0,0 +1,13 @@
+package com.loki.minidb.execution;
+
+/**
+ * The comparison operators a predicate can apply between a column and a constant.
+ */
+public enum CompareOp {
+    EQ,  // =
+    NE,  // <>
+    LT,  // <
+    LE,  // <=
+    GT,  // >
+    GE   // >=
+}
@@ -0,0 +1,245 @@
+package com.loki.minidb.execution;
+
+import com.loki.minidb.catalog.Type;
+import com.loki.minidb.storage.Page;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ExternalSort returns the rows of its input ordered by some of its columns, as
+ * ORDER BY does, using a bounded amount of memory however large the input is.
+ *
+ * 1. Run generation: input rows are encoded (see SortLayout) into a buffer of
+ *    memoryPages pages' worth of bytes. When it is full, the rows are sorted and
+ *    written to a SpillFile as a sorted run, and the buffer starts over.
+ * 2. If the input fit in the buffer, it is sorted and returned from memory, with no I/O.
+ * 3. Otherwise, the runs are merged. A merge reads READ_AHEAD_PAGES pages per run at
+ *    a time, so the budget allows a fan-in of memoryPages / READ_AHEAD_PAGES - 1 runs
+ *    (the last share is for writing). While there are more runs than that, the oldest
+ *    ones are merged into a new, longer run. The final merge feeds next() directly.
+ *    Every merge picks the next row with a LoserTree.
+ *
+ * For ORDER BY ... LIMIT n, use TopNSort, which never spills.
+ */
+public class ExternalSort implements VectorOperator {
+
+    public static final int DEFAULT_MEMORY_PAGES = 256;
+    // Pages each run reader or writer moves per DiskManager call while merging.
+    private static final int READ_AHEAD_PAGES = 4;
+
+    private final VectorOperator child;
+    private final Type[] types;
+    private final SortLayout layout;
+    private final int memoryPages;
+
+    // --- State while returning rows ---
+    private VectorBatch batch;
+    // In memory: the rows, their sorted order and the next one to return.
+    private long[] rows;
+    private int[] order;
+    private int rowCount;
+    private int position;
+    // Spilled: the runs and the final merge over them.
+    private SpillFile spillFile;
+    private List<SpillFile.Run> runs;
+    private Merge merge;
+    private int initialRuns;
+    private int mergePasses;
+
+    /**
+     * Creates a sort with DEFAULT_MEMORY_PAGES pages of memory.
+     * @param child The input.
+     * @param sortColumns The columns to sort by, most significant first.
+     * @param ascending For each sort column, whether it sorts in ascending order.
+     */
+    public ExternalSort(VectorOperator child, int[] sortColumns, boolean[] ascending) {
+        this(child, sortColumns, ascending, DEFAULT_MEMORY_PAGES);
+    }
+
+    /**
+     * Creates a sort.
+     * @param child The input.
+     * @param sortColumns The columns to sort by, most significant first.
+     * @param ascending For each sort column, whether it sorts in ascending order.
+     * @param memoryPages The memory budget, in pages of Page.PAGE_SIZE bytes, at least 2 * READ_AHEAD_PAGES.
+     */
+    public ExternalSort(VectorOperator child, int[] sortColumns, boolean[] ascending, int memoryPages) {
+        if (memoryPages < 2 * READ_AHEAD_PAGES) {
+            throw new IllegalArgumentException("A sort needs at least " + 2 * READ_AHEAD_PAGES + " pages of memory.");
+        }
+        this.child = child;
+        this.types = child.getTypes();
+        this.layout = new SortLayout(types, sortColumns, ascending);
+        this.memoryPages = memoryPages;
+    }
+
+    @Override
+    public Type[] getTypes() {
+        return types.clone();
+    }
+
+    @Override
+    public void open() throws IOException {
+        child.open();
+        batch = new VectorBatch(types, VectorBatch.DEFAULT_CAPACITY);
+        runs = new ArrayList<>();
+        initialRuns = 0;
+        mergePasses = 0;
+
+        // 1. Fill the buffer, spilling a sorted run each time it is full.
+        int width = layout.getWidth();
+        // Each row costs its longs plus two ints of sort order.
+        int maxRows = (int) Math.max(2, (long) memoryPages * Page.PAGE_SIZE / (width * 8L + 8));
+        rows = new long[maxRows * width];
+        order = new int[maxRows];
+        rowCount = 0;
+        VectorBatch input;
+        while ((input = child.next()) != null) {
+            for (int i = 0; i < input.getSelectedCount(); i++) {
+                if (rowCount == maxRows) {
+                    spillRun();
+                }
+                layout.encode(input, input.getSelectedRow(i), rows, rowCount * width);
+                rowCount++;
+            }
+        }
+
+        // 2. Everything fit: sort it in memory.
+        if (runs.isEmpty()) {
+            layout.sort(rows, order, rowCount);
+            position = 0;
+            return;
+        }
+
+        // 3. Spill the rest too, free the buffer, and merge down to one pass.
+        if (rowCount > 0) {
+            spillRun();
+        }
+        rows = null;
+        order = null;
+        int fanIn = Math.max(2, memoryPages / READ_AHEAD_PAGES - 1);
+        while (runs.size() > fanIn) {
+            List<SpillFile.Run> group = new ArrayList<>(runs.subList(0, fanIn));
+            runs.subList(0, fanIn).clear();
+            SpillFile.RunWriter writer = spillFile.newRun(width, READ_AHEAD_PAGES);
+            Merge groupMerge = new Merge(group);
+            long[] row;
+            while ((row = groupMerge.peek()) != null) {
+                writer.append(row, 0);
+                groupMerge.advance();
+            }
+            runs.add(writer.finish());
+            mergePasses++;
+        }
+        merge = new Merge(runs);
+        mergePasses++;
+    }
+
+    @Override
+    public VectorBatch next() throws IOException {
+        batch.reset();
+        int size = 0;
+        if (merge == null) {
+            int width = layout.getWidth();
+            while (size < batch.getCapacity() && position < rowCount) {
+                layout.decode(rows, order[position++] * width, batch, size++);
+            }
+        } else {
+            long[] row;
+            while (size < batch.getCapacity() && (row = merge.peek()) != null) {
+                layout.decode(row, 0, batch, size++);
+                merge.advance();
+            }
+        }
+        batch.setSize(size);
+        return size == 0 ? null : batch;
+    }
+
+    @Override
+    public void close() throws IOException {
+        rows = null;
+        order = null;
+        merge = null;
+        runs = null;
+        try {
+            child.close();
+        } finally {
+            if (spillFile != null) {
+                spillFile.close();
+                spillFile = null;
+            }
+        }
+    }
+
+    /**
+     * @return The number of sorted runs the input was split into. 0 if nothing spilled.
+     */
+    int getInitialRunCount() {
+        return initialRuns;
+    }
+
+    /**
+     * @return The number of merges performed, the final one included. 0 if nothing spilled.
+     */
+    int getMergePasses() {
+        return mergePasses;
+    }
+
+    /**
+     * Sorts the buffered rows and writes them as a new run.
+     */
+    private void spillRun() throws IOException {
+        if (spillFile == null) {
+            spillFile = new SpillFile();
+        }
+        layout.sort(rows, order, rowCount);
+        int width = layout.getWidth();
+        SpillFile.RunWriter writer = spillFile.newRun(width, READ_AHEAD_PAGES);
+        for (int i = 0; i < rowCount; i++) {
+            writer.append(rows, order[i] * width);
+        }
+        runs.add(writer.finish());
+        initialRuns++;
+        rowCount = 0;
+    }
+
+    /**
+     * Merges sorted runs into one sorted stream of rows.
+     */
+    private final class Merge {
+        private final SpillFile.RunReader[] readers;
+        private final boolean[] exhausted;
+        private final LoserTree tree;
+
+        Merge(List<SpillFile.Run> runs) throws IOException {
+            readers = new SpillFile.RunReader[runs.size()];
+            exhausted = new boolean[runs.size()];
+            for (int i = 0; i < readers.length; i++) {
+                readers[i] = spillFile.openRun(runs.get(i), READ_AHEAD_PAGES);
+                exhausted[i] = !readers[i].next();
+            }
+            tree = new LoserTree(readers.length, (a, b) -> {
+                if (exhausted[a] || exhausted[b]) {
+                    return Boolean.compare(exhausted[a], exhausted[b]);
+                }
+                return layout.compare(readers[a].row(), 0, readers[b].row(), 0);
+            });
+        }
+
+        /**
+         * @return The next row, or null if every run is done. Valid until advance().
+         */
+        long[] peek() {
+            int winner = tree.winner();
+            return exhausted[winner] ? null : readers[winner].row();
+        }
+
+        void advance() throws IOException {
+            int winner = tree.winner();
+            exhausted[winner] = !readers[winner].next();
+            tree.update();
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.loki.minidb.execution;
+
+import java.util.Arrays;
+
+/**
+ * GroupTable maps GROUP BY keys to group numbers, and keeps each group's aggregate
+ * state, without creating an object per group.
+ *
+ * A key is a fixed number of longs: a null mask, then one long per group column (see
+ * SortLayout), and group g's key is keys[g * keyWidth, (g + 1) * keyWidth). The index
+ * uses open addressing with linear probing over an int[] of group numbers, and each
+ * group's hash is kept so most mismatched keys are rejected without comparing them.
+ *
+ * Aggregate state is two longs per group and aggregate, at g * aggregateCount + a: the
+ * number of non-NULL inputs, and a value (the sum for SUM and AVG, the minimum for MIN,
+ * the maximum for MAX).
+ *
+ * The slots are allocated once, for maxGroups groups, so they never need rebuilding. The
+ * per-group arrays start small and double until they hold maxGroups groups, and their
+ * sizes are chosen so the last doubling lands on maxGroups exactly: while they grow, the
+ * old and new arrays together never hold more than 1.5 * maxGroups groups, which is what
+ * getCapacity() charges. The table never goes past maxGroups: findOrAdd() reports a new
+ * key instead, and the caller spills its rows.
+ */
+final class GroupTable {
+
+    private static final int EMPTY = -1;
+    private static final int INITIAL_GROUPS = 1024;
+
+    private final int keyWidth;
+    private final int aggregateCount;
+    private final int maxGroups;
+    private final long[] initialValues;
+    private final int[] slots;      // Group numbers, or EMPTY.
+    private final int mask;         // (number of slots - 1), the slot count is a power of two.
+
+    private int capacity;
+    private long[] keys;
+    private int[] hashes;
+    private long[] counts;
+    private long[] values;
+    private int size;
+
+    /**
+     * @param keyWidth The number of longs per key.
+     * @param initialValues The value each aggregate of a new group starts with.
+     * @param maxGroups The maximum number of groups.
+     */
+    GroupTable(int keyWidth, long[] initialValues, int maxGroups) {
+        this.keyWidth = keyWidth;
+        this.aggregateCount = initialValues.length;
+        this.maxGroups = maxGroups;
+        this.initialValues = initialValues.clone();
+        int slotCount = getSlotCount(maxGroups);
+        this.slots = new int[slotCount];
+        this.mask = slotCount - 1;
+        Arrays.fill(slots, EMPTY);
+
+        // Halve maxGroups until it is near INITIAL_GROUPS, so doubling leads back to it.
+        int groups = maxGroups;
+        while (groups / 2 >= INITIAL_GROUPS) {
+            groups = (groups + 1) / 2;
+        }
+        allocate(groups);
+    }
+
+    /**
+     * @return The number of slots of a table of maxGroups groups: the smallest power of
+     *         two that is at least twice maxGroups.
+     */
+    static int getSlotCount(int maxGroups) {
+        return Integer.highestOneBit(Math.max(4, maxGroups * 2 - 1)) << 1;
+    }
+
+    /**
+     * @return The most bytes a table of maxGroups groups uses, while it grows included.
+     */
+    static long getBytes(int keyWidth, int aggregateCount, int maxGroups) {
+        // The key, its hash, and a count and a value per aggregate.
+        long bytesPerGroup = keyWidth * 8L + 4 + aggregateCount * 16L;
+        return (long) getSlotCount(maxGroups) * 4 + (maxGroups + (maxGroups + 1) / 2) * bytesPerGroup;
+    }
+
+    /**
+     * @return The largest maxGroups whose table fits in `bytes`, at least 1.
+     */
+    static int getCapacity(int keyWidth, int aggregateCount, long bytes) {
+        // Each slot count serves up to half as many groups; take the best that fits.
+        long bytesPerGroup = keyWidth * 8L + 4 + aggregateCount * 16L;
+        int best = 1;
+        for (int slotCount = 4; slotCount > 0 && (long) slotCount * 4 < bytes; slotCount *= 2) {
+            long groups = Math.min(slotCount / 2, (bytes - (long) slotCount * 4) * 2 / (3 * bytesPerGroup));
+            while (groups > best && getBytes(keyWidth, aggregateCount, (int) groups) > bytes) {
+                groups--;
+            }
+            best = (int) Math.max(best, groups);
+        }
+        return best;
+    }
+
+    int getSize() {
+        return size;
+    }
+
+    long[] getKeys() {
+        return keys;
+    }
+
+    long[] getCounts() {
+        return counts;
+    }
+
+    long[] getValues() {
+        return values;
+    }
+
+    /**
+     * Empties the table so it can be filled again. Its arrays are kept.
+     */
+    void clear() {
+        Arrays.fill(slots, EMPTY);
+        size = 0;
+    }
+
+    /**
+     * Finds the group of the key at src[offset, offset + keyWidth), adding it if it is new.
+     * @param hash The key's hash.
+     * @return The group number, or -1 if the key is new and the table is full.
+     */
+    int findOrAdd(long[] src, int offset, int hash) {
+        int slot = hash & mask;
+        while (slots[slot] != EMPTY) {
+            int group = slots[slot];
+            if (hashes[group] == hash && Arrays.equals(keys, group * keyWidth, (group + 1) * keyWidth,
+                    src, offset, offset + keyWidth)) {
+                return group;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (size == capacity) {
+            if (capacity == maxGroups) {
+                return EMPTY;
+            }
+            allocate((int) Math.min((long) capacity * 2, maxGroups));
+        }
+
+        int group = size++;
+        System.arraycopy(src, offset, keys, group * keyWidth, keyWidth);
+        hashes[group] = hash;
+        Arrays.fill(counts, group * aggregateCount, (group + 1) * aggregateCount, 0);
+        System.arraycopy(initialValues, 0, values, group * aggregateCount, aggregateCount);
+        slots[slot] = group;
+        return group;
+    }
+
+    /**
+     * Sizes the per-group arrays for `groups` groups, keeping the groups already added.
+     * The slots hold group numbers, which do not change, so they are left as they are.
+     */
+    private void allocate(int groups) {
+        capacity = groups;
+        keys = keys == null ? new long[groups * keyWidth] : Arrays.copyOf(keys, groups * keyWidth);
+        hashes = hashes == null ? new int[groups] : Arrays.copyOf(hashes, groups);
+        counts = counts == null ? new long[groups * aggregateCount] : Arrays.copyOf(counts, groups * aggregateCount);
+        values = values == null ? new long[groups * aggregateCount] : Arrays.copyOf(values, groups * aggregateCount);
+    }
+}
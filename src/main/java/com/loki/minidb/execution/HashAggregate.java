@@ -0,0 +1,401 @@
+package com.loki.minidb.execution;
+
+import com.loki.minidb.catalog.Type;
+import com.loki.minidb.storage.Page;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * HashAggregate computes aggregates per group, as in
+ * `SELECT a, b, COUNT(*), SUM(c) FROM t GROUP BY a, b`, using a bounded amount of
+ * memory however many groups there are. Each output row holds the group columns
+ * followed by one column per aggregate. NULL group keys form a group of their own.
+ *
+ * 1. Each input batch is handled in two loops. The first looks up every row's group in
+ *    a GroupTable, keyed by the group columns' primitive values. The second updates the
+ *    groups' flat state arrays, one aggregate at a time, as AggregateAccumulator does
+ *    for a single group.
+ * 2. The table may hold as many groups as memoryPages allows. Once it is full, rows of
+ *    groups already in it are still aggregated in memory, but rows of new groups are
+ *    written, as they are, to one of fanOut partitions chosen by a hash of their key.
+ *    A group is therefore either wholly in the table or wholly in one partition.
+ * 3. next() returns the table's groups. Then each partition is aggregated the same way
+ *    in turn, with a new hash for its own spilled rows, and its groups returned.
+ *
+ * Group columns are INTEGER or BIGINT; aggregate inputs are as for VectorAggregate.
+ * The groups come out in no particular order.
+ */
+public class HashAggregate implements VectorOperator {
+
+    /**
+     * Pass as the column of a COUNT to count rows, as in COUNT(*).
+     */
+    public static final int COUNT_STAR = AggregateAccumulator.COUNT_STAR;
+    public static final int DEFAULT_MEMORY_PAGES = 256;
+    private static final int MIN_MEMORY_PAGES = 16;
+    private static final int MAX_FAN_OUT = 32;
+    // Pages the partition reader moves per DiskManager call.
+    private static final int READ_AHEAD_PAGES = 2;
+    // Added to the key's hash, once per level, so each level partitions with a different hash.
+    private static final long LEVEL_SEED = 0x9E3779B97F4A7C15L;
+
+    private final VectorOperator child;
+    private final int[] groupColumns;
+    private final AggregateFunction[] functions;
+    private final int[] columns;
+    private final Type[] inputTypes;
+    private final Type[] types;
+    private final SortLayout rowLayout;
+    private final int keyWidth;
+    private final long[] initialValues;
+    private final int fanOut;
+    private final int maxGroups;
+
+    private GroupTable table;
+    private VectorBatch batch;
+    private int position;
+    // Per input batch: the key being looked up, and each selected row's group (-1 if spilled).
+    private long[] key;
+    private int[] groupIds;
+    private long[] spillRow;
+    // --- Spilling ---
+    private SpillFile spillFile;
+    private Deque<Partition> pending;
+    private SpillFile.RunWriter[] writers;   // The current pass's partitions, made on the first spill.
+    private int level;
+    private int partitionCount;
+    private int maxLevel;
+
+    /**
+     * Creates an aggregation with DEFAULT_MEMORY_PAGES pages of memory.
+     * @param child The input.
+     * @param groupColumns The columns to group by, each INTEGER or BIGINT.
+     * @param functions The aggregates to compute, one output column each.
+     * @param columns The input column of each aggregate, INTEGER or BIGINT, or COUNT_STAR.
+     */
+    public HashAggregate(VectorOperator child, int[] groupColumns, AggregateFunction[] functions, int[] columns) {
+        this(child, groupColumns, functions, columns, DEFAULT_MEMORY_PAGES);
+    }
+
+    /**
+     * Creates an aggregation.
+     * @param child The input.
+     * @param groupColumns The columns to group by, each INTEGER or BIGINT.
+     * @param functions The aggregates to compute, one output column each.
+     * @param columns The input column of each aggregate, INTEGER or BIGINT, or COUNT_STAR.
+     * @param memoryPages The memory budget, in pages of Page.PAGE_SIZE bytes, at least MIN_MEMORY_PAGES.
+     */
+    public HashAggregate(VectorOperator child, int[] groupColumns, AggregateFunction[] functions, int[] columns,
+                         int memoryPages) {
+        if (memoryPages < MIN_MEMORY_PAGES) {
+            throw new IllegalArgumentException("A hash aggregation needs at least " + MIN_MEMORY_PAGES + " pages of memory.");
+        }
+        this.inputTypes = child.getTypes();
+        if (groupColumns.length == 0) {
+            throw new IllegalArgumentException("A hash aggregation needs a group column; use VectorAggregate instead.");
+        }
+        for (int column : groupColumns) {
+            if (column < 0 || column >= inputTypes.length) {
+                throw new IllegalArgumentException("No column " + column + " to group by.");
+            }
+            if (inputTypes[column] != Type.INTEGER && inputTypes[column] != Type.BIGINT) {
+                throw new IllegalArgumentException("Cannot group by a " + inputTypes[column] + " column.");
+            }
+        }
+        // Check the aggregates now rather than when the query runs.
+        new AggregateAccumulator(functions, columns, inputTypes);
+        this.child = child;
+        this.groupColumns = groupColumns.clone();
+        this.functions = functions.clone();
+        this.columns = columns.clone();
+        this.rowLayout = new SortLayout(inputTypes, new int[0], new boolean[0]);
+        this.keyWidth = groupColumns.length + 1;
+
+        this.types = new Type[groupColumns.length + functions.length];
+        for (int k = 0; k < groupColumns.length; k++) {
+            types[k] = inputTypes[groupColumns[k]];
+        }
+        System.arraycopy(AggregateAccumulator.getResultTypes(functions), 0, types, groupColumns.length, functions.length);
+
+        this.initialValues = new long[functions.length];
+        for (int a = 0; a < functions.length; a++) {
+            initialValues[a] = switch (functions[a]) {
+                case MIN -> Long.MAX_VALUE;
+                case MAX -> Long.MIN_VALUE;
+                default -> 0;
+            };
+        }
+
+        // Each partition writer holds one page, and the partition reader READ_AHEAD_PAGES.
+        this.fanOut = Math.max(2, Math.min(MAX_FAN_OUT, memoryPages / 4));
+        long tableBytes = (long) (memoryPages - fanOut - READ_AHEAD_PAGES) * Page.PAGE_SIZE;
+        this.maxGroups = GroupTable.getCapacity(keyWidth, functions.length, tableBytes);
+    }
+
+    @Override
+    public Type[] getTypes() {
+        return types.clone();
+    }
+
+    @Override
+    public void open() throws IOException {
+        child.open();
+        table = new GroupTable(keyWidth, initialValues, maxGroups);
+        batch = new VectorBatch(types, VectorBatch.DEFAULT_CAPACITY);
+        key = new long[keyWidth];
+        groupIds = new int[VectorBatch.DEFAULT_CAPACITY];
+        spillRow = new long[rowLayout.getWidth()];
+        pending = new ArrayDeque<>();
+        writers = null;
+        level = 0;
+        partitionCount = 0;
+        maxLevel = 0;
+
+        // 1. Aggregate the input, spilling the rows of groups that do not fit.
+        VectorBatch input;
+        while ((input = child.next()) != null) {
+            accumulate(input);
+        }
+        finishPass();
+        position = 0;
+    }
+
+    @Override
+    public VectorBatch next() throws IOException {
+        while (true) {
+            // 1. Return the groups of the current pass.
+            if (position < table.getSize()) {
+                batch.reset();
+                int size = 0;
+                while (size < batch.getCapacity() && position < table.getSize()) {
+                    writeGroup(position++, size++);
+                }
+                batch.setSize(size);
+                return batch;
+            }
+
+            // 2. Then aggregate the next partition.
+            Partition partition = pending.poll();
+            if (partition == null) {
+                return null;
+            }
+            table.clear();
+            level = partition.level;
+            VectorBatch rows = new VectorBatch(inputTypes, VectorBatch.DEFAULT_CAPACITY);
+            SpillFile.RunReader reader = spillFile.openRun(partition.run, READ_AHEAD_PAGES);
+            int size = 0;
+            while (reader.next()) {
+                rowLayout.decode(reader.row(), 0, rows, size++);
+                if (size == rows.getCapacity()) {
+                    rows.setSize(size);
+                    accumulate(rows);
+                    size = 0;
+                }
+            }
+            if (size > 0) {
+                rows.setSize(size);
+                accumulate(rows);
+            }
+            finishPass();
+            position = 0;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        table = null;
+        batch = null;
+        pending = null;
+        writers = null;
+        try {
+            child.close();
+        } finally {
+            if (spillFile != null) {
+                spillFile.close();
+                spillFile = null;
+            }
+        }
+    }
+
+    /**
+     * @return The number of partitions rows were spilled to, counting every level.
+     *         0 if every group fit in memory.
+     */
+    int getPartitionCount() {
+        return partitionCount;
+    }
+
+    /**
+     * @return The deepest level of partitioning used. 0 if every group fit in memory.
+     */
+    int getMaxLevel() {
+        return maxLevel;
+    }
+
+    /**
+     * Adds the selected rows of a batch to their groups.
+     */
+    private void accumulate(VectorBatch input) throws IOException {
+        int count = input.getSelectedCount();
+        if (groupIds.length < count) {
+            groupIds = new int[count];
+        }
+
+        // 1. Find each row's group. Rows of new groups that do not fit are spilled.
+        for (int i = 0; i < count; i++) {
+            int row = input.getSelectedRow(i);
+            long nullMask = 0;
+            for (int k = 0; k < groupColumns.length; k++) {
+                int column = groupColumns[k];
+                if (input.getNulls(column)[row]) {
+                    nullMask |= 1L << k;
+                    key[1 + k] = 0;
+                } else {
+                    key[1 + k] = input.getType(column) == Type.INTEGER
+                            ? input.getInts(column)[row] : input.getLongs(column)[row];
+                }
+            }
+            key[0] = nullMask;
+            int group = table.findOrAdd(key, 0, (int) hashKey(key, 0));
+            if (group < 0) {
+                spill(input, row);
+            }
+            groupIds[i] = group;
+        }
+
+        // 2. Update the groups' states, one aggregate at a time.
+        long[] counts = table.getCounts();
+        long[] values = table.getValues();
+        int stride = functions.length;
+        for (int a = 0; a < functions.length; a++) {
+            int column = columns[a];
+            if (column == COUNT_STAR) {
+                for (int i = 0; i < count; i++) {
+                    int group = groupIds[i];
+                    if (group >= 0) {
+                        counts[group * stride + a]++;
+                    }
+                }
+                continue;
+            }
+            boolean[] nulls = input.getNulls(column);
+            int[] ints = input.getType(column) == Type.INTEGER ? input.getInts(column) : null;
+            long[] longs = input.getType(column) == Type.BIGINT ? input.getLongs(column) : null;
+            AggregateFunction function = functions[a];
+            for (int i = 0; i < count; i++) {
+                int group = groupIds[i];
+                int row = input.getSelectedRow(i);
+                if (group < 0 || nulls[row]) {
+                    continue;
+                }
+                long value = ints != null ? ints[row] : longs[row];
+                int state = group * stride + a;
+                counts[state]++;
+                switch (function) {
+                    case SUM, AVG -> values[state] += value;
+                    case MIN -> values[state] = Math.min(values[state], value);
+                    case MAX -> values[state] = Math.max(values[state], value);
+                    case COUNT -> { }
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes a row whose group did not fit to the partition of its key.
+     */
+    private void spill(VectorBatch input, int row) throws IOException {
+        if (writers == null) {
+            if (spillFile == null) {
+                spillFile = new SpillFile();
+            }
+            writers = new SpillFile.RunWriter[fanOut];
+            for (int p = 0; p < fanOut; p++) {
+                writers[p] = spillFile.newRun(rowLayout.getWidth(), 1);
+            }
+        }
+        rowLayout.encode(input, row, spillRow, 0);
+        long hash = hashKey(key, (level + 1) * LEVEL_SEED);
+        writers[Math.floorMod(hash, fanOut)].append(spillRow, 0);
+    }
+
+    /**
+     * Ends a pass over the input or a partition: its spilled partitions are queued, ahead
+     * of the others, so few runs are alive at a time.
+     */
+    private void finishPass() throws IOException {
+        if (writers == null) {
+            return;
+        }
+        for (int p = fanOut - 1; p >= 0; p--) {
+            SpillFile.Run run = writers[p].finish();
+            if (run.getRowCount() > 0) {
+                pending.addFirst(new Partition(run, level + 1));
+            }
+        }
+        writers = null;
+        partitionCount += fanOut;
+        maxLevel = Math.max(maxLevel, level + 1);
+    }
+
+    /**
+     * Writes group g of the table into one row of the output batch.
+     */
+    private void writeGroup(int group, int row) {
+        long[] keys = table.getKeys();
+        long nullMask = keys[group * keyWidth];
+        for (int k = 0; k < groupColumns.length; k++) {
+            batch.getNulls(k)[row] = (nullMask & (1L << k)) != 0;
+            long value = keys[group * keyWidth + 1 + k];
+            if (types[k] == Type.INTEGER) {
+                batch.getInts(k)[row] = (int) value;
+            } else {
+                batch.getLongs(k)[row] = value;
+            }
+        }
+
+        long[] counts = table.getCounts();
+        long[] values = table.getValues();
+        for (int a = 0; a < functions.length; a++) {
+            int column = groupColumns.length + a;
+            int state = group * functions.length + a;
+            boolean isNull = functions[a] != AggregateFunction.COUNT && counts[state] == 0;
+            batch.getNulls(column)[row] = isNull;
+            if (isNull) {
+                continue;
+            }
+            switch (functions[a]) {
+                case COUNT -> batch.getLongs(column)[row] = counts[state];
+                case SUM, MIN, MAX -> batch.getLongs(column)[row] = values[state];
+                case AVG -> batch.getDoubles(column)[row] = (double) values[state] / counts[state];
+            }
+        }
+    }
+
+    /**
+     * Hashes the key at src[0, keyWidth). Each long is mixed in turn,
+     * starting from the seed, so different seeds give unrelated hashes.
+     */
+    private long hashKey(long[] src, long seed) {
+        long hash = seed;
+        for (int i = 0; i < keyWidth; i++) {
+            hash = JoinHashTable.mix(hash + src[i]);
+        }
+        return hash;
+    }
+
+    /**
+     * Spilled rows of groups that did not fit, to be aggregated at the given level.
+     */
+    private static final class Partition {
+        private final SpillFile.Run run;
+        private final int level;
+
+        private Partition(SpillFile.Run run, int level) {
+            this.run = run;
+            this.level = level;
+        }
+    }
+}
@@ -0,0 +1,626 @@
+package com.loki.minidb.execution;
+
+import com.loki.minidb.catalog.Type;
+import com.loki.minidb.storage.Page;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * HashJoin returns the pairs of left and right rows whose join keys are equal, as an
+ * inner equi-join does, using a bounded amount of memory however large the inputs are.
+ * Each output row holds the left row's columns followed by the right row's.
+ *
+ * The right input is the build side, so the planner should put the smaller input (the
+ * dimension table) on the right. Join keys are INTEGER or BIGINT columns, compared as
+ * longs; a NULL key matches nothing.
+ *
+ * 1. Build: the right rows are added to a JoinHashTable sized from memoryPages.
+ * 2. If they all fit, the table is probed with the left input, and nothing touches disk.
+ * 3. Otherwise (Grace hash join), both inputs are split by a hash of their key into
+ *    fanOut partitions, written as runs of a SpillFile. Rows with equal keys land in
+ *    partitions with the same number, so each pair of partitions is joined on its own.
+ *    For each pair, the smaller side is loaded into the table and the other side probes
+ *    it. A pair whose smaller side still does not fit is split again with a different
+ *    hash, up to MAX_LEVELS times. Past that, its rows share too few keys to be split
+ *    further, and its smaller side is loaded one table-full at a time, the other side
+ *    being read once per table-full.
+ *
+ * Every probe phase runs on `parallelism` workers in a ForkJoinPool made for this query.
+ * The table is read-only while it is probed, so the workers share it without locks; they
+ * take blocks of probe rows from a shared source and hand their output batches to next()
+ * through a bounded queue, as ParallelSeqScan does. A worker that runs out of probe rows
+ * puts an end marker in the queue, and once next() has seen every worker's marker, it
+ * loads the next pair.
+ *
+ * The memory budget covers everything that grows with the data or the parallelism: the
+ * table with its slots, the spill pages being written or read, and each worker's probe
+ * block and output batches, including those waiting in the queue. The probe blocks and
+ * batches are sized to take at most half of the budget; the table gets what is left.
+ *
+ * The rows come out in no particular order. A worker's error is thrown by next().
+ */
+public class HashJoin implements VectorOperator {
+
+    public static final int DEFAULT_MEMORY_PAGES = 256;
+    private static final int MIN_MEMORY_PAGES = 16;
+    // Fewer rows per probe block and output batch would make each worker's hand-off too costly.
+    private static final int MIN_BATCH_ROWS = 16;
+    private static final int MAX_FAN_OUT = 32;
+    // Pages each run reader moves per DiskManager call.
+    private static final int READ_AHEAD_PAGES = 2;
+    private static final int MAX_LEVELS = 3;
+    // How long a worker waits for room in the queue before it checks whether the join was closed.
+    private static final long POLL_MILLIS = 10;
+    // Put in the queue by a worker once it has handed over all of its output.
+    private static final VectorBatch END = new VectorBatch(new Type[0], 0);
+    // Added to the key, once per level, so each level partitions with a different hash.
+    private static final long LEVEL_SEED = 0x9E3779B97F4A7C15L;
+
+    private final VectorOperator left;
+    private final VectorOperator right;
+    private final int leftKey;
+    private final int rightKey;
+    private final SortLayout leftLayout;
+    private final SortLayout rightLayout;
+    private final int leftColumns;
+    private final int parallelism;
+    private final int fanOut;
+    // Rows per probe block and per output batch.
+    private final int batchRows;
+    private final long tableBytes;
+    private final Type[] types;
+
+    // --- Build side and partitions ---
+    private JoinHashTable table;
+    private boolean tableHoldsLeft;
+    private SpillFile spillFile;
+    private Deque<Partition> pending;
+    // The pair whose build side is being loaded, and where its next table-full starts.
+    private Partition current;
+    private SpillFile.RunReader buildReader;
+    private int partitionCount;
+    private int maxLevel;
+
+    // --- Probe workers ---
+    private ForkJoinPool pool;
+    private BlockingQueue<VectorBatch> output;
+    // Workers of the current phase whose end marker next() has not seen yet.
+    private int activeWorkers;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private volatile boolean closed;
+
+    /**
+     * Creates a join with DEFAULT_MEMORY_PAGES pages of memory.
+     * @param left The probe input.
+     * @param right The build input, ideally the smaller one.
+     * @param leftKey The left join key column, INTEGER or BIGINT.
+     * @param rightKey The right join key column, INTEGER or BIGINT.
+     * @param parallelism The number of probe worker threads for this query.
+     */
+    public HashJoin(VectorOperator left, VectorOperator right, int leftKey, int rightKey, int parallelism) {
+        this(left, right, leftKey, rightKey, parallelism, DEFAULT_MEMORY_PAGES);
+    }
+
+    /**
+     * Creates a join.
+     * @param left The probe input.
+     * @param right The build input, ideally the smaller one.
+     * @param leftKey The left join key column, INTEGER or BIGINT.
+     * @param rightKey The right join key column, INTEGER or BIGINT.
+     * @param parallelism The number of probe worker threads for this query.
+     * @param memoryPages The memory budget, in pages of Page.PAGE_SIZE bytes, at least MIN_MEMORY_PAGES,
+     *                    and enough for each worker's buffers.
+     */
+    public HashJoin(VectorOperator left, VectorOperator right, int leftKey, int rightKey, int parallelism,
+                    int memoryPages) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1.");
+        }
+        if (memoryPages < MIN_MEMORY_PAGES) {
+            throw new IllegalArgumentException("A hash join needs at least " + MIN_MEMORY_PAGES + " pages of memory.");
+        }
+        Type[] leftTypes = left.getTypes();
+        Type[] rightTypes = right.getTypes();
+        checkKey(leftTypes, leftKey);
+        checkKey(rightTypes, rightKey);
+        this.left = left;
+        this.right = right;
+        this.leftKey = leftKey;
+        this.rightKey = rightKey;
+        this.leftLayout = new SortLayout(leftTypes, new int[0], new boolean[0]);
+        this.rightLayout = new SortLayout(rightTypes, new int[0], new boolean[0]);
+        this.leftColumns = leftTypes.length;
+        this.parallelism = parallelism;
+        this.types = new Type[leftTypes.length + rightTypes.length];
+        System.arraycopy(leftTypes, 0, types, 0, leftTypes.length);
+        System.arraycopy(rightTypes, 0, types, leftTypes.length, rightTypes.length);
+
+        // 1. Worker buffers: each worker has a probe block and the output batch it fills,
+        //    up to 2 * parallelism more batches wait in the queue, and next() holds one.
+        long budget = (long) memoryPages * Page.PAGE_SIZE;
+        int probeBytes = Math.max(leftLayout.getWidth(), rightLayout.getWidth()) * Long.BYTES;
+        long bytesPerRow = (long) parallelism * probeBytes
+                + (3L * parallelism + 1) * VectorBatch.getBytesPerRow(types);
+        this.batchRows = (int) Math.min(VectorBatch.DEFAULT_CAPACITY, budget / 2 / bytesPerRow);
+        if (batchRows < MIN_BATCH_ROWS) {
+            throw new IllegalArgumentException(memoryPages + " pages of memory are too few for "
+                    + parallelism + " probe workers.");
+        }
+
+        // 2. Spill pages: while partitioning, one page per partition writer and the pages of
+        //    the run being split; while probing, the pages of the two runs being read.
+        this.fanOut = Math.max(2, Math.min(MAX_FAN_OUT, memoryPages / 4));
+        int spillPages = Math.max(fanOut + READ_AHEAD_PAGES, 2 * READ_AHEAD_PAGES);
+
+        // 3. The table gets the rest.
+        this.tableBytes = budget - bytesPerRow * batchRows - (long) spillPages * Page.PAGE_SIZE;
+    }
+
+    private static void checkKey(Type[] types, int key) {
+        if (key < 0 || key >= types.length) {
+            throw new IllegalArgumentException("No column " + key + " to join on.");
+        }
+        if (types[key] != Type.INTEGER && types[key] != Type.BIGINT) {
+            throw new IllegalArgumentException("Cannot join on a " + types[key] + " column.");
+        }
+    }
+
+    @Override
+    public Type[] getTypes() {
+        return types.clone();
+    }
+
+    @Override
+    public void open() throws IOException {
+        closed = false;
+        failure.set(null);
+        activeWorkers = 0;
+        pending = new ArrayDeque<>();
+        current = null;
+        buildReader = null;
+        partitionCount = 0;
+        maxLevel = 0;
+        left.open();
+        right.open();
+        output = new ArrayBlockingQueue<>(parallelism * 2);
+        pool = new ForkJoinPool(parallelism);
+
+        // 1. Build: add the right rows to the table until it is full.
+        table = newTable(false);
+        Partitioner rightPartitioner = null;
+        long[] row = new long[rightLayout.getWidth()];
+        VectorBatch input;
+        while ((input = right.next()) != null) {
+            for (int i = 0; i < input.getSelectedCount(); i++) {
+                rightLayout.encode(input, input.getSelectedRow(i), row, 0);
+                if (rightPartitioner == null && table.isFull()) {
+                    // The right input does not fit: partition it, starting with the table's rows.
+                    spillFile = new SpillFile();
+                    rightPartitioner = new Partitioner(rightLayout.getWidth(), rightKey, 1);
+                    for (int r = 0; r < table.getSize(); r++) {
+                        rightPartitioner.add(table.getRows(), r * table.getWidth());
+                    }
+                    table.clear();
+                }
+                if (rightPartitioner == null) {
+                    table.add(row, 0);
+                } else {
+                    rightPartitioner.add(row, 0);
+                }
+            }
+        }
+
+        // 2. Everything fit: probe the table with the left input.
+        if (rightPartitioner == null) {
+            startProbe(new OperatorSource(left, leftLayout), false);
+            return;
+        }
+
+        // 3. Partition the left input the same way. The pairs are joined by next().
+        SpillFile.Run[] rightRuns = rightPartitioner.finish();
+        Partitioner leftPartitioner = new Partitioner(leftLayout.getWidth(), leftKey, 1);
+        row = new long[leftLayout.getWidth()];
+        while ((input = left.next()) != null) {
+            for (int i = 0; i < input.getSelectedCount(); i++) {
+                leftLayout.encode(input, input.getSelectedRow(i), row, 0);
+                leftPartitioner.add(row, 0);
+            }
+        }
+        SpillFile.Run[] leftRuns = leftPartitioner.finish();
+        for (int p = 0; p < fanOut; p++) {
+            pending.add(new Partition(leftRuns[p], rightRuns[p], 1));
+        }
+        partitionCount = fanOut;
+        maxLevel = 1;
+    }
+
+    @Override
+    public VectorBatch next() throws IOException {
+        try {
+            while (true) {
+                // A worker puts its end marker after its last batch, so once every marker
+                // of this phase has been seen, its output has all been returned.
+                if (activeWorkers == 0) {
+                    if (!startNextPhase()) {
+                        return null;
+                    }
+                    continue;
+                }
+                VectorBatch batch = output.take();
+                if (batch != END) {
+                    return batch;
+                }
+                activeWorkers--;
+                rethrowFailure();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the probe workers.", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try {
+            // As in ParallelSeqScan, the workers are not interrupted, since an interrupt
+            // during a FileChannel read closes the channel. They see `closed` instead.
+            if (pool != null) {
+                pool.shutdown();
+                pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while stopping the probe workers.", e);
+        } finally {
+            pool = null;
+            output = null;
+            table = null;
+            pending = null;
+            current = null;
+            buildReader = null;
+            try {
+                left.close();
+                right.close();
+            } finally {
+                if (spillFile != null) {
+                    spillFile.close();
+                    spillFile = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The number of partitions the inputs were split into, counting every level.
+     *         0 if the right input fit in memory.
+     */
+    int getPartitionCount() {
+        return partitionCount;
+    }
+
+    /**
+     * @return The deepest level of partitioning used. 0 if the right input fit in memory.
+     */
+    int getMaxLevel() {
+        return maxLevel;
+    }
+
+    /**
+     * Finds the next table-full of build rows, loads it, and starts probing it.
+     * Runs on the caller's thread, while no worker is running.
+     * @return false if every pair of partitions has been joined.
+     */
+    private boolean startNextPhase() throws IOException {
+        while (true) {
+            // 1. Continue with the current pair if its build side has rows left.
+            if (buildReader != null) {
+                table.clear();
+                boolean loaded = false;
+                while (!table.isFull() && buildReader.next()) {
+                    table.add(buildReader.row(), 0);
+                    loaded = true;
+                }
+                if (loaded) {
+                    SpillFile.Run probeRun = tableHoldsLeft ? current.right : current.left;
+                    startProbe(new RunSource(spillFile.openRun(probeRun, READ_AHEAD_PAGES),
+                            tableHoldsLeft ? rightLayout : leftLayout), tableHoldsLeft);
+                    return true;
+                }
+                buildReader = null;
+                current = null;
+            }
+
+            // 2. Take the next pair. An empty side means no matches.
+            Partition partition = pending.poll();
+            if (partition == null) {
+                return false;
+            }
+            if (partition.left.getRowCount() == 0 || partition.right.getRowCount() == 0) {
+                continue;
+            }
+
+            // 3. Build on the smaller side, or split the pair again if even that does not fit.
+            boolean buildLeft = partition.left.getRowCount() < partition.right.getRowCount();
+            SpillFile.Run buildRun = buildLeft ? partition.left : partition.right;
+            int buildWidth = (buildLeft ? leftLayout : rightLayout).getWidth();
+            if (buildRun.getRowCount() > getMaxTableRows(buildWidth) && partition.level < MAX_LEVELS) {
+                repartition(partition);
+                continue;
+            }
+            if (tableHoldsLeft != buildLeft) {
+                // The rows have another width: drop the old table before making the new one.
+                table = null;
+                table = newTable(buildLeft);
+            }
+            current = partition;
+            buildReader = spillFile.openRun(buildRun, READ_AHEAD_PAGES);
+        }
+    }
+
+    /**
+     * Splits both sides of a pair into fanOut pairs with the next level's hash. The new
+     * pairs are joined before any other pending pair, so few runs are alive at a time.
+     */
+    private void repartition(Partition partition) throws IOException {
+        int level = partition.level + 1;
+        SpillFile.Run[] leftRuns = split(partition.left, leftLayout.getWidth(), leftKey, level);
+        SpillFile.Run[] rightRuns = split(partition.right, rightLayout.getWidth(), rightKey, level);
+        for (int p = fanOut - 1; p >= 0; p--) {
+            pending.addFirst(new Partition(leftRuns[p], rightRuns[p], level));
+        }
+        partitionCount += fanOut;
+        maxLevel = Math.max(maxLevel, level);
+    }
+
+    private SpillFile.Run[] split(SpillFile.Run run, int width, int keyColumn, int level) throws IOException {
+        Partitioner partitioner = new Partitioner(width, keyColumn, level);
+        SpillFile.RunReader reader = spillFile.openRun(run, READ_AHEAD_PAGES);
+        while (reader.next()) {
+            partitioner.add(reader.row(), 0);
+        }
+        return partitioner.finish();
+    }
+
+    private JoinHashTable newTable(boolean holdsLeft) {
+        tableHoldsLeft = holdsLeft;
+        SortLayout layout = holdsLeft ? leftLayout : rightLayout;
+        int width = layout.getWidth();
+        return new JoinHashTable(width, holdsLeft ? leftKey : rightKey, getMaxTableRows(width));
+    }
+
+    private int getMaxTableRows(int width) {
+        return JoinHashTable.getCapacity(width, tableBytes);
+    }
+
+    /**
+     * Starts `parallelism` workers that probe the table with the rows of `source`.
+     */
+    private void startProbe(ProbeSource source, boolean holdsLeft) {
+        activeWorkers = parallelism;
+        for (int worker = 0; worker < parallelism; worker++) {
+            pool.execute(() -> probe(source, holdsLeft));
+        }
+    }
+
+    /**
+     * Probes the table with blocks of rows from the source until it is empty, handing
+     * the joined rows to next(), then puts its end marker.
+     */
+    private void probe(ProbeSource source, boolean holdsLeft) {
+        BlockingQueue<VectorBatch> queue = output;
+        JoinHashTable buildTable = table;
+        long[] buildRows = buildTable.getRows();
+        int buildWidth = buildTable.getWidth();
+        int probeKey = holdsLeft ? rightKey : leftKey;
+        int probeWidth = (holdsLeft ? rightLayout : leftLayout).getWidth();
+        long[] probeRows = new long[batchRows * probeWidth];
+        VectorBatch batch = new VectorBatch(types, batchRows);
+        int size = 0;
+        try {
+            int count;
+            while (!closed && (count = source.fill(probeRows, batchRows)) > 0) {
+                for (int i = 0; i < count; i++) {
+                    int offset = i * probeWidth;
+                    if (JoinHashTable.isNullKey(probeRows, offset, probeKey)) {
+                        continue;
+                    }
+                    long key = probeRows[offset + 1 + probeKey];
+                    for (int match = buildTable.find(key); match >= 0; match = buildTable.findNext(match)) {
+                        if (size == batch.getCapacity()) {
+                            if (!emit(queue, batch, size)) {
+                                return;
+                            }
+                            batch = new VectorBatch(types, batchRows);
+                            size = 0;
+                        }
+                        if (holdsLeft) {
+                            leftLayout.decode(buildRows, match * buildWidth, batch, size, 0);
+                            rightLayout.decode(probeRows, offset, batch, size, leftColumns);
+                        } else {
+                            leftLayout.decode(probeRows, offset, batch, size, 0);
+                            rightLayout.decode(buildRows, match * buildWidth, batch, size, leftColumns);
+                        }
+                        size++;
+                    }
+                }
+            }
+            if (size > 0 && !emit(queue, batch, size)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (IOException e) {
+            failure.compareAndSet(null, new UncheckedIOException(e));
+        } catch (Throwable t) {
+            failure.compareAndSet(null, t);
+        }
+        try {
+            putEnd(queue);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Hands a full batch to next().
+     * @return false if the join was closed while waiting for room in the queue.
+     */
+    private boolean emit(BlockingQueue<VectorBatch> queue, VectorBatch batch, int size) throws InterruptedException {
+        batch.setSize(size);
+        while (!queue.offer(batch, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+            if (closed) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Tells next() that this worker is done. Nobody waits for the marker once the join is closed.
+     */
+    private void putEnd(BlockingQueue<VectorBatch> queue) throws InterruptedException {
+        while (!queue.offer(END, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+            if (closed) {
+                return;
+            }
+        }
+    }
+
+    private void rethrowFailure() throws IOException {
+        Throwable t = failure.get();
+        if (t == null) {
+            return;
+        }
+        if (t instanceof UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (t instanceof RuntimeException e) {
+            throw e;
+        }
+        throw new IllegalStateException("A probe worker failed.", t);
+    }
+
+    /**
+     * A pair of partitions with the same number: every match for a row of one is in the other.
+     */
+    private static final class Partition {
+        private final SpillFile.Run left;
+        private final SpillFile.Run right;
+        private final int level;
+
+        private Partition(SpillFile.Run left, SpillFile.Run right, int level) {
+            this.left = left;
+            this.right = right;
+            this.level = level;
+        }
+    }
+
+    /**
+     * Splits rows into fanOut runs by a hash of their key. Rows with a NULL key are
+     * dropped, since they match nothing.
+     */
+    private final class Partitioner {
+        private final SpillFile.RunWriter[] writers;
+        private final int keyColumn;
+        private final long seed;
+
+        private Partitioner(int width, int keyColumn, int level) {
+            this.writers = new SpillFile.RunWriter[fanOut];
+            for (int p = 0; p < fanOut; p++) {
+                writers[p] = spillFile.newRun(width, 1);
+            }
+            this.keyColumn = keyColumn;
+            this.seed = level * LEVEL_SEED;
+        }
+
+        void add(long[] src, int offset) throws IOException {
+            if (JoinHashTable.isNullKey(src, offset, keyColumn)) {
+                return;
+            }
+            long hash = JoinHashTable.mix(src[offset + 1 + keyColumn] + seed);
+            writers[Math.floorMod(hash, fanOut)].append(src, offset);
+        }
+
+        SpillFile.Run[] finish() throws IOException {
+            SpillFile.Run[] runs = new SpillFile.Run[fanOut];
+            for (int p = 0; p < fanOut; p++) {
+                runs[p] = writers[p].finish();
+            }
+            return runs;
+        }
+    }
+
+    /**
+     * Hands out blocks of encoded probe rows to the workers, one worker at a time.
+     */
+    private interface ProbeSource {
+        /**
+         * Copies up to maxRows rows into `rows`, one after another.
+         * @return The number of rows copied, 0 when the source is empty.
+         */
+        int fill(long[] rows, int maxRows) throws IOException;
+    }
+
+    /**
+     * Probe rows read from an operator.
+     */
+    private static final class OperatorSource implements ProbeSource {
+        private final VectorOperator child;
+        private final SortLayout layout;
+        private VectorBatch batch;
+        private int position;
+        private boolean done;
+
+        private OperatorSource(VectorOperator child, SortLayout layout) {
+            this.child = child;
+            this.layout = layout;
+        }
+
+        @Override
+        public synchronized int fill(long[] rows, int maxRows) throws IOException {
+            int count = 0;
+            while (count < maxRows && !done) {
+                if (batch == null || position == batch.getSelectedCount()) {
+                    batch = child.next();
+                    position = 0;
+                    done = batch == null;
+                    continue;
+                }
+                layout.encode(batch, batch.getSelectedRow(position++), rows, count++ * layout.getWidth());
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Probe rows read from a spilled partition.
+     */
+    private static final class RunSource implements ProbeSource {
+        private final SpillFile.RunReader reader;
+        private final int width;
+
+        private RunSource(SpillFile.RunReader reader, SortLayout layout) {
+            this.reader = reader;
+            this.width = layout.getWidth();
+        }
+
+        @Override
+        public synchronized int fill(long[] rows, int maxRows) throws IOException {
+            int count = 0;
+            while (count < maxRows && reader.next()) {
+                System.arraycopy(reader.row(), 0, rows, count++ * width, width);
+            }
+            return count;
+        }
+    }
+}
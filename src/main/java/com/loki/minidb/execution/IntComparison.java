@@ -0,0 +1,74 @@
+package com.loki.minidb.execution;
+
+import com.loki.minidb.catalog.Type;
+
+/**
+ * IntComparison compares an INTEGER column with a constant, as in `column < 10`.
+ *
+ * Every operator except NE is turned into a range [low, high] when the predicate is
+ * created, so apply() needs a single loop with no switch inside it: `x < 10` becomes
+ * [Integer.MIN_VALUE, 9] and `x = 10` becomes [10, 10]. The bounds are longs, so
+ * `x < Integer.MIN_VALUE` becomes an empty range instead of overflowing.
+ *
+ * As in SQL, a NULL value never satisfies the comparison.
+ */
+public final class IntComparison implements VectorPredicate {
+
+    private final int column;
+    private final boolean notEqual;
+    private final int value;
+    private final long low;
+    private final long high;
+
+    /**
+     * @param column The INTEGER column of the batch to compare.
+     * @param op The comparison.
+     * @param value The constant to compare with.
+     */
+    public IntComparison(int column, CompareOp op, int value) {
+        this.column = column;
+        this.notEqual = op == CompareOp.NE;
+        this.value = value;
+        this.low = switch (op) {
+            case EQ, GE -> value;
+            case GT -> (long) value + 1;
+            case LT, LE, NE -> Integer.MIN_VALUE;
+        };
+        this.high = switch (op) {
+            case EQ, LE -> value;
+            case LT -> (long) value - 1;
+            case GT, GE, NE -> Integer.MAX_VALUE;
+        };
+    }
+
+    @Override
+    public void apply(VectorBatch batch) {
+        if (batch.getType(column) != Type.INTEGER) {
+            throw new IllegalArgumentException("Column " + column + " is " + batch.getType(column) + ", not INTEGER.");
+        }
+        int[] values = batch.getInts(column);
+        boolean[] nulls = batch.getNulls(column);
+        int count = batch.getSelectedCount();
+        int[] selection = batch.getSelection();
+
+        // Narrow the selection in place: a kept row is never written past the one being read.
+        int kept = 0;
+        if (notEqual) {
+            for (int i = 0; i < count; i++) {
+                int row = selection[i];
+                if (!nulls[row] && values[row] != value) {
+                    selection[kept++] = row;
+                }
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                int row = selection[i];
+                int x = values[row];
+                if (!nulls[row] && x >= low && x <= high) {
+                    selection[kept++] = row;
+                }
+            }
+        }
+        batch.setSelectedCount(kept);
+    }
+}
@@ -0,0 +1,189 @@
+package com.loki.minidb.execution;
+
+import java.util.Arrays;
+
+/**
+ * JoinHashTable holds the build rows of a hash join, indexed by their INTEGER or BIGINT
+ * join key, without boxing.
+ *
+ * The rows are stored as they are encoded (see SortLayout), one after another in a
+ * single long[]. The index uses open addressing with linear probing over two parallel
+ * arrays: the distinct keys, and for each key the first row that has it. Further rows
+ * with the same key are chained through a per-row int[] of "next row" numbers, so a
+ * key takes one slot however many rows share it. The slot count is at least twice the
+ * row capacity, so the index is at most half full.
+ *
+ * The table has a fixed capacity, chosen from the join's memory budget, and is filled
+ * again with clear(), never grown. A filled table can be probed by many threads at once.
+ */
+final class JoinHashTable {
+
+    private static final int EMPTY = -1;
+
+    private final int width;
+    private final int keyColumn;
+    private final int capacity;
+    private final long[] rows;        // Row r is rows[r * width, (r + 1) * width).
+    private final int[] nextRows;     // The next row with the same key, or EMPTY.
+    private final long[] slotKeys;
+    private final int[] slotRows;     // The first row with the slot's key, or EMPTY if the slot is free.
+    private final int mask;           // (number of slots - 1), the slot count is a power of two.
+    private int size;
+
+    /**
+     * @param width The number of longs per row.
+     * @param keyColumn The column that holds the join key.
+     * @param capacity The maximum number of rows.
+     */
+    JoinHashTable(int width, int keyColumn, int capacity) {
+        this.width = width;
+        this.keyColumn = keyColumn;
+        this.capacity = capacity;
+        this.rows = new long[capacity * width];
+        this.nextRows = new int[capacity];
+        int slots = getSlotCount(capacity);
+        this.slotKeys = new long[slots];
+        this.slotRows = new int[slots];
+        this.mask = slots - 1;
+        Arrays.fill(slotRows, EMPTY);
+    }
+
+    /**
+     * @return The number of slots of a table of the given capacity: the smallest power
+     *         of two that is at least twice the capacity.
+     */
+    static int getSlotCount(int capacity) {
+        return Integer.highestOneBit(Math.max(4, capacity * 2 - 1)) << 1;
+    }
+
+    /**
+     * @return The number of bytes a table of the given capacity allocates.
+     */
+    static long getBytes(int width, int capacity) {
+        // The rows and their next-row links, and per slot a long key and an int row.
+        return (long) capacity * (width * 8 + 4) + (long) getSlotCount(capacity) * (8 + 4);
+    }
+
+    /**
+     * @return The largest capacity whose table of rows of `width` longs fits in `bytes`,
+     *         at least 1.
+     */
+    static int getCapacity(int width, long bytes) {
+        // Each slot count serves capacities up to half of it; take the best that fits.
+        int best = 1;
+        for (int slots = 4; slots > 0 && (long) slots * (8 + 4) < bytes; slots *= 2) {
+            long capacity = Math.min(slots / 2, (bytes - (long) slots * (8 + 4)) / (width * 8 + 4));
+            best = (int) Math.max(best, capacity);
+        }
+        return best;
+    }
+
+    int getWidth() {
+        return width;
+    }
+
+    int getKeyColumn() {
+        return keyColumn;
+    }
+
+    int getSize() {
+        return size;
+    }
+
+    boolean isFull() {
+        return size == capacity;
+    }
+
+    /**
+     * @return The array the rows are stored in. Row r starts at r * getWidth().
+     */
+    long[] getRows() {
+        return rows;
+    }
+
+    /**
+     * Empties the table so it can be filled again.
+     */
+    void clear() {
+        Arrays.fill(slotRows, EMPTY);
+        size = 0;
+    }
+
+    /**
+     * Adds the row at src[offset, offset + width). A row whose key is NULL matches
+     * nothing in an inner join, so it is not stored.
+     * @throws IllegalStateException if the table is full.
+     */
+    void add(long[] src, int offset) {
+        if (isNullKey(src, offset, keyColumn)) {
+            return;
+        }
+        if (isFull()) {
+            throw new IllegalStateException("The join hash table is full.");
+        }
+        int row = size++;
+        System.arraycopy(src, offset, rows, row * width, width);
+        long key = src[offset + 1 + keyColumn];
+
+        int slot = hash(key) & mask;
+        while (slotRows[slot] != EMPTY && slotKeys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (slotRows[slot] == EMPTY) {
+            slotKeys[slot] = key;
+        }
+        // Put the row at the head of its key's chain.
+        nextRows[row] = slotRows[slot];
+        slotRows[slot] = row;
+    }
+
+    /**
+     * @return The first row with the key, or -1 if there is none.
+     */
+    int find(long key) {
+        int slot = hash(key) & mask;
+        while (slotRows[slot] != EMPTY) {
+            if (slotKeys[slot] == key) {
+                return slotRows[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return EMPTY;
+    }
+
+    /**
+     * @return The next row with the same key as `row`, or -1 if there is none.
+     */
+    int findNext(int row) {
+        return nextRows[row];
+    }
+
+    /**
+     * @return true if the key column of the row at src[offset] is NULL.
+     */
+    static boolean isNullKey(long[] src, int offset, int keyColumn) {
+        return (src[offset] & (1L << keyColumn)) != 0;
+    }
+
+    /**
+     * Scrambles the key so that sequential keys spread over the slots.
+     */
+    static int hash(long key) {
+        return (int) mix(key);
+    }
+
+    /**
+     * The MurmurHash3 finalizer: every bit of the key affects every bit of the result.
+     * HashJoin and HashAggregate use it with a different seed for each partitioning
+     * level, so rows that collide at one level are spread at the next.
+     */
+    static long mix(long key) {
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93fe53f4ce3L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
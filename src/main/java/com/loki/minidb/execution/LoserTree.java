@@ -0,0 +1,83 @@
+package com.loki.minidb.execution;
+
+/**
+ * LoserTree picks the smallest current element among k sorted sources, for a k-way merge.
+ *
+ * The tree is a tournament stored in an array like a binary heap: source i is the leaf
+ * at node k + i, and node n has children 2n and 2n + 1. Each inner node remembers the
+ * loser of the match played there, and node 0 the overall winner. When the winner's
+ * source moves to its next element, only the matches on the path from its leaf to the
+ * root are replayed, against the losers stored there: about log2(k) comparisons, and
+ * unlike a heap, one comparison per level instead of two.
+ */
+final class LoserTree {
+
+    /**
+     * Compares the current elements of two sources.
+     */
+    interface SourceComparator {
+        /**
+         * @return A negative number if source a's current element comes first. A source
+         *         with no elements left must come after every other one.
+         */
+        int compare(int a, int b);
+    }
+
+    private final int k;
+    private final int[] tree;
+    private final SourceComparator comparator;
+
+    /**
+     * Builds the tree by playing every match once.
+     * @param k The number of sources, at least 1.
+     * @param comparator Compares the sources' current elements.
+     */
+    LoserTree(int k, SourceComparator comparator) {
+        if (k < 1) {
+            throw new IllegalArgumentException("A merge needs at least one source.");
+        }
+        this.k = k;
+        this.tree = new int[k];
+        this.comparator = comparator;
+
+        // winners[n] is the winner of the subtree at node n; leaves are the sources.
+        int[] winners = new int[2 * k];
+        for (int i = 0; i < k; i++) {
+            winners[k + i] = i;
+        }
+        for (int node = k - 1; node >= 1; node--) {
+            int a = winners[2 * node];
+            int b = winners[2 * node + 1];
+            if (comparator.compare(a, b) <= 0) {
+                winners[node] = a;
+                tree[node] = b;
+            } else {
+                winners[node] = b;
+                tree[node] = a;
+            }
+        }
+        tree[0] = k == 1 ? 0 : winners[1];
+    }
+
+    /**
+     * @return The source whose current element comes first.
+     */
+    int winner() {
+        return tree[0];
+    }
+
+    /**
+     * Restores the tree after the winner's source moved to its next element or ran out.
+     */
+    void update() {
+        int winner = tree[0];
+        for (int node = (winner + k) / 2; node >= 1; node /= 2) {
+            if (comparator.compare(tree[node], winner) < 0) {
+                int loser = winner;
+                winner = tree[node];
+                tree[node] = loser;
+            }
+        }
+        tree[0] = winner;
+    }
+}
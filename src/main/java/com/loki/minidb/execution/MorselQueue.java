@@ -0,0 +1,46 @@
+package com.loki.minidb.execution;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * MorselQueue hands out a table's pages to parallel workers a few at a time.
+ *
+ * A morsel is a run of consecutive entries of the page list. Workers take the next
+ * morsel whenever they finish one, so a worker that got cheap pages simply takes more
+ * morsels, and all workers finish at about the same time however the rows are spread.
+ * Taking a morsel is a single atomic add.
+ */
+final class MorselQueue {
+
+    private final int[] pageIds;
+    private final int morselPages;
+    private final AtomicInteger nextIndex = new AtomicInteger();
+
+    /**
+     * @param pageIds The pages to hand out, in order.
+     * @param morselPages The number of pages per morsel, at least 1.
+     */
+    MorselQueue(int[] pageIds, int morselPages) {
+        if (morselPages < 1) {
+            throw new IllegalArgumentException("A morsel needs at least one page.");
+        }
+        this.pageIds = pageIds;
+        this.morselPages = morselPages;
+    }
+
+    /**
+     * @return The pages of the next morsel, or null if every page has been handed out.
+     */
+    int[] next() {
+        // Check first, so that idle workers cannot push the index past overflow.
+        if (nextIndex.get() >= pageIds.length) {
+            return null;
+        }
+        int start = nextIndex.getAndAdd(morselPages);
+        if (start >= pageIds.length) {
+            return null;
+        }
+        return Arrays.copyOfRange(pageIds, start, Math.min(pageIds.length, start + morselPages));
+    }
+}
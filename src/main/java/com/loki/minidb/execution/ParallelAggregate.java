@@ -0,0 +1,182 @@
+package com.loki.minidb.execution;
+
+import com.loki.minidb.catalog.Schema;
+import com.loki.minidb.catalog.Type;
+import com.loki.minidb.storage.TableHeap;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ParallelAggregate computes aggregates over a filtered table heap with several threads.
+ *
+ * Each of the `parallelism` workers takes morsels of pages from a shared MorselQueue,
+ * scans and filters them, and folds the rows into an AggregateAccumulator of its own,
+ * so the workers share nothing but the morsel counter. When they are done, the partial
+ * states are merged into one and returned as a single row, as VectorAggregate does.
+ *
+ * If a worker fails, the others are told to stop after their current batch, and next()
+ * waits for them before it throws, so no worker is left reading pages after it returns.
+ */
+public class ParallelAggregate implements VectorOperator {
+
+    private final TableHeap tableHeap;
+    private final Schema schema;
+    private final int[] scanColumns;
+    private final VectorPredicate[] predicates;
+    private final AggregateFunction[] functions;
+    private final int[] aggregateColumns;
+    private final int parallelism;
+    private final int morselPages;
+    private final Type[] scanTypes;
+    private final Type[] types;
+    private boolean done;
+    private volatile boolean cancelled;
+
+    /**
+     * Creates an aggregate whose workers take ParallelSeqScan.DEFAULT_MORSEL_PAGES pages at a time.
+     * @param tableHeap The table to aggregate.
+     * @param schema The table's schema.
+     * @param scanColumns The columns to read, each INTEGER, BIGINT or DOUBLE.
+     * @param predicates Conditions on the scan columns a row must satisfy to be aggregated.
+     * @param functions The aggregates to compute, one output column each.
+     * @param aggregateColumns The scan column of each aggregate, INTEGER or BIGINT, or VectorAggregate.COUNT_STAR.
+     * @param parallelism The number of worker threads for this query.
+     */
+    public ParallelAggregate(TableHeap tableHeap, Schema schema, int[] scanColumns, VectorPredicate[] predicates,
+                             AggregateFunction[] functions, int[] aggregateColumns, int parallelism) {
+        this(tableHeap, schema, scanColumns, predicates, functions, aggregateColumns, parallelism,
+                ParallelSeqScan.DEFAULT_MORSEL_PAGES);
+    }
+
+    /**
+     * Creates an aggregate.
+     * @param tableHeap The table to aggregate.
+     * @param schema The table's schema.
+     * @param scanColumns The columns to read, each INTEGER, BIGINT or DOUBLE.
+     * @param predicates Conditions on the scan columns a row must satisfy to be aggregated.
+     * @param functions The aggregates to compute, one output column each.
+     * @param aggregateColumns The scan column of each aggregate, INTEGER or BIGINT, or VectorAggregate.COUNT_STAR.
+     * @param parallelism The number of worker threads for this query.
+     * @param morselPages The number of pages a worker takes at a time.
+     */
+    public ParallelAggregate(TableHeap tableHeap, Schema schema, int[] scanColumns, VectorPredicate[] predicates,
+                             AggregateFunction[] functions, int[] aggregateColumns, int parallelism, int morselPages) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1.");
+        }
+        if (morselPages < 1) {
+            throw new IllegalArgumentException("morselPages must be at least 1.");
+        }
+        this.tableHeap = tableHeap;
+        this.schema = schema;
+        this.scanColumns = scanColumns.clone();
+        this.predicates = predicates.clone();
+        this.functions = functions.clone();
+        this.aggregateColumns = aggregateColumns.clone();
+        this.parallelism = parallelism;
+        this.morselPages = morselPages;
+        this.scanTypes = new VectorizedSeqScan(tableHeap.getBufferPoolManager(), new int[0], schema, scanColumns, 1).getTypes();
+        this.types = AggregateAccumulator.getResultTypes(functions);
+        // Check the arguments now rather than in a worker.
+        new AggregateAccumulator(functions, aggregateColumns, scanTypes);
+    }
+
+    @Override
+    public Type[] getTypes() {
+        return types.clone();
+    }
+
+    @Override
+    public void open() {
+        done = false;
+    }
+
+    @Override
+    public VectorBatch next() throws IOException {
+        if (done) {
+            return null;
+        }
+        done = true;
+
+        // 1. Each worker aggregates the morsels it takes into its own accumulator.
+        MorselQueue morsels = new MorselQueue(tableHeap.getPageIds(), morselPages);
+        cancelled = false;
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        AggregateAccumulator total = new AggregateAccumulator(functions, aggregateColumns, scanTypes);
+        try {
+            List<Future<AggregateAccumulator>> partials = new ArrayList<>();
+            for (int worker = 0; worker < parallelism; worker++) {
+                partials.add(pool.submit(() -> aggregateMorsels(morsels)));
+            }
+
+            // 2. Merge the partial states.
+            for (Future<AggregateAccumulator> partial : partials) {
+                total.merge(partial.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the aggregate workers.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException r) {
+                throw r;
+            }
+            throw new IllegalStateException("An aggregate worker failed.", e.getCause());
+        } finally {
+            // After a failure the other workers may still be scanning. As in ParallelSeqScan,
+            // they are not interrupted but stop at `cancelled`, unpinning their pages on the
+            // way out; wait for them so none outlives this call.
+            cancelled = true;
+            pool.shutdown();
+            try {
+                pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                // Keep the exception that is already on its way out, if any.
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        VectorBatch result = new VectorBatch(types, 1);
+        total.writeResult(result, 0);
+        result.setSize(1);
+        return result;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private AggregateAccumulator aggregateMorsels(MorselQueue morsels) {
+        AggregateAccumulator accumulator = new AggregateAccumulator(functions, aggregateColumns, scanTypes);
+        int[] morsel;
+        try {
+            while (!cancelled && (morsel = morsels.next()) != null) {
+                try (VectorOperator plan = new VectorFilter(
+                        new VectorizedSeqScan(tableHeap.getBufferPoolManager(), morsel, schema, scanColumns, VectorBatch.DEFAULT_CAPACITY),
+                        predicates)) {
+                    plan.open();
+                    VectorBatch batch;
+                    while (!cancelled && (batch = plan.next()) != null) {
+                        accumulator.accumulate(batch);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        } catch (Throwable t) {
+            // Stop the other workers now, not when next() gets to this worker's result.
+            cancelled = true;
+            throw t;
+        }
+        return accumulator;
+    }
+}
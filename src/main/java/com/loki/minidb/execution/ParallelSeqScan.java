@@ -0,0 +1,205 @@
+package com.loki.minidb.execution;
+
+import com.loki.minidb.catalog.Schema;
+import com.loki.minidb.catalog.Type;
+import com.loki.minidb.storage.BufferPoolManager;
+import com.loki.minidb.storage.TableHeap;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * ParallelSeqScan scans and filters a table heap with several threads.
+ *
+ * open() starts `parallelism` workers in a ForkJoinPool of that size, made for this
+ * query. Each worker takes morsels of pages from a shared MorselQueue and runs a
+ * VectorizedSeqScan and a VectorFilter over them, fetching and unpinning the pages
+ * through the shared BufferPoolManager. The batches a worker produces are copied and
+ * handed to next() through a bounded queue, so fast workers wait for a slow consumer
+ * instead of filling the heap.
+ *
+ * The rows come out in no particular order. A worker's error is thrown by next().
+ */
+public class ParallelSeqScan implements VectorOperator {
+
+    public static final int DEFAULT_MORSEL_PAGES = 16;
+    // How long next() waits for a batch before it checks whether the workers are done.
+    private static final long POLL_MILLIS = 10;
+
+    private final TableHeap tableHeap;
+    private final Schema schema;
+    private final int[] columns;
+    private final VectorPredicate[] predicates;
+    private final int parallelism;
+    private final int morselPages;
+    private final Type[] types;
+
+    private ForkJoinPool pool;
+    private BlockingQueue<VectorBatch> output;
+    private final AtomicInteger runningWorkers = new AtomicInteger();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private volatile boolean closed;
+
+    /**
+     * Creates a scan that hands out DEFAULT_MORSEL_PAGES pages at a time.
+     * @param tableHeap The table to scan.
+     * @param schema The table's schema.
+     * @param columns The columns to read, each INTEGER, BIGINT or DOUBLE.
+     * @param parallelism The number of worker threads for this query.
+     * @param predicates Conditions every returned row satisfies, applied by the workers.
+     */
+    public ParallelSeqScan(TableHeap tableHeap, Schema schema, int[] columns, int parallelism,
+                           VectorPredicate... predicates) {
+        this(tableHeap, schema, columns, parallelism, DEFAULT_MORSEL_PAGES, predicates);
+    }
+
+    /**
+     * Creates a scan.
+     * @param tableHeap The table to scan.
+     * @param schema The table's schema.
+     * @param columns The columns to read, each INTEGER, BIGINT or DOUBLE.
+     * @param parallelism The number of worker threads for this query.
+     * @param morselPages The number of pages a worker takes at a time.
+     * @param predicates Conditions every returned row satisfies, applied by the workers.
+     */
+    public ParallelSeqScan(TableHeap tableHeap, Schema schema, int[] columns, int parallelism, int morselPages,
+                           VectorPredicate... predicates) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1.");
+        }
+        this.tableHeap = tableHeap;
+        this.schema = schema;
+        this.columns = columns.clone();
+        this.predicates = predicates.clone();
+        this.parallelism = parallelism;
+        this.morselPages = morselPages;
+        // Building one morsel's plan checks the columns now rather than in a worker.
+        this.types = morselPlan(new int[0]).getTypes();
+    }
+
+    @Override
+    public Type[] getTypes() {
+        return types.clone();
+    }
+
+    @Override
+    public void open() throws IOException {
+        MorselQueue morsels = new MorselQueue(tableHeap.getPageIds(), morselPages);
+        closed = false;
+        failure.set(null);
+        output = new ArrayBlockingQueue<>(parallelism * 2);
+        runningWorkers.set(parallelism);
+        pool = new ForkJoinPool(parallelism);
+        for (int worker = 0; worker < parallelism; worker++) {
+            pool.execute(() -> work(morsels));
+        }
+    }
+
+    @Override
+    public VectorBatch next() throws IOException {
+        try {
+            while (true) {
+                VectorBatch batch = output.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (batch != null) {
+                    return batch;
+                }
+                rethrowFailure();
+                // A worker puts its last batch before it counts itself out, so once the
+                // count is 0, whatever is left is already in the queue.
+                if (runningWorkers.get() == 0) {
+                    batch = output.poll();
+                    rethrowFailure();
+                    return batch;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the scan workers.", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        if (pool == null) {
+            return;
+        }
+        // The workers are not interrupted: an interrupt during a FileChannel read would
+        // close the channel for every user of the DiskManager. They see `closed` instead,
+        // within POLL_MILLIS, and unpin their page on the way out.
+        pool.shutdown();
+        try {
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while stopping the scan workers.", e);
+        } finally {
+            pool = null;
+            output = null;
+        }
+    }
+
+    /**
+     * The plan each worker runs over one morsel.
+     */
+    private VectorOperator morselPlan(int[] pageIds) {
+        BufferPoolManager bufferPoolManager = tableHeap.getBufferPoolManager();
+        return new VectorFilter(
+                new VectorizedSeqScan(bufferPoolManager, pageIds, schema, columns, VectorBatch.DEFAULT_CAPACITY),
+                predicates);
+    }
+
+    /**
+     * Runs morsels until there are none left, handing a copy of every batch to next().
+     */
+    private void work(MorselQueue morsels) {
+        BlockingQueue<VectorBatch> queue = output;
+        try {
+            int[] morsel;
+            while (!closed && (morsel = morsels.next()) != null) {
+                try (VectorOperator plan = morselPlan(morsel)) {
+                    plan.open();
+                    VectorBatch batch;
+                    while (!closed && (batch = plan.next()) != null) {
+                        // The scan refills its batch, so the rows must be copied out.
+                        VectorBatch copy = new VectorBatch(types, batch.getSelectedCount());
+                        copy.copySelectedFrom(batch);
+                        while (!queue.offer(copy, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                            if (closed) {
+                                return;
+                            }
+                        }
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            failure.compareAndSet(null, new UncheckedIOException(e));
+        } catch (Throwable t) {
+            failure.compareAndSet(null, t);
+        } finally {
+            runningWorkers.decrementAndGet();
+        }
+    }
+
+    private void rethrowFailure() throws IOException {
+        Throwable t = failure.get();
+        if (t == null) {
+            return;
+        }
+        if (t instanceof UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (t instanceof RuntimeException e) {
+            throw e;
+        }
+        throw new IllegalStateException("A scan worker failed.", t);
+    }
+}
@@ -0,0 +1,160 @@
+package com.loki.minidb.execution;
+
+import com.loki.minidb.catalog.Type;
+
+/**
+ * SortLayout stores batch rows as fixed-width runs of longs, and orders them by a list
+ * of sort keys.
+ *
+ * Row Layout (width = columnCount + 1 longs):
+ * ------------------------------------------------------------------
+ * | nullMask | column 0 | column 1 | ... | column (columnCount - 1) |
+ * ------------------------------------------------------------------
+ * Bit i of the null mask is set if column i is NULL. An INTEGER or BIGINT is stored as
+ * its value, a DOUBLE as its raw bits. Every row takes the same room, so rows can be
+ * kept in one long[] in memory and copied to and from spill pages as they are.
+ *
+ * NULLs sort after every value in ascending order and before them in descending
+ * order, as in PostgreSQL.
+ */
+final class SortLayout {
+
+    private final Type[] types;
+    private final int[] sortColumns;
+    private final boolean[] ascending;
+    private final int width;
+
+    /**
+     * @param types The type of each column of the rows.
+     * @param sortColumns The columns to sort by, most significant first.
+     * @param ascending For each sort column, whether it sorts in ascending order.
+     */
+    SortLayout(Type[] types, int[] sortColumns, boolean[] ascending) {
+        if (types.length > Long.SIZE) {
+            throw new IllegalArgumentException("Cannot sort rows of more than " + Long.SIZE + " columns.");
+        }
+        if (sortColumns.length != ascending.length) {
+            throw new IllegalArgumentException("Each sort column needs a direction.");
+        }
+        for (int column : sortColumns) {
+            if (column < 0 || column >= types.length) {
+                throw new IllegalArgumentException("No column " + column + " to sort by.");
+            }
+        }
+        this.types = types.clone();
+        this.sortColumns = sortColumns.clone();
+        this.ascending = ascending.clone();
+        this.width = types.length + 1;
+    }
+
+    /**
+     * @return The number of longs per row.
+     */
+    int getWidth() {
+        return width;
+    }
+
+    /**
+     * Stores one row of a batch at dest[offset, offset + width).
+     */
+    void encode(VectorBatch batch, int row, long[] dest, int offset) {
+        long nullMask = 0;
+        for (int column = 0; column < types.length; column++) {
+            if (batch.getNulls(column)[row]) {
+                nullMask |= 1L << column;
+            }
+            dest[offset + 1 + column] = switch (types[column]) {
+                case INTEGER -> batch.getInts(column)[row];
+                case BIGINT -> batch.getLongs(column)[row];
+                default -> Double.doubleToRawLongBits(batch.getDoubles(column)[row]);
+            };
+        }
+        dest[offset] = nullMask;
+    }
+
+    /**
+     * Writes the row at src[offset, offset + width) into one row of a batch.
+     */
+    void decode(long[] src, int offset, VectorBatch batch, int row) {
+        decode(src, offset, batch, row, 0);
+    }
+
+    /**
+     * Writes the row at src[offset, offset + width) into one row of a batch, starting at
+     * column firstColumn of the batch. Used to place rows side by side, as a join does.
+     */
+    void decode(long[] src, int offset, VectorBatch batch, int row, int firstColumn) {
+        long nullMask = src[offset];
+        for (int column = 0; column < types.length; column++) {
+            int target = firstColumn + column;
+            batch.getNulls(target)[row] = (nullMask & (1L << column)) != 0;
+            long value = src[offset + 1 + column];
+            switch (types[column]) {
+                case INTEGER -> batch.getInts(target)[row] = (int) value;
+                case BIGINT -> batch.getLongs(target)[row] = value;
+                default -> batch.getDoubles(target)[row] = Double.longBitsToDouble(value);
+            }
+        }
+    }
+
+    /**
+     * @return A negative number if row a sorts before row b, 0 if their keys are equal,
+     *         and a positive number otherwise.
+     */
+    int compare(long[] a, int aOffset, long[] b, int bOffset) {
+        for (int k = 0; k < sortColumns.length; k++) {
+            int column = sortColumns[k];
+            long bit = 1L << column;
+            boolean aNull = (a[aOffset] & bit) != 0;
+            boolean bNull = (b[bOffset] & bit) != 0;
+            int result;
+            if (aNull || bNull) {
+                result = Boolean.compare(aNull, bNull);
+            } else if (types[column] == Type.DOUBLE) {
+                result = Double.compare(Double.longBitsToDouble(a[aOffset + 1 + column]),
+                        Double.longBitsToDouble(b[bOffset + 1 + column]));
+            } else {
+                result = Long.compare(a[aOffset + 1 + column], b[bOffset + 1 + column]);
+            }
+            if (result != 0) {
+                return ascending[k] ? result : -result;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Sorts the first `count` rows stored in `rows`, without moving them: `order` is
+     * filled with their row numbers in sorted order. The sort is a stable merge sort.
+     */
+    void sort(long[] rows, int[] order, int count) {
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        int[] from = order;
+        int[] to = new int[count];
+        // Bottom-up: merge runs of 1, then 2, then 4... rows, swapping the two arrays each pass.
+        for (int runLength = 1; runLength < count; runLength *= 2) {
+            for (int start = 0; start < count; start += 2 * runLength) {
+                int middle = Math.min(start + runLength, count);
+                int end = Math.min(start + 2 * runLength, count);
+                int left = start;
+                int right = middle;
+                for (int out = start; out < end; out++) {
+                    if (right == end || (left < middle
+                            && compare(rows, from[left] * width, rows, from[right] * width) <= 0)) {
+                        to[out] = from[left++];
+                    } else {
+                        to[out] = from[right++];
+                    }
+                }
+            }
+            int[] swap = from;
+            from = to;
+            to = swap;
+        }
+        if (from != order) {
+            System.arraycopy(from, 0, order, 0, count);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.loki.minidb.execution;
+
+import com.loki.minidb.storage.DiskManager;
+import com.loki.minidb.storage.DurabilityMode;
+import com.loki.minidb.storage.IoMode;
+import com.loki.minidb.storage.Page;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * SpillFile holds the rows an operator cannot keep in memory, in temporary pages.
+ *
+ * The pages live in a temporary file of their own, written and read through a
+ * DiskManager, so spilling never touches the database file or its buffer pool. The
+ * file is opened in OS_BUFFERED mode, since nothing in it has to survive a crash, and
+ * deleted by close(). Pages are never reused while the file is open.
+ *
+ * Rows are fixed-width runs of longs (see SortLayout) and are grouped into runs. A run
+ * is written with a RunWriter and read back, in the same order, with a RunReader.
+ *
+ * Spill Page Layout:
+ * -------------------------------------------------------------------
+ * | rowCount (4 bytes) | unused (4 bytes) | rows (8 bytes per long) |
+ * -------------------------------------------------------------------
+ */
+final class SpillFile implements AutoCloseable {
+
+    private static final int ROWS_OFFSET = 8;
+
+    private final Path path;
+    private final DiskManager diskManager;
+
+    SpillFile() throws IOException {
+        this.path = Files.createTempFile("minidb-spill-", ".db");
+        this.diskManager = new DiskManager(path.toString(), IoMode.FILE_CHANNEL, DurabilityMode.OS_BUFFERED);
+    }
+
+    /**
+     * @return The number of rows of `width` longs that fit on a page.
+     */
+    static int getRowsPerPage(int width) {
+        int rows = (Page.PAGE_SIZE - ROWS_OFFSET) / (width * 8);
+        if (rows < 1) {
+            throw new IllegalArgumentException("A row of " + width + " longs does not fit on a page.");
+        }
+        return rows;
+    }
+
+    /**
+     * @return The number of pages written so far.
+     */
+    int getPageCount() {
+        return diskManager.getNumPages();
+    }
+
+    /**
+     * Starts a new run.
+     * @param width The number of longs per row.
+     * @param bufferPages How many pages the writer fills before it writes them in one call.
+     */
+    RunWriter newRun(int width, int bufferPages) {
+        return new RunWriter(width, bufferPages);
+    }
+
+    /**
+     * Opens a run for reading.
+     * @param bufferPages How many pages the reader reads in one call.
+     */
+    RunReader openRun(Run run, int bufferPages) {
+        return new RunReader(run, bufferPages);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            diskManager.close();
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    /**
+     * A finished run: where its pages are and how many rows they hold.
+     */
+    static final class Run {
+        private final int width;
+        private final long rowCount;
+        // Pairs of (first page, page count), one per write.
+        private final int[] extents;
+
+        private Run(int width, long rowCount, int[] extents) {
+            this.width = width;
+            this.rowCount = rowCount;
+            this.extents = extents;
+        }
+
+        long getRowCount() {
+            return rowCount;
+        }
+    }
+
+    /**
+     * Appends rows to a run. Full pages are kept until bufferPages of them are ready,
+     * then given consecutive page IDs and written with one DiskManager.writePages() call.
+     */
+    final class RunWriter {
+        private final int width;
+        private final int rowsPerPage;
+        private final Page[] pages;
+        private int pageCount;     // Pages of the buffer in use, including the one being filled.
+        private int rowsInPage;
+        private long rowCount;
+        private int[] extents = new int[8];
+        private int extentCount;
+
+        private RunWriter(int width, int bufferPages) {
+            this.width = width;
+            this.rowsPerPage = getRowsPerPage(width);
+            this.pages = new Page[Math.max(1, bufferPages)];
+            for (int i = 0; i < pages.length; i++) {
+                pages[i] = new Page();
+            }
+        }
+
+        /**
+         * Appends the row at src[offset, offset + width).
+         */
+        void append(long[] src, int offset) throws IOException {
+            if (pageCount == 0 || rowsInPage == rowsPerPage) {
+                if (pageCount == pages.length) {
+                    flush();
+                }
+                pageCount++;
+                rowsInPage = 0;
+            }
+            ByteBuffer buffer = pages[pageCount - 1].getBuffer();
+            int position = ROWS_OFFSET + rowsInPage * width * 8;
+            for (int i = 0; i < width; i++) {
+                buffer.putLong(position + i * 8, src[offset + i]);
+            }
+            rowsInPage++;
+            buffer.putInt(0, rowsInPage);
+            rowCount++;
+        }
+
+        /**
+         * Writes what is left and returns the run.
+         */
+        Run finish() throws IOException {
+            if (pageCount > 0) {
+                flush();
+            }
+            return new Run(width, rowCount, Arrays.copyOf(extents, extentCount * 2));
+        }
+
+        private void flush() throws IOException {
+            int firstPageId = diskManager.allocatePages(pageCount);
+            diskManager.writePages(firstPageId, pageCount == pages.length ? pages : Arrays.copyOf(pages, pageCount));
+            if (extentCount * 2 == extents.length) {
+                extents = Arrays.copyOf(extents, extents.length * 2);
+            }
+            extents[extentCount * 2] = firstPageId;
+            extents[extentCount * 2 + 1] = pageCount;
+            extentCount++;
+            pageCount = 0;
+        }
+    }
+
+    /**
+     * Reads a run back one row at a time, reading bufferPages pages per call.
+     */
+    final class RunReader {
+        private final Run run;
+        private final Page[] pages;
+        private final long[] row;
+        private int extent;          // The extent the next read comes from.
+        private int extentPage;      // The next page of that extent to read.
+        private int loadedPages;
+        private int page;            // The page of the buffer being read.
+        private int rowInPage;
+        private int rowsInPage;
+
+        private RunReader(Run run, int bufferPages) {
+            this.run = run;
+            this.pages = new Page[Math.max(1, bufferPages)];
+            for (int i = 0; i < pages.length; i++) {
+                pages[i] = new Page();
+            }
+            this.row = new long[run.width];
+        }
+
+        /**
+         * Moves to the next row.
+         * @return false at the end of the run.
+         */
+        boolean next() throws IOException {
+            while (rowInPage == rowsInPage) {
+                page++;
+                if (page >= loadedPages && !load()) {
+                    return false;
+                }
+                rowsInPage = pages[page].getBuffer().getInt(0);
+                rowInPage = 0;
+            }
+            ByteBuffer buffer = pages[page].getBuffer();
+            int position = ROWS_OFFSET + rowInPage * run.width * 8;
+            for (int i = 0; i < run.width; i++) {
+                row[i] = buffer.getLong(position + i * 8);
+            }
+            rowInPage++;
+            return true;
+        }
+
+        /**
+         * @return The current row. The array is reused by next().
+         */
+        long[] row() {
+            return row;
+        }
+
+        /**
+         * Reads the next pages of the run into the buffer.
+         * @return false if the run has no more pages.
+         */
+        private boolean load() throws IOException {
+            if (extent * 2 == run.extents.length) {
+                return false;
+            }
+            int extentPages = run.extents[extent * 2 + 1];
+            int count = Math.min(pages.length, extentPages - extentPage);
+            Page[] target = count == pages.length ? pages : Arrays.copyOf(pages, count);
+            diskManager.readPages(run.extents[extent * 2] + extentPage, target);
+            extentPage += count;
+            if (extentPage == extentPages) {
+                extent++;
+                extentPage = 0;
+            }
+            loadedPages = count;
+            page = 0;
+            return true;
+        }
+    }
+}
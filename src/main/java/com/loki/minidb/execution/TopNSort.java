@@ -0,0 +1,150 @@
+package com.loki.minidb.execution;
+
+import com.loki.minidb.catalog.Type;
+
+import java.io.IOException;
+
+/**
+ * TopNSort returns the first `limit` rows of its input in sort order, as
+ * ORDER BY ... LIMIT does, keeping only `limit` rows in memory and never spilling.
+ *
+ * The kept rows form a binary max-heap on the sort order, so the row that sorts last
+ * is always at the top. A new row that sorts before it replaces it and sifts down; any
+ * other row is dropped after one comparison. Once the input is done, the kept rows are
+ * sorted and returned. Rows are stored as in ExternalSort (see SortLayout).
+ */
+public class TopNSort implements VectorOperator {
+
+    private final VectorOperator child;
+    private final Type[] types;
+    private final SortLayout layout;
+    private final int limit;
+
+    private VectorBatch batch;
+    private long[] rows;      // Slot i holds rows[i * width, (i + 1) * width).
+    private int[] heap;       // Slot numbers, as a max-heap on the sort order.
+    private int rowCount;
+    private int[] order;
+    private int position;
+
+    /**
+     * @param child The input.
+     * @param sortColumns The columns to sort by, most significant first.
+     * @param ascending For each sort column, whether it sorts in ascending order.
+     * @param limit The number of rows to return, at least 0.
+     */
+    public TopNSort(VectorOperator child, int[] sortColumns, boolean[] ascending, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit must not be negative.");
+        }
+        this.child = child;
+        this.types = child.getTypes();
+        this.layout = new SortLayout(types, sortColumns, ascending);
+        this.limit = limit;
+    }
+
+    @Override
+    public Type[] getTypes() {
+        return types.clone();
+    }
+
+    @Override
+    public void open() throws IOException {
+        child.open();
+        batch = new VectorBatch(types, VectorBatch.DEFAULT_CAPACITY);
+        int width = layout.getWidth();
+        // One extra slot holds the incoming row while it is compared with the top.
+        rows = new long[(limit + 1) * width];
+        heap = new int[limit];
+        rowCount = 0;
+
+        // 1. Keep the `limit` rows that sort first.
+        int scratch = limit * width;
+        VectorBatch input;
+        while ((input = child.next()) != null && limit > 0) {
+            for (int i = 0; i < input.getSelectedCount(); i++) {
+                int row = input.getSelectedRow(i);
+                if (rowCount < limit) {
+                    layout.encode(input, row, rows, rowCount * width);
+                    heap[rowCount] = rowCount;
+                    siftUp(rowCount++);
+                    continue;
+                }
+                layout.encode(input, row, rows, scratch);
+                if (layout.compare(rows, scratch, rows, heap[0] * width) < 0) {
+                    System.arraycopy(rows, scratch, rows, heap[0] * width, width);
+                    siftDown(0);
+                }
+            }
+        }
+
+        // 2. Sort what was kept.
+        order = new int[rowCount];
+        layout.sort(rows, order, rowCount);
+        position = 0;
+    }
+
+    @Override
+    public VectorBatch next() {
+        batch.reset();
+        int size = 0;
+        int width = layout.getWidth();
+        while (size < batch.getCapacity() && position < rowCount) {
+            layout.decode(rows, order[position++] * width, batch, size++);
+        }
+        batch.setSize(size);
+        return size == 0 ? null : batch;
+    }
+
+    @Override
+    public void close() throws IOException {
+        rows = null;
+        heap = null;
+        order = null;
+        child.close();
+    }
+
+    /**
+     * @return true if the row in heap position a sorts after the one in position b.
+     */
+    private boolean after(int a, int b) {
+        int width = layout.getWidth();
+        return layout.compare(rows, heap[a] * width, rows, heap[b] * width) > 0;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (!after(i, parent)) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int largest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < rowCount && after(left, largest)) {
+                largest = left;
+            }
+            if (right < rowCount && after(right, largest)) {
+                largest = right;
+            }
+            if (largest == i) {
+                return;
+            }
+            swap(i, largest);
+            i = largest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int slot = heap[a];
+        heap[a] = heap[b];
+        heap[b] = slot;
+    }
+}
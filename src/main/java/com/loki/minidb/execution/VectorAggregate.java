@@ -0,0 +1,77 @@
+package com.loki.minidb.execution;
+
+import com.loki.minidb.catalog.Type;
+
+import java.io.IOException;
+
+/**
+ * VectorAggregate computes aggregates over all of its input, as in
+ * `SELECT COUNT(*), SUM(a), MAX(b) FROM t`, and returns them as a single row.
+ *
+ * Each input batch is folded into an AggregateAccumulator with one loop per aggregate,
+ * so no value is boxed and no object is created per row.
+ */
+public class VectorAggregate implements VectorOperator {
+
+    /**
+     * Pass as the column of a COUNT to count rows, as in COUNT(*).
+     */
+    public static final int COUNT_STAR = AggregateAccumulator.COUNT_STAR;
+
+    private final VectorOperator child;
+    private final AggregateFunction[] functions;
+    private final int[] columns;
+    private final Type[] types;
+    private boolean done;
+
+    /**
+     * @param child The input.
+     * @param functions The aggregates to compute, one output column each.
+     * @param columns The input column of each aggregate, INTEGER or BIGINT, or COUNT_STAR.
+     */
+    public VectorAggregate(VectorOperator child, AggregateFunction[] functions, int[] columns) {
+        this.child = child;
+        this.functions = functions.clone();
+        this.columns = columns.clone();
+        this.types = AggregateAccumulator.getResultTypes(functions);
+        // Check the arguments now rather than when the query runs.
+        new AggregateAccumulator(functions, columns, child.getTypes());
+    }
+
+    @Override
+    public Type[] getTypes() {
+        return types.clone();
+    }
+
+    @Override
+    public void open() throws IOException {
+        child.open();
+        done = false;
+    }
+
+    @Override
+    public VectorBatch next() throws IOException {
+        if (done) {
+            return null;
+        }
+        done = true;
+
+        // 1. Fold every input batch into the accumulator.
+        AggregateAccumulator accumulator = new AggregateAccumulator(functions, columns, child.getTypes());
+        VectorBatch input;
+        while ((input = child.next()) != null) {
+            accumulator.accumulate(input);
+        }
+
+        // 2. Return the results as one row.
+        VectorBatch result = new VectorBatch(types, 1);
+        accumulator.writeResult(result, 0);
+        result.setSize(1);
+        return result;
+    }
+
+    @Override
+    public void close() throws IOException {
+        child.close();
+    }
+}
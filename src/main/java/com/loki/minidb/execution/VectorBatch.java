@@ -0,0 +1,250 @@
+package com.loki.minidb.execution;
+
+import com.loki.minidb.catalog.Type;
+
+/**
+ * VectorBatch holds up to `capacity` rows in column form: one primitive array per
+ * column, plus a boolean array per column that marks NULLs.
+ *
+ * Column Vectors:
+ * ---------------------------------------------------------
+ * | INTEGER -> int[]  | BIGINT -> long[] | DOUBLE -> double[] |
+ * ---------------------------------------------------------
+ *
+ * Operators pass whole batches to each other, so the cost of a call is paid once per
+ * batch instead of once per row, and the inner loops run over plain arrays.
+ *
+ * Rows [0, size) hold data. A filter does not move rows around: it writes the numbers
+ * of the rows that pass into the selection vector. While a selection is active, only
+ * the rows it lists are part of the batch; use getSelectedCount() and getSelectedRow()
+ * to visit them.
+ */
+public class VectorBatch {
+
+    public static final int DEFAULT_CAPACITY = 2048;
+
+    private final Type[] types;
+    private final int capacity;
+    // Per column, only the array that matches the column's type is set.
+    private final int[][] intVectors;
+    private final long[][] longVectors;
+    private final double[][] doubleVectors;
+    private final boolean[][] nullVectors;
+
+    private int size;
+    private int[] selection;
+    private boolean selectionActive;
+    private int selectedCount;
+
+    /**
+     * Creates an empty batch.
+     * @param types The type of each column: INTEGER, BIGINT or DOUBLE.
+     * @param capacity The maximum number of rows.
+     */
+    public VectorBatch(Type[] types, int capacity) {
+        this.types = types.clone();
+        this.capacity = capacity;
+        this.intVectors = new int[types.length][];
+        this.longVectors = new long[types.length][];
+        this.doubleVectors = new double[types.length][];
+        this.nullVectors = new boolean[types.length][];
+        for (int column = 0; column < types.length; column++) {
+            switch (types[column]) {
+                case INTEGER -> intVectors[column] = new int[capacity];
+                case BIGINT -> longVectors[column] = new long[capacity];
+                case DOUBLE -> doubleVectors[column] = new double[capacity];
+                default -> throw new IllegalArgumentException("A vector cannot hold " + types[column] + " values.");
+            }
+            nullVectors[column] = new boolean[capacity];
+        }
+        this.selection = new int[capacity];
+    }
+
+    public int getColumnCount() {
+        return types.length;
+    }
+
+    public Type getType(int column) {
+        return types[column];
+    }
+
+    public Type[] getTypes() {
+        return types.clone();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return The number of bytes a batch of these column types takes per row of
+     *         capacity: the values, the NULL flags and the selection vector.
+     */
+    public static int getBytesPerRow(Type[] types) {
+        int bytes = Integer.BYTES;
+        for (Type type : types) {
+            bytes += (type == Type.INTEGER ? Integer.BYTES : Long.BYTES) + 1;
+        }
+        return bytes;
+    }
+
+    // --- Column vectors ---
+
+    /**
+     * @return The values of an INTEGER column, or null for a column of another type.
+     */
+    public int[] getInts(int column) {
+        return intVectors[column];
+    }
+
+    /**
+     * @return The values of a BIGINT column, or null for a column of another type.
+     */
+    public long[] getLongs(int column) {
+        return longVectors[column];
+    }
+
+    /**
+     * @return The values of a DOUBLE column, or null for a column of another type.
+     */
+    public double[] getDoubles(int column) {
+        return doubleVectors[column];
+    }
+
+    /**
+     * @return The NULL flags of a column. A NULL row's value is meaningless.
+     */
+    public boolean[] getNulls(int column) {
+        return nullVectors[column];
+    }
+
+    // --- Rows and selection ---
+
+    /**
+     * @return The number of rows with data, whether they are selected or not.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Sets the number of rows with data and clears the selection, so every row is part of the batch.
+     */
+    public void setSize(int size) {
+        this.size = size;
+        this.selectionActive = false;
+    }
+
+    /**
+     * Empties the batch.
+     */
+    public void reset() {
+        setSize(0);
+    }
+
+    /**
+     * @return The number of rows that are part of the batch.
+     */
+    public int getSelectedCount() {
+        return selectionActive ? selectedCount : size;
+    }
+
+    /**
+     * @param i A position in [0, getSelectedCount()).
+     * @return The row number of the i-th row that is part of the batch.
+     */
+    public int getSelectedRow(int i) {
+        return selectionActive ? selection[i] : i;
+    }
+
+    public boolean isSelectionActive() {
+        return selectionActive;
+    }
+
+    /**
+     * Returns the selection vector, activating it first if needed. When it was not
+     * active, it is filled with every row, so it can always be narrowed in place.
+     * @return The selection vector. Its first getSelectedCount() entries are the selected rows.
+     */
+    public int[] getSelection() {
+        if (!selectionActive) {
+            for (int row = 0; row < size; row++) {
+                selection[row] = row;
+            }
+            selectedCount = size;
+            selectionActive = true;
+        }
+        return selection;
+    }
+
+    /**
+     * Keeps only the first `count` entries of the selection vector.
+     */
+    public void setSelectedCount(int count) {
+        getSelection();
+        this.selectedCount = count;
+    }
+
+    /**
+     * Copies the selected rows of another batch with the same column types into this
+     * one, as rows [0, n). Use it to keep rows after the source batch is refilled.
+     * @param source The batch to copy from.
+     */
+    public void copySelectedFrom(VectorBatch source) {
+        int count = source.getSelectedCount();
+        if (count > capacity) {
+            throw new IllegalArgumentException("Cannot copy " + count + " rows into a batch of " + capacity + ".");
+        }
+        for (int column = 0; column < types.length; column++) {
+            boolean[] sourceNulls = source.nullVectors[column];
+            boolean[] nulls = nullVectors[column];
+            switch (types[column]) {
+                case INTEGER -> {
+                    int[] from = source.intVectors[column];
+                    int[] to = intVectors[column];
+                    for (int i = 0; i < count; i++) {
+                        to[i] = from[source.getSelectedRow(i)];
+                    }
+                }
+                case BIGINT -> {
+                    long[] from = source.longVectors[column];
+                    long[] to = longVectors[column];
+                    for (int i = 0; i < count; i++) {
+                        to[i] = from[source.getSelectedRow(i)];
+                    }
+                }
+                default -> {
+                    double[] from = source.doubleVectors[column];
+                    double[] to = doubleVectors[column];
+                    for (int i = 0; i < count; i++) {
+                        to[i] = from[source.getSelectedRow(i)];
+                    }
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                nulls[i] = sourceNulls[source.getSelectedRow(i)];
+            }
+        }
+        setSize(count);
+    }
+
+    /**
+     * Makes this batch show some of another batch's columns, without copying them. The
+     * two batches share the vectors and the selection until the source is refilled.
+     * @param source The batch to show.
+     * @param columns For each column of this batch, the source column it shows.
+     */
+    public void projectFrom(VectorBatch source, int[] columns) {
+        for (int column = 0; column < columns.length; column++) {
+            int sourceColumn = columns[column];
+            intVectors[column] = source.intVectors[sourceColumn];
+            longVectors[column] = source.longVectors[sourceColumn];
+            doubleVectors[column] = source.doubleVectors[sourceColumn];
+            nullVectors[column] = source.nullVectors[sourceColumn];
+        }
+        this.size = source.size;
+        this.selection = source.selection;
+        this.selectionActive = source.selectionActive;
+        this.selectedCount = source.selectedCount;
+    }
+}
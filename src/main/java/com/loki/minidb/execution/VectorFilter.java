@@ -0,0 +1,59 @@
+package com.loki.minidb.execution;
+
+import com.loki.minidb.catalog.Type;
+
+import java.io.IOException;
+
+/**
+ * VectorFilter passes on the rows of its input that satisfy all of its predicates.
+ *
+ * The rows are not copied: the predicates narrow the input batch's selection vector
+ * and the same batch is returned. A batch in which no row passes is skipped, so the
+ * operators above never see an empty batch.
+ */
+public class VectorFilter implements VectorOperator {
+
+    private final VectorOperator child;
+    private final VectorPredicate[] predicates;
+
+    /**
+     * @param child The input.
+     * @param predicates The conditions a row must all satisfy, cheapest or most selective first.
+     */
+    public VectorFilter(VectorOperator child, VectorPredicate... predicates) {
+        this.child = child;
+        this.predicates = predicates.clone();
+    }
+
+    @Override
+    public Type[] getTypes() {
+        return child.getTypes();
+    }
+
+    @Override
+    public void open() throws IOException {
+        child.open();
+    }
+
+    @Override
+    public VectorBatch next() throws IOException {
+        VectorBatch batch;
+        while ((batch = child.next()) != null) {
+            for (VectorPredicate predicate : predicates) {
+                predicate.apply(batch);
+                if (batch.getSelectedCount() == 0) {
+                    break;
+                }
+            }
+            if (batch.getSelectedCount() > 0) {
+                return batch;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        child.close();
+    }
+}
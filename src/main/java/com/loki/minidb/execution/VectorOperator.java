@@ -0,0 +1,42 @@
+package com.loki.minidb.execution;
+
+import com.loki.minidb.catalog.Type;
+
+import java.io.IOException;
+
+/**
+ * VectorOperator is one step of a query plan in the vectorized engine.
+ *
+ * Operators are pulled, like iterators, but a call to next() returns a whole batch of
+ * rows instead of a single one. A plan is run by calling open() on its top operator,
+ * then next() until it returns null, then close(). Each operator opens and closes its
+ * own inputs.
+ */
+public interface VectorOperator extends AutoCloseable {
+
+    /**
+     * @return The type of each output column.
+     */
+    Type[] getTypes();
+
+    /**
+     * Prepares the operator, and its inputs, to produce rows.
+     * @throws IOException if a disk I/O error occurs.
+     */
+    void open() throws IOException;
+
+    /**
+     * Produces the next batch of rows.
+     * The batch belongs to the operator and is only valid until the next call.
+     * @return A batch with at least one selected row, or null when there are no more rows.
+     * @throws IOException if a disk I/O error occurs.
+     */
+    VectorBatch next() throws IOException;
+
+    /**
+     * Releases the operator's resources, and its inputs'.
+     * @throws IOException if a disk I/O error occurs.
+     */
+    @Override
+    void close() throws IOException;
+}
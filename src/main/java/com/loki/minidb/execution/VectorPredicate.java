@@ -0,0 +1,18 @@
+package com.loki.minidb.execution;
+
+/**
+ * VectorPredicate is a condition evaluated on a whole batch at a time.
+ *
+ * Instead of answering true or false for one row, a predicate narrows the batch's
+ * selection vector to the rows that satisfy it. Applying several predicates one after
+ * another therefore evaluates their AND, and each one only looks at the rows that
+ * passed the ones before it.
+ */
+public interface VectorPredicate {
+
+    /**
+     * Removes the rows that do not satisfy the predicate from the batch's selection.
+     * @param batch The batch to filter.
+     */
+    void apply(VectorBatch batch);
+}
@@ -0,0 +1,62 @@
+package com.loki.minidb.execution;
+
+import com.loki.minidb.catalog.Type;
+
+import java.io.IOException;
+
+/**
+ * VectorProjection keeps some columns of its input, in a new order.
+ *
+ * The output batch shares the input's vectors and selection (see
+ * VectorBatch.projectFrom()), so projecting a batch costs the same however many rows
+ * it holds.
+ */
+public class VectorProjection implements VectorOperator {
+
+    private final VectorOperator child;
+    private final int[] columns;
+    private final Type[] types;
+    private VectorBatch batch;
+
+    /**
+     * @param child The input.
+     * @param columns For each output column, the input column it takes. A column may appear more than once.
+     */
+    public VectorProjection(VectorOperator child, int... columns) {
+        this.child = child;
+        this.columns = columns.clone();
+        Type[] childTypes = child.getTypes();
+        this.types = new Type[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            types[i] = childTypes[columns[i]];
+        }
+    }
+
+    @Override
+    public Type[] getTypes() {
+        return types.clone();
+    }
+
+    @Override
+    public void open() throws IOException {
+        child.open();
+        // The vectors come from the input, so the batch needs no room of its own.
+        batch = new VectorBatch(types, 0);
+    }
+
+    @Override
+    public VectorBatch next() throws IOException {
+        VectorBatch input = child.next();
+        if (input == null) {
+            return null;
+        }
+        batch.projectFrom(input, columns);
+        return batch;
+    }
+
+    @Override
+    public void close() throws IOException {
+        batch = null;
+        child.close();
+    }
+}
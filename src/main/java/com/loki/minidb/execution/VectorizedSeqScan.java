@@ -0,0 +1,185 @@
+package com.loki.minidb.execution;
+
+import com.loki.minidb.catalog.ColumnAccessor;
+import com.loki.minidb.catalog.Schema;
+import com.loki.minidb.catalog.Type;
+import com.loki.minidb.storage.BufferPoolManager;
+import com.loki.minidb.storage.Page;
+import com.loki.minidb.storage.SlottedPage;
+import com.loki.minidb.storage.TableHeap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * VectorizedSeqScan reads columns of a table heap into VectorBatches.
+ *
+ * The scan copies values straight from the page frames into the column vectors,
+ * without creating a Tuple per row. For each page it does two passes:
+ * 1. Walk the slot array and note the offset of every live tuple that fits in the batch.
+ * 2. For each column, read the value at every noted offset into the column's vector.
+ * The second pass is a tight loop over one column at a time, through the column's
+ * ColumnAccessor.
+ *
+ * A page is pinned and read-latched only while it is copied, never between calls to
+ * next(). A batch may hold rows from several pages, and a page's rows may be split
+ * over two batches.
+ */
+public class VectorizedSeqScan implements VectorOperator {
+
+    private final BufferPoolManager bufferPoolManager;
+    private final TableHeap tableHeap;
+    private final ColumnAccessor[] accessors;
+    private final Type[] types;
+    private final int batchCapacity;
+    private int[] pageIds;
+
+    private VectorBatch batch;
+    private int[] tupleOffsets;
+    private int pageIndex;
+    private int nextSlotId;
+
+    /**
+     * Creates a scan over every page of a table heap.
+     * @param tableHeap The table to scan.
+     * @param schema The table's schema.
+     * @param columns The columns to read, each INTEGER, BIGINT or DOUBLE.
+     */
+    public VectorizedSeqScan(TableHeap tableHeap, Schema schema, int[] columns) {
+        this(tableHeap.getBufferPoolManager(), tableHeap, null, schema, columns, VectorBatch.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a scan over some pages of a table heap, such as one morsel of a parallel scan.
+     * @param bufferPoolManager The buffer pool the pages are in.
+     * @param pageIds The data pages to scan, in order.
+     * @param schema The table's schema.
+     * @param columns The columns to read, each INTEGER, BIGINT or DOUBLE.
+     * @param batchCapacity The maximum number of rows per batch.
+     */
+    public VectorizedSeqScan(BufferPoolManager bufferPoolManager, int[] pageIds, Schema schema,
+                             int[] columns, int batchCapacity) {
+        this(bufferPoolManager, null, pageIds, schema, columns, batchCapacity);
+    }
+
+    private VectorizedSeqScan(BufferPoolManager bufferPoolManager, TableHeap tableHeap, int[] pageIds,
+                              Schema schema, int[] columns, int batchCapacity) {
+        this.bufferPoolManager = bufferPoolManager;
+        this.tableHeap = tableHeap;
+        this.pageIds = pageIds;
+        this.batchCapacity = batchCapacity;
+        this.accessors = new ColumnAccessor[columns.length];
+        this.types = new Type[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            accessors[i] = schema.getAccessor(columns[i]);
+            types[i] = schema.getColumnType(columns[i]);
+            if (types[i] != Type.INTEGER && types[i] != Type.BIGINT && types[i] != Type.DOUBLE) {
+                throw new IllegalArgumentException("Column " + columns[i] + " is " + types[i] + ", which a vector cannot hold.");
+            }
+        }
+    }
+
+    @Override
+    public Type[] getTypes() {
+        return types.clone();
+    }
+
+    @Override
+    public void open() throws IOException {
+        if (tableHeap != null) {
+            // The list of pages is taken when the scan starts, as TableIterator does.
+            pageIds = tableHeap.getPageIds();
+        }
+        batch = new VectorBatch(types, batchCapacity);
+        tupleOffsets = new int[batchCapacity];
+        pageIndex = 0;
+        nextSlotId = 0;
+    }
+
+    @Override
+    public VectorBatch next() throws IOException {
+        batch.reset();
+        while (batch.getSize() < batchCapacity && pageIndex < pageIds.length) {
+            if (readPage(pageIds[pageIndex])) {
+                pageIndex++;
+                nextSlotId = 0;
+            }
+        }
+        return batch.getSize() == 0 ? null : batch;
+    }
+
+    @Override
+    public void close() {
+        batch = null;
+        tupleOffsets = null;
+    }
+
+    /**
+     * Appends as many of a page's tuples to the batch as fit, starting at nextSlotId.
+     * @return true if the page is done, false if the batch filled up first.
+     */
+    private boolean readPage(int pageId) throws IOException {
+        Page page = bufferPoolManager.fetchPage(pageId);
+        if (page == null) {
+            throw new IllegalStateException("The buffer pool has no free frame for page " + pageId + ".");
+        }
+        page.rLatch();
+        try {
+            SlottedPage slottedPage = new SlottedPage(page);
+            ByteBuffer buffer = page.getBuffer();
+
+            // 1. Find the live tuples that fit in the batch.
+            int start = batch.getSize();
+            int room = batchCapacity - start;
+            int found = 0;
+            int slotCount = slottedPage.getSlotCount();
+            int slotId = nextSlotId;
+            for (; slotId < slotCount && found < room; slotId++) {
+                int tupleOffset = slottedPage.getTupleOffset(slotId);
+                if (tupleOffset >= 0) {
+                    tupleOffsets[found++] = tupleOffset;
+                }
+            }
+
+            // 2. Copy them one column at a time.
+            for (int column = 0; column < accessors.length; column++) {
+                readColumn(column, buffer, start, found);
+            }
+            batch.setSize(start + found);
+            nextSlotId = slotId;
+            return slotId == slotCount;
+        } finally {
+            page.rUnlatch();
+            bufferPoolManager.unpinPage(pageId);
+        }
+    }
+
+    private void readColumn(int column, ByteBuffer buffer, int start, int count) {
+        ColumnAccessor accessor = accessors[column];
+        boolean[] nulls = batch.getNulls(column);
+        switch (types[column]) {
+            case INTEGER -> {
+                int[] values = batch.getInts(column);
+                for (int i = 0; i < count; i++) {
+                    values[start + i] = accessor.getInt(buffer, tupleOffsets[i]);
+                }
+            }
+            case BIGINT -> {
+                long[] values = batch.getLongs(column);
+                for (int i = 0; i < count; i++) {
+                    values[start + i] = accessor.getLong(buffer, tupleOffsets[i]);
+                }
+            }
+            case DOUBLE -> {
+                double[] values = batch.getDoubles(column);
+                for (int i = 0; i < count; i++) {
+                    values[start + i] = accessor.getDouble(buffer, tupleOffsets[i]);
+                }
+            }
+            default -> throw new IllegalStateException("Unexpected vector type " + types[column]);
+        }
+        for (int i = 0; i < count; i++) {
+            nulls[start + i] = accessor.isNull(buffer, tupleOffsets[i]);
+        }
+    }
+}
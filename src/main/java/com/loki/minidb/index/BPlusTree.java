@@ -0,0 +1,476 @@
+package com.loki.minidb.index;
+
+import com.loki.minidb.storage.BufferPoolManager;
+import com.loki.minidb.storage.Page;
+import com.loki.minidb.storage.RecordId;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * BPlusTree is a disk-based index from unique int keys to RecordIds. Its nodes are
+ * pages of the buffer pool (see BPlusTreeNode for their layout).
+ *
+ * Header Page Layout:
+ * ------------------------------------------------------------------------
+ * | rootPageId (4 bytes) | leafMaxSize (4 bytes) | innerMaxSize (4 bytes) |
+ * ------------------------------------------------------------------------
+ * A tree is identified by its header page; pass it to the constructor to open the tree again.
+ *
+ * Concurrency: optimistic latch coupling.
+ * - Readers take no latches at all. They descend from the root reading each node's
+ *   version (Page.readVersion()), and after reading the child pointer they validate
+ *   the parent's version. If a writer changed a node in the meantime, the traversal
+ *   restarts from the root. Readers therefore never block each other or writers, and
+ *   never write to a shared latch.
+ * - Inserts and deletes descend the same way and then upgrade only the leaf to a
+ *   write latch, which fails (and restarts) if the leaf changed since it was read.
+ * - An insert into a full leaf restarts on the pessimistic path, which splits nodes.
+ *   Splits are serialized by a tree-wide lock, so inner nodes only ever change on that
+ *   path. A split write-latches every node it changes and releases them all at the end,
+ *   so a reader that saw a node before the split fails to validate it afterwards.
+ *
+ * Deletes are lazy: they remove the entry from its leaf but never merge or rebalance
+ * nodes, so pages are never freed. A traversal can therefore always follow a page ID it
+ * has validated, and a node never changes type.
+ */
+public final class BPlusTree {
+
+    // --- Header Page Constants ---
+    private static final int ROOT_PAGE_ID_OFFSET = 0;
+    private static final int LEAF_MAX_SIZE_OFFSET = 4;
+    private static final int INNER_MAX_SIZE_OFFSET = 8;
+
+    private final BufferPoolManager bufferPoolManager;
+    private final int headerPageId;
+    private final int leafMaxSize;
+    private final int innerMaxSize;
+
+    // The root, also stored in the header page. Only changed while holding splitLock and
+    // the write latch of the old root.
+    private volatile int rootPageId;
+    // Serializes structure changes (splits).
+    private final ReentrantLock splitLock = new ReentrantLock();
+
+    /**
+     * Creates a new, empty tree with nodes as large as a page allows.
+     * @param bufferPoolManager The buffer pool to store the tree in.
+     * @return The new tree.
+     * @throws IOException if a disk I/O error occurs.
+     */
+    public static BPlusTree create(BufferPoolManager bufferPoolManager) throws IOException {
+        return create(bufferPoolManager, BPlusTreeNode.LEAF_CAPACITY, BPlusTreeNode.INNER_CAPACITY);
+    }
+
+    /**
+     * Creates a new, empty tree with smaller nodes. Small nodes make a tree deep with
+     * few keys, which is mostly useful for testing.
+     * @param bufferPoolManager The buffer pool to store the tree in.
+     * @param leafMaxSize The maximum number of entries in a leaf, at least 2.
+     * @param innerMaxSize The maximum number of keys in an inner node, at least 2.
+     * @return The new tree.
+     * @throws IOException if a disk I/O error occurs.
+     */
+    public static BPlusTree create(BufferPoolManager bufferPoolManager, int leafMaxSize, int innerMaxSize) throws IOException {
+        checkNodeSizes(leafMaxSize, innerMaxSize);
+
+        // 1. An empty leaf as the root, then the header page that points to it.
+        Page root = newPage(bufferPoolManager);
+        try {
+            new BPlusTreeNode(root).init(BPlusTreeNode.TYPE_LEAF);
+        } finally {
+            bufferPoolManager.unpinPage(root.getPageId(), true);
+        }
+        return createWithRoot(bufferPoolManager, root.getPageId(), leafMaxSize, innerMaxSize);
+    }
+
+    static void checkNodeSizes(int leafMaxSize, int innerMaxSize) {
+        if (leafMaxSize < 2 || leafMaxSize > BPlusTreeNode.LEAF_CAPACITY) {
+            throw new IllegalArgumentException("leafMaxSize must be between 2 and " + BPlusTreeNode.LEAF_CAPACITY + ".");
+        }
+        if (innerMaxSize < 2 || innerMaxSize > BPlusTreeNode.INNER_CAPACITY) {
+            throw new IllegalArgumentException("innerMaxSize must be between 2 and " + BPlusTreeNode.INNER_CAPACITY + ".");
+        }
+    }
+
+    /**
+     * Writes the header page of a tree whose nodes already exist, and opens the tree.
+     * @param rootPageId The tree's root node.
+     * @return The tree.
+     */
+    static BPlusTree createWithRoot(BufferPoolManager bufferPoolManager, int rootPageId,
+                                    int leafMaxSize, int innerMaxSize) throws IOException {
+        Page header = newPage(bufferPoolManager);
+        try {
+            ByteBuffer buffer = header.getBuffer();
+            buffer.putInt(ROOT_PAGE_ID_OFFSET, rootPageId);
+            buffer.putInt(LEAF_MAX_SIZE_OFFSET, leafMaxSize);
+            buffer.putInt(INNER_MAX_SIZE_OFFSET, innerMaxSize);
+        } finally {
+            bufferPoolManager.unpinPage(header.getPageId(), true);
+        }
+        return new BPlusTree(bufferPoolManager, header.getPageId());
+    }
+
+    /**
+     * Opens an existing tree.
+     * @param bufferPoolManager The buffer pool the tree is stored in.
+     * @param headerPageId The tree's header page, as returned by getHeaderPageId().
+     * @throws IOException if a disk I/O error occurs.
+     */
+    public BPlusTree(BufferPoolManager bufferPoolManager, int headerPageId) throws IOException {
+        this.bufferPoolManager = bufferPoolManager;
+        this.headerPageId = headerPageId;
+        Page header = fetch(headerPageId);
+        try {
+            ByteBuffer buffer = header.getBuffer();
+            this.rootPageId = buffer.getInt(ROOT_PAGE_ID_OFFSET);
+            this.leafMaxSize = buffer.getInt(LEAF_MAX_SIZE_OFFSET);
+            this.innerMaxSize = buffer.getInt(INNER_MAX_SIZE_OFFSET);
+        } finally {
+            bufferPoolManager.unpinPage(headerPageId);
+        }
+    }
+
+    /**
+     * @return The page that identifies this tree.
+     */
+    public int getHeaderPageId() {
+        return headerPageId;
+    }
+
+    /**
+     * @return The current root page.
+     */
+    public int getRootPageId() {
+        return rootPageId;
+    }
+
+    /**
+     * Looks up a key.
+     * @param key The key to look for.
+     * @return The key's RecordId, or null if the key is not in the tree.
+     * @throws IOException if a disk I/O error occurs.
+     */
+    public RecordId getValue(int key) throws IOException {
+        long[] version = new long[1];
+        while (true) {
+            Page leaf = findLeaf(key, version);
+            if (leaf == null) {
+                continue;
+            }
+            // Read the entry optimistically, and only trust it if the leaf did not change.
+            BPlusTreeNode node = new BPlusTreeNode(leaf);
+            int index = node.lowerBound(key);
+            boolean found = index < node.getKeyCount() && node.getKey(index) == key;
+            int pageId = found ? node.getValuePageId(index) : 0;
+            int slotId = found ? node.getValueSlotId(index) : 0;
+            boolean valid = leaf.validate(version[0]);
+            bufferPoolManager.unpinPage(leaf.getPageId());
+            if (valid) {
+                return found ? new RecordId(pageId, slotId) : null;
+            }
+        }
+    }
+
+    /**
+     * Inserts a key.
+     * @param key The key to insert.
+     * @param recordId The RecordId to store under the key.
+     * @return true if the key was inserted, false if it was already in the tree.
+     * @throws IOException if a disk I/O error occurs.
+     */
+    public boolean insert(int key, RecordId recordId) throws IOException {
+        long[] version = new long[1];
+        while (true) {
+            // 1. Find the leaf optimistically and upgrade it to a write latch.
+            Page leaf = findLeaf(key, version);
+            if (leaf == null) {
+                continue;
+            }
+            if (!leaf.upgrade(version[0])) {
+                bufferPoolManager.unpinPage(leaf.getPageId());
+                continue;
+            }
+
+            // 2. Insert if the key is new and the leaf has room.
+            boolean full;
+            try {
+                BPlusTreeNode node = new BPlusTreeNode(leaf);
+                int index = node.lowerBound(key);
+                if (index < node.getKeyCount() && node.getKey(index) == key) {
+                    return false;
+                }
+                full = node.getKeyCount() >= leafMaxSize;
+                if (!full) {
+                    node.insertLeafEntry(index, key, recordId);
+                    return true;
+                }
+            } finally {
+                leaf.wUnlatch();
+                bufferPoolManager.unpinPage(leaf.getPageId(), true);
+            }
+
+            // 3. The leaf is full, so the insert has to split it.
+            return insertWithSplit(key, recordId);
+        }
+    }
+
+    /**
+     * Deletes a key. The leaf is never merged with its neighbours, even if it becomes empty.
+     * @param key The key to delete.
+     * @return true if the key was in the tree.
+     * @throws IOException if a disk I/O error occurs.
+     */
+    public boolean delete(int key) throws IOException {
+        long[] version = new long[1];
+        while (true) {
+            Page leaf = findLeaf(key, version);
+            if (leaf == null) {
+                continue;
+            }
+            if (!leaf.upgrade(version[0])) {
+                bufferPoolManager.unpinPage(leaf.getPageId());
+                continue;
+            }
+            boolean deleted = false;
+            try {
+                BPlusTreeNode node = new BPlusTreeNode(leaf);
+                int index = node.lowerBound(key);
+                if (index < node.getKeyCount() && node.getKey(index) == key) {
+                    node.removeLeafEntry(index);
+                    deleted = true;
+                }
+                return deleted;
+            } finally {
+                leaf.wUnlatch();
+                bufferPoolManager.unpinPage(leaf.getPageId(), deleted);
+            }
+        }
+    }
+
+    /**
+     * Returns an iterator over the entries with keys in [fromKey, toKey], in key order.
+     * @param fromKey The smallest key to return.
+     * @param toKey The largest key to return.
+     * @return A new iterator.
+     */
+    public BPlusTreeIterator iterator(int fromKey, int toKey) {
+        return new BPlusTreeIterator(this, fromKey, toKey);
+    }
+
+    /**
+     * @return An iterator over every entry, in key order.
+     */
+    public BPlusTreeIterator iterator() {
+        return iterator(Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return The number of levels, 1 for a tree that is a single leaf.
+     * @throws IOException if a disk I/O error occurs.
+     */
+    public int getHeight() throws IOException {
+        splitLock.lock();
+        try {
+            int height = 1;
+            int pageId = rootPageId;
+            while (true) {
+                Page page = fetch(pageId);
+                BPlusTreeNode node = new BPlusTreeNode(page);
+                boolean leaf = node.isLeaf();
+                int child = leaf ? Page.INVALID_PAGE_ID : node.getChild(0);
+                bufferPoolManager.unpinPage(pageId);
+                if (leaf) {
+                    return height;
+                }
+                height++;
+                pageId = child;
+            }
+        } finally {
+            splitLock.unlock();
+        }
+    }
+
+    BufferPoolManager getBufferPoolManager() {
+        return bufferPoolManager;
+    }
+
+    /**
+     * Descends optimistically to the leaf that may hold a key.
+     * @param key The key to look for.
+     * @param versionOut Receives the leaf's version.
+     * @return The pinned leaf, or null if a concurrent change forces a restart.
+     */
+    Page findLeaf(int key, long[] versionOut) throws IOException {
+        // 1. Start at the root, and make sure it still is the root once we know its version.
+        int pageId = rootPageId;
+        Page page = fetch(pageId);
+        long version = page.readVersion();
+        if (pageId != rootPageId) {
+            bufferPoolManager.unpinPage(pageId);
+            return null;
+        }
+
+        while (true) {
+            BPlusTreeNode node = new BPlusTreeNode(page);
+            if (node.isLeaf()) {
+                versionOut[0] = version;
+                return page;
+            }
+
+            // 2. Read the child pointer, and check the node did not change while we read it.
+            int childPageId = node.getChild(node.findChildIndex(key));
+            if (!page.validate(version)) {
+                bufferPoolManager.unpinPage(pageId);
+                return null;
+            }
+
+            // 3. Move to the child. The parent is validated once more after the child's version
+            //    is read: if the child was split in between, the parent changed as well.
+            Page child = fetch(childPageId);
+            long childVersion = child.readVersion();
+            boolean valid = page.validate(version);
+            bufferPoolManager.unpinPage(pageId);
+            if (!valid) {
+                bufferPoolManager.unpinPage(childPageId);
+                return null;
+            }
+            pageId = childPageId;
+            page = child;
+            version = childVersion;
+        }
+    }
+
+    /**
+     * The pessimistic insert path: splits the leaf and as many ancestors as needed.
+     */
+    private boolean insertWithSplit(int key, RecordId recordId) throws IOException {
+        splitLock.lock();
+        // Every page pinned here, and the ones that were write-latched, released at the end.
+        List<Page> pinned = new ArrayList<>();
+        List<Page> latched = new ArrayList<>();
+        try {
+            // 1. Descend from the root. Inner nodes only change under splitLock, which we hold,
+            //    so they can be read without latches. Remember the path.
+            List<Page> path = new ArrayList<>();
+            Page page = fetch(rootPageId);
+            pinned.add(page);
+            while (!new BPlusTreeNode(page).isLeaf()) {
+                path.add(page);
+                BPlusTreeNode node = new BPlusTreeNode(page);
+                page = fetch(node.getChild(node.findChildIndex(key)));
+                pinned.add(page);
+            }
+
+            // 2. Latch the leaf. Optimistic writers may have changed it since the caller saw it full.
+            page.wLatch();
+            latched.add(page);
+            BPlusTreeNode leaf = new BPlusTreeNode(page);
+            int index = leaf.lowerBound(key);
+            if (index < leaf.getKeyCount() && leaf.getKey(index) == key) {
+                return false;
+            }
+            if (leaf.getKeyCount() < leafMaxSize) {
+                leaf.insertLeafEntry(index, key, recordId);
+                return true;
+            }
+
+            // 3. Split the leaf, then put the key into whichever half it belongs to.
+            Page rightPage = newPage(bufferPoolManager);
+            pinned.add(rightPage);
+            rightPage.wLatch();
+            latched.add(rightPage);
+            BPlusTreeNode right = new BPlusTreeNode(rightPage);
+            right.init(BPlusTreeNode.TYPE_LEAF);
+            int separator = leaf.splitLeafInto(right, rightPage.getPageId());
+            BPlusTreeNode target = key < separator ? leaf : right;
+            target.insertLeafEntry(target.lowerBound(key), key, recordId);
+
+            // 4. Insert the separator into the parent, splitting upwards while parents are full.
+            Page leftPage = page;
+            int rightPageId = rightPage.getPageId();
+            for (int level = path.size() - 1; level >= 0; level--) {
+                Page parentPage = path.get(level);
+                parentPage.wLatch();
+                latched.add(parentPage);
+                BPlusTreeNode parent = new BPlusTreeNode(parentPage);
+                int position = parent.upperBound(separator);
+                if (parent.getKeyCount() < innerMaxSize) {
+                    parent.insertInnerEntry(position, separator, rightPageId);
+                    return true;
+                }
+
+                // The parent is full too: split it, and insert into the half the separator belongs to.
+                Page newInnerPage = newPage(bufferPoolManager);
+                pinned.add(newInnerPage);
+                newInnerPage.wLatch();
+                latched.add(newInnerPage);
+                BPlusTreeNode newInner = new BPlusTreeNode(newInnerPage);
+                newInner.init(BPlusTreeNode.TYPE_INNER);
+                int middle = parent.splitInnerInto(newInner);
+                BPlusTreeNode half = separator < middle ? parent : newInner;
+                half.insertInnerEntry(half.upperBound(separator), separator, rightPageId);
+
+                leftPage = parentPage;
+                separator = middle;
+                rightPageId = newInnerPage.getPageId();
+            }
+
+            // 5. The root itself was split: grow the tree by one level. The old root is still
+            //    write-latched, so readers that started from it will fail to validate it.
+            Page newRootPage = newPage(bufferPoolManager);
+            pinned.add(newRootPage);
+            newRootPage.wLatch();
+            latched.add(newRootPage);
+            BPlusTreeNode newRoot = new BPlusTreeNode(newRootPage);
+            newRoot.init(BPlusTreeNode.TYPE_INNER);
+            newRoot.setChild(0, leftPage.getPageId());
+            newRoot.insertInnerEntry(0, separator, rightPageId);
+            setRootPageId(newRootPage.getPageId());
+            return true;
+        } finally {
+            for (Page page : latched) {
+                page.wUnlatch();
+            }
+            for (Page page : pinned) {
+                bufferPoolManager.unpinPage(page.getPageId(), latched.contains(page));
+            }
+            splitLock.unlock();
+        }
+    }
+
+    /**
+     * Records a new root in memory and in the header page.
+     */
+    private void setRootPageId(int pageId) throws IOException {
+        Page header = fetch(headerPageId);
+        header.wLatch();
+        try {
+            header.getBuffer().putInt(ROOT_PAGE_ID_OFFSET, pageId);
+        } finally {
+            header.wUnlatch();
+            bufferPoolManager.unpinPage(headerPageId, true);
+        }
+        this.rootPageId = pageId;
+    }
+
+    Page fetch(int pageId) throws IOException {
+        Page page = bufferPoolManager.fetchPage(pageId);
+        if (page == null) {
+            throw new IllegalStateException("The buffer pool has no free frame for page " + pageId + ".");
+        }
+        return page;
+    }
+
+    private static Page newPage(BufferPoolManager bufferPoolManager) throws IOException {
+        Page page = bufferPoolManager.newPage();
+        if (page == null) {
+            throw new IllegalStateException("The buffer pool has no free frame for a new page.");
+        }
+        return page;
+    }
+}
@@ -0,0 +1,246 @@
+package com.loki.minidb.index;
+
+import com.loki.minidb.catalog.ColumnAccessor;
+import com.loki.minidb.catalog.Schema;
+import com.loki.minidb.catalog.Type;
+import com.loki.minidb.storage.BufferPoolManager;
+import com.loki.minidb.storage.DiskManager;
+import com.loki.minidb.storage.Page;
+import com.loki.minidb.storage.TableHeap;
+import com.loki.minidb.storage.TableIterator;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * BPlusTreeBulkLoader builds a BPlusTree over an existing table bottom-up, instead of
+ * inserting the rows one at a time.
+ *
+ * 1. The (key, RecordId) pairs of the table are sorted, with an external sort if there
+ *    are more than sortMemoryEntries of them (see KeyRecordSorter).
+ * 2. The sorted pairs are cut into leaves filled to the fill factor. The leaves are
+ *    given a run of consecutive pages, so each leaf's next pointer is simply the next page.
+ * 3. Each inner level is built from the first keys of the level below, the same way,
+ *    until a level has a single node: the root.
+ *
+ * The nodes are written straight through the DiskManager, a batch of consecutive pages
+ * per write, without passing through the buffer pool. Every page is written once and
+ * in file order, and every node but the last of each level is filled to the fill factor,
+ * so later inserts have room before they split.
+ *
+ * Rows whose key is NULL are left out of the index. The keys must be unique. A duplicate
+ * that the sort has already seen fails the load before any page is allocated. One that
+ * only meets in the sort's final merge is found while the leaves are written, and the
+ * leaves' pages are then given back (see DiskManager.freeTrailingPages()).
+ */
+public class BPlusTreeBulkLoader {
+
+    public static final double DEFAULT_FILL_FACTOR = 0.9;
+    // 1M entries take about 20 MB while they are sorted.
+    public static final int DEFAULT_SORT_MEMORY_ENTRIES = 1 << 20;
+    // Pages written per call to DiskManager.writePages().
+    private static final int WRITE_BATCH_PAGES = 64;
+
+    private final BufferPoolManager bufferPoolManager;
+    private final DiskManager diskManager;
+    private final int leafMaxSize;
+    private final int innerMaxSize;
+    private final double fillFactor;
+    private final int sortMemoryEntries;
+
+    /**
+     * Creates a loader for trees with full-size nodes, filled to DEFAULT_FILL_FACTOR.
+     * @param bufferPoolManager The buffer pool the tree will be used through.
+     */
+    public BPlusTreeBulkLoader(BufferPoolManager bufferPoolManager) {
+        this(bufferPoolManager, BPlusTreeNode.LEAF_CAPACITY, BPlusTreeNode.INNER_CAPACITY,
+                DEFAULT_FILL_FACTOR, DEFAULT_SORT_MEMORY_ENTRIES);
+    }
+
+    /**
+     * Creates a loader.
+     * @param bufferPoolManager The buffer pool the tree will be used through.
+     * @param leafMaxSize The tree's maximum number of entries in a leaf (see BPlusTree.create()).
+     * @param innerMaxSize The tree's maximum number of keys in an inner node.
+     * @param fillFactor How full to make each node, in (0, 1].
+     * @param sortMemoryEntries How many entries to sort in memory before spilling a run to disk.
+     */
+    public BPlusTreeBulkLoader(BufferPoolManager bufferPoolManager, int leafMaxSize, int innerMaxSize,
+                               double fillFactor, int sortMemoryEntries) {
+        BPlusTree.checkNodeSizes(leafMaxSize, innerMaxSize);
+        if (!(fillFactor > 0 && fillFactor <= 1)) {
+            throw new IllegalArgumentException("fillFactor must be in (0, 1].");
+        }
+        this.bufferPoolManager = bufferPoolManager;
+        this.diskManager = bufferPoolManager.getDiskManager();
+        this.leafMaxSize = leafMaxSize;
+        this.innerMaxSize = innerMaxSize;
+        this.fillFactor = fillFactor;
+        this.sortMemoryEntries = sortMemoryEntries;
+    }
+
+    /**
+     * Builds a tree over an INTEGER column of a table.
+     * @param tableHeap The table to index.
+     * @param schema The table's schema.
+     * @param keyColumnIndex The column to use as the key.
+     * @return The new tree.
+     * @throws IOException if a disk I/O error occurs.
+     * @throws IllegalArgumentException if the column is not INTEGER or its values are not unique.
+     */
+    public BPlusTree load(TableHeap tableHeap, Schema schema, int keyColumnIndex) throws IOException {
+        if (schema.getColumnType(keyColumnIndex) != Type.INTEGER) {
+            throw new IllegalArgumentException("Column " + keyColumnIndex + " is not an INTEGER column.");
+        }
+        ColumnAccessor key = schema.getAccessor(keyColumnIndex);
+        try (KeyRecordSorter sorter = new KeyRecordSorter(sortMemoryEntries)) {
+            // 1. Collect and sort the (key, RecordId) pairs.
+            TableIterator iterator = tableHeap.iterator(schema);
+            while (iterator.hasNext()) {
+                byte[] row = iterator.next().getData();
+                if (!key.isNull(row)) {
+                    sorter.add(key.getInt(row), iterator.getRecordId().getPageId(), iterator.getRecordId().getSlotId());
+                }
+            }
+            sorter.sort();
+
+            // 2. Build the tree from them.
+            return build(sorter);
+        }
+    }
+
+    /**
+     * Builds a tree from sorted entries.
+     */
+    BPlusTree build(KeyRecordSorter sorter) throws IOException {
+        // 1. The leaf level. Check the keys the sort has compared so far before allocating.
+        if (sorter.hasDuplicateKey()) {
+            throw duplicateKey(sorter);
+        }
+        int leafFill = Math.max(1, (int) (leafMaxSize * fillFactor));
+        long leafCountLong = Math.max(1, (sorter.size() + leafFill - 1) / leafFill);
+        if (leafCountLong > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many entries for one tree: " + sorter.size());
+        }
+        int nodeCount = (int) leafCountLong;
+        int firstPageId = diskManager.allocatePages(nodeCount);
+        int[] firstKeys = writeLeaves(sorter, firstPageId, nodeCount, leafFill);
+        if (firstKeys == null) {
+            // The final merge found a duplicate. Nothing points to the leaves yet.
+            diskManager.freeTrailingPages(firstPageId, nodeCount);
+            throw duplicateKey(sorter);
+        }
+
+        // 2. Inner levels, each built from the first keys of the level below, up to the root.
+        int fanout = Math.max(2, (int) (innerMaxSize * fillFactor) + 1);
+        while (nodeCount > 1) {
+            int parentCount = (nodeCount + fanout - 1) / fanout;
+            int parentFirstPageId = diskManager.allocatePages(parentCount);
+            firstKeys = writeInnerLevel(firstKeys, firstPageId, nodeCount, parentFirstPageId, parentCount, fanout);
+            firstPageId = parentFirstPageId;
+            nodeCount = parentCount;
+        }
+
+        // 3. The header, through the buffer pool like every later change to the tree.
+        return BPlusTree.createWithRoot(bufferPoolManager, firstPageId, leafMaxSize, innerMaxSize);
+    }
+
+    private static IllegalArgumentException duplicateKey(KeyRecordSorter sorter) {
+        return new IllegalArgumentException("Duplicate key " + sorter.getDuplicateKey()
+                + ": a B+Tree's keys must be unique.");
+    }
+
+    /**
+     * Fills the leaves [firstPageId, firstPageId + leafCount) from the sorted entries.
+     * @return The first key of each leaf (unused for the first leaf), or null if the
+     *         sorter found a duplicate key, in which case the leaves are incomplete.
+     */
+    private int[] writeLeaves(KeyRecordSorter sorter, int firstPageId, int leafCount, int leafFill) throws IOException {
+        int[] firstKeys = new int[leafCount];
+        PageWriter writer = new PageWriter(firstPageId);
+        for (int leaf = 0; leaf < leafCount; leaf++) {
+            BPlusTreeNode node = new BPlusTreeNode(writer.nextPage());
+            node.init(BPlusTreeNode.TYPE_LEAF);
+            for (int i = 0; i < leafFill && sorter.next(); i++) {
+                if (sorter.hasDuplicateKey()) {
+                    return null;
+                }
+                int key = sorter.key();
+                if (i == 0) {
+                    firstKeys[leaf] = key;
+                }
+                node.appendLeafEntry(key, sorter.pageId(), sorter.slotId());
+            }
+            node.setNextLeafPageId(leaf < leafCount - 1 ? firstPageId + leaf + 1 : Page.INVALID_PAGE_ID);
+        }
+        writer.finish();
+        return firstKeys;
+    }
+
+    /**
+     * Writes the parents [parentFirstPageId, parentFirstPageId + parentCount) of the nodes
+     * [childFirstPageId, childFirstPageId + childCount), `fanout` children per parent.
+     * @return The first key of each parent's subtree.
+     */
+    private int[] writeInnerLevel(int[] childFirstKeys, int childFirstPageId, int childCount,
+                                  int parentFirstPageId, int parentCount, int fanout) throws IOException {
+        int[] firstKeys = new int[parentCount];
+        PageWriter writer = new PageWriter(parentFirstPageId);
+        for (int parent = 0; parent < parentCount; parent++) {
+            BPlusTreeNode node = new BPlusTreeNode(writer.nextPage());
+            node.init(BPlusTreeNode.TYPE_INNER);
+            int firstChild = parent * fanout;
+            int endChild = Math.min(childCount, firstChild + fanout);
+            node.setChild(0, childFirstPageId + firstChild);
+            // Key i of a node is the first key of its child i + 1.
+            for (int child = firstChild + 1; child < endChild; child++) {
+                node.setKey(child - firstChild - 1, childFirstKeys[child]);
+                node.setChild(child - firstChild, childFirstPageId + child);
+            }
+            node.setKeyCount(endChild - firstChild - 1);
+            firstKeys[parent] = childFirstKeys[firstChild];
+        }
+        writer.finish();
+        return firstKeys;
+    }
+
+    /**
+     * Hands out page buffers for a run of consecutive pages, and writes them with one
+     * DiskManager.writePages() call per WRITE_BATCH_PAGES pages.
+     */
+    private final class PageWriter {
+        private final Page[] batch = new Page[WRITE_BATCH_PAGES];
+        private int batchStartPageId;
+        private int batchSize;
+
+        PageWriter(int firstPageId) {
+            this.batchStartPageId = firstPageId;
+            for (int i = 0; i < batch.length; i++) {
+                batch[i] = new Page();
+            }
+        }
+
+        /**
+         * @return The buffer for the next page of the run, to be filled before the next call.
+         */
+        Page nextPage() throws IOException {
+            if (batchSize == batch.length) {
+                flush();
+            }
+            return batch[batchSize++];
+        }
+
+        void finish() throws IOException {
+            if (batchSize > 0) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            Page[] pages = batchSize == batch.length ? batch : Arrays.copyOf(batch, batchSize);
+            diskManager.writePages(batchStartPageId, pages);
+            batchStartPageId += batchSize;
+            batchSize = 0;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.loki.minidb.index;
+
+import com.loki.minidb.storage.BufferPoolManager;
+import com.loki.minidb.storage.Page;
+import com.loki.minidb.storage.RecordId;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * BPlusTreeIterator walks over the entries of a BPlusTree whose keys are in a range,
+ * following the links between leaves.
+ *
+ * The entries of one leaf are copied out optimistically, without a latch, and the
+ * copy is thrown away and taken again if a writer changed the leaf meanwhile. The leaf
+ * is unpinned before its entries are returned, so the iterator never holds a pin
+ * between calls. Entries inserted or deleted while the iterator runs may or may not be
+ * seen, but keys are always returned in increasing order and at most once: a leaf is
+ * only ever split to the right, so entries that moved out of a leaf are found by
+ * following its link. Disk errors are thrown as UncheckedIOException.
+ */
+public class BPlusTreeIterator implements Iterator<RecordId> {
+
+    private final BPlusTree tree;
+    private final BufferPoolManager bufferPoolManager;
+    private final int toKey;
+
+    // The entries copied from the current leaf.
+    private final int[] keys = new int[BPlusTreeNode.LEAF_CAPACITY];
+    private final int[] valuePageIds = new int[BPlusTreeNode.LEAF_CAPACITY];
+    private final int[] valueSlotIds = new int[BPlusTreeNode.LEAF_CAPACITY];
+    private int count;
+    private int position;
+
+    // The next leaf to copy, or INVALID_PAGE_ID when the range is exhausted.
+    private int nextLeafPageId;
+    // Keys up to this one have been copied already. Starts just below fromKey.
+    private long lastKey;
+    private boolean started;
+    private int currentKey;
+
+    BPlusTreeIterator(BPlusTree tree, int fromKey, int toKey) {
+        this.tree = tree;
+        this.bufferPoolManager = tree.getBufferPoolManager();
+        this.toKey = toKey;
+        this.lastKey = (long) fromKey - 1;
+        this.nextLeafPageId = Page.INVALID_PAGE_ID;
+        // An empty range needs no leaf at all.
+        this.started = fromKey > toKey;
+    }
+
+    @Override
+    public boolean hasNext() {
+        // Move on to the next leaf that has an entry in the range.
+        while (position == count) {
+            if (!loadNextLeaf()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public RecordId next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        currentKey = keys[position];
+        RecordId recordId = new RecordId(valuePageIds[position], valueSlotIds[position]);
+        position++;
+        return recordId;
+    }
+
+    /**
+     * @return The key of the entry last returned by next().
+     */
+    public int getKey() {
+        return currentKey;
+    }
+
+    /**
+     * Copies the entries of the next leaf.
+     * @return false if there are no more leaves to look at.
+     */
+    private boolean loadNextLeaf() {
+        try {
+            long[] version = new long[1];
+            Page leaf;
+            if (!started) {
+                // 1. The first leaf is found by descending the tree.
+                do {
+                    leaf = tree.findLeaf((int) (lastKey + 1), version);
+                } while (leaf == null);
+                started = true;
+            } else {
+                if (nextLeafPageId == Page.INVALID_PAGE_ID || lastKey >= toKey) {
+                    return false;
+                }
+                leaf = tree.fetch(nextLeafPageId);
+                version[0] = leaf.readVersion();
+            }
+
+            // 2. Copy the entries after lastKey, and retry until the copy is consistent.
+            BPlusTreeNode node = new BPlusTreeNode(leaf);
+            while (true) {
+                int keyCount = node.getKeyCount();
+                int copied = 0;
+                boolean pastEnd = false;
+                for (int i = 0; i < keyCount; i++) {
+                    int key = node.getKey(i);
+                    if (key > toKey) {
+                        pastEnd = true;
+                        break;
+                    }
+                    if (key > lastKey) {
+                        keys[copied] = key;
+                        valuePageIds[copied] = node.getValuePageId(i);
+                        valueSlotIds[copied] = node.getValueSlotId(i);
+                        copied++;
+                    }
+                }
+                int next = pastEnd ? Page.INVALID_PAGE_ID : node.getNextLeafPageId();
+                if (leaf.validate(version[0])) {
+                    count = copied;
+                    nextLeafPageId = next;
+                    break;
+                }
+                version[0] = leaf.readVersion();
+            }
+            bufferPoolManager.unpinPage(leaf.getPageId());
+
+            position = 0;
+            if (count > 0) {
+                lastKey = keys[count - 1];
+            }
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.loki.minidb.index;
+
+import com.loki.minidb.storage.Page;
+import com.loki.minidb.storage.RecordId;
+
+import java.nio.ByteBuffer;
+
+/**
+ * BPlusTreeNode provides a structured API for a Page that holds one B+Tree node.
+ *
+ * Header Layout (12 bytes total):
+ * ----------------------------------------------------------------------
+ * | nodeType (4 bytes) | keyCount (4 bytes) | nextLeafPageId (4 bytes) |
+ * ----------------------------------------------------------------------
+ *
+ * Leaf Layout:
+ * ---------------------------------------------------------------------------------
+ * | HEADER | keys (4 bytes each) | values: pageId (4 bytes), slotId (4 bytes) each |
+ * ---------------------------------------------------------------------------------
+ * A leaf's keys are sorted and unique. nextLeafPageId links the leaves in key order.
+ *
+ * Inner Layout:
+ * ----------------------------------------------------------
+ * | HEADER | keys (4 bytes each) | children (4 bytes each) |
+ * ----------------------------------------------------------
+ * An inner node with n keys has n + 1 children. Key i is the smallest key that can
+ * be found under child i + 1, so child i holds keys k with key(i - 1) <= k < key(i).
+ *
+ * The keys and values are kept in separate arrays, so a binary search only touches
+ * the keys. A node never changes type once it is formatted.
+ *
+ * Nodes are read optimistically, without a latch, so every getter must stay inside
+ * the page whatever bytes it finds: counts are clamped to the node's capacity.
+ */
+final class BPlusTreeNode {
+
+    static final int TYPE_LEAF = 1;
+    static final int TYPE_INNER = 2;
+
+    // --- Header Constants ---
+    private static final int HEADER_SIZE = 12;
+    private static final int NODE_TYPE_OFFSET = 0;
+    private static final int KEY_COUNT_OFFSET = 4;
+    private static final int NEXT_LEAF_OFFSET = 8;
+
+    // --- Capacities ---
+    // (4096 - 12) bytes hold 340 leaf entries of 12 bytes each.
+    static final int LEAF_CAPACITY = (Page.PAGE_SIZE - HEADER_SIZE) / 12;
+    // (4096 - 12 - 4) bytes hold 510 keys of 4 bytes and 511 children of 4 bytes.
+    static final int INNER_CAPACITY = (Page.PAGE_SIZE - HEADER_SIZE - 4) / 8;
+
+    private static final int KEYS_OFFSET = HEADER_SIZE;
+    private static final int LEAF_VALUES_OFFSET = KEYS_OFFSET + LEAF_CAPACITY * 4;
+    private static final int CHILDREN_OFFSET = KEYS_OFFSET + INNER_CAPACITY * 4;
+
+    private final ByteBuffer buffer;
+
+    BPlusTreeNode(Page page) {
+        this.buffer = page.getBuffer();
+    }
+
+    /**
+     * Formats the page as an empty node.
+     * @param nodeType TYPE_LEAF or TYPE_INNER.
+     */
+    void init(int nodeType) {
+        buffer.putInt(NODE_TYPE_OFFSET, nodeType);
+        buffer.putInt(KEY_COUNT_OFFSET, 0);
+        buffer.putInt(NEXT_LEAF_OFFSET, Page.INVALID_PAGE_ID);
+    }
+
+    // --- Header Accessor Methods ---
+
+    boolean isLeaf() {
+        return buffer.getInt(NODE_TYPE_OFFSET) == TYPE_LEAF;
+    }
+
+    /**
+     * @return The number of keys, clamped to the node's capacity.
+     */
+    int getKeyCount() {
+        int count = buffer.getInt(KEY_COUNT_OFFSET);
+        return Math.max(0, Math.min(count, isLeaf() ? LEAF_CAPACITY : INNER_CAPACITY));
+    }
+
+    void setKeyCount(int keyCount) {
+        buffer.putInt(KEY_COUNT_OFFSET, keyCount);
+    }
+
+    int getNextLeafPageId() {
+        return buffer.getInt(NEXT_LEAF_OFFSET);
+    }
+
+    void setNextLeafPageId(int pageId) {
+        buffer.putInt(NEXT_LEAF_OFFSET, pageId);
+    }
+
+    // --- Keys ---
+
+    int getKey(int index) {
+        return buffer.getInt(KEYS_OFFSET + index * 4);
+    }
+
+    void setKey(int index, int key) {
+        buffer.putInt(KEYS_OFFSET + index * 4, key);
+    }
+
+    /**
+     * @return The index of the first key that is >= key, or getKeyCount() if there is none.
+     */
+    int lowerBound(int key) {
+        int low = 0;
+        int high = getKeyCount();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (getKey(mid) < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return The index of the first key that is > key, or getKeyCount() if there is none.
+     */
+    int upperBound(int key) {
+        int low = 0;
+        int high = getKeyCount();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (getKey(mid) <= key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // --- Leaf values ---
+
+    RecordId getValue(int index) {
+        int offset = LEAF_VALUES_OFFSET + index * 8;
+        return new RecordId(buffer.getInt(offset), buffer.getInt(offset + 4));
+    }
+
+    int getValuePageId(int index) {
+        return buffer.getInt(LEAF_VALUES_OFFSET + index * 8);
+    }
+
+    int getValueSlotId(int index) {
+        return buffer.getInt(LEAF_VALUES_OFFSET + index * 8 + 4);
+    }
+
+    private void setValue(int index, int pageId, int slotId) {
+        int offset = LEAF_VALUES_OFFSET + index * 8;
+        buffer.putInt(offset, pageId);
+        buffer.putInt(offset + 4, slotId);
+    }
+
+    /**
+     * Inserts an entry into a leaf, shifting the later entries right. The leaf must have room.
+     */
+    void insertLeafEntry(int index, int key, RecordId recordId) {
+        int count = getKeyCount();
+        shift(KEYS_OFFSET, index, count, 4, 1);
+        shift(LEAF_VALUES_OFFSET, index, count, 8, 1);
+        setKey(index, key);
+        setValue(index, recordId.getPageId(), recordId.getSlotId());
+        setKeyCount(count + 1);
+    }
+
+    /**
+     * Appends an entry after the last one of a leaf. The leaf must have room and the key
+     * must be larger than every key in it.
+     */
+    void appendLeafEntry(int key, int pageId, int slotId) {
+        int count = getKeyCount();
+        setKey(count, key);
+        setValue(count, pageId, slotId);
+        setKeyCount(count + 1);
+    }
+
+    /**
+     * Removes an entry from a leaf, shifting the later entries left.
+     */
+    void removeLeafEntry(int index) {
+        int count = getKeyCount();
+        shift(KEYS_OFFSET, index + 1, count, 4, -1);
+        shift(LEAF_VALUES_OFFSET, index + 1, count, 8, -1);
+        setKeyCount(count - 1);
+    }
+
+    // --- Inner children ---
+
+    int getChild(int index) {
+        return buffer.getInt(CHILDREN_OFFSET + index * 4);
+    }
+
+    void setChild(int index, int pageId) {
+        buffer.putInt(CHILDREN_OFFSET + index * 4, pageId);
+    }
+
+    /**
+     * @return The index of the child whose subtree may hold the key.
+     */
+    int findChildIndex(int key) {
+        return upperBound(key);
+    }
+
+    /**
+     * Inserts a key and the child to its right, shifting the later ones right. The node must have room.
+     */
+    void insertInnerEntry(int index, int key, int rightChildPageId) {
+        int count = getKeyCount();
+        shift(KEYS_OFFSET, index, count, 4, 1);
+        shift(CHILDREN_OFFSET, index + 1, count + 1, 4, 1);
+        setKey(index, key);
+        setChild(index + 1, rightChildPageId);
+        setKeyCount(count + 1);
+    }
+
+    // --- Splitting ---
+
+    /**
+     * Moves the upper half of a full leaf into an empty one and links it in after this one.
+     * @param right The new, empty leaf.
+     * @param rightPageId The new leaf's page ID.
+     * @return The first key of the new leaf, which separates the two in their parent.
+     */
+    int splitLeafInto(BPlusTreeNode right, int rightPageId) {
+        int count = getKeyCount();
+        int keep = count / 2;
+        int moved = count - keep;
+        copyRange(KEYS_OFFSET, keep, right, 0, moved, 4);
+        copyRange(LEAF_VALUES_OFFSET, keep, right, 0, moved, 8);
+        right.setKeyCount(moved);
+        right.setNextLeafPageId(getNextLeafPageId());
+        setNextLeafPageId(rightPageId);
+        setKeyCount(keep);
+        return right.getKey(0);
+    }
+
+    /**
+     * Moves the upper half of a full inner node into an empty one. The middle key moves
+     * up to the parent instead of into either node.
+     * @param right The new, empty inner node.
+     * @return The key that separates the two in their parent.
+     */
+    int splitInnerInto(BPlusTreeNode right) {
+        int count = getKeyCount();
+        int middle = count / 2;
+        int separator = getKey(middle);
+        int moved = count - middle - 1;
+        copyRange(KEYS_OFFSET, middle + 1, right, 0, moved, 4);
+        copyRange(CHILDREN_OFFSET, middle + 1, right, 0, moved + 1, 4);
+        right.setKeyCount(moved);
+        setKeyCount(middle);
+        return separator;
+    }
+
+    /**
+     * Moves the elements [from, to) of an array in this node by `distance` elements.
+     */
+    private void shift(int arrayOffset, int from, int to, int elementSize, int distance) {
+        if (from >= to) {
+            return;
+        }
+        int start = arrayOffset + from * elementSize;
+        buffer.put(start + distance * elementSize, buffer, start, (to - from) * elementSize);
+    }
+
+    private void copyRange(int arrayOffset, int from, BPlusTreeNode target, int to, int length, int elementSize) {
+        target.buffer.put(arrayOffset + to * elementSize, buffer, arrayOffset + from * elementSize, length * elementSize);
+    }
+}
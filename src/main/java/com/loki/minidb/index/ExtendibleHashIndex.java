@@ -0,0 +1,631 @@
+package com.loki.minidb.index;
+
+import com.loki.minidb.storage.BufferPoolManager;
+import com.loki.minidb.storage.Page;
+import com.loki.minidb.storage.RecordId;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * ExtendibleHashIndex is a disk-based hash index from unique int keys to RecordIds,
+ * for equality lookups. A lookup reads a directory page and one bucket page.
+ *
+ * The index has three levels of pages:
+ * - The header page, which picks a directory by the top bits of the key's hash.
+ * - Directory pages (see HashDirectoryPage), created when their first key is inserted,
+ *   which pick a bucket by the low bits of the hash.
+ * - Bucket pages (see HashBucketPage), which hold the entries, each followed by a chain
+ *   of overflow pages once it can no longer be split.
+ *
+ * Header Page Layout:
+ * ---------------------------------------------------------------------------------------------
+ * | headerDepth (4 bytes) | directoryMaxDepth (4) | bucketMaxSize (4) | directoryPageIds (4 each) |
+ * ---------------------------------------------------------------------------------------------
+ * An index is identified by its header page; pass it to the constructor to open it again.
+ *
+ * A full bucket is split in two on the next bit of the hash, and only the directory
+ * slots that pointed to it change. The directory doubles when the bucket was already
+ * as deep as the directory. Nothing else is rehashed.
+ *
+ * A bucket that already uses every bit its directory may (directoryMaxDepth) cannot be
+ * split, so when it is full a new overflow page is chained to it instead. This is what
+ * lets a directory hold more than 2^directoryMaxDepth full buckets, and many keys whose
+ * hashes share their low bits. Lookups in such a bucket read the whole chain.
+ *
+ * Concurrency follows BPlusTree:
+ * - Lookups read the directory and the bucket optimistically (Page.readVersion()) and
+ *   take no latches at all. The directory is validated after the bucket's version has
+ *   been read, so a lookup never trusts a bucket that a split changed underneath it.
+ * - Inserts and deletes do the same, then upgrade only the bucket to a write latch.
+ * - A bucket's write latch covers its whole chain: overflow pages are only changed while
+ *   it is held, so a lookup that validates the bucket has read a consistent chain.
+ * - An insert into a full bucket write-latches the directory while it splits buckets or
+ *   chains an overflow page, which holds back only the lookups of that directory.
+ * Deletes never merge buckets or shrink the directory.
+ */
+public class ExtendibleHashIndex {
+
+    static final int MAX_HEADER_DEPTH = 9;
+
+    // --- Header Page Constants ---
+    private static final int HEADER_DEPTH_OFFSET = 0;
+    private static final int DIRECTORY_MAX_DEPTH_OFFSET = 4;
+    private static final int BUCKET_MAX_SIZE_OFFSET = 8;
+    private static final int DIRECTORY_PAGE_IDS_OFFSET = 12;
+
+    // --- Results of searching or changing a bucket's chain ---
+    private static final int RETRY = -1;
+    private static final int NOT_FOUND = 0;
+    private static final int FOUND = 1;
+    private static final int INSERTED = 2;
+    private static final int FULL = 3;
+
+    private final BufferPoolManager bufferPoolManager;
+    private final int headerPageId;
+    private final int headerDepth;
+    private final int directoryMaxDepth;
+    private final int bucketMaxSize;
+
+    /**
+     * Creates a new, empty index with as many directories, and as large buckets, as pages allow.
+     * @param bufferPoolManager The buffer pool to store the index in.
+     * @return The new index.
+     * @throws IOException if a disk I/O error occurs.
+     */
+    public static ExtendibleHashIndex create(BufferPoolManager bufferPoolManager) throws IOException {
+        return create(bufferPoolManager, MAX_HEADER_DEPTH, HashDirectoryPage.MAX_DEPTH, HashBucketPage.CAPACITY);
+    }
+
+    /**
+     * Creates a new, empty index with smaller limits, mostly useful for testing.
+     * @param bufferPoolManager The buffer pool to store the index in.
+     * @param headerDepth The number of hash bits that pick a directory, at most 9.
+     * @param directoryMaxDepth The number of hash bits a directory may grow to use, at most 9.
+     * @param bucketMaxSize The maximum number of entries in a bucket, at least 1.
+     * @return The new index.
+     * @throws IOException if a disk I/O error occurs.
+     */
+    public static ExtendibleHashIndex create(BufferPoolManager bufferPoolManager, int headerDepth,
+                                             int directoryMaxDepth, int bucketMaxSize) throws IOException {
+        if (headerDepth < 0 || headerDepth > MAX_HEADER_DEPTH) {
+            throw new IllegalArgumentException("headerDepth must be between 0 and " + MAX_HEADER_DEPTH + ".");
+        }
+        if (directoryMaxDepth < 0 || directoryMaxDepth > HashDirectoryPage.MAX_DEPTH) {
+            throw new IllegalArgumentException("directoryMaxDepth must be between 0 and " + HashDirectoryPage.MAX_DEPTH + ".");
+        }
+        if (bucketMaxSize < 1 || bucketMaxSize > HashBucketPage.CAPACITY) {
+            throw new IllegalArgumentException("bucketMaxSize must be between 1 and " + HashBucketPage.CAPACITY + ".");
+        }
+        Page header = newPage(bufferPoolManager);
+        try {
+            ByteBuffer buffer = header.getBuffer();
+            buffer.putInt(HEADER_DEPTH_OFFSET, headerDepth);
+            buffer.putInt(DIRECTORY_MAX_DEPTH_OFFSET, directoryMaxDepth);
+            buffer.putInt(BUCKET_MAX_SIZE_OFFSET, bucketMaxSize);
+            for (int i = 0; i < 1 << headerDepth; i++) {
+                buffer.putInt(DIRECTORY_PAGE_IDS_OFFSET + i * 4, Page.INVALID_PAGE_ID);
+            }
+        } finally {
+            bufferPoolManager.unpinPage(header.getPageId(), true);
+        }
+        return new ExtendibleHashIndex(bufferPoolManager, header.getPageId());
+    }
+
+    /**
+     * Opens an existing index.
+     * @param bufferPoolManager The buffer pool the index is stored in.
+     * @param headerPageId The index's header page, as returned by getHeaderPageId().
+     * @throws IOException if a disk I/O error occurs.
+     */
+    public ExtendibleHashIndex(BufferPoolManager bufferPoolManager, int headerPageId) throws IOException {
+        this.bufferPoolManager = bufferPoolManager;
+        this.headerPageId = headerPageId;
+        Page header = fetch(headerPageId);
+        try {
+            ByteBuffer buffer = header.getBuffer();
+            this.headerDepth = buffer.getInt(HEADER_DEPTH_OFFSET);
+            this.directoryMaxDepth = buffer.getInt(DIRECTORY_MAX_DEPTH_OFFSET);
+            this.bucketMaxSize = buffer.getInt(BUCKET_MAX_SIZE_OFFSET);
+        } finally {
+            bufferPoolManager.unpinPage(headerPageId);
+        }
+    }
+
+    /**
+     * @return The page that identifies this index.
+     */
+    public int getHeaderPageId() {
+        return headerPageId;
+    }
+
+    /**
+     * Looks up a key.
+     * @param key The key to look for.
+     * @return The key's RecordId, or null if the key is not in the index.
+     * @throws IOException if a disk I/O error occurs.
+     */
+    public RecordId getValue(int key) throws IOException {
+        int hash = hash(key);
+        long[] version = new long[1];
+        int[] value = new int[2];
+        while (true) {
+            int directoryPageId = getDirectoryPageId(hash);
+            if (directoryPageId == Page.INVALID_PAGE_ID) {
+                return null;
+            }
+            Page bucketPage = findBucket(directoryPageId, hash, version);
+            if (bucketPage == null) {
+                continue;
+            }
+            int result;
+            try {
+                result = readChain(bucketPage, version[0], key, value);
+            } finally {
+                bufferPoolManager.unpinPage(bucketPage.getPageId());
+            }
+            if (result != RETRY) {
+                return result == FOUND ? new RecordId(value[0], value[1]) : null;
+            }
+        }
+    }
+
+    /**
+     * Inserts a key.
+     * @param key The key to insert.
+     * @param recordId The RecordId to store under the key.
+     * @return true if the key was inserted, false if it was already in the index.
+     * @throws IOException if a disk I/O error occurs.
+     */
+    public boolean insert(int key, RecordId recordId) throws IOException {
+        int hash = hash(key);
+        long[] version = new long[1];
+        while (true) {
+            // 1. Find the bucket optimistically, creating the directory on first use.
+            int directoryPageId = getDirectoryPageId(hash);
+            if (directoryPageId == Page.INVALID_PAGE_ID) {
+                directoryPageId = createDirectory(hash);
+            }
+            Page bucketPage = findBucket(directoryPageId, hash, version);
+            if (bucketPage == null) {
+                continue;
+            }
+            if (!bucketPage.upgrade(version[0])) {
+                bufferPoolManager.unpinPage(bucketPage.getPageId());
+                continue;
+            }
+
+            // 2. Insert if the key is new and the bucket's chain has room.
+            int result = FULL;
+            try {
+                result = addToChain(bucketPage, key, recordId);
+            } finally {
+                bucketPage.wUnlatch();
+                bufferPoolManager.unpinPage(bucketPage.getPageId(), result == INSERTED);
+            }
+            if (result != FULL) {
+                return result == INSERTED;
+            }
+
+            // 3. Every page of the chain is full, so the insert has to split the bucket.
+            return insertWithSplit(directoryPageId, hash, key, recordId);
+        }
+    }
+
+    /**
+     * Deletes a key. Buckets are never merged, and overflow pages never unchained, even if
+     * they become empty.
+     * @param key The key to delete.
+     * @return true if the key was in the index.
+     * @throws IOException if a disk I/O error occurs.
+     */
+    public boolean delete(int key) throws IOException {
+        int hash = hash(key);
+        long[] version = new long[1];
+        while (true) {
+            int directoryPageId = getDirectoryPageId(hash);
+            if (directoryPageId == Page.INVALID_PAGE_ID) {
+                return false;
+            }
+            Page bucketPage = findBucket(directoryPageId, hash, version);
+            if (bucketPage == null) {
+                continue;
+            }
+            if (!bucketPage.upgrade(version[0])) {
+                bufferPoolManager.unpinPage(bucketPage.getPageId());
+                continue;
+            }
+            boolean deleted = false;
+            try {
+                deleted = removeFromChain(bucketPage, key);
+                return deleted;
+            } finally {
+                bucketPage.wUnlatch();
+                bufferPoolManager.unpinPage(bucketPage.getPageId(), deleted);
+            }
+        }
+    }
+
+    /**
+     * @param key A key.
+     * @return The global depth of the directory that serves the key, or -1 if it has none yet.
+     * @throws IOException if a disk I/O error occurs.
+     */
+    int getGlobalDepth(int key) throws IOException {
+        int directoryPageId = getDirectoryPageId(hash(key));
+        if (directoryPageId == Page.INVALID_PAGE_ID) {
+            return -1;
+        }
+        Page page = fetch(directoryPageId);
+        page.rLatch();
+        try {
+            return new HashDirectoryPage(page).getGlobalDepth();
+        } finally {
+            page.rUnlatch();
+            bufferPoolManager.unpinPage(directoryPageId);
+        }
+    }
+
+    /**
+     * Mixes the bits of a key (the MurmurHash3 finalizer), so that the low bits used by
+     * the directory and the high bits used by the header both depend on the whole key.
+     */
+    static int hash(int key) {
+        int h = key;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * @return The header slot that serves a hash: its top headerDepth bits.
+     */
+    private int headerSlotOf(int hash) {
+        return headerDepth == 0 ? 0 : hash >>> (32 - headerDepth);
+    }
+
+    /**
+     * @return The directory that serves a hash, or INVALID_PAGE_ID if it was not created yet.
+     */
+    private int getDirectoryPageId(int hash) throws IOException {
+        Page header = fetch(headerPageId);
+        try {
+            // A directory slot only ever changes once, from INVALID_PAGE_ID to a page,
+            // but read it optimistically anyway so a half-written slot is never used.
+            while (true) {
+                long version = header.readVersion();
+                int directoryPageId = header.getBuffer().getInt(DIRECTORY_PAGE_IDS_OFFSET + headerSlotOf(hash) * 4);
+                if (header.validate(version)) {
+                    return directoryPageId;
+                }
+            }
+        } finally {
+            bufferPoolManager.unpinPage(headerPageId);
+        }
+    }
+
+    /**
+     * Creates the directory that serves a hash, with a single empty bucket, unless another
+     * thread got there first.
+     * @return The directory's page ID.
+     */
+    private int createDirectory(int hash) throws IOException {
+        Page header = fetch(headerPageId);
+        header.wLatch();
+        boolean created = false;
+        try {
+            int offset = DIRECTORY_PAGE_IDS_OFFSET + headerSlotOf(hash) * 4;
+            int directoryPageId = header.getBuffer().getInt(offset);
+            if (directoryPageId != Page.INVALID_PAGE_ID) {
+                return directoryPageId;
+            }
+            // The bucket and directory are unreachable until the header points to them.
+            Page bucketPage = newPage(bufferPoolManager);
+            int bucketPageId = bucketPage.getPageId();
+            new HashBucketPage(bucketPage).init();
+            bufferPoolManager.unpinPage(bucketPageId, true);
+            Page directoryPage = newPage(bufferPoolManager);
+            directoryPageId = directoryPage.getPageId();
+            new HashDirectoryPage(directoryPage).init(directoryMaxDepth, bucketPageId);
+            bufferPoolManager.unpinPage(directoryPageId, true);
+
+            header.getBuffer().putInt(offset, directoryPageId);
+            created = true;
+            return directoryPageId;
+        } finally {
+            header.wUnlatch();
+            bufferPoolManager.unpinPage(headerPageId, created);
+        }
+    }
+
+    /**
+     * Finds the bucket that may hold a hash, optimistically.
+     * @param versionOut Receives the bucket's version.
+     * @return The pinned bucket, or null if a concurrent split forces a restart.
+     */
+    private Page findBucket(int directoryPageId, int hash, long[] versionOut) throws IOException {
+        // 1. Read the bucket pointer, and check the directory did not change while we read it.
+        Page directoryPage = fetch(directoryPageId);
+        long directoryVersion = directoryPage.readVersion();
+        HashDirectoryPage directory = new HashDirectoryPage(directoryPage);
+        int bucketPageId = directory.getBucketPageId(directory.slotOf(hash));
+        if (!directoryPage.validate(directoryVersion)) {
+            bufferPoolManager.unpinPage(directoryPageId);
+            return null;
+        }
+
+        // 2. Move to the bucket. The directory is validated once more after the bucket's version
+        //    is read: if the bucket was split in between, the directory changed as well.
+        Page bucketPage = fetch(bucketPageId);
+        long bucketVersion = bucketPage.readVersion();
+        boolean valid = directoryPage.validate(directoryVersion);
+        bufferPoolManager.unpinPage(directoryPageId);
+        if (!valid) {
+            bufferPoolManager.unpinPage(bucketPageId);
+            return null;
+        }
+        versionOut[0] = bucketVersion;
+        return bucketPage;
+    }
+
+    /**
+     * The pessimistic insert path: splits the key's bucket, growing the directory if
+     * needed, until the key fits, or chains an overflow page to a bucket that cannot be split.
+     */
+    private boolean insertWithSplit(int directoryPageId, int hash, int key, RecordId recordId) throws IOException {
+        Page directoryPage = fetch(directoryPageId);
+        directoryPage.wLatch();
+        try {
+            HashDirectoryPage directory = new HashDirectoryPage(directoryPage);
+            while (true) {
+                // 1. Latch the key's bucket. It may have changed since the caller saw it full.
+                int slot = directory.slotOf(hash);
+                int bucketPageId = directory.getBucketPageId(slot);
+                Page bucketPage = fetch(bucketPageId);
+                bucketPage.wLatch();
+                boolean modified = false;
+                try {
+                    int result = addToChain(bucketPage, key, recordId);
+                    if (result != FULL) {
+                        modified = result == INSERTED;
+                        return modified;
+                    }
+
+                    // 2. A bucket that uses every bit the directory may cannot be split: chain
+                    //    a new overflow page to it.
+                    int localDepth = directory.getLocalDepth(slot);
+                    if (localDepth >= directory.getMaxDepth()) {
+                        appendOverflowPage(bucketPage, key, recordId);
+                        modified = true;
+                        return true;
+                    }
+
+                    // 3. Split the bucket on its next hash bit, doubling the directory first
+                    //    if the bucket already uses every bit the directory does. A bucket
+                    //    this shallow has no overflow pages.
+                    if (localDepth == directory.getGlobalDepth()) {
+                        directory.grow();
+                    }
+                    splitBucket(directory, bucketPageId, new HashBucketPage(bucketPage), localDepth);
+                    modified = true;
+                } finally {
+                    bucketPage.wUnlatch();
+                    bufferPoolManager.unpinPage(bucketPageId, modified);
+                }
+                // 4. Try again: the key's half may still be full if every entry went the same way.
+            }
+        } finally {
+            directoryPage.wUnlatch();
+            bufferPoolManager.unpinPage(directoryPageId, true);
+        }
+    }
+
+    /**
+     * Moves half of a full bucket into a new one, and points the directory slots whose
+     * next bit is set at the new bucket.
+     */
+    private void splitBucket(HashDirectoryPage directory, int bucketPageId, HashBucketPage bucket, int localDepth) throws IOException {
+        int bit = 1 << localDepth;
+        Page newBucketPage = newPage(bufferPoolManager);
+        int newBucketPageId = newBucketPage.getPageId();
+        newBucketPage.wLatch();
+        try {
+            HashBucketPage newBucket = new HashBucketPage(newBucketPage);
+            newBucket.init();
+            bucket.splitInto(newBucket, bit);
+        } finally {
+            newBucketPage.wUnlatch();
+            bufferPoolManager.unpinPage(newBucketPageId, true);
+        }
+        for (int slot = 0; slot < directory.getSize(); slot++) {
+            if (directory.getBucketPageId(slot) == bucketPageId) {
+                directory.setLocalDepth(slot, localDepth + 1);
+                if ((slot & bit) != 0) {
+                    directory.setBucketPageId(slot, newBucketPageId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Looks for a key in a bucket and its overflow pages, optimistically. The bucket's
+     * version is validated before an overflow pointer is followed, and before the result
+     * is trusted.
+     * @param bucketPage The pinned bucket.
+     * @param version The bucket's version, from readVersion().
+     * @param valueOut Receives the entry's page and slot IDs if the key is found.
+     * @return FOUND, NOT_FOUND, or RETRY if the bucket changed while it was read.
+     */
+    private int readChain(Page bucketPage, long version, int key, int[] valueOut) throws IOException {
+        Page page = bucketPage;
+        while (true) {
+            HashBucketPage bucket = new HashBucketPage(page);
+            int index = bucket.indexOf(key);
+            if (index >= 0) {
+                valueOut[0] = bucket.getValuePageId(index);
+                valueOut[1] = bucket.getValueSlotId(index);
+            }
+            int overflowPageId = bucket.getOverflowPageId();
+            if (page != bucketPage) {
+                bufferPoolManager.unpinPage(page.getPageId());
+            }
+            if (!bucketPage.validate(version)) {
+                return RETRY;
+            }
+            if (index >= 0) {
+                return FOUND;
+            }
+            if (overflowPageId == Page.INVALID_PAGE_ID) {
+                return NOT_FOUND;
+            }
+            page = fetch(overflowPageId);
+        }
+    }
+
+    /**
+     * Finds the page of a bucket's chain that holds a key. The bucket must be write-latched.
+     * @param indexOut Receives the key's index in the page.
+     * @return The page, pinned unless it is the bucket itself, or null if the chain does not hold the key.
+     */
+    private Page findInChain(Page bucketPage, int key, int[] indexOut) throws IOException {
+        Page page = bucketPage;
+        while (true) {
+            HashBucketPage bucket = new HashBucketPage(page);
+            int index = bucket.indexOf(key);
+            if (index >= 0) {
+                indexOut[0] = index;
+                return page;
+            }
+            int overflowPageId = bucket.getOverflowPageId();
+            releaseChainPage(bucketPage, page, false);
+            if (overflowPageId == Page.INVALID_PAGE_ID) {
+                return null;
+            }
+            page = fetch(overflowPageId);
+        }
+    }
+
+    /**
+     * Adds a key to the first page of a bucket's chain that has room, unless the chain
+     * already holds it. The bucket must be write-latched.
+     * @return INSERTED, FOUND if the key is already in the chain, or FULL if no page has room.
+     */
+    private int addToChain(Page bucketPage, int key, RecordId recordId) throws IOException {
+        // 1. The key must not be anywhere in the chain.
+        Page holder = findInChain(bucketPage, key, new int[1]);
+        if (holder != null) {
+            releaseChainPage(bucketPage, holder, false);
+            return FOUND;
+        }
+
+        // 2. Add it to the first page with room.
+        Page page = bucketPage;
+        while (true) {
+            HashBucketPage bucket = new HashBucketPage(page);
+            if (bucket.getEntryCount() < bucketMaxSize) {
+                latchChainPage(bucketPage, page);
+                bucket.add(key, recordId);
+                releaseChainPage(bucketPage, page, true);
+                return INSERTED;
+            }
+            int overflowPageId = bucket.getOverflowPageId();
+            releaseChainPage(bucketPage, page, false);
+            if (overflowPageId == Page.INVALID_PAGE_ID) {
+                return FULL;
+            }
+            page = fetch(overflowPageId);
+        }
+    }
+
+    /**
+     * Removes a key from a bucket's chain. The bucket must be write-latched.
+     * @return true if the chain held the key.
+     */
+    private boolean removeFromChain(Page bucketPage, int key) throws IOException {
+        int[] index = new int[1];
+        Page page = findInChain(bucketPage, key, index);
+        if (page == null) {
+            return false;
+        }
+        latchChainPage(bucketPage, page);
+        new HashBucketPage(page).remove(index[0]);
+        releaseChainPage(bucketPage, page, true);
+        return true;
+    }
+
+    /**
+     * Chains a new overflow page, holding one entry, to the end of a full bucket's chain.
+     * The bucket must be write-latched.
+     */
+    private void appendOverflowPage(Page bucketPage, int key, RecordId recordId) throws IOException {
+        // 1. Fill the new page. It is unreachable until the chain points to it.
+        Page overflowPage = newPage(bufferPoolManager);
+        int overflowPageId = overflowPage.getPageId();
+        overflowPage.wLatch();
+        try {
+            HashBucketPage overflow = new HashBucketPage(overflowPage);
+            overflow.init();
+            overflow.add(key, recordId);
+        } finally {
+            overflowPage.wUnlatch();
+            bufferPoolManager.unpinPage(overflowPageId, true);
+        }
+
+        // 2. Point the chain's last page at it.
+        Page page = bucketPage;
+        while (true) {
+            HashBucketPage bucket = new HashBucketPage(page);
+            int next = bucket.getOverflowPageId();
+            if (next == Page.INVALID_PAGE_ID) {
+                latchChainPage(bucketPage, page);
+                bucket.setOverflowPageId(overflowPageId);
+                releaseChainPage(bucketPage, page, true);
+                return;
+            }
+            releaseChainPage(bucketPage, page, false);
+            page = fetch(next);
+        }
+    }
+
+    /**
+     * Write-latches a page of a chain before it is changed. The bucket itself is already
+     * latched; an overflow page is latched as well, so a flush never sees it half-written.
+     */
+    private static void latchChainPage(Page bucketPage, Page page) {
+        if (page != bucketPage) {
+            page.wLatch();
+        }
+    }
+
+    /**
+     * Lets go of a page of a chain: an overflow page is unlatched if it was changed, and
+     * unpinned. The bucket itself stays with its caller.
+     */
+    private void releaseChainPage(Page bucketPage, Page page, boolean modified) {
+        if (page != bucketPage) {
+            if (modified) {
+                page.wUnlatch();
+            }
+            bufferPoolManager.unpinPage(page.getPageId(), modified);
+        }
+    }
+
+    private Page fetch(int pageId) throws IOException {
+        Page page = bufferPoolManager.fetchPage(pageId);
+        if (page == null) {
+            throw new IllegalStateException("The buffer pool has no free frame for page " + pageId + ".");
+        }
+        return page;
+    }
+
+    private static Page newPage(BufferPoolManager bufferPoolManager) throws IOException {
+        Page page = bufferPoolManager.newPage();
+        if (page == null) {
+            throw new IllegalStateException("The buffer pool has no free frame for a new page.");
+        }
+        return page;
+    }
+}
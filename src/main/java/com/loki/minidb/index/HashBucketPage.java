@@ -0,0 +1,140 @@
+package com.loki.minidb.index;
+
+import com.loki.minidb.storage.Page;
+import com.loki.minidb.storage.RecordId;
+
+import java.nio.ByteBuffer;
+
+/**
+ * HashBucketPage provides a structured API for a Page that holds one bucket of an
+ * ExtendibleHashIndex, or one overflow page of a bucket: an unordered array of
+ * (key, RecordId) entries.
+ *
+ * Bucket Page Layout:
+ * ---------------------------------------------------------------------------------------------------------
+ * | entryCount (4 bytes) | overflowPageId (4) | keys (4 bytes each) | values: pageId, slotId (4 bytes each) |
+ * ---------------------------------------------------------------------------------------------------------
+ * A bucket that can no longer be split (see ExtendibleHashIndex) chains overflow pages
+ * through overflowPageId; the last page of a chain has INVALID_PAGE_ID there.
+ *
+ * A bucket is small enough that a linear scan of its keys is cheaper than keeping
+ * them sorted. Like BPlusTreeNode, the getters stay inside the page whatever they
+ * read, so a bucket can be read optimistically.
+ */
+final class HashBucketPage {
+
+    // (4096 - 8) bytes hold 340 entries of 12 bytes each.
+    static final int CAPACITY = (Page.PAGE_SIZE - 8) / 12;
+
+    private static final int ENTRY_COUNT_OFFSET = 0;
+    private static final int OVERFLOW_PAGE_ID_OFFSET = 4;
+    private static final int KEYS_OFFSET = 8;
+    private static final int VALUES_OFFSET = KEYS_OFFSET + CAPACITY * 4;
+
+    private final ByteBuffer buffer;
+
+    HashBucketPage(Page page) {
+        this.buffer = page.getBuffer();
+    }
+
+    /**
+     * Formats the page as an empty bucket with no overflow page.
+     */
+    void init() {
+        setEntryCount(0);
+        setOverflowPageId(Page.INVALID_PAGE_ID);
+    }
+
+    /**
+     * @return The number of entries, clamped to the bucket's capacity.
+     */
+    int getEntryCount() {
+        return Math.max(0, Math.min(buffer.getInt(ENTRY_COUNT_OFFSET), CAPACITY));
+    }
+
+    private void setEntryCount(int entryCount) {
+        buffer.putInt(ENTRY_COUNT_OFFSET, entryCount);
+    }
+
+    /**
+     * @return The next page of the bucket's chain, or INVALID_PAGE_ID if this is the last.
+     */
+    int getOverflowPageId() {
+        return buffer.getInt(OVERFLOW_PAGE_ID_OFFSET);
+    }
+
+    void setOverflowPageId(int pageId) {
+        buffer.putInt(OVERFLOW_PAGE_ID_OFFSET, pageId);
+    }
+
+    int getKey(int index) {
+        return buffer.getInt(KEYS_OFFSET + index * 4);
+    }
+
+    int getValuePageId(int index) {
+        return buffer.getInt(VALUES_OFFSET + index * 8);
+    }
+
+    int getValueSlotId(int index) {
+        return buffer.getInt(VALUES_OFFSET + index * 8 + 4);
+    }
+
+    /**
+     * @return The index of the key's entry, or -1 if the bucket does not hold it.
+     */
+    int indexOf(int key) {
+        int count = getEntryCount();
+        for (int i = 0; i < count; i++) {
+            if (getKey(i) == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Appends an entry. The bucket must have room.
+     */
+    void add(int key, int pageId, int slotId) {
+        int count = getEntryCount();
+        buffer.putInt(KEYS_OFFSET + count * 4, key);
+        buffer.putInt(VALUES_OFFSET + count * 8, pageId);
+        buffer.putInt(VALUES_OFFSET + count * 8 + 4, slotId);
+        setEntryCount(count + 1);
+    }
+
+    void add(int key, RecordId recordId) {
+        add(key, recordId.getPageId(), recordId.getSlotId());
+    }
+
+    /**
+     * Removes an entry by moving the last entry into its place.
+     */
+    void remove(int index) {
+        int last = getEntryCount() - 1;
+        if (index != last) {
+            buffer.putInt(KEYS_OFFSET + index * 4, getKey(last));
+            buffer.putInt(VALUES_OFFSET + index * 8, getValuePageId(last));
+            buffer.putInt(VALUES_OFFSET + index * 8 + 4, getValueSlotId(last));
+        }
+        setEntryCount(last);
+    }
+
+    /**
+     * Moves the entries whose hash has the given bit set into an empty bucket.
+     * @param target The new, empty bucket.
+     * @param bit The hash bit that now tells the two buckets apart.
+     */
+    void splitInto(HashBucketPage target, int bit) {
+        int i = 0;
+        while (i < getEntryCount()) {
+            int key = getKey(i);
+            if ((ExtendibleHashIndex.hash(key) & bit) != 0) {
+                target.add(key, getValuePageId(i), getValueSlotId(i));
+                remove(i);
+            } else {
+                i++;
+            }
+        }
+    }
+}
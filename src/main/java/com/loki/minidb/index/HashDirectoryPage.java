@@ -0,0 +1,99 @@
+package com.loki.minidb.index;
+
+import com.loki.minidb.storage.Page;
+
+import java.nio.ByteBuffer;
+
+/**
+ * HashDirectoryPage provides a structured API for a Page that holds the directory of
+ * an ExtendibleHashIndex: the bucket for each value of the hash's low bits.
+ *
+ * Directory Page Layout:
+ * ---------------------------------------------------------------------------------------------
+ * | globalDepth (4 bytes) | maxDepth (4 bytes) | localDepths (1 byte each) | bucketPageIds (4 each) |
+ * ---------------------------------------------------------------------------------------------
+ * The directory has 2^globalDepth slots; slot i serves the keys whose hash ends in the
+ * bits of i. A bucket with local depth d < globalDepth is shared by the 2^(globalDepth - d)
+ * slots that agree on the last d bits. Both arrays have room for 2^MAX_DEPTH slots.
+ * Once a directory is at its maximum depth it no longer grows: a full bucket as deep
+ * as the directory chains overflow pages instead (see HashBucketPage).
+ */
+final class HashDirectoryPage {
+
+    // 8 + 512 * (1 + 4) = 2568 bytes.
+    static final int MAX_DEPTH = 9;
+    static final int MAX_SLOTS = 1 << MAX_DEPTH;
+
+    private static final int GLOBAL_DEPTH_OFFSET = 0;
+    private static final int MAX_DEPTH_OFFSET = 4;
+    private static final int LOCAL_DEPTHS_OFFSET = 8;
+    private static final int BUCKET_PAGE_IDS_OFFSET = LOCAL_DEPTHS_OFFSET + MAX_SLOTS;
+
+    private final ByteBuffer buffer;
+
+    HashDirectoryPage(Page page) {
+        this.buffer = page.getBuffer();
+    }
+
+    /**
+     * Formats the page as a directory with a single slot.
+     * @param maxDepth The depth the directory may grow to, at most MAX_DEPTH.
+     * @param bucketPageId The bucket of the only slot.
+     */
+    void init(int maxDepth, int bucketPageId) {
+        buffer.putInt(GLOBAL_DEPTH_OFFSET, 0);
+        buffer.putInt(MAX_DEPTH_OFFSET, maxDepth);
+        setLocalDepth(0, 0);
+        setBucketPageId(0, bucketPageId);
+    }
+
+    /**
+     * @return The global depth, clamped to MAX_DEPTH.
+     */
+    int getGlobalDepth() {
+        return Math.max(0, Math.min(buffer.getInt(GLOBAL_DEPTH_OFFSET), MAX_DEPTH));
+    }
+
+    int getMaxDepth() {
+        return buffer.getInt(MAX_DEPTH_OFFSET);
+    }
+
+    int getSize() {
+        return 1 << getGlobalDepth();
+    }
+
+    /**
+     * @return The slot that serves a hash.
+     */
+    int slotOf(int hash) {
+        return hash & (getSize() - 1);
+    }
+
+    int getLocalDepth(int slot) {
+        return buffer.get(LOCAL_DEPTHS_OFFSET + slot);
+    }
+
+    void setLocalDepth(int slot, int localDepth) {
+        buffer.put(LOCAL_DEPTHS_OFFSET + slot, (byte) localDepth);
+    }
+
+    int getBucketPageId(int slot) {
+        return buffer.getInt(BUCKET_PAGE_IDS_OFFSET + slot * 4);
+    }
+
+    void setBucketPageId(int slot, int pageId) {
+        buffer.putInt(BUCKET_PAGE_IDS_OFFSET + slot * 4, pageId);
+    }
+
+    /**
+     * Doubles the directory. Each new slot starts out sharing the bucket of the slot
+     * that agrees with it on every bit but the new top one. The directory must not be
+     * at its maximum depth.
+     */
+    void grow() {
+        int size = getSize();
+        buffer.put(LOCAL_DEPTHS_OFFSET + size, buffer, LOCAL_DEPTHS_OFFSET, size);
+        buffer.put(BUCKET_PAGE_IDS_OFFSET + size * 4, buffer, BUCKET_PAGE_IDS_OFFSET, size * 4);
+        buffer.putInt(GLOBAL_DEPTH_OFFSET, getGlobalDepth() + 1);
+    }
+}
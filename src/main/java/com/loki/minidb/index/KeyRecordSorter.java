@@ -0,0 +1,399 @@
+package com.loki.minidb.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * KeyRecordSorter sorts (key, RecordId) entries by key, spilling to disk when they do
+ * not fit in memory.
+ *
+ * Entries are collected in primitive arrays. When maxEntriesInMemory of them have been
+ * added, they are sorted and written to a temporary run file. sort() sorts whatever is
+ * left; if nothing was spilled the entries are returned straight from memory, otherwise
+ * the runs are merged with a priority queue of run readers while the caller reads them.
+ *
+ * Every open run costs a file descriptor and a RUN_BUFFER_SIZE buffer, so at most
+ * maxFanIn runs are merged at once. With more runs than that, sort() first merges the
+ * oldest runs into new ones, just enough of them that maxFanIn runs are left for the
+ * final merge. With up to maxFanIn runs, every spilled entry is written once and read
+ * once.
+ *
+ * Each entry's key is compared with the one before it wherever entries come out in
+ * order: in the in-memory sort, in each spilled run, in the intermediate merges and in
+ * the final merge. A caller that needs unique keys checks hasDuplicateKey() after sort()
+ * and again as it reads (see BPlusTreeBulkLoader).
+ *
+ * The result is read with a cursor (next(), then key(), pageId() and slotId()), so no
+ * object is created per entry. Entries with equal keys come out in no particular order.
+ * close() deletes the run files.
+ */
+final class KeyRecordSorter implements AutoCloseable {
+
+    // Size of the stream buffers for run files.
+    private static final int RUN_BUFFER_SIZE = 1 << 16;
+    // Runs merged at once: 64 open files and 4 MB of buffers.
+    static final int DEFAULT_MAX_FAN_IN = 64;
+
+    private final int maxEntriesInMemory;
+    private final int maxFanIn;
+    private int[] keys = new int[1024];
+    private int[] pageIds = new int[1024];
+    private int[] slotIds = new int[1024];
+    private int count;
+    private long size;
+    private final List<Path> runFiles = new ArrayList<>();
+    private int runCount;
+    private int mergedRunCount;
+    private boolean hasDuplicateKey;
+    private int duplicateKey;
+
+    // --- Cursor state ---
+    private boolean sorted;
+    // In memory: the entries sorted as (key << 32 | index), and the next one to return.
+    private long[] order;
+    private int position;
+    // Spilled: one reader per run, ordered by their current key.
+    private PriorityQueue<RunReader> merge;
+    private RunReader current;
+    private boolean hasPrevious;
+    private int previousKey;
+    private int currentKey;
+    private int currentPageId;
+    private int currentSlotId;
+
+    /**
+     * @param maxEntriesInMemory How many entries to collect before spilling a run, at least 1.
+     */
+    KeyRecordSorter(int maxEntriesInMemory) {
+        this(maxEntriesInMemory, DEFAULT_MAX_FAN_IN);
+    }
+
+    /**
+     * @param maxEntriesInMemory How many entries to collect before spilling a run, at least 1.
+     * @param maxFanIn How many runs to merge at once, at least 2.
+     */
+    KeyRecordSorter(int maxEntriesInMemory, int maxFanIn) {
+        if (maxEntriesInMemory < 1) {
+            throw new IllegalArgumentException("maxEntriesInMemory must be at least 1.");
+        }
+        if (maxFanIn < 2) {
+            throw new IllegalArgumentException("maxFanIn must be at least 2.");
+        }
+        this.maxEntriesInMemory = maxEntriesInMemory;
+        this.maxFanIn = maxFanIn;
+    }
+
+    /**
+     * Adds an entry. Must not be called after sort().
+     */
+    void add(int key, int pageId, int slotId) throws IOException {
+        if (sorted) {
+            throw new IllegalStateException("Cannot add entries after sort().");
+        }
+        if (count == maxEntriesInMemory) {
+            spill();
+        }
+        if (count == keys.length) {
+            int capacity = (int) Math.min((long) keys.length * 2, maxEntriesInMemory);
+            keys = Arrays.copyOf(keys, capacity);
+            pageIds = Arrays.copyOf(pageIds, capacity);
+            slotIds = Arrays.copyOf(slotIds, capacity);
+        }
+        keys[count] = key;
+        pageIds[count] = pageId;
+        slotIds[count] = slotId;
+        count++;
+        size++;
+    }
+
+    /**
+     * @return The number of entries added.
+     */
+    long size() {
+        return size;
+    }
+
+    /**
+     * @return The number of runs spilled to disk so far.
+     */
+    int getRunCount() {
+        return runCount;
+    }
+
+    /**
+     * @return The number of runs written by intermediate merges, 0 if one merge was enough.
+     */
+    int getMergedRunCount() {
+        return mergedRunCount;
+    }
+
+    /**
+     * @return true if two entries have the same key. If the entries were sorted in memory
+     *         or in a single run, this is known once sort() has returned. Otherwise a
+     *         duplicate that meets only in the final merge is found when next() reaches
+     *         it, and the answer is final once next() has returned false.
+     */
+    boolean hasDuplicateKey() {
+        return hasDuplicateKey;
+    }
+
+    /**
+     * @return A key that two entries share, if hasDuplicateKey().
+     */
+    int getDuplicateKey() {
+        return duplicateKey;
+    }
+
+    /**
+     * Sorts the entries. Afterwards they can be read with next().
+     */
+    void sort() throws IOException {
+        if (sorted) {
+            return;
+        }
+        sorted = true;
+        if (runFiles.isEmpty()) {
+            order = sortInMemory();
+            for (int i = 1; i < count; i++) {
+                checkDuplicate(order[i - 1] >> 32, order[i] >> 32);
+            }
+            return;
+        }
+
+        // 1. Spill the rest too, so that every entry comes from a run. Each run was checked
+        //    for duplicates as it was written.
+        if (count > 0) {
+            spill();
+        }
+
+        // 2. Bound the fan-in. Each merge takes the oldest runs, which are the shortest, and
+        //    only as many as needed to leave maxFanIn runs for the final merge.
+        while (runFiles.size() > maxFanIn) {
+            int fanIn = Math.min(maxFanIn, runFiles.size() - maxFanIn + 1);
+            mergeRuns(new ArrayList<>(runFiles.subList(0, fanIn)));
+        }
+
+        // 3. The final merge happens in next(), as the caller reads the entries.
+        merge = openRuns(runFiles);
+    }
+
+    /**
+     * Moves to the next entry in key order.
+     * @return false if there are no more entries.
+     */
+    boolean next() throws IOException {
+        if (!sorted) {
+            throw new IllegalStateException("Call sort() before next().");
+        }
+        if (merge == null) {
+            if (position == count) {
+                return false;
+            }
+            int index = (int) order[position++];
+            currentKey = keys[index];
+            currentPageId = pageIds[index];
+            currentSlotId = slotIds[index];
+            return true;
+        }
+
+        // Put the reader we took the previous entry from back, at its next entry.
+        if (current != null) {
+            if (current.advance()) {
+                merge.add(current);
+            } else {
+                current.close();
+            }
+        }
+        current = merge.poll();
+        if (current == null) {
+            return false;
+        }
+        // A duplicate split between two runs meets here.
+        if (hasPrevious) {
+            checkDuplicate(previousKey, current.key);
+        }
+        hasPrevious = true;
+        previousKey = current.key;
+        currentKey = current.key;
+        currentPageId = current.pageId;
+        currentSlotId = current.slotId;
+        return true;
+    }
+
+    int key() {
+        return currentKey;
+    }
+
+    int pageId() {
+        return currentPageId;
+    }
+
+    int slotId() {
+        return currentSlotId;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (current != null) {
+            current.close();
+        }
+        if (merge != null) {
+            for (RunReader reader : merge) {
+                reader.close();
+            }
+        }
+        for (Path runFile : runFiles) {
+            Files.deleteIfExists(runFile);
+        }
+    }
+
+    /**
+     * Opens a reader on each of the run files, ordered by the readers' current key.
+     */
+    private static PriorityQueue<RunReader> openRuns(List<Path> files) throws IOException {
+        PriorityQueue<RunReader> readers = new PriorityQueue<>(files.size(), (a, b) -> Integer.compare(a.key, b.key));
+        try {
+            for (Path runFile : files) {
+                RunReader reader = new RunReader(runFile);
+                if (reader.advance()) {
+                    readers.add(reader);
+                } else {
+                    reader.close();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+            throw e;
+        }
+        return readers;
+    }
+
+    /**
+     * Merges some of the runs into one new run, which goes to the end of the run list,
+     * and deletes them.
+     */
+    private void mergeRuns(List<Path> inputs) throws IOException {
+        Path mergedFile = Files.createTempFile("minidb-sort-", ".run");
+        runFiles.add(mergedFile);
+        mergedRunCount++;
+        PriorityQueue<RunReader> readers = openRuns(inputs);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(mergedFile), RUN_BUFFER_SIZE))) {
+            boolean first = true;
+            int previous = 0;
+            RunReader reader;
+            while ((reader = readers.poll()) != null) {
+                if (!first) {
+                    checkDuplicate(previous, reader.key);
+                }
+                first = false;
+                previous = reader.key;
+                out.writeInt(reader.key);
+                out.writeInt(reader.pageId);
+                out.writeInt(reader.slotId);
+                if (reader.advance()) {
+                    readers.add(reader);
+                } else {
+                    reader.close();
+                }
+            }
+        } finally {
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+        }
+        for (Path runFile : inputs) {
+            Files.deleteIfExists(runFile);
+            runFiles.remove(runFile);
+        }
+    }
+
+    /**
+     * Records a duplicate if two neighbouring keys of a sorted sequence are equal.
+     */
+    private void checkDuplicate(long previousKey, long key) {
+        if (previousKey == key && !hasDuplicateKey) {
+            hasDuplicateKey = true;
+            duplicateKey = (int) key;
+        }
+    }
+
+    /**
+     * Sorts the collected entries by key. Packing the key with the entry's index into a
+     * long lets Arrays.sort() work on primitives: the key is in the high bits, so the
+     * longs sort by key, and the index tells where the rest of the entry is.
+     */
+    private long[] sortInMemory() {
+        long[] packed = new long[count];
+        for (int i = 0; i < count; i++) {
+            packed[i] = ((long) keys[i] << 32) | i;
+        }
+        Arrays.sort(packed);
+        return packed;
+    }
+
+    /**
+     * Sorts the collected entries and writes them to a new run file.
+     */
+    private void spill() throws IOException {
+        long[] packed = sortInMemory();
+        Path runFile = Files.createTempFile("minidb-sort-", ".run");
+        runFiles.add(runFile);
+        runCount++;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(runFile), RUN_BUFFER_SIZE))) {
+            for (int i = 0; i < packed.length; i++) {
+                if (i > 0) {
+                    checkDuplicate(packed[i - 1] >> 32, packed[i] >> 32);
+                }
+                int index = (int) packed[i];
+                out.writeInt(keys[index]);
+                out.writeInt(pageIds[index]);
+                out.writeInt(slotIds[index]);
+            }
+        }
+        count = 0;
+    }
+
+    /**
+     * Reads one run file an entry at a time.
+     */
+    private static final class RunReader {
+        private final DataInputStream in;
+        int key;
+        int pageId;
+        int slotId;
+
+        RunReader(Path runFile) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(runFile), RUN_BUFFER_SIZE));
+        }
+
+        /**
+         * @return false at the end of the run.
+         */
+        boolean advance() throws IOException {
+            try {
+                key = in.readInt();
+            } catch (EOFException e) {
+                return false;
+            }
+            pageId = in.readInt();
+            slotId = in.readInt();
+            return true;
+        }
+
+        void close() throws IOException {
+            in.close();
+        }
+    }
+}
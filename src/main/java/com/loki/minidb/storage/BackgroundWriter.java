@@ -0,0 +1,71 @@
+package com.loki.minidb.storage;
+
+import java.io.IOException;
+
+/**
+ * BackgroundWriter is a daemon thread that keeps the cold end of the buffer pool clean.
+ * Every round it asks the BufferPoolManager to write the dirty pages among the next
+ * eviction candidates. When a page is then picked as a victim, it usually has nothing
+ * left to write, so fetchPage() does not wait for a synchronous write.
+ */
+class BackgroundWriter extends Thread {
+
+    private final BufferPoolManager bufferPoolManager;
+    private final long intervalMillis;
+    private final int maxPagesPerRound;
+    private volatile boolean running = true;
+    // The writer sleeps on this monitor, so shutdown() can wake it without an interrupt.
+    private final Object sleepLock = new Object();
+
+    /**
+     * @param bufferPoolManager The buffer pool to clean.
+     * @param intervalMillis How long to sleep between rounds.
+     * @param maxPagesPerRound How many eviction candidates to look at per round.
+     */
+    BackgroundWriter(BufferPoolManager bufferPoolManager, long intervalMillis, int maxPagesPerRound) {
+        super("minidb-background-writer");
+        this.bufferPoolManager = bufferPoolManager;
+        this.intervalMillis = intervalMillis;
+        this.maxPagesPerRound = maxPagesPerRound;
+        setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                bufferPoolManager.writeColdDirtyPages(maxPagesPerRound);
+            } catch (IOException e) {
+                // The pages stay dirty, so eviction or the next round will try again.
+                System.err.println("Error: Background writer failed to write a page: " + e.getMessage());
+            }
+
+            synchronized (sleepLock) {
+                if (running) {
+                    try {
+                        sleepLock.wait(intervalMillis);
+                    } catch (InterruptedException e) {
+                        // Nobody else interrupts this thread; the loop condition decides whether to stop.
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Asks the writer to stop and waits for it to finish its current round.
+     * The thread is woken with notify, never interrupted: an interrupt during a
+     * FileChannel write would close the database file's channel.
+     */
+    void shutdown() {
+        synchronized (sleepLock) {
+            running = false;
+            sleepLock.notifyAll();
+        }
+        try {
+            join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,44 +1,139 @@
 package com.loki.minidb.storage;
 
+import com.loki.minidb.util.ConcurrentIntIntMap;
+
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.Map;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * BufferPoolManager caches disk pages in a fixed number of in-memory frames.
+ *
+ * The manager is safe to use from many threads at once:
+ * - The page table is a striped, primitive ConcurrentIntIntMap. A lookup is a single
+ *   optimistic probe that takes no lock and allocates nothing.
+ * - Every frame has an atomic pin count. A cache hit only increments the pin
+ *   count of its own frame, so hits on different pages never contend.
+ * - A miss claims a frame, installs the new mapping, and only then evicts the frame's
+ *   old page and reads the new one, all while holding the frame's I/O lock. Only threads
+ *   asking for that same page wait for the read, and a thread that loses the race to
+ *   install the mapping gives its frame back before evicting anything.
+ * - The replacer is only touched when a pin count moves between 0 and 1. The default
+ *   ClockReplacer then updates only the frame's own entry, without a lock, so a hit
+ *   takes no global lock with it. LRUReplacer and LRUKReplacer keep ordered structures
+ *   behind one monitor, so with them a hit on an unpinned page takes that monitor.
+ *
+ * Callers that read or modify the page contents concurrently should use the
+ * page's own latches (Page.rLatch / Page.wLatch).
+ *
+ * Modified pages are marked dirty through unpinPage(pageId, true) and are written
+ * back when they are flushed or evicted. An optional background writer cleans
+ * dirty pages near the eviction end of the replacer, so that eviction rarely has
+ * to wait for a write. Both the background writer and flushAllPages() write runs of
+ * consecutive dirty pages with one DiskManager.writePages() call.
+ *
+ * Sequential scans can be sped up with read-ahead. prefetch() loads a range of pages
+ * with one multi-page read per run of uncached pages. With setReadAheadWindow(), a miss
+ * on the page right after the previous miss (or after the previous prefetched range)
+ * is treated as a scan and prefetches the following pages automatically.
+ *
+ * fetchPageAsync() runs misses on virtual threads, so one caller can have many page
+ * reads in flight without a platform thread per read.
+ */
+public class BufferPoolManager implements AutoCloseable {
 
-public class BufferPoolManager {
+    // Pin count value of a frame that is being evicted and must not be pinned.
+    private static final int EVICTING = -1;
+    // Returned by the page table for a page that is not cached.
+    private static final int NO_FRAME = -1;
+    // Returned by reserveFrame() when another thread installed the page first.
+    private static final int ALREADY_CACHED = -2;
+    // The most pages the flushers hand to a single DiskManager.writePages() call.
+    private static final int MAX_WRITE_RUN = 64;
 
     private final Page[] pagePool;         // The array of pages in memory (our cache)
     private final DiskManager diskManager;
     private final int poolSize;
-    private final Map<Integer, Integer> pageTable;  // Maps a pageId from disk to its frameId in the pagePool.
+    private final ConcurrentIntIntMap pageTable;  // Maps a pageId from disk to its frameId in the pagePool.
     private final Queue<Integer> freeFrames;    // A queue of frameIds that are free to be used.
-    private final int[] pinCount;
-    private final LRUReplacer lruReplacer;
+    private final Replacer replacer;         // Tracks frameIds whose pin count is 0.
+    private BackgroundWriter backgroundWriter;  // Optional, see startBackgroundWriter().
+    // Read-ahead: how many pages a sequential miss loads, and the page whose miss
+    // would continue the current scan. Both are hints, so races on them are harmless.
+    private volatile int readAheadWindow = 0;
+    private volatile int nextSequentialMiss = Page.INVALID_PAGE_ID;
+    // Runs the misses of fetchPageAsync(), one virtual thread per fetch.
+    private final ExecutorService ioExecutor = Executors.newVirtualThreadPerTaskExecutor();
 
     /**
-     * Creates a new BufferPoolManager.
+     * Creates a new BufferPoolManager with the CLOCK replacement policy.
      *
      * @param poolSize The number of pages that can be cached in memory at any given time.
      * @param diskManager The disk manager to fetch pages from disk.
      */
     public BufferPoolManager(int poolSize, DiskManager diskManager) {
+        this(poolSize, diskManager, false);
+    }
+
+    /**
+     * Creates a new BufferPoolManager with the CLOCK replacement policy.
+     *
+     * @param poolSize The number of pages that can be cached in memory at any given time.
+     * @param diskManager The disk manager to fetch pages from disk.
+     * @param offHeapFrames true to place the frames in direct memory (see OffHeapFrameAllocator),
+     *                      so the Java heap does not grow with the pool size.
+     */
+    public BufferPoolManager(int poolSize, DiskManager diskManager, boolean offHeapFrames) {
+        this(poolSize, diskManager, new ClockReplacer(poolSize), offHeapFrames);
+    }
+
+    /**
+     * Creates a new BufferPoolManager with the given replacement policy.
+     *
+     * @param poolSize The number of pages that can be cached in memory at any given time.
+     * @param diskManager The disk manager to fetch pages from disk.
+     * @param replacer The replacement policy. It must accept frame IDs in [0, poolSize).
+     */
+    public BufferPoolManager(int poolSize, DiskManager diskManager, Replacer replacer) {
+        this(poolSize, diskManager, replacer, false);
+    }
+
+    /**
+     * Creates a new BufferPoolManager.
+     *
+     * @param poolSize The number of pages that can be cached in memory at any given time.
+     * @param diskManager The disk manager to fetch pages from disk.
+     * @param replacer The replacement policy. It must accept frame IDs in [0, poolSize).
+     * @param offHeapFrames true to place the frames in direct memory (see OffHeapFrameAllocator),
+     *                      so the Java heap does not grow with the pool size.
+     */
+    public BufferPoolManager(int poolSize, DiskManager diskManager, Replacer replacer, boolean offHeapFrames) {
         this.poolSize = poolSize;
         this.diskManager = diskManager;
-        this.pagePool = new Page[poolSize]; // Create the array of Page references
-
-        this.pageTable = new HashMap<>();
-        this.freeFrames = new LinkedList<>();
-        this.pinCount = new int[poolSize];
-        this.lruReplacer = new LRUReplacer(poolSize);
-        // Loop through the pagePool array and create a new Page object for each slot.
-        // This pre-allocates the memory for our cache.
+
+        this.pageTable = new ConcurrentIntIntMap(poolSize);
+        this.freeFrames = new ConcurrentLinkedQueue<>();
+        this.replacer = replacer;
+        // Pre-allocate the memory for our cache, either as one arena sliced into frames
+        // or as a new Page object for each slot.
+        if (offHeapFrames) {
+            this.pagePool = OffHeapFrameAllocator.allocate(poolSize);
+        } else {
+            this.pagePool = new Page[poolSize]; // Create the array of Page references
+            for (int i = 0; i < poolSize; i++) {
+                this.pagePool[i] = new Page();
+            }
+        }
         for (int i = 0; i < poolSize; i++) {
-            this.pagePool[i] = new Page();
             // At the beginning, all frames are free.
             // Add the frame ID (which is the index 'i') to the freeFrames queue.
             this.freeFrames.add(i);
-            this.pinCount[i] = 0;
         }
     }
 
@@ -46,7 +141,7 @@ public class BufferPoolManager {
      * Fetches the requested page from the buffer pool.
      * 1. Search the page table for the page.
      * 2. If not found, find a replacement frame from the free list.
-     * 3. If no free frame, then evict a LRU page, and finds its frame.
+     * 3. If no free frame, then pick a victim frame from the replacer and evict its page.
      * 4. If a frame is found, update the page table, read page from disk, pin page, and return it.
      * 5. If a frame is not found, then return null.
      *
@@ -55,84 +150,782 @@ public class BufferPoolManager {
      * @throws IOException if a disk I/O error occurs.
      */
     public Page fetchPage(int pageId) throws IOException {
-        // 1. Check if page is already in the buffer pool (cache hit).
-        if (pageTable.containsKey(pageId)) {
-            int frameId = pageTable.get(pageId);
-            pinCount[frameId]++;
-            // A page that is fetched is being used, so it's not a candidate for eviction.
-            lruReplacer.pin(pageId);
-            return pagePool[frameId];
+        boolean readAheadTried = false;
+        while (true) {
+            // 1. Check if page is already in the buffer pool (cache hit).
+            int cachedFrameId = pageTable.get(pageId, NO_FRAME);
+            if (cachedFrameId != NO_FRAME) {
+                Page page = pinIfHolds(cachedFrameId, pageId);
+                if (page != null) {
+                    return page;
+                }
+                // The frame was evicted or reused under us. Look again.
+                Thread.onSpinWait();
+                continue;
+            }
+
+            // 2. Cache miss. If the misses walk forward through the file, read this page
+            //    and the ones after it in one go. The next round then finds it cached.
+            if (!readAheadTried) {
+                readAheadTried = true;
+                if (isSequentialMiss(pageId) && prefetch(pageId, readAheadWindow, pageId) > 0) {
+                    continue;
+                }
+            }
+
+            // 3. Find a replacement frame and install the new mapping.
+            int frameId = reserveFrame(pageId);
+            if (frameId == NO_FRAME) {
+                // All pages are pinned. We cannot proceed.
+                return null;
+            }
+            if (frameId == ALREADY_CACHED) {
+                // Another thread installed this page first; the next round will hit it.
+                continue;
+            }
+
+            // 4. Read the page into the frame.
+            return loadIntoFrame(frameId, pageId);
         }
+    }
 
-        // 2. Cache miss. Find a replacement frame.
-        // First, try to get a frame from the free list.
-        Integer frameId = freeFrames.poll();
+    /**
+     * Allocates a new page in the database file and pins it in the buffer pool.
+     * The new page is all zeros, so it is not read from disk.
+     *
+     * @return The pinned Page (its ID is page.getPageId()), or null if every frame is pinned.
+     * @throws IOException if a disk I/O error occurs.
+     */
+    public Page newPage() throws IOException {
+        // 1. Find a frame first, so a full pool does not leave an unused page in the file.
+        int frameId = acquireFrame();
+        if (frameId == NO_FRAME) {
+            return null;
+        }
+        Page page = pagePool[frameId];
 
-        // If the free list is empty, we must evict a page.
-        if (frameId == null) {
-            // Ask the LRUReplacer for a victim page ID.
-            Integer victimPageId = lruReplacer.victim();
+        // 2. Grow the file by one page.
+        int pageId;
+        try {
+            pageId = diskManager.allocatePage();
+        } catch (IOException | RuntimeException e) {
+            // The frame is empty and its pin count is still EVICTING, as the free list keeps it.
+            freeFrames.add(frameId);
+            throw e;
+        }
 
-            // If victim() returns null, all pages are pinned. We cannot proceed.
-            if (victimPageId == null) {
-                return null;
+        // 3. Zero the frame instead of reading the page. It matches the disk, so it is clean.
+        page.wLatch();
+        try {
+            ByteBuffer buffer = page.getBuffer();
+            for (int offset = 0; offset < Page.PAGE_SIZE; offset += Long.BYTES) {
+                buffer.putLong(offset, 0L);
             }
+        } finally {
+            page.wUnlatch();
+        }
+        page.setDirty(false);
+        page.setPageId(pageId);
+        page.pinCounter().set(1);
 
-            // We have the victim's pageId. Now find its frameId using the pageTable.
-            frameId = pageTable.get(victimPageId);
+        // 4. Publish the mapping. Nobody else can know this page ID yet.
+        pageTable.putIfAbsent(pageId, frameId, NO_FRAME);
+        replacer.pin(frameId);
+        return page;
+    }
 
-            // Important: Remove the old page's mapping from the page table.
-            pageTable.remove(victimPageId);
-            
-            // Note: Will handle dirty pages here later. If the victim page was
-            // modified, we would need to write it to disk before evicting.
+    /**
+     * Fetches the requested page without blocking the caller on disk I/O.
+     * A cache hit completes at once on the calling thread. Anything else runs fetchPage()
+     * on a virtual thread. Concurrent requests for the same missing page share a single
+     * disk read: the first one loads the page and the others wait on the frame's I/O
+     * lock, which parks their virtual threads instead of blocking a platform thread.
+     *
+     * @param pageId The ID of the page to fetch.
+     * @return A future with the pinned Page, or with null if every frame is pinned.
+     *         It completes exceptionally if a disk I/O error occurs.
+     */
+    public CompletableFuture<Page> fetchPageAsync(int pageId) {
+        // 1. Try the cache hit here, unless the page is still being read by another thread.
+        int frameId = pageTable.get(pageId, NO_FRAME);
+        if (frameId != NO_FRAME && !pagePool[frameId].isIoPending()) {
+            try {
+                Page page = pinIfHolds(frameId, pageId);
+                if (page != null) {
+                    return CompletableFuture.completedFuture(page);
+                }
+            } catch (IOException e) {
+                return CompletableFuture.failedFuture(e);
+            }
         }
 
-        // 3. We now have a valid frameId to use, either from the free list or eviction.
-        
-        // 4. Update metadata for the new page.
-        pageTable.put(pageId, frameId);
-        pinCount[frameId] = 1;
+        // 2. A miss, or a page in transit: fetch it on a virtual thread.
+        CompletableFuture<Page> future = new CompletableFuture<>();
+        ioExecutor.execute(() -> {
+            try {
+                future.complete(fetchPage(pageId));
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
 
-        // 5. The new page is being used, so tell the replacer to "pin" it
-        lruReplacer.pin(pageId);
+    /**
+     * Loads a range of pages into the buffer pool without pinning them, so that later
+     * fetches hit the cache. Each run of consecutive uncached pages is read with a single
+     * DiskManager.readPages() call. Pages past the end of the file are ignored.
+     * The prefetched pages become eviction candidates right away. Each counts as accessed
+     * once, so a policy that ranks frames by their accesses (LRUKReplacer) does not take
+     * them for frames that were never used.
+     *
+     * @param startPageId The first page to load.
+     * @param count The number of pages to load.
+     * @return The number of pages that were read from disk. This stops short when no
+     *         frame can be freed.
+     * @throws IOException if a disk I/O error occurs.
+     */
+    public int prefetch(int startPageId, int count) throws IOException {
+        return prefetch(startPageId, count, Page.INVALID_PAGE_ID);
+    }
 
-        // 6. Read the page data from disk into the frame.
-        diskManager.readPage(pageId, pagePool[frameId]);
-        
-        return pagePool[frameId];
+    /**
+     * prefetch() for a read-ahead: the access to demandedPageId is recorded when
+     * fetchPage() pins it right after, so it is not recorded here as well.
+     */
+    private int prefetch(int startPageId, int count, int demandedPageId) throws IOException {
+        int endPageId = (int) Math.min((long) startPageId + count, diskManager.getNumPages());
+        int loaded = 0;
+        int pageId = Math.max(startPageId, 0);
+        while (pageId < endPageId) {
+            // 1. Skip the pages that are already cached.
+            if (pageTable.get(pageId, NO_FRAME) != NO_FRAME) {
+                pageId++;
+                continue;
+            }
+
+            // 2. Read the run of uncached pages that starts here.
+            int runLength = loadRun(pageId, endPageId, demandedPageId);
+            if (runLength == 0) {
+                break;
+            }
+            loaded += runLength;
+            pageId += runLength;
+        }
+        // 3. A miss right after this range continues the scan.
+        nextSequentialMiss = endPageId;
+        return loaded;
     }
-    
-    
+
     /**
-     * Unpins a page, allowing it to be evicted if it's not pinned by anyone else.
+     * Enables automatic read-ahead for sequential scans.
+     *
+     * @param pages How many pages a sequential miss loads at once, or 0 to turn read-ahead off.
+     */
+    public void setReadAheadWindow(int pages) {
+        if (pages < 0 || pages > poolSize) {
+            throw new IllegalArgumentException("The read-ahead window must be between 0 and the pool size.");
+        }
+        this.readAheadWindow = pages;
+    }
+
+    /**
+     * Unpins a page that was not modified, allowing it to be evicted if it's not pinned by anyone else.
      *
      * @param pageId The ID of the page to unpin.
      * @return true if the page was successfully unpinned, false if the page was not in memory.
      */
     public boolean unpinPage(int pageId) {
+        return unpinPage(pageId, false);
+    }
+
+    /**
+     * Unpins a page, allowing it to be evicted if it's not pinned by anyone else.
+     *
+     * @param pageId The ID of the page to unpin.
+     * @param isDirty true if the caller modified the page while it was pinned.
+     * @return true if the page was successfully unpinned, false if the page was not in memory.
+     */
+    public boolean unpinPage(int pageId, boolean isDirty) {
         // 1. Check if the page is in the buffer pool using the pageTable.
-        if (!pageTable.containsKey(pageId)) {
+        int frameId = pageTable.get(pageId, NO_FRAME);
+        if (frameId == NO_FRAME) {
             return false;
         }
 
-        // 2. Get the frameId from the pageTable.
-        int frameId = pageTable.get(pageId);
+        // 2. Remember the modification before the page can become an eviction candidate.
+        //    The flag is only ever set here; flushing is what clears it.
+        if (isDirty) {
+            pagePool[frameId].setDirty(true);
+        }
 
-        // 3. If the pin count is already 0, something is wrong. Log an error.
-        if (pinCount[frameId] <= 0) {
-            System.err.println("Error: Unpinning a page with pin count <= 0.");
+        // 3. Decrement the pin count, refusing to go below zero.
+        AtomicInteger pinCount = pagePool[frameId].pinCounter();
+        while (true) {
+            int current = pinCount.get();
+            // If the pin count is already 0, something is wrong. Log an error.
+            if (current <= 0) {
+                System.err.println("Error: Unpinning a page with pin count <= 0.");
+                return false;
+            }
+            if (pinCount.compareAndSet(current, current - 1)) {
+                // 4. If the pin count is now 0, this frame becomes a candidate for eviction.
+                if (current == 1) {
+                    replacer.unpin(frameId);
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Writes a page to disk if it is in the buffer pool and has unwritten changes.
+     *
+     * @param pageId The ID of the page to flush.
+     * @return true if the page is in the buffer pool (whether or not it needed a write), false otherwise.
+     * @throws IOException if a disk I/O error occurs.
+     */
+    public boolean flushPage(int pageId) throws IOException {
+        int frameId = pageTable.get(pageId, NO_FRAME);
+        if (frameId == NO_FRAME) {
             return false;
         }
+        flushFrame(frameId, pageId);
+        return true;
+    }
+
+    /**
+     * Writes every dirty page in the buffer pool to disk.
+     *
+     * @throws IOException if a disk I/O error occurs.
+     */
+    public void flushAllPages() throws IOException {
+        // Collect every dirty page and write them in page order, so neighbours go out in one call.
+        long[] dirtyPages = new long[poolSize];
+        int count = 0;
+        for (int frameId = 0; frameId < poolSize; frameId++) {
+            Page page = pagePool[frameId];
+            int pageId = page.getPageId();
+            if (pageId != Page.INVALID_PAGE_ID && page.isDirty()) {
+                dirtyPages[count++] = ((long) pageId << 32) | frameId;
+            }
+        }
+        writeInPageOrder(dirtyPages, count);
+    }
 
-        // 4. Decrement the pin count for this frame.
-        pinCount[frameId]--;
+    /**
+     * Starts a daemon thread that periodically writes dirty, unpinned pages that are
+     * close to being evicted. Pages are written in page ID order so that neighbouring
+     * pages become sequential writes.
+     *
+     * @param intervalMillis How long the writer sleeps between rounds.
+     * @param maxPagesPerRound How many eviction candidates the writer looks at per round.
+     */
+    public synchronized void startBackgroundWriter(long intervalMillis, int maxPagesPerRound) {
+        if (backgroundWriter != null) {
+            throw new IllegalStateException("The background writer is already running.");
+        }
+        backgroundWriter = new BackgroundWriter(this, intervalMillis, maxPagesPerRound);
+        backgroundWriter.start();
+    }
 
-        // 5. If the pin count is now 0, this page becomes a candidate for eviction.
-        if (pinCount[frameId] == 0) {
-            lruReplacer.unpin(pageId);
+    /**
+     * Stops the background writer, if it is running, and waits for its current round to finish.
+     */
+    public synchronized void stopBackgroundWriter() {
+        if (backgroundWriter != null) {
+            backgroundWriter.shutdown();
+            backgroundWriter = null;
         }
+    }
 
-        return true;
+    /**
+     * Stops the background writer, waits for asynchronous fetches that are still
+     * running, and flushes all dirty pages.
+     * The DiskManager is not closed, since the caller owns it.
+     */
+    @Override
+    public void close() throws IOException {
+        stopBackgroundWriter();
+        ioExecutor.close();
+        flushAllPages();
+    }
+
+    /**
+     * @return The disk manager this buffer pool reads and writes pages with.
+     */
+    public DiskManager getDiskManager() {
+        return diskManager;
+    }
+
+    /**
+     * @return The number of frames in this buffer pool.
+     */
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    /**
+     * One round of the background writer: writes the dirty pages among the next
+     * eviction candidates, sorted by page ID.
+     *
+     * @param maxPages The maximum number of eviction candidates to look at.
+     * @return The number of pages written.
+     */
+    int writeColdDirtyPages(int maxPages) throws IOException {
+        // 1. Collect the dirty candidates as (pageId, frameId) pairs packed into longs,
+        //    so that sorting the array sorts them by page ID.
+        int[] candidates = replacer.evictionCandidates(maxPages);
+        long[] dirtyPages = new long[candidates.length];
+        int count = 0;
+        for (int frameId : candidates) {
+            Page page = pagePool[frameId];
+            int pageId = page.getPageId();
+            if (pageId != Page.INVALID_PAGE_ID && page.isDirty() && page.pinCounter().get() == 0) {
+                dirtyPages[count++] = ((long) pageId << 32) | frameId;
+            }
+        }
+
+        // 2. Write them in ascending page order.
+        return writeInPageOrder(dirtyPages, count);
+    }
+
+    /**
+     * Sorts (pageId, frameId) pairs by page ID and writes the pages, one DiskManager call
+     * per run of consecutive page IDs.
+     *
+     * @param dirtyPages Pairs packed as (pageId << 32) | frameId. Sorted in place.
+     * @param count How many entries of dirtyPages are used.
+     * @return The number of pages written.
+     */
+    private int writeInPageOrder(long[] dirtyPages, int count) throws IOException {
+        Arrays.sort(dirtyPages, 0, count);
+        int written = 0;
+        int runStart = 0;
+        while (runStart < count) {
+            int runEnd = runStart + 1;
+            while (runEnd < count && runEnd - runStart < MAX_WRITE_RUN
+                    && (int) (dirtyPages[runEnd] >>> 32) == (int) (dirtyPages[runEnd - 1] >>> 32) + 1) {
+                runEnd++;
+            }
+            written += flushRun(dirtyPages, runStart, runEnd);
+            runStart = runEnd;
+        }
+        return written;
+    }
+
+    /**
+     * Writes a run of frames holding consecutive pages with one writePages() call.
+     * Like flushFrame(), the frames are read-latched, not pinned. If one of them no longer
+     * holds its page or is already clean, the run is written frame by frame instead.
+     * @return The number of pages written.
+     */
+    private int flushRun(long[] dirtyPages, int from, int to) throws IOException {
+        int runLength = to - from;
+        int startPageId = (int) (dirtyPages[from] >>> 32);
+        if (runLength == 1) {
+            return flushFrame((int) dirtyPages[from], startPageId) ? 1 : 0;
+        }
+
+        int[] frames = new int[runLength];
+        Page[] pages = new Page[runLength];
+        for (int i = 0; i < runLength; i++) {
+            frames[i] = (int) dirtyPages[from + i];
+            pages[i] = pagePool[frames[i]];
+        }
+
+        // 1. Latch the frames in frame ID order, without waiting. A thread that holds several
+        //    write latches in an order of its own (a B+Tree split) could be waiting for one of
+        //    ours, so if a frame is busy we take the one-frame-at-a-time path instead.
+        int[] latchOrder = frames.clone();
+        Arrays.sort(latchOrder);
+        int latched = 0;
+        while (latched < runLength && pagePool[latchOrder[latched]].tryRLatch()) {
+            latched++;
+        }
+        try {
+            boolean intact = latched == runLength;
+            for (int i = 0; intact && i < runLength; i++) {
+                if (pages[i].getPageId() != startPageId + i || !pages[i].isDirty()) {
+                    intact = false;
+                    break;
+                }
+            }
+
+            // 2. Clear the flags, then write the whole run in one call.
+            if (intact) {
+                for (Page page : pages) {
+                    page.setDirty(false);
+                }
+                try {
+                    diskManager.writePages(startPageId, pages);
+                } catch (IOException | RuntimeException e) {
+                    for (Page page : pages) {
+                        page.setDirty(true);
+                    }
+                    throw e;
+                }
+                return runLength;
+            }
+        } finally {
+            for (int i = 0; i < latched; i++) {
+                pagePool[latchOrder[i]].rUnlatch();
+            }
+        }
+
+        // 3. The run changed under us, or part of it was busy. Write whatever is still ours one frame at a time.
+        int written = 0;
+        for (int i = 0; i < runLength; i++) {
+            if (flushFrame(frames[i], startPageId + i)) {
+                written++;
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Writes the frame to disk if it still holds the given page and the page is dirty.
+     * The frame is not pinned; its read latch keeps the contents stable during the write
+     * and makes an eviction of the same frame wait until the write is done.
+     * @return true if the page was written.
+     */
+    private boolean flushFrame(int frameId, int pageId) throws IOException {
+        Page page = pagePool[frameId];
+        page.rLatch();
+        try {
+            if (page.getPageId() != pageId || !page.isDirty()) {
+                return false;
+            }
+            // Clear the flag before writing: a change made during the write marks the page dirty again.
+            page.setDirty(false);
+            try {
+                diskManager.writePage(pageId, page);
+            } catch (IOException | RuntimeException e) {
+                page.setDirty(true);
+                throw e;
+            }
+            return true;
+        } finally {
+            page.rUnlatch();
+        }
+    }
+
+    /**
+     * Pins the frame if it still holds the given page.
+     * @return The pinned page, or null if the frame is being evicted or now holds another page.
+     */
+    private Page pinIfHolds(int frameId, int pageId) throws IOException {
+        Page page = pagePool[frameId];
+        AtomicInteger pinCount = page.pinCounter();
+        int current;
+        do {
+            current = pinCount.get();
+            if (current == EVICTING) {
+                // The frame may be writing its old contents back. Wait for that before looking again.
+                page.ioLock().lock();
+                page.ioLock().unlock();
+                return null;
+            }
+        } while (!pinCount.compareAndSet(current, current + 1));
+
+        // We hold a pin now, so the frame cannot be reused. Check that it is the page we wanted.
+        if (page.getPageId() != pageId) {
+            releaseFrame(frameId);
+            return null;
+        }
+        if (current == 0) {
+            replacer.pin(frameId);
+        }
+
+        // If another thread is still reading this page from disk, wait for it.
+        if (page.isIoPending()) {
+            page.ioLock().lock();
+            page.ioLock().unlock();
+            // The load may have failed, in which case the frame no longer holds our page.
+            if (page.getPageId() != pageId) {
+                releaseFrame(frameId);
+                throw new IOException("Failed to load page " + pageId + " in another thread.");
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Finds a frame that can hold a new page, first from the free list, then by eviction.
+     * On return the frame is exclusively ours: no mapping points to it and its pin count is EVICTING.
+     * @return The frameId, or NO_FRAME if every frame is pinned.
+     * @throws IOException if a dirty victim could not be written back.
+     */
+    private int acquireFrame() throws IOException {
+        int frameId = claimFrame();
+        if (frameId == NO_FRAME) {
+            return NO_FRAME;
+        }
+        Page page = pagePool[frameId];
+        page.ioLock().lock();
+        try {
+            evictClaimed(frameId);
+        } finally {
+            page.ioLock().unlock();
+        }
+        return frameId;
+    }
+
+    /**
+     * Finds a frame for pageId and installs the mapping pageId -> frameId before the frame's
+     * old page is evicted. Of several threads missing on the same page, only the one whose
+     * mapping goes in evicts anything; the others give their frame back untouched.
+     * On return the caller holds the frame's I/O lock, and the frame holds pageId with
+     * one pin and an I/O pending, as loadIntoFrame() and loadRun() expect.
+     * @return The frameId, NO_FRAME if every frame is pinned, or ALREADY_CACHED if another
+     *         thread installed pageId first.
+     * @throws IOException if a dirty victim could not be written back.
+     */
+    private int reserveFrame(int pageId) throws IOException {
+        // 1. Claim a frame. A victim still holds its old page, which stays readable for now.
+        int frameId = claimFrame();
+        if (frameId == NO_FRAME) {
+            return NO_FRAME;
+        }
+        Page page = pagePool[frameId];
+
+        // 2. Take the I/O lock before anyone can find the frame, so late arrivals wait for the
+        //    read. Threads asking for the new page see the EVICTING pin count and wait too.
+        page.ioLock().lock();
+        if (pageTable.putIfAbsent(pageId, frameId, NO_FRAME) != NO_FRAME) {
+            // Another thread won. Nothing has been evicted yet, so give the frame back as it was.
+            page.ioLock().unlock();
+            unclaimFrame(frameId);
+            return ALREADY_CACHED;
+        }
+
+        // 3. Evict the old page, then set the frame up for the new one.
+        try {
+            evictClaimed(frameId);
+        } catch (IOException | RuntimeException e) {
+            pageTable.remove(pageId, frameId);
+            page.ioLock().unlock();
+            throw e;
+        }
+        page.setIoPending(true);
+        page.setDirty(false);
+        page.setPageId(pageId);
+        page.pinCounter().set(1);
+        return frameId;
+    }
+
+    /**
+     * Takes a frame from the free list, or else a victim from the replacer, and sets its pin
+     * count to EVICTING. The frame's old page, if any, is still in it and still mapped.
+     * @return The frameId, or NO_FRAME if every frame is pinned.
+     */
+    private int claimFrame() {
+        // First, try to get a frame from the free list.
+        Integer freeFrameId = freeFrames.poll();
+        if (freeFrameId != null) {
+            pagePool[freeFrameId].pinCounter().set(EVICTING);
+            return freeFrameId;
+        }
+
+        // If the free list is empty, we must evict a page.
+        while (true) {
+            // Ask the replacer for a victim frame.
+            int frameId = replacer.victim();
+
+            // If victim() returns NO_FRAME, all pages are pinned.
+            if (frameId == Replacer.NO_FRAME) {
+                return NO_FRAME;
+            }
+
+            // The replacer is only a hint: the frame may have been pinned again since it
+            // was unpinned. Claiming it with a CAS from 0 is what makes the eviction safe.
+            if (pagePool[frameId].pinCounter().compareAndSet(0, EVICTING)) {
+                return frameId;
+            }
+        }
+    }
+
+    /**
+     * Gives back a frame claimed by claimFrame() that was not used: an empty frame goes
+     * back to the free list, and a victim becomes evictable again with its page intact.
+     */
+    private void unclaimFrame(int frameId) {
+        Page page = pagePool[frameId];
+        if (page.getPageId() == Page.INVALID_PAGE_ID) {
+            // The pin count stays EVICTING while the frame is on the free list.
+            freeFrames.add(frameId);
+        } else {
+            page.pinCounter().set(0);
+            replacer.unpin(frameId);
+        }
+    }
+
+    /**
+     * Writes the old page of a claimed frame back if it is dirty and removes its mapping.
+     * The caller holds the frame's I/O lock, so that threads asking for the old page wait
+     * instead of reading a stale copy from disk. If the write fails, the page stays in
+     * the frame and becomes evictable again.
+     * @throws IOException if a dirty victim could not be written back.
+     */
+    private void evictClaimed(int frameId) throws IOException {
+        Page victim = pagePool[frameId];
+        int victimPageId = victim.getPageId();
+        if (victimPageId == Page.INVALID_PAGE_ID) {
+            return;
+        }
+
+        // If the victim page was modified, write it to disk before evicting.
+        // The write latch waits for a background flush of this frame that is still running.
+        victim.wLatch();
+        try {
+            if (victim.isDirty()) {
+                diskManager.writePage(victimPageId, victim);
+                victim.setDirty(false);
+            }
+        } catch (IOException | RuntimeException e) {
+            // Leave the page in place and make it evictable again.
+            victim.pinCounter().set(0);
+            replacer.unpin(frameId);
+            throw e;
+        } finally {
+            victim.wUnlatch();
+        }
+
+        // Important: Remove the old page's mapping from the page table.
+        pageTable.remove(victimPageId, frameId);
+        victim.setPageId(Page.INVALID_PAGE_ID);
+        // Only now is the old page really gone from the frame.
+        replacer.evicted(frameId);
+    }
+
+    /**
+     * Reads the page from disk into a frame set up by reserveFrame(), then releases the
+     * frame's I/O lock.
+     * @return The pinned page.
+     */
+    private Page loadIntoFrame(int frameId, int pageId) throws IOException {
+        Page page = pagePool[frameId];
+        try {
+            // 1. Read the page data from disk into the frame. The write latch keeps a
+            //    background flush from writing the frame while it is half filled.
+            page.wLatch();
+            try {
+                diskManager.readPage(pageId, page);
+            } catch (IOException | RuntimeException e) {
+                pageTable.remove(pageId, frameId);
+                page.setPageId(Page.INVALID_PAGE_ID);
+                page.setIoPending(false);
+                releaseFrame(frameId);
+                throw e;
+            } finally {
+                page.wUnlatch();
+            }
+            page.setIoPending(false);
+
+            // 2. Tell the replacer about the access. Policies that keep per-frame history start it here.
+            replacer.pin(frameId);
+            return page;
+        } finally {
+            page.ioLock().unlock();
+        }
+    }
+
+    /**
+     * Records a miss and decides whether it continues a sequential scan.
+     * @return true if read-ahead is on and this miss is on the page the previous miss or prefetch led to.
+     */
+    private boolean isSequentialMiss(int pageId) {
+        boolean sequential = readAheadWindow > 1 && pageId == nextSequentialMiss;
+        nextSequentialMiss = pageId + 1;
+        return sequential;
+    }
+
+    /**
+     * Loads the uncached pages from startPageId on, up to endPageId or the first page that
+     * is cached, with one multi-page read. The pages are left unpinned, each with one access
+     * recorded in the replacer except demandedPageId's.
+     * @return The number of pages loaded, or 0 if not even the first page got a frame.
+     */
+    private int loadRun(int startPageId, int endPageId, int demandedPageId) throws IOException {
+        int[] frames = new int[endPageId - startPageId];
+        int runLength = 0;
+
+        // 1. Claim a frame per page and publish its mapping, exactly as fetchPage() does.
+        //    Every claimed frame keeps its I/O lock until the read is done, so threads asking
+        //    for one of these pages wait for the run instead of reading the page themselves.
+        try {
+            while (runLength < frames.length) {
+                int pageId = startPageId + runLength;
+                if (runLength > 0 && pageTable.get(pageId, NO_FRAME) != NO_FRAME) {
+                    break;
+                }
+                int frameId = reserveFrame(pageId);
+                if (frameId == NO_FRAME || frameId == ALREADY_CACHED) {
+                    // No frame left, or another thread loaded this page meanwhile. End the run before it.
+                    break;
+                }
+                frames[runLength++] = frameId;
+            }
+        } catch (IOException | RuntimeException e) {
+            finishRun(startPageId, frames, runLength, false, demandedPageId);
+            throw e;
+        }
+        if (runLength == 0) {
+            return 0;
+        }
+
+        // 2. Read the whole run with one call. The write latches keep a background flush out
+        //    of the frames while they are half filled. flushRun() never waits for a latch while
+        //    holding another, so the two cannot deadlock.
+        Page[] pages = new Page[runLength];
+        for (int i = 0; i < runLength; i++) {
+            pages[i] = pagePool[frames[i]];
+        }
+        int[] latchOrder = Arrays.copyOf(frames, runLength);
+        Arrays.sort(latchOrder);
+        for (int frameId : latchOrder) {
+            pagePool[frameId].wLatch();
+        }
+        boolean loaded = false;
+        try {
+            diskManager.readPages(startPageId, pages);
+            loaded = true;
+        } finally {
+            for (int frameId : latchOrder) {
+                pagePool[frameId].wUnlatch();
+            }
+            // 3. Let waiting threads in and drop our pins, which makes the pages evictable.
+            finishRun(startPageId, frames, runLength, loaded, demandedPageId);
+        }
+        return runLength;
+    }
+
+    /**
+     * Releases the frames claimed by loadRun(). If the read failed, their mappings are removed first.
+     */
+    private void finishRun(int startPageId, int[] frames, int runLength, boolean loaded, int demandedPageId) {
+        for (int i = 0; i < runLength; i++) {
+            Page page = pagePool[frames[i]];
+            if (!loaded) {
+                pageTable.remove(startPageId + i, frames[i]);
+                page.setPageId(Page.INVALID_PAGE_ID);
+            } else if (startPageId + i != demandedPageId) {
+                // As in loadIntoFrame(): a frame that was never pinned would have no history,
+                // and LRUKReplacer would evict it before any frame that was used.
+                replacer.pin(frames[i]);
+            }
+            page.setIoPending(false);
+            page.ioLock().unlock();
+            releaseFrame(frames[i]);
+        }
+    }
+
+    /**
+     * Drops one pin from a frame and hands it to the replacer once nobody holds it.
+     */
+    private void releaseFrame(int frameId) {
+        if (pagePool[frameId].pinCounter().decrementAndGet() == 0) {
+            replacer.unpin(frameId);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,111 @@
+package com.loki.minidb.storage;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * ClockReplacer implements the CLOCK (second-chance) replacement policy.
+ *
+ * All state lives in one frame-indexed array, so pin() and unpin() allocate nothing
+ * and take no lock: each is a single atomic update of the frame's entry, and no
+ * counter is shared between frames. That keeps a BufferPoolManager cache hit free of
+ * shared writes, which is why this is the buffer pool's default policy. An unpinned
+ * frame starts with its reference bit set. victim() sweeps a clock hand over the
+ * frames: a referenced frame loses its bit and gets a second chance, an unreferenced
+ * evictable frame is the victim. Only victim() is synchronized, to guard the hand.
+ */
+public class ClockReplacer implements Replacer {
+
+    // Per-frame states.
+    private static final int NOT_EVICTABLE = 0;  // Pinned, or never unpinned.
+    private static final int EVICTABLE = 1;      // Evictable, reference bit clear.
+    private static final int REFERENCED = 2;     // Evictable, reference bit set.
+
+    private final AtomicIntegerArray states;
+    private final int capacity;
+    private int hand;                  // Guarded by `this`.
+
+    /**
+     * Creates a new ClockReplacer.
+     * @param capacity The number of frames in the buffer pool.
+     */
+    public ClockReplacer(int capacity) {
+        this.capacity = capacity;
+        this.states = new AtomicIntegerArray(capacity);
+        this.hand = 0;
+    }
+
+    @Override
+    public synchronized int victim() {
+        // Every full sweep clears the reference bits it passes, so the loop ends
+        // after at most two sweeps unless other threads keep unpinning frames.
+        // There is no counter of evictable frames to stop at: a sweep that meets
+        // none at all means every frame is pinned.
+        boolean sawEvictable = false;
+        for (int step = 1; ; step++) {
+            int frameId = hand;
+            hand = (hand + 1) % capacity;
+
+            int state = states.get(frameId);
+            if (state == REFERENCED) {
+                // Second chance: clear the bit and move on.
+                sawEvictable = true;
+                states.compareAndSet(frameId, REFERENCED, EVICTABLE);
+            } else if (state == EVICTABLE) {
+                sawEvictable = true;
+                if (states.compareAndSet(frameId, EVICTABLE, NOT_EVICTABLE)) {
+                    return frameId;
+                }
+            }
+
+            if (step % capacity == 0) {
+                if (!sawEvictable) {
+                    return NO_FRAME;
+                }
+                sawEvictable = false;
+            }
+        }
+    }
+
+    @Override
+    public void pin(int frameId) {
+        states.set(frameId, NOT_EVICTABLE);
+    }
+
+    @Override
+    public void unpin(int frameId) {
+        states.set(frameId, REFERENCED);
+    }
+
+    @Override
+    public synchronized int[] evictionCandidates(int max) {
+        // Walk one revolution from the hand. Unreferenced frames are the next victims,
+        // so they come first, followed by the referenced ones.
+        int[] candidates = new int[Math.min(max, size())];
+        int count = 0;
+        for (int pass = 0; pass < 2 && count < candidates.length; pass++) {
+            int wanted = pass == 0 ? EVICTABLE : REFERENCED;
+            for (int i = 0; i < capacity && count < candidates.length; i++) {
+                int frameId = (hand + i) % capacity;
+                if (states.get(frameId) == wanted) {
+                    candidates[count++] = frameId;
+                }
+            }
+        }
+        return count == candidates.length ? candidates : Arrays.copyOf(candidates, count);
+    }
+
+    /**
+     * Counts the frames that can currently be evicted, by walking the whole array.
+     * @return The number of evictable frames.
+     */
+    public int size() {
+        int size = 0;
+        for (int frameId = 0; frameId < capacity; frameId++) {
+            if (states.get(frameId) != NOT_EVICTABLE) {
+                size++;
+            }
+        }
+        return size;
+    }
+}
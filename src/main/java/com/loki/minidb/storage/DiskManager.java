@@ -1,21 +1,104 @@
 package com.loki.minidb.storage;
 
-import java.io.FileNotFoundException;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
 
-public class DiskManager implements AutoCloseable{
-    private static final String FILE_MODE = "rwd";
+/**
+ * DiskManager reads and writes fixed-size pages of the database file.
+ *
+ * How the bytes are moved is chosen with an IoMode. The default, FILE_CHANNEL,
+ * uses positional reads and writes, so concurrent threads do not share a file
+ * pointer and need no lock for page I/O. RANDOM_ACCESS_FILE keeps the original
+ * seek-then-read path, which has to serialize every operation.
+ *
+ * MEMORY_MAPPED maps the file in chunks of CHUNK_PAGES pages. Mapping a chunk grows
+ * the file to the end of that chunk, so close() truncates the file back to the
+ * allocated pages. After a crash the file may end with zero-filled pages, which
+ * reopen as allocated but empty pages.
+ *
+ * When a write becomes durable is chosen separately with a DurabilityMode:
+ * synchronously per write (the default), shared between concurrent writers by a
+ * group sync, or left to the OS until sync() is called. If forcing the file to the
+ * device ever fails, the DiskManager refuses every later write and sync: the OS may
+ * have dropped the pages it could not write, so no later sync could make them durable.
+ *
+ * readPages() and writePages() move a run of consecutive pages with one call to the
+ * file, using scattering and gathering FileChannel I/O. getReadCalls() and
+ * getWriteCalls() count the calls, so callers can see how much batching saves.
+ */
+public final class DiskManager implements AutoCloseable{
+    // Defaults for DurabilityMode.GROUP_SYNC.
+    public static final long DEFAULT_GROUP_SYNC_DELAY_MICROS = 1000;
+    public static final int DEFAULT_GROUP_SYNC_BATCH_SIZE = 32;
+    // Pages per mapped chunk in MEMORY_MAPPED mode (64 MB).
+    static final int CHUNK_PAGES = 16384;
+    private static final long CHUNK_SIZE = (long) CHUNK_PAGES * Page.PAGE_SIZE;
 
     private final RandomAccessFile dbFile;
-    private int nextPageId;
+    private final FileChannel channel;
+    private final IoMode ioMode;
+    private final DurabilityMode durabilityMode;
+    private final GroupSync groupSync;  // Only used in GROUP_SYNC mode.
+    // Volatile: allocatePage() is synchronized, but readers check it without the lock.
+    private volatile int nextPageId;
+    // MEMORY_MAPPED only: chunk i maps pages [i * CHUNK_PAGES, (i + 1) * CHUNK_PAGES).
+    // Replaced, never changed in place, when allocatePage() maps a new chunk.
+    private volatile MappedByteBuffer[] chunks = new MappedByteBuffer[0];
+    // Read and write calls issued, where a multi-page call counts once.
+    private final LongAdder readCalls = new LongAdder();
+    private final LongAdder writeCalls = new LongAdder();
+    // Set by the first failed sync or forced write. From then on writes are refused.
+    private volatile Throwable syncFailure;
 
     /**
-     * Constructor for the DiskManager.
+     * Constructor for the DiskManager, using positional FileChannel I/O.
      * @param dbFilePath The path to the database file.
      * @throws IOException if there's an error opening the file.
      */
     public DiskManager(String dbFilePath) throws IOException{
+        this(dbFilePath, IoMode.FILE_CHANNEL);
+    }
+
+    /**
+     * Constructor for the DiskManager.
+     * @param dbFilePath The path to the database file.
+     * @param ioMode How pages are read from and written to the file.
+     * @throws IOException if there's an error opening the file.
+     */
+    public DiskManager(String dbFilePath, IoMode ioMode) throws IOException{
+        this(dbFilePath, ioMode, DurabilityMode.SYNC_PER_WRITE);
+    }
+
+    /**
+     * Constructor for the DiskManager.
+     * @param dbFilePath The path to the database file.
+     * @param ioMode How pages are read from and written to the file.
+     * @param durabilityMode When written pages are forced to the storage device.
+     * @throws IOException if there's an error opening the file.
+     */
+    public DiskManager(String dbFilePath, IoMode ioMode, DurabilityMode durabilityMode) throws IOException{
+        this(dbFilePath, ioMode, durabilityMode, DEFAULT_GROUP_SYNC_DELAY_MICROS, DEFAULT_GROUP_SYNC_BATCH_SIZE);
+    }
+
+    /**
+     * Constructor for the DiskManager.
+     * @param dbFilePath The path to the database file.
+     * @param ioMode How pages are read from and written to the file.
+     * @param durabilityMode When written pages are forced to the storage device.
+     * @param groupSyncDelayMicros GROUP_SYNC only: how long a sync waits for more writers.
+     * @param groupSyncBatchSize GROUP_SYNC only: how many waiting writers trigger a sync at once.
+     * @throws IOException if there's an error opening the file.
+     */
+    public DiskManager(String dbFilePath, IoMode ioMode, DurabilityMode durabilityMode,
+                       long groupSyncDelayMicros, int groupSyncBatchSize) throws IOException{
+        this.ioMode = ioMode;
+        this.durabilityMode = durabilityMode;
         // Create a new RandomAccessFile object.
         // The mode "rwd" means:
         // 'r': Open for reading.
@@ -23,10 +106,26 @@ public class DiskManager implements AutoCloseable{
         // 'd': Request that every update to the file's content be written
         //      synchronously to the underlying storage device. This is crucial
         //      for database durability!
-        this.dbFile = new RandomAccessFile(dbFilePath, FILE_MODE);
+        // Only SYNC_PER_WRITE uses "rwd". The other modes open with "rw" and decide
+        // themselves when to force the file.
+        String fileMode = durabilityMode == DurabilityMode.SYNC_PER_WRITE ? "rwd" : "rw";
+        this.dbFile = new RandomAccessFile(dbFilePath, fileMode);
+        // The channel shares the file descriptor, including the synchronous-write flag.
+        this.channel = this.dbFile.getChannel();
+        this.groupSync = durabilityMode == DurabilityMode.GROUP_SYNC
+                ? new GroupSync(this::sync, groupSyncDelayMicros, groupSyncBatchSize)
+                : null;
 
         long fileSize = this.dbFile.length();
         this.nextPageId = (int) (fileSize / Page.PAGE_SIZE);
+
+        if (ioMode == IoMode.MEMORY_MAPPED) {
+            // Map every chunk that holds an existing page.
+            int chunkCount = (nextPageId + CHUNK_PAGES - 1) / CHUNK_PAGES;
+            for (int i = 0; i < chunkCount; i++) {
+                mapNextChunk();
+            }
+        }
     }
 
     /**
@@ -44,13 +143,99 @@ public class DiskManager implements AutoCloseable{
         }
 
         // 2. Calculate the offset in the file where the page starts.
-        long offset = pageId * Page.PAGE_SIZE;
+        long offset = (long) pageId * Page.PAGE_SIZE;
+        readCalls.increment();
+
+        switch (ioMode) {
+            case RANDOM_ACCESS_FILE -> {
+                // An off-heap page has no array, so it is read through a temporary one.
+                byte[] bytes = page.isOffHeap() ? new byte[Page.PAGE_SIZE] : page.getData();
+                synchronized (dbFile) {
+                    // 3. Seek (jump) to that offset in the file.
+                    this.dbFile.seek(offset);
+
+                    // 4. Read the data from the file into the Page object's byte array.
+                    this.dbFile.readFully(bytes);
+                }
+                if (page.isOffHeap()) {
+                    page.getBuffer().put(0, bytes);
+                }
+            }
+            case FILE_CHANNEL -> {
+                // 3. Read at the offset without touching the channel's position.
+                //    A positional read may return fewer bytes than asked for, so loop.
+                //    For an off-heap page the channel reads straight into the frame.
+                ByteBuffer buffer = page.getBuffer().duplicate();
+                while (buffer.hasRemaining()) {
+                    int read = channel.read(buffer, offset + buffer.position());
+                    if (read < 0) {
+                        throw new EOFException("Unexpected end of file while reading page " + pageId);
+                    }
+                }
+            }
+            case MEMORY_MAPPED -> {
+                // 3. Copy straight out of the mapping. No system call is involved.
+                page.getBuffer().put(0, chunks[pageId / CHUNK_PAGES], offsetInChunk(pageId), Page.PAGE_SIZE);
+            }
+        }
+    }
 
-        // 3. Seek (jump) to that offset in the file.
-        this.dbFile.seek(offset);
+    /**
+     * Reads a run of consecutive pages with a single multi-page read.
+     * pages[i] receives page startPageId + i.
+     *
+     * @param startPageId The ID of the first page to read.
+     * @param pages The Page objects to read the data into, one per page of the run.
+     * @throws IOException if a page of the run does not exist or an I/O error occurs.
+     */
+    public void readPages(int startPageId, Page[] pages) throws IOException {
+        // 1. Check that the whole run exists.
+        if (startPageId < 0 || startPageId + pages.length > nextPageId) {
+            throw new IllegalArgumentException("Cannot read pages " + startPageId + " to "
+                    + (startPageId + pages.length - 1) + ": they do not all exist.");
+        }
+        long offset = (long) startPageId * Page.PAGE_SIZE;
+        readCalls.increment();
 
-        // 4. Read the data from the file into the Page object's byte array.
-        this.dbFile.readFully(page.getData());
+        switch (ioMode) {
+            case RANDOM_ACCESS_FILE -> {
+                // 2. Read the whole run into one array after a single seek, then hand out the pages.
+                byte[] bytes = new byte[pages.length * Page.PAGE_SIZE];
+                synchronized (dbFile) {
+                    this.dbFile.seek(offset);
+                    this.dbFile.readFully(bytes);
+                }
+                for (int i = 0; i < pages.length; i++) {
+                    pages[i].getBuffer().put(0, bytes, i * Page.PAGE_SIZE, Page.PAGE_SIZE);
+                }
+            }
+            case FILE_CHANNEL -> {
+                // 2. A scattering read fills every frame straight from the file in one call.
+                //    FileChannel has no positional scattering read, so the channel position is
+                //    set first. The dbFile lock keeps other position-based reads out meanwhile;
+                //    the positional single-page reads and writes are not affected by it.
+                ByteBuffer[] buffers = new ByteBuffer[pages.length];
+                for (int i = 0; i < pages.length; i++) {
+                    buffers[i] = pages[i].getBuffer().duplicate();
+                }
+                ByteBuffer last = buffers[buffers.length - 1];
+                synchronized (dbFile) {
+                    channel.position(offset);
+                    while (last.hasRemaining()) {
+                        if (channel.read(buffers) < 0) {
+                            throw new EOFException("Unexpected end of file while reading page run at " + startPageId);
+                        }
+                    }
+                }
+            }
+            case MEMORY_MAPPED -> {
+                // 2. Copy each page out of the mapping. A run may cross a chunk boundary.
+                for (int i = 0; i < pages.length; i++) {
+                    int pageId = startPageId + i;
+                    pages[i].getBuffer().put(0, chunks[pageId / CHUNK_PAGES], offsetInChunk(pageId), Page.PAGE_SIZE);
+                }
+            }
+        }
     }
 
     /**
@@ -66,14 +251,117 @@ public class DiskManager implements AutoCloseable{
             throw new IllegalArgumentException("Cannot write to page " + pageId + ": it has not been allocated yet.");
         }
 
+        checkNotFailed();
+
         // 2. Calculate the offset. (Same as before)
-        long offset = pageId * Page.PAGE_SIZE;
+        long offset = (long) pageId * Page.PAGE_SIZE;
+        writeCalls.increment();
+
+        switch (ioMode) {
+            case RANDOM_ACCESS_FILE -> {
+                byte[] bytes = page.isOffHeap() ? new byte[Page.PAGE_SIZE] : page.getData();
+                if (page.isOffHeap()) {
+                    page.getBuffer().get(0, bytes);
+                }
+                synchronized (dbFile) {
+                    // 3. Seek to the correct position. (Same as before)
+                    this.dbFile.seek(offset);
+
+                    // 4. Write the page's data to the file.
+                    this.dbFile.write(bytes);
+                }
+            }
+            case FILE_CHANNEL -> {
+                // 3. Write at the offset, looping until the whole page is written.
+                ByteBuffer buffer = page.getBuffer().duplicate();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer, offset + buffer.position());
+                }
+            }
+            case MEMORY_MAPPED -> {
+                // 3. Copy into the mapping. The OS writes it back later, or when forced.
+                MappedByteBuffer chunk = chunks[pageId / CHUNK_PAGES];
+                chunk.put(offsetInChunk(pageId), page.getBuffer(), 0, Page.PAGE_SIZE);
+                // "rwd" does not apply to a mapping, so force just this page ourselves.
+                if (durabilityMode == DurabilityMode.SYNC_PER_WRITE) {
+                    force(chunk, offsetInChunk(pageId), Page.PAGE_SIZE);
+                }
+            }
+        }
+
+        // 5. In GROUP_SYNC mode, wait for a sync shared with other writers.
+        if (durabilityMode == DurabilityMode.GROUP_SYNC) {
+            groupSync.awaitDurable();
+        }
+    }
 
-        // 3. Seek to the correct position. (Same as before)
-        this.dbFile.seek(offset);
+    /**
+     * Writes a run of consecutive pages with a single multi-page write.
+     * pages[i] is written to page startPageId + i.
+     *
+     * @param startPageId The ID of the first page to write.
+     * @param pages The Page objects holding the data, one per page of the run.
+     * @throws IOException if a page of the run has not been allocated or an I/O error occurs.
+     */
+    public void writePages(int startPageId, Page[] pages) throws IOException {
+        // 1. Check that the whole run has been allocated.
+        if (startPageId < 0 || startPageId + pages.length > nextPageId) {
+            throw new IllegalArgumentException("Cannot write pages " + startPageId + " to "
+                    + (startPageId + pages.length - 1) + ": they have not all been allocated yet.");
+        }
+        checkNotFailed();
+        long offset = (long) startPageId * Page.PAGE_SIZE;
+        writeCalls.increment();
+
+        switch (ioMode) {
+            case RANDOM_ACCESS_FILE -> {
+                // 2. Gather the run into one array and write it after a single seek.
+                byte[] bytes = new byte[pages.length * Page.PAGE_SIZE];
+                for (int i = 0; i < pages.length; i++) {
+                    pages[i].getBuffer().get(0, bytes, i * Page.PAGE_SIZE, Page.PAGE_SIZE);
+                }
+                synchronized (dbFile) {
+                    this.dbFile.seek(offset);
+                    this.dbFile.write(bytes);
+                }
+            }
+            case FILE_CHANNEL -> {
+                // 2. A gathering write sends every frame to the file in one call. As in
+                //    readPages(), the channel position is shared, so it is set under the lock.
+                ByteBuffer[] buffers = new ByteBuffer[pages.length];
+                for (int i = 0; i < pages.length; i++) {
+                    buffers[i] = pages[i].getBuffer().duplicate();
+                }
+                ByteBuffer last = buffers[buffers.length - 1];
+                synchronized (dbFile) {
+                    channel.position(offset);
+                    while (last.hasRemaining()) {
+                        channel.write(buffers);
+                    }
+                }
+            }
+            case MEMORY_MAPPED -> {
+                // 2. Copy each page into the mapping, then force the pages of each chunk together.
+                for (int i = 0; i < pages.length; i++) {
+                    int pageId = startPageId + i;
+                    chunks[pageId / CHUNK_PAGES].put(offsetInChunk(pageId), pages[i].getBuffer(), 0, Page.PAGE_SIZE);
+                }
+                if (durabilityMode == DurabilityMode.SYNC_PER_WRITE) {
+                    int pageId = startPageId;
+                    int endPageId = startPageId + pages.length;
+                    while (pageId < endPageId) {
+                        int chunkEnd = Math.min(endPageId, (pageId / CHUNK_PAGES + 1) * CHUNK_PAGES);
+                        force(chunks[pageId / CHUNK_PAGES], offsetInChunk(pageId), (chunkEnd - pageId) * Page.PAGE_SIZE);
+                        pageId = chunkEnd;
+                    }
+                }
+            }
+        }
 
-        // 4. Write the page's data to the file.
-        this.dbFile.write(page.getData());
+        // 3. In GROUP_SYNC mode, wait for a sync shared with other writers. The run needs only one.
+        if (durabilityMode == DurabilityMode.GROUP_SYNC) {
+            groupSync.awaitDurable();
+        }
     }
 
     /**
@@ -83,27 +371,181 @@ public class DiskManager implements AutoCloseable{
      * @return The ID of the newly allocated page.
      * @throws IOException if an I/O error occurs.
      */
-    public int allocatePage() throws IOException {
+    public synchronized int allocatePage() throws IOException {
         // 1. The ID for our new page is simply the current value of nextPageId.
         int newPageId = this.nextPageId;
 
-        // 2. Increment the counter for the *next* time this method is called.
-        this.nextPageId++;
+        // 2. Calculate the new length of the file after adding one page.
+        long newFileLength = (long) (newPageId + 1) * Page.PAGE_SIZE;
 
-        // 3. Calculate the new length of the file after adding one page.
-        long newFileLength = this.nextPageId * Page.PAGE_SIZE;
+        // 3. Set the length of the file to this new size. A mapped file instead grows
+        //    a whole chunk at a time, when the new page is the first of a chunk.
+        if (ioMode == IoMode.MEMORY_MAPPED) {
+            if (newPageId / CHUNK_PAGES >= chunks.length) {
+                mapNextChunk();
+            }
+        } else {
+            this.dbFile.setLength(newFileLength);
+        }
 
-        // 4. Set the length of the file to this new size.
-        this.dbFile.setLength(newFileLength);
+        // 4. Increment the counter for the *next* time this method is called. This happens
+        //    after the file has grown, so a concurrent reader never sees a page past the end.
+        this.nextPageId = newPageId + 1;
 
         // 5. Return the ID of the page just created.
         return newPageId;
     }
 
+    /**
+     * Allocates a run of consecutive pages, growing the file once for the whole run.
+     * A caller that fills the run in order can then write it with writePages().
+     *
+     * @param count The number of pages to allocate, at least 1.
+     * @return The ID of the first page of the run.
+     * @throws IOException if an I/O error occurs.
+     */
+    public synchronized int allocatePages(int count) throws IOException {
+        if (count < 1) {
+            throw new IllegalArgumentException("Cannot allocate " + count + " pages.");
+        }
+        int firstPageId = this.nextPageId;
+        int endPageId = firstPageId + count;
+        if (ioMode == IoMode.MEMORY_MAPPED) {
+            while ((endPageId - 1) / CHUNK_PAGES >= chunks.length) {
+                mapNextChunk();
+            }
+        } else {
+            this.dbFile.setLength((long) endPageId * Page.PAGE_SIZE);
+        }
+        // As in allocatePage(), publish the new pages only once the file covers them.
+        this.nextPageId = endPageId;
+        return firstPageId;
+    }
+
+    /**
+     * Gives back a run of pages from allocatePages() that was never used, by shrinking the
+     * file. This only works while the run is still the end of the file: if other pages
+     * were allocated after it, nothing changes and the run stays allocated.
+     * Nobody may read the run's pages, or hold them in a buffer pool, anymore.
+     *
+     * @param firstPageId The first page of the run.
+     * @param count The number of pages in the run.
+     * @return true if the pages were given back.
+     * @throws IOException if an I/O error occurs.
+     */
+    public synchronized boolean freeTrailingPages(int firstPageId, int count) throws IOException {
+        if (firstPageId < 0 || count < 1 || (long) firstPageId + count != nextPageId) {
+            return false;
+        }
+        // Unpublish the pages before the file shrinks, the reverse of allocatePages().
+        // A mapped file keeps its chunks; close() cuts it back to the allocated pages.
+        this.nextPageId = firstPageId;
+        if (ioMode != IoMode.MEMORY_MAPPED) {
+            this.dbFile.setLength((long) firstPageId * Page.PAGE_SIZE);
+        }
+        return true;
+    }
+
+    /**
+     * @return The number of pages allocated in the database file.
+     */
+    public int getNumPages() {
+        return nextPageId;
+    }
+
+    /**
+     * @return The number of read calls so far. readPages() counts as one call.
+     */
+    public long getReadCalls() {
+        return readCalls.sum();
+    }
+
+    /**
+     * @return The number of write calls so far. writePages() counts as one call.
+     */
+    public long getWriteCalls() {
+        return writeCalls.sum();
+    }
+
+    /**
+     * Forces every page written so far to the storage device.
+     * In OS_BUFFERED mode this is the only way to make writes durable.
+     *
+     * @throws IOException if an I/O error occurs, or if an earlier sync failed.
+     */
+    public void sync() throws IOException {
+        checkNotFailed();
+        try {
+            if (ioMode == IoMode.MEMORY_MAPPED) {
+                for (MappedByteBuffer chunk : chunks) {
+                    chunk.force();
+                }
+            } else {
+                channel.force(false);
+            }
+        } catch (IOException | RuntimeException e) {
+            syncFailure = e;
+            throw e;
+        }
+    }
+
+    /**
+     * @return true if a sync or a forced write has failed, so writes are refused.
+     */
+    public boolean isFailed() {
+        return syncFailure != null;
+    }
+
     @Override
-    public void close() throws IOException {
-        // This method is required by the AutoCloseable interface.
-        // It ensures the file is properly closed when we're done.
-        this.dbFile.close();
+    public synchronized void close() throws IOException {
+        // A mapped file was grown to a chunk boundary; flush it and cut it back to the allocated pages.
+        // The file is closed even if that fails, e.g. because an earlier sync failed.
+        try {
+            if (ioMode == IoMode.MEMORY_MAPPED) {
+                sync();
+                channel.truncate((long) nextPageId * Page.PAGE_SIZE);
+            }
+        } finally {
+            // This method is required by the AutoCloseable interface.
+            // It ensures the file is properly closed when we're done.
+            this.dbFile.close();
+        }
+    }
+
+    /**
+     * Maps the chunk that follows the last mapped one, growing the file to cover it.
+     */
+    private void mapNextChunk() throws IOException {
+        MappedByteBuffer[] current = chunks;
+        MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_WRITE, current.length * CHUNK_SIZE, CHUNK_SIZE);
+        MappedByteBuffer[] grown = Arrays.copyOf(current, current.length + 1);
+        grown[current.length] = chunk;
+        chunks = grown;
+    }
+
+    /**
+     * Forces part of a mapped chunk, remembering a failure as sync() does.
+     */
+    private void force(MappedByteBuffer chunk, int offset, int length) {
+        try {
+            chunk.force(offset, length);
+        } catch (RuntimeException e) {
+            syncFailure = e;
+            throw e;
+        }
+    }
+
+    /**
+     * @throws IOException if an earlier sync failed.
+     */
+    private void checkNotFailed() throws IOException {
+        Throwable failure = syncFailure;
+        if (failure != null) {
+            throw new IOException("A sync of the database file failed earlier; writes are refused.", failure);
+        }
+    }
+
+    private static int offsetInChunk(int pageId) {
+        return (pageId % CHUNK_PAGES) * Page.PAGE_SIZE;
     }
 }
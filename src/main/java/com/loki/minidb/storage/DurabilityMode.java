@@ -0,0 +1,25 @@
+package com.loki.minidb.storage;
+
+/**
+ * When a page written by the DiskManager is guaranteed to be on the storage device.
+ */
+public enum DurabilityMode {
+    /**
+     * Every writePage() returns only after the page is on the device. Simple and safe,
+     * but each write pays the full device-flush latency.
+     */
+    SYNC_PER_WRITE,
+
+    /**
+     * writePage() returns only after the page is on the device, but concurrent writers
+     * share one fsync. The first waiting writer collects others until a batch is full
+     * or a short delay has passed, then syncs the file once for all of them.
+     */
+    GROUP_SYNC,
+
+    /**
+     * writePage() returns once the OS has the page. Nothing is forced to the device until
+     * DiskManager.sync() is called, so a crash may lose writes since the last sync.
+     */
+    OS_BUFFERED
+}
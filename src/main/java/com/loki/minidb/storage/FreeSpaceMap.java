@@ -0,0 +1,373 @@
+package com.loki.minidb.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * FreeSpaceMap lists the data pages of a TableHeap and how much room each one has left.
+ *
+ * The map is stored in a chain of directory pages. Every data page has one entry:
+ * its page ID and a 4-bit free space category. Category c means the page has at
+ * least c * CATEGORY_UNIT free bytes, so a page found through the map has room for the
+ * tuple it was picked for, unless the page changed since the map last heard of it.
+ *
+ * Directory Page Layout:
+ * ---------------------------------------------------------------------------------------------
+ * | nextDirectoryPageId (4 bytes) | entryCount (4 bytes) | pageIds (4 bytes each) | categories |
+ * ---------------------------------------------------------------------------------------------
+ * The categories are packed two per byte; entry i uses the low nibble of byte i / 2 if i is even.
+ *
+ * Data pages are added in the order they are allocated, so the page IDs in the map
+ * are increasing. That lets updateFreeSpace() find a page's entry by binary search.
+ *
+ * Finding a page does not probe data pages:
+ * - The last page that had room is kept as a hint, together with its page ID and its
+ *   category, so checking it needs no page access.
+ * - Otherwise only directory pages whose maximum category is high enough are scanned.
+ *   The in-memory maximum is an upper bound; a scan that finds nothing tightens it.
+ *
+ * All methods are synchronized.
+ */
+class FreeSpaceMap {
+
+    static final int CATEGORY_COUNT = 16;
+    static final int MAX_CATEGORY = CATEGORY_COUNT - 1;
+    static final int CATEGORY_UNIT = Page.PAGE_SIZE / CATEGORY_COUNT;
+    // (4096 - 8) bytes hold 908 entries of 4.5 bytes each.
+    static final int ENTRIES_PER_PAGE = 908;
+
+    // --- Directory Page Constants ---
+    private static final int NEXT_DIRECTORY_OFFSET = 0;
+    private static final int ENTRY_COUNT_OFFSET = 4;
+    private static final int PAGE_IDS_OFFSET = 8;
+    private static final int CATEGORIES_OFFSET = PAGE_IDS_OFFSET + ENTRIES_PER_PAGE * 4;
+
+    private final BufferPoolManager bufferPoolManager;
+
+    // In-memory summary of the directory chain, indexed by directory number.
+    private int directoryCount;
+    private int[] directoryPageIds = new int[4];
+    private int[] firstDataPageIds = new int[4];  // Page ID of each directory's first entry.
+    private int[] entryCounts = new int[4];
+    private byte[] maxCategories = new byte[4];   // An upper bound of each directory's categories.
+    private int dataPageCount;
+    private int lastDataPageId = Page.INVALID_PAGE_ID;
+
+    // The entry that last had room, its data page and its current category.
+    private int hintDirectory = -1;
+    private int hintEntry;
+    private int hintPageId = Page.INVALID_PAGE_ID;
+    private int hintCategory;
+
+    /**
+     * Creates an empty map with a single directory page.
+     * @param bufferPoolManager The buffer pool holding the map's pages.
+     * @return The new map. Its first directory page identifies it.
+     */
+    static FreeSpaceMap create(BufferPoolManager bufferPoolManager) throws IOException {
+        Page page = bufferPoolManager.newPage();
+        if (page == null) {
+            throw new IllegalStateException("The buffer pool has no free frame for a new directory page.");
+        }
+        int pageId = page.getPageId();
+        initDirectory(page);
+        bufferPoolManager.unpinPage(pageId, true);
+        return new FreeSpaceMap(bufferPoolManager, pageId);
+    }
+
+    /**
+     * Opens an existing map by reading its directory chain.
+     * @param bufferPoolManager The buffer pool holding the map's pages.
+     * @param firstDirectoryPageId The first page of the directory chain.
+     */
+    FreeSpaceMap(BufferPoolManager bufferPoolManager, int firstDirectoryPageId) throws IOException {
+        this.bufferPoolManager = bufferPoolManager;
+        int directoryPageId = firstDirectoryPageId;
+        while (directoryPageId != Page.INVALID_PAGE_ID) {
+            Page page = fetch(directoryPageId);
+            int next;
+            try {
+                ByteBuffer buffer = page.getBuffer();
+                int count = buffer.getInt(ENTRY_COUNT_OFFSET);
+                int maxCategory = 0;
+                for (int entry = 0; entry < count; entry++) {
+                    maxCategory = Math.max(maxCategory, readCategory(buffer, entry));
+                }
+                appendDirectory(directoryPageId, count > 0 ? buffer.getInt(PAGE_IDS_OFFSET) : Page.INVALID_PAGE_ID);
+                entryCounts[directoryCount - 1] = count;
+                maxCategories[directoryCount - 1] = (byte) maxCategory;
+                dataPageCount += count;
+                if (count > 0) {
+                    lastDataPageId = buffer.getInt(PAGE_IDS_OFFSET + (count - 1) * 4);
+                }
+                next = buffer.getInt(NEXT_DIRECTORY_OFFSET);
+            } finally {
+                bufferPoolManager.unpinPage(directoryPageId);
+            }
+            directoryPageId = next;
+        }
+    }
+
+    /**
+     * @return The first directory page, which identifies the map.
+     */
+    synchronized int getFirstDirectoryPageId() {
+        return directoryPageIds[0];
+    }
+
+    /**
+     * @return The number of data pages in the map.
+     */
+    synchronized int getPageCount() {
+        return dataPageCount;
+    }
+
+    /**
+     * @return The IDs of all data pages, in the order they were added.
+     */
+    synchronized int[] getPageIds() throws IOException {
+        int[] pageIds = new int[dataPageCount];
+        int position = 0;
+        for (int directory = 0; directory < directoryCount; directory++) {
+            Page page = fetch(directoryPageIds[directory]);
+            try {
+                for (int entry = 0; entry < entryCounts[directory]; entry++) {
+                    pageIds[position++] = page.getBuffer().getInt(PAGE_IDS_OFFSET + entry * 4);
+                }
+            } finally {
+                bufferPoolManager.unpinPage(directoryPageIds[directory]);
+            }
+        }
+        return pageIds;
+    }
+
+    /**
+     * Finds a data page with at least the given number of free bytes.
+     * @param bytesNeeded The free space required.
+     * @return A data page ID, or INVALID_PAGE_ID if no page in the map has enough room.
+     */
+    synchronized int findPage(int bytesNeeded) throws IOException {
+        // 1. Requests beyond the highest category can only be met by a new page.
+        int needed = (bytesNeeded + CATEGORY_UNIT - 1) / CATEGORY_UNIT;
+        if (needed > MAX_CATEGORY) {
+            return Page.INVALID_PAGE_ID;
+        }
+
+        // 2. The hint usually has room. Its page ID is kept in memory, so no page is fetched.
+        if (hintDirectory >= 0 && hintCategory >= needed) {
+            return hintPageId;
+        }
+
+        // 3. Scan the directories that may have a page with enough room.
+        for (int directory = 0; directory < directoryCount; directory++) {
+            if (maxCategories[directory] < needed) {
+                continue;
+            }
+            Page page = fetch(directoryPageIds[directory]);
+            try {
+                ByteBuffer buffer = page.getBuffer();
+                int maxCategory = 0;
+                for (int entry = 0; entry < entryCounts[directory]; entry++) {
+                    int category = readCategory(buffer, entry);
+                    if (category >= needed) {
+                        int dataPageId = buffer.getInt(PAGE_IDS_OFFSET + entry * 4);
+                        setHint(directory, entry, dataPageId, category);
+                        return dataPageId;
+                    }
+                    maxCategory = Math.max(maxCategory, category);
+                }
+                // Nothing here after all. Remember the real maximum so the next search skips it.
+                maxCategories[directory] = (byte) maxCategory;
+            } finally {
+                bufferPoolManager.unpinPage(directoryPageIds[directory]);
+            }
+        }
+        return Page.INVALID_PAGE_ID;
+    }
+
+    /**
+     * Adds a new data page to the end of the map. Pages must be added in increasing page ID order.
+     * @param dataPageId The new data page.
+     * @param freeBytes The free space of the new page.
+     */
+    synchronized void addPage(int dataPageId, int freeBytes) throws IOException {
+        if (lastDataPageId != Page.INVALID_PAGE_ID && dataPageId <= lastDataPageId) {
+            throw new IllegalArgumentException("Data pages must be added in increasing page ID order.");
+        }
+
+        // 1. Chain a new directory page when the last one is full.
+        int directory = directoryCount - 1;
+        if (entryCounts[directory] == ENTRIES_PER_PAGE) {
+            Page newDirectory = bufferPoolManager.newPage();
+            if (newDirectory == null) {
+                throw new IllegalStateException("The buffer pool has no free frame for a new directory page.");
+            }
+            int newDirectoryPageId = newDirectory.getPageId();
+            initDirectory(newDirectory);
+            bufferPoolManager.unpinPage(newDirectoryPageId, true);
+
+            Page last = fetch(directoryPageIds[directory]);
+            last.wLatch();
+            try {
+                last.getBuffer().putInt(NEXT_DIRECTORY_OFFSET, newDirectoryPageId);
+            } finally {
+                last.wUnlatch();
+                bufferPoolManager.unpinPage(directoryPageIds[directory], true);
+            }
+            appendDirectory(newDirectoryPageId, Page.INVALID_PAGE_ID);
+            directory++;
+        }
+
+        // 2. Write the entry and the new entry count.
+        int entry = entryCounts[directory];
+        int category = categoryOf(freeBytes);
+        Page page = fetch(directoryPageIds[directory]);
+        page.wLatch();
+        try {
+            ByteBuffer buffer = page.getBuffer();
+            buffer.putInt(PAGE_IDS_OFFSET + entry * 4, dataPageId);
+            writeCategory(buffer, entry, category);
+            buffer.putInt(ENTRY_COUNT_OFFSET, entry + 1);
+        } finally {
+            page.wUnlatch();
+            bufferPoolManager.unpinPage(directoryPageIds[directory], true);
+        }
+
+        // 3. Update the in-memory summary. The new page is where the next insert should go.
+        if (entry == 0) {
+            firstDataPageIds[directory] = dataPageId;
+        }
+        entryCounts[directory] = entry + 1;
+        maxCategories[directory] = (byte) Math.max(maxCategories[directory], category);
+        dataPageCount++;
+        lastDataPageId = dataPageId;
+        setHint(directory, entry, dataPageId, category);
+    }
+
+    /**
+     * Records the current free space of a data page.
+     * @param dataPageId A data page in the map.
+     * @param freeBytes Its free space.
+     */
+    synchronized void updateFreeSpace(int dataPageId, int freeBytes) throws IOException {
+        int category = categoryOf(freeBytes);
+
+        // 1. Find the directory: the last one whose first page ID is not larger than ours.
+        int low = 0;
+        int high = directoryCount - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (firstDataPageIds[middle] <= dataPageId) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        int directory = low;
+
+        // 2. Find the entry in that directory, then store the category.
+        Page page = fetch(directoryPageIds[directory]);
+        page.wLatch();
+        int entry;
+        try {
+            ByteBuffer buffer = page.getBuffer();
+            entry = findEntry(buffer, entryCounts[directory], dataPageId);
+            if (entry < 0) {
+                throw new IllegalArgumentException("Page " + dataPageId + " is not in the free space map.");
+            }
+            writeCategory(buffer, entry, category);
+        } finally {
+            page.wUnlatch();
+            bufferPoolManager.unpinPage(directoryPageIds[directory], true);
+        }
+
+        // 3. Keep the summary in step. A page that gained more room than the hint becomes the hint.
+        maxCategories[directory] = (byte) Math.max(maxCategories[directory], category);
+        if (directory == hintDirectory && entry == hintEntry) {
+            hintCategory = category;
+        } else if (category > hintCategory) {
+            setHint(directory, entry, dataPageId, category);
+        }
+    }
+
+    /**
+     * @return The category of a page with this much free space, rounded down.
+     */
+    static int categoryOf(int freeBytes) {
+        return Math.min(MAX_CATEGORY, Math.max(0, freeBytes) / CATEGORY_UNIT);
+    }
+
+    private void setHint(int directory, int entry, int dataPageId, int category) {
+        hintDirectory = directory;
+        hintEntry = entry;
+        hintPageId = dataPageId;
+        hintCategory = category;
+    }
+
+    /**
+     * Adds a directory to the in-memory summary, growing its arrays when needed.
+     */
+    private void appendDirectory(int directoryPageId, int firstDataPageId) {
+        if (directoryCount == directoryPageIds.length) {
+            int newLength = directoryCount * 2;
+            directoryPageIds = Arrays.copyOf(directoryPageIds, newLength);
+            firstDataPageIds = Arrays.copyOf(firstDataPageIds, newLength);
+            entryCounts = Arrays.copyOf(entryCounts, newLength);
+            maxCategories = Arrays.copyOf(maxCategories, newLength);
+        }
+        directoryPageIds[directoryCount] = directoryPageId;
+        firstDataPageIds[directoryCount] = firstDataPageId;
+        directoryCount++;
+    }
+
+    private Page fetch(int pageId) throws IOException {
+        Page page = bufferPoolManager.fetchPage(pageId);
+        if (page == null) {
+            throw new IllegalStateException("The buffer pool has no free frame for page " + pageId + ".");
+        }
+        return page;
+    }
+
+    private static void initDirectory(Page page) {
+        page.getBuffer().putInt(NEXT_DIRECTORY_OFFSET, Page.INVALID_PAGE_ID);
+        page.getBuffer().putInt(ENTRY_COUNT_OFFSET, 0);
+    }
+
+    /**
+     * Binary search over the increasing page IDs of a directory page.
+     * @return The entry holding dataPageId, or -1.
+     */
+    private static int findEntry(ByteBuffer buffer, int count, int dataPageId) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int pageId = buffer.getInt(PAGE_IDS_OFFSET + middle * 4);
+            if (pageId < dataPageId) {
+                low = middle + 1;
+            } else if (pageId > dataPageId) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private static int readCategory(ByteBuffer buffer, int entry) {
+        int packed = buffer.get(CATEGORIES_OFFSET + entry / 2);
+        return (entry % 2 == 0 ? packed : packed >>> 4) & 0x0F;
+    }
+
+    private static void writeCategory(ByteBuffer buffer, int entry, int category) {
+        int offset = CATEGORIES_OFFSET + entry / 2;
+        int packed = buffer.get(offset);
+        if (entry % 2 == 0) {
+            packed = (packed & 0xF0) | category;
+        } else {
+            packed = (packed & 0x0F) | (category << 4);
+        }
+        buffer.put(offset, (byte) packed);
+    }
+}
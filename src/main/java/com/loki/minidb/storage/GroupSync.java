@@ -0,0 +1,133 @@
+package com.loki.minidb.storage;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * GroupSync lets many writers share one fsync.
+ *
+ * A writer finishes its write and then calls awaitDurable(), which hands it a ticket.
+ * If no sync is being prepared, the writer becomes the leader: it waits until either
+ * batchSize tickets are pending or maxDelay has passed, then runs the sync action once.
+ * Every ticket handed out before the sync started is durable when the sync returns,
+ * so all of those writers wake up together. Writers that arrive during a sync wait
+ * for the next round.
+ *
+ * A failed sync fails every ticket it covered, for good. After a failed fsync the kernel
+ * may already have dropped the dirty pages, so a later sync that succeeds would not
+ * prove those writes durable. Only tickets issued after the failure can succeed again.
+ */
+class GroupSync {
+
+    /**
+     * The operation that makes all completed writes durable, e.g. FileChannel.force().
+     */
+    interface SyncAction {
+        void sync() throws IOException;
+    }
+
+    private final SyncAction action;
+    private final long maxDelayNanos;
+    private final int batchSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private long issuedTickets = 0;   // Tickets handed out so far.
+    private long syncedTickets = 0;   // Every ticket up to this one is durable.
+    private boolean leaderActive = false;
+    private long failedThrough = 0;   // Every ticket up to this one was covered by a failed sync.
+    private Throwable syncFailure;    // Why the last failed sync failed.
+
+    /**
+     * @param action The sync to run once per group.
+     * @param maxDelayMicros The longest a leader waits for more writers before syncing.
+     * @param batchSize The number of pending writers that triggers a sync right away.
+     */
+    GroupSync(SyncAction action, long maxDelayMicros, int batchSize) {
+        this.action = action;
+        this.maxDelayNanos = TimeUnit.MICROSECONDS.toNanos(maxDelayMicros);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Blocks until every write the calling thread has completed is durable.
+     * @throws IOException if the sync that covered this write failed. The leader of that
+     *         sync gets its own exception, which may be an unchecked one.
+     */
+    void awaitDurable() throws IOException {
+        lock.lock();
+        try {
+            long ticket = ++issuedTickets;
+            if (pendingTickets() >= batchSize) {
+                // The batch is full; wake the leader so it does not wait out its delay.
+                changed.signalAll();
+            }
+
+            while (true) {
+                // Check for a failure first: a later sync may have succeeded meanwhile, but
+                // it does not cover writes whose dirty pages a failed sync may have lost.
+                if (ticket <= failedThrough) {
+                    throw new IOException("The sync that covered this write failed.", syncFailure);
+                }
+                if (syncedTickets >= ticket) {
+                    return;
+                }
+                if (leaderActive) {
+                    changed.awaitUninterruptibly();
+                    continue;
+                }
+
+                // 1. Become the leader and gather more writers.
+                leaderActive = true;
+                long remaining = maxDelayNanos;
+                while (pendingTickets() < batchSize && remaining > 0) {
+                    try {
+                        remaining = changed.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+
+                // 2. Sync once, without the lock, for every ticket issued so far.
+                //    MappedByteBuffer.force() reports errors as UncheckedIOException, so
+                //    runtime exceptions count as a failed sync too.
+                long target = issuedTickets;
+                boolean synced = false;
+                Throwable failure = null;
+                lock.unlock();
+                try {
+                    action.sync();
+                    synced = true;
+                } catch (IOException | RuntimeException e) {
+                    failure = e;
+                    throw e;
+                } finally {
+                    lock.lock();
+                    // 3. Publish the result and wake the group, whatever the sync threw.
+                    //    The leader rethrows its own exception; the followers it covered
+                    //    find failedThrough when they wake.
+                    leaderActive = false;
+                    if (synced) {
+                        syncedTickets = Math.max(syncedTickets, target);
+                    } else {
+                        failedThrough = Math.max(failedThrough, target);
+                        syncFailure = failure;
+                    }
+                    changed.signalAll();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The tickets not yet covered by a sync, successful or not. The lock must be held.
+     */
+    private long pendingTickets() {
+        return issuedTickets - Math.max(syncedTickets, failedThrough);
+    }
+}
@@ -0,0 +1,25 @@
+package com.loki.minidb.storage;
+
+/**
+ * The ways a DiskManager can move pages between the database file and memory.
+ */
+public enum IoMode {
+    /**
+     * seek() followed by read/write on the RandomAccessFile. Every operation moves the
+     * shared file pointer, so all page I/O is serialized behind one lock.
+     */
+    RANDOM_ACCESS_FILE,
+
+    /**
+     * Positional FileChannel reads and writes (pread/pwrite). Nothing is shared
+     * between operations, so concurrent page I/O reaches the device in parallel.
+     */
+    FILE_CHANNEL,
+
+    /**
+     * The file is mapped into memory in fixed-size chunks with FileChannel.map, and
+     * page reads and writes become memory copies. Best for read-mostly databases that
+     * fit in RAM. When writes are forced to the device follows the DurabilityMode.
+     */
+    MEMORY_MAPPED
+}
@@ -0,0 +1,269 @@
+package com.loki.minidb.storage;
+
+import java.util.Arrays;
+
+/**
+ * LRUKReplacer implements the LRU-K replacement policy, which resists sequential scans.
+ *
+ * For every frame it remembers the times of the last K accesses, where an access is
+ * a pin of an unpinned frame. The victim is the evictable frame whose K-th most recent
+ * access is the oldest (the largest "backward K-distance"). A frame with fewer than K
+ * accesses has an infinite distance, so pages that a scan touched once are evicted
+ * before any page that was referenced K times. Among those, the one first seen
+ * earliest goes first.
+ *
+ * Two accesses within the correlated reference period count as one. This keeps a
+ * burst of accesses from a single operation from making a page look hot.
+ *
+ * Time is a logical clock that advances by one on every access. All state is kept in
+ * frame-indexed arrays. The evictable frames are kept in two heaps over those arrays,
+ * so no method scans the frames:
+ * - the history heap holds the frames with fewer than K accesses, by first access;
+ * - the distance heap holds the others, by K-th most recent access.
+ * A frame's accesses only change while it is pinned, when it is in neither heap, so its
+ * position never goes stale. The methods are synchronized and take O(log capacity).
+ *
+ * victim() keeps the frame's history: the buffer pool may still find the frame pinned
+ * again and give it back. The history is only dropped by evicted().
+ */
+public class LRUKReplacer implements Replacer {
+
+    private static final int NO_ACCESS = -1;
+
+    private final int k;
+    private final long correlatedReferencePeriod;
+
+    // history[frameId * k .. frameId * k + k) is a ring of the frame's last k access times.
+    private final long[] history;
+    private final int[] historyCount;  // How many entries of the ring are used (at most k).
+    private final int[] historyHead;   // Where the next access time will be written.
+    private final long[] lastAccess;   // The most recent access, including correlated ones.
+    private final FrameHeap historyHeap;   // Evictable frames with fewer than k accesses.
+    private final FrameHeap distanceHeap;  // Evictable frames with k accesses.
+    private long currentTimestamp;
+
+    /**
+     * Creates a new LRU-K replacer without a correlated reference period.
+     * @param capacity The number of frames in the buffer pool.
+     * @param k The number of accesses to remember per frame, usually 2.
+     */
+    public LRUKReplacer(int capacity, int k) {
+        this(capacity, k, 0);
+    }
+
+    /**
+     * Creates a new LRU-K replacer.
+     * @param capacity The number of frames in the buffer pool.
+     * @param k The number of accesses to remember per frame, usually 2.
+     * @param correlatedReferencePeriod Accesses to a frame at most this many clock ticks
+     *                                  after its previous access count as the same access.
+     */
+    public LRUKReplacer(int capacity, int k, long correlatedReferencePeriod) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be at least 1.");
+        }
+        this.k = k;
+        this.correlatedReferencePeriod = correlatedReferencePeriod;
+        this.history = new long[capacity * k];
+        this.historyCount = new int[capacity];
+        this.historyHead = new int[capacity];
+        this.lastAccess = new long[capacity];
+        this.historyHeap = new FrameHeap(capacity);
+        this.distanceHeap = new FrameHeap(capacity);
+        Arrays.fill(this.lastAccess, NO_ACCESS);
+    }
+
+    @Override
+    public synchronized int victim() {
+        // An infinite backward K-distance always goes first.
+        FrameHeap heap = historyHeap.size() > 0 ? historyHeap : distanceHeap;
+        if (heap.size() == 0) {
+            return NO_FRAME;
+        }
+        return heap.poll();
+    }
+
+    @Override
+    public synchronized void pin(int frameId) {
+        recordAccess(frameId);
+        historyHeap.remove(frameId);
+        distanceHeap.remove(frameId);
+    }
+
+    @Override
+    public synchronized void unpin(int frameId) {
+        if (!historyHeap.contains(frameId) && !distanceHeap.contains(frameId)) {
+            add(frameId);
+        }
+    }
+
+    @Override
+    public synchronized void evicted(int frameId) {
+        // The frame is about to hold a different page, so its history no longer applies.
+        historyCount[frameId] = 0;
+        historyHead[frameId] = 0;
+        lastAccess[frameId] = NO_ACCESS;
+    }
+
+    @Override
+    public synchronized int[] evictionCandidates(int max) {
+        // Take the next victims out of the heaps, then put them back: their keys did not change.
+        int[] candidates = new int[Math.min(max, size())];
+        for (int i = 0; i < candidates.length; i++) {
+            candidates[i] = victim();
+        }
+        for (int frameId : candidates) {
+            add(frameId);
+        }
+        return candidates;
+    }
+
+    /**
+     * @return The number of frames that can currently be evicted.
+     */
+    public synchronized int size() {
+        return historyHeap.size() + distanceHeap.size();
+    }
+
+    /**
+     * Makes a frame evictable, in the heap its history puts it in.
+     */
+    private void add(int frameId) {
+        FrameHeap heap = historyCount[frameId] < k ? historyHeap : distanceHeap;
+        heap.add(frameId, oldestAccess(frameId));
+    }
+
+    /**
+     * Adds an access to the frame's history, unless it is correlated with the previous one.
+     */
+    private void recordAccess(int frameId) {
+        long now = ++currentTimestamp;
+        if (lastAccess[frameId] != NO_ACCESS && now - lastAccess[frameId] <= correlatedReferencePeriod) {
+            lastAccess[frameId] = now;
+            return;
+        }
+        lastAccess[frameId] = now;
+        history[frameId * k + historyHead[frameId]] = now;
+        historyHead[frameId] = (historyHead[frameId] + 1) % k;
+        if (historyCount[frameId] < k) {
+            historyCount[frameId]++;
+        }
+    }
+
+    /**
+     * @return The oldest access time in the frame's history, or NO_ACCESS if it has none.
+     *         With a full history this is the K-th most recent access.
+     */
+    private long oldestAccess(int frameId) {
+        if (historyCount[frameId] == 0) {
+            return NO_ACCESS;
+        }
+        // A full ring has its oldest entry where the next one will be written; a partial one starts at 0.
+        int position = historyCount[frameId] == k ? historyHead[frameId] : 0;
+        return history[frameId * k + position];
+    }
+
+    /**
+     * A binary min-heap of frame IDs ordered by a key per frame, with ties going to the
+     * lower frame ID. positions[frameId] is the frame's index in the heap, or -1, so any
+     * frame can be removed without a search.
+     */
+    private static final class FrameHeap {
+        private final int[] frames;
+        private final int[] positions;
+        private final long[] keys;
+        private int size;
+
+        FrameHeap(int capacity) {
+            this.frames = new int[capacity];
+            this.positions = new int[capacity];
+            this.keys = new long[capacity];
+            Arrays.fill(positions, -1);
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean contains(int frameId) {
+            return positions[frameId] >= 0;
+        }
+
+        void add(int frameId, long key) {
+            keys[frameId] = key;
+            frames[size] = frameId;
+            positions[frameId] = size;
+            siftUp(size++);
+        }
+
+        /**
+         * Removes and returns the frame with the smallest key. The heap must not be empty.
+         */
+        int poll() {
+            int frameId = frames[0];
+            remove(frameId);
+            return frameId;
+        }
+
+        /**
+         * Removes a frame, if it is in the heap.
+         */
+        void remove(int frameId) {
+            int position = positions[frameId];
+            if (position < 0) {
+                return;
+            }
+            positions[frameId] = -1;
+            int last = frames[--size];
+            if (position == size) {
+                return;
+            }
+            // Move the last frame into the hole, then restore the order in whichever direction it broke.
+            frames[position] = last;
+            positions[last] = position;
+            siftUp(position);
+            siftDown(positions[last]);
+        }
+
+        private boolean less(int a, int b) {
+            return keys[a] != keys[b] ? keys[a] < keys[b] : a < b;
+        }
+
+        private void siftUp(int position) {
+            int frameId = frames[position];
+            while (position > 0) {
+                int parent = (position - 1) / 2;
+                if (!less(frameId, frames[parent])) {
+                    break;
+                }
+                move(frames[parent], position);
+                position = parent;
+            }
+            move(frameId, position);
+        }
+
+        private void siftDown(int position) {
+            int frameId = frames[position];
+            while (true) {
+                int child = position * 2 + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && less(frames[child + 1], frames[child])) {
+                    child++;
+                }
+                if (!less(frames[child], frameId)) {
+                    break;
+                }
+                move(frames[child], position);
+                position = child;
+            }
+            move(frameId, position);
+        }
+
+        private void move(int frameId, int position) {
+            frames[position] = frameId;
+            positions[frameId] = position;
+        }
+    }
+}
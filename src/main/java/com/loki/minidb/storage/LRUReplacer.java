@@ -1,53 +1,63 @@
 package com.loki.minidb.storage;
 
-import java.util.HashMap;
-import java.util.Map;
+import com.loki.minidb.util.IntIntHashMap;
 
 /**
  * LRUReplacer implements the Least Recently Used replacement policy.
- * It tracks pages that are candidates for eviction and provides a victim
+ * It tracks frames that are candidates for eviction and provides a victim
  * when the buffer pool is full.
+ *
+ * The public methods are synchronized so that the replacer can be shared by
+ * the threads of a concurrent BufferPoolManager. Every cache hit on an unpinned page
+ * then takes this one monitor, which is why the buffer pool defaults to ClockReplacer.
+ *
+ * The doubly linked list is stored in int arrays instead of Node objects: a node
+ * is an index into `ids`, `prev` and `next`. All nodes are allocated up front and
+ * recycled through a free list, and `nodeMap` is a primitive map, so pin() and
+ * unpin() never allocate.
  */
-public class LRUReplacer {
-
-    /**
-     * A private inner class representing a node in the doubly linked list.
-     */
-    private static class Node {
-        int pageId;
-        Node prev;
-        Node next;
-
-        Node(int pageId) {
-            this.pageId = pageId;
-        }
-    }
-
-    private final Map<Integer, Node> nodeMap;
-    private final Node head;
-    private final Node tail;
-    private int capacity; // The maximum number of pages the replacer can hold.
-    private int size;     // The current number of pages in the replacer.
+public class LRUReplacer implements Replacer {
+
+    // Node indexes of the two sentinels. Real nodes start at index 2.
+    private static final int HEAD = 0;
+    private static final int TAIL = 1;
+    private static final int NO_NODE = -1;
+
+    private final IntIntHashMap nodeMap;  // Maps a frameId to its node index.
+    private final int[] ids;              // The frameId stored in each node.
+    private final int[] prev;
+    private final int[] next;
+    private final int[] freeNodes;        // A stack of unused node indexes.
+    private int freeCount;
+    private int capacity; // The maximum number of frames the replacer can hold.
+    private int size;     // The current number of frames in the replacer.
 
     /**
      * Creates a new LRUReplacer.
-     * @param capacity The maximum number of pages the replacer can track.
+     * @param capacity The maximum number of frames the replacer can track.
      */
     public LRUReplacer(int capacity) {
         this.capacity = capacity;
         this.size = 0;
-        this.nodeMap = new HashMap<>();
+        this.nodeMap = new IntIntHashMap(capacity);
 
-        // Initialize sentinel head and tail nodes.
+        // Node 0 and node 1 are the sentinel head and tail nodes.
         // This trick avoids null checks when manipulating the list.
-        this.head = new Node(-1); // Sentinel node, pageId is irrelevant
-        this.tail = new Node(-1); // Sentinel node, pageId is irrelevant
-
-        this.head.next = this.tail;
-        this.tail.prev = this.head;
+        this.ids = new int[capacity + 2];
+        this.prev = new int[capacity + 2];
+        this.next = new int[capacity + 2];
+        this.next[HEAD] = TAIL;
+        this.prev[TAIL] = HEAD;
+
+        // Every other node starts out unused.
+        this.freeNodes = new int[capacity];
+        for (int i = 0; i < capacity; i++) {
+            this.freeNodes[i] = capacity + 1 - i;
+        }
+        this.freeCount = capacity;
     }
-    
-    
+
+
     // Two private helper methods:
     // 1. removeNode(): Removes a node from the list.
     // 2. moveToFront(): Moves a node to the front of the list (MRU position).
@@ -56,86 +66,81 @@ public class LRUReplacer {
     /**
      * Removes a given node from the doubly linked list.
      * (This is a private helper method).
-     * @param node The node to remove.
+     * @param node The index of the node to remove.
      */
-    private void removeNode(Node node) {
+    private void removeNode(int node) {
         // Stitch the previous node and next node together, bypassing the current node.
-        node.prev.next = node.next;
-        node.next.prev = node.prev;
+        next[prev[node]] = next[node];
+        prev[next[node]] = prev[node];
     }
 
     /**
      * Moves a given node to the front of the list (the MRU position).
      * The front is defined as the node right after the head sentinel.
      * (This is a private helper method).
-     * @param node The node to move to the front.
+     * @param node The index of the node to move to the front.
      */
-    private void moveToFront(Node node) {
+    private void moveToFront(int node) {
         // 1. Set the node's pointers to insert it between head and head.next
-        node.next = this.head.next;
-        node.prev = this.head;
+        next[node] = next[HEAD];
+        prev[node] = HEAD;
 
         // 2. Update the old first node's prev pointer to point to our new node.
-        this.head.next.prev = node;
+        prev[next[HEAD]] = node;
 
         // 3. Update the head's next pointer to point to our new node.
-        this.head.next = node;
+        next[HEAD] = node;
     }
 
 
     // Three main public methods here:
-    // 1. victim():   Finds and returns the LRU page ID.
-    // 2. pin():      Called when a page is fetched. Marks it as "used".
-    // 3. unpin():    Called when a page's pin count becomes 0. Makes it a victim candidate.
+    // 1. victim():   Finds and returns the LRU frame ID.
+    // 2. pin():      Called when a frame is pinned. Marks it as "used".
+    // 3. unpin():    Called when a frame's pin count becomes 0. Makes it a victim candidate.
 
 
     /**
-     * Evicts the least recently used page from the replacer.
-     * @return The page ID of the evicted page, or null if the replacer is empty.
+     * Evicts the least recently used frame from the replacer.
+     * @return The ID of the evicted frame, or NO_FRAME if the replacer is empty.
      */
-    public Integer victim() {
+    @Override
+    public synchronized int victim() {
         if (size == 0) {
-            return null;
+            return NO_FRAME;
         }
-        // 1. Get the LRU node, which is the one just before the tail sentinel.
-        Node lruNode = tail.prev;
-
-        // 2. Remove it from the list and the map.
-        removeNode(lruNode);
-        nodeMap.remove(lruNode.pageId);
-
-        // 3. Decrement the size and return the page ID.
-        size--;
-        return lruNode.pageId;
+        return evictLru();
     }
 
     /**
-     * This method is called when a page is pinned in the BufferPoolManager.
-     * A pinned page should not be in the replacer. If it is, remove it.
-     * @param pageId The ID of the page to pin.
+     * This method is called when a frame is pinned in the BufferPoolManager.
+     * A pinned frame should not be in the replacer. If it is, remove it.
+     * @param frameId The ID of the frame to pin.
      */
-    public void pin(int pageId) {
-        Node node = nodeMap.get(pageId);
+    @Override
+    public synchronized void pin(int frameId) {
+        int node = nodeMap.get(frameId, NO_NODE);
         // If the node exists in our replacer, it means it was a candidate for
         // eviction. But now it's being used, so we must remove it.
-        if (node != null) {
+        if (node != NO_NODE) {
             removeNode(node);
-            nodeMap.remove(pageId);
+            nodeMap.remove(frameId);
+            freeNodes[freeCount++] = node;
             size--;
         }
     }
 
     /**
-     * This method is called when a page's pin count becomes zero in the
+     * This method is called when a frame's pin count becomes zero in the
      * BufferPoolManager, making it a candidate for eviction.
-     * @param pageId The ID of the page to unpin.
+     * @param frameId The ID of the frame to unpin.
      */
-    public void unpin(int pageId) {
-        // If the page is already in the replacer, it means it's already an
+    @Override
+    public synchronized void unpin(int frameId) {
+        // If the frame is already in the replacer, it means it's already an
         // eviction candidate. We should move it to the MRU position because
         // it was just "touched" by being unpinned.
-        if (nodeMap.containsKey(pageId)) {
-            Node node = nodeMap.get(pageId);
+        int node = nodeMap.get(frameId, NO_NODE);
+        if (node != NO_NODE) {
             removeNode(node);
             moveToFront(node);
             return;
@@ -143,13 +148,50 @@ public class LRUReplacer {
 
         // If the replacer is at full capacity, we need to make space.
         if (size >= capacity) {
-            victim(); // Evict the LRU page to make room.
+            evictLru(); // Evict the LRU frame to make room.
         }
 
-        // Add the new page as a candidate to the MRU position.
-        Node newNode = new Node(pageId);
-        nodeMap.put(pageId, newNode);
+        // Add the new frame as a candidate to the MRU position, reusing a free node.
+        int newNode = freeNodes[--freeCount];
+        ids[newNode] = frameId;
+        nodeMap.put(frameId, newNode);
         moveToFront(newNode);
         size++;
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the next frames that victim() would pick, without removing them.
+     * Used by the background writer to clean pages before they are evicted.
+     * @param max The maximum number of candidates to return.
+     * @return The candidates, least recently used first.
+     */
+    @Override
+    public synchronized int[] evictionCandidates(int max) {
+        int[] candidates = new int[Math.min(max, size)];
+        int node = prev[TAIL];
+        for (int i = 0; i < candidates.length; i++) {
+            candidates[i] = ids[node];
+            node = prev[node];
+        }
+        return candidates;
+    }
+
+    /**
+     * Removes the LRU node, which is the one just before the tail sentinel.
+     * The replacer must not be empty.
+     * @return The frame ID of the removed node.
+     */
+    private int evictLru() {
+        // 1. Get the LRU node.
+        int lruNode = prev[TAIL];
+
+        // 2. Remove it from the list and the map, and recycle it.
+        removeNode(lruNode);
+        nodeMap.remove(ids[lruNode]);
+        freeNodes[freeCount++] = lruNode;
+
+        // 3. Decrement the size and return the frame ID.
+        size--;
+        return ids[lruNode];
+    }
+}
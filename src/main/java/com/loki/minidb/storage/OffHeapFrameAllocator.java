@@ -0,0 +1,48 @@
+package com.loki.minidb.storage;
+
+import java.nio.ByteBuffer;
+
+/**
+ * OffHeapFrameAllocator creates buffer pool frames outside the Java heap.
+ *
+ * Instead of one byte[4096] per frame, it allocates a few large direct-memory
+ * arenas and slices each of them into page-sized frames. The garbage collector
+ * then sees a handful of buffer objects no matter how large the pool is, and the
+ * frames can be handed to FileChannel without an extra copy.
+ *
+ * Direct memory is limited by -XX:MaxDirectMemorySize, which defaults to the
+ * maximum heap size. A large off-heap pool needs that limit raised.
+ */
+public final class OffHeapFrameAllocator {
+
+    // A direct ByteBuffer is indexed by int, so one arena holds at most 1 GB of frames.
+    static final int FRAMES_PER_ARENA = (1 << 30) / Page.PAGE_SIZE;
+
+    private OffHeapFrameAllocator() {
+    }
+
+    /**
+     * Allocates frames in direct memory.
+     *
+     * @param frameCount The number of frames to allocate.
+     * @return The frames, each one a Page over its own PAGE_SIZE slice of an arena.
+     */
+    public static Page[] allocate(int frameCount) {
+        Page[] frames = new Page[frameCount];
+        int allocated = 0;
+        while (allocated < frameCount) {
+            int framesInArena = Math.min(frameCount - allocated, FRAMES_PER_ARENA);
+
+            // 1. Allocate one arena, with one spare page so it can be aligned to PAGE_SIZE.
+            //    Page-aligned frames line up with the OS page cache.
+            ByteBuffer arena = ByteBuffer.allocateDirect((framesInArena + 1) * Page.PAGE_SIZE)
+                    .alignedSlice(Page.PAGE_SIZE);
+
+            // 2. Slice it into frames.
+            for (int i = 0; i < framesInArena; i++) {
+                frames[allocated++] = new Page(arena.slice(i * Page.PAGE_SIZE, Page.PAGE_SIZE));
+            }
+        }
+        return frames;
+    }
+}
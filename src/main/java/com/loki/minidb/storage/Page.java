@@ -1,5 +1,11 @@
 package com.loki.minidb.storage;
 
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
 public class Page {
 
     // This line declares a constant variable. Let's break it down:
@@ -12,20 +18,212 @@ public class Page {
     //            with the operating system's own memory page size, which can be efficient.
     public static final int PAGE_SIZE = 4096;
 
+    // The pageId of a frame that does not currently hold any page.
+    public static final int INVALID_PAGE_ID = -1;
+
+    // On-heap pages keep their bytes in `data`, and `buffer` wraps that array.
+    // Off-heap pages have no array: `buffer` is a slice of a direct memory arena.
     private final byte[] data;
+    private final ByteBuffer buffer;
+
+    // --- Frame metadata, owned by the BufferPoolManager ---
+    // The page currently held in this frame. Volatile so a thread that pins the
+    // frame can re-check which page it actually got.
+    private volatile int pageId = INVALID_PAGE_ID;
+    // Number of users holding this page. -1 means the frame is being evicted.
+    private final AtomicInteger pinCount = new AtomicInteger(0);
+    // Held by the loading thread while the page is read from disk, so that
+    // other threads asking for the same page wait for that single read.
+    private final ReentrantLock ioLock = new ReentrantLock();
+    private volatile boolean ioPending = false;
+    // True if the page was modified since it was last read from or written to disk.
+    private volatile boolean dirty = false;
+
+    // Reader/writer latch protecting the page contents.
+    private final ReentrantReadWriteLock latch = new ReentrantReadWriteLock();
+    // Bumped when the write latch is taken and again when it is released, so it is odd
+    // while a writer holds the page. Optimistic readers validate against it.
+    private volatile long version = 0;
 
     public Page() {
         // `new byte[PAGE_SIZE]`: It allocates a new block of memory
         // on the computer that is exactly 4096 bytes long and makes our `data` variable point to it.
         this.data = new byte[PAGE_SIZE];
+        this.buffer = ByteBuffer.wrap(this.data);
+    }
+
+    /**
+     * Creates a page over an existing block of memory, usually an off-heap frame.
+     * @param frame A buffer of exactly PAGE_SIZE bytes.
+     */
+    Page(ByteBuffer frame) {
+        if (frame.capacity() != PAGE_SIZE) {
+            throw new IllegalArgumentException("A page frame must be exactly " + PAGE_SIZE + " bytes.");
+        }
+        this.data = frame.hasArray() ? frame.array() : null;
+        this.buffer = frame;
     }
 
     /**
     * This is a "getter" method. Since the `data` variable is private, other classes
     * can't access it directly. This public method provides controlled access to it.
     * @return The raw byte array that holds the page's data.
+    * @throws UnsupportedOperationException if the page lives off-heap and has no array.
     */
     public byte[] getData() {
+        if (this.data == null) {
+            throw new UnsupportedOperationException("An off-heap page has no byte array; use getBuffer().");
+        }
         return this.data;
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the page's memory as a ByteBuffer. This works for on-heap and off-heap pages.
+     * The buffer is shared by every user of the page, so only use absolute get/put methods
+     * and never change its position or limit.
+     * @return A buffer of PAGE_SIZE bytes holding the page's data.
+     */
+    public ByteBuffer getBuffer() {
+        return this.buffer;
+    }
+
+    /**
+     * @return true if the page's memory is outside the Java heap.
+     */
+    public boolean isOffHeap() {
+        return this.buffer.isDirect();
+    }
+
+    /**
+     * @return The ID of the page held in this frame, or INVALID_PAGE_ID if the frame is empty.
+     */
+    public int getPageId() {
+        return pageId;
+    }
+
+    void setPageId(int pageId) {
+        this.pageId = pageId;
+    }
+
+    /**
+     * @return The number of users that currently have this page pinned.
+     */
+    public int getPinCount() {
+        return Math.max(pinCount.get(), 0);
+    }
+
+    AtomicInteger pinCounter() {
+        return pinCount;
+    }
+
+    ReentrantLock ioLock() {
+        return ioLock;
+    }
+
+    boolean isIoPending() {
+        return ioPending;
+    }
+
+    void setIoPending(boolean ioPending) {
+        this.ioPending = ioPending;
+    }
+
+    /**
+     * @return true if the page has changes that are not yet on disk.
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    void setDirty(boolean dirty) {
+        this.dirty = dirty;
+    }
+
+    // --- Latch methods ---
+    // A thread that reads the page contents while other threads may modify it
+    // should hold the read latch; a thread that modifies it should hold the write latch.
+
+    /** Acquires the page's shared (read) latch. */
+    public void rLatch() {
+        latch.readLock().lock();
+    }
+
+    /** Releases the page's shared (read) latch. */
+    public void rUnlatch() {
+        latch.readLock().unlock();
+    }
+
+    /**
+     * Acquires the read latch only if no writer holds the page.
+     * @return true if the latch was acquired.
+     */
+    public boolean tryRLatch() {
+        return latch.readLock().tryLock();
+    }
+
+    /** Acquires the page's exclusive (write) latch. */
+    public void wLatch() {
+        latch.writeLock().lock();
+        version++;
+        // The page's bytes must not be changed before readers can see the odd version.
+        VarHandle.storeStoreFence();
+    }
+
+    /** Releases the page's exclusive (write) latch. */
+    public void wUnlatch() {
+        version++;
+        latch.writeLock().unlock();
+    }
+
+    // --- Optimistic reads ---
+    // A reader that must not block writers (or bounce the latch's cache line between
+    // cores) can read the page without a latch and check afterwards that no writer
+    // got in the way:
+    //
+    //     long version = page.readVersion();
+    //     ... read the page ...
+    //     if (!page.validate(version)) { ... throw away what was read and retry ... }
+    //
+    // What is read before validation may be torn, so it must only be used to compute
+    // offsets within the page, never to follow pointers.
+
+    /**
+     * Waits until no writer holds the page and returns its version.
+     * @return The version to pass to validate() or upgrade().
+     */
+    public long readVersion() {
+        long current = version;
+        while ((current & 1) != 0) {
+            // A writer is active. Wait for it on the latch instead of spinning.
+            latch.readLock().lock();
+            latch.readLock().unlock();
+            current = version;
+        }
+        return current;
+    }
+
+    /**
+     * Checks that no writer has held the page since readVersion() returned the given version.
+     * @param version A version returned by readVersion().
+     * @return true if everything read since then is consistent.
+     */
+    public boolean validate(long version) {
+        // The page reads above must complete before the version is read again.
+        VarHandle.acquireFence();
+        return this.version == version;
+    }
+
+    /**
+     * Takes the write latch, but only if the page has not changed since an optimistic read.
+     * @param version A version returned by readVersion().
+     * @return true if the write latch is now held; false (and not held) if the page changed.
+     */
+    public boolean upgrade(long version) {
+        wLatch();
+        if (this.version != version + 1) {
+            wUnlatch();
+            return false;
+        }
+        return true;
+    }
+}
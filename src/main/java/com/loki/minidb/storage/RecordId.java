@@ -0,0 +1,44 @@
+package com.loki.minidb.storage;
+
+/**
+ * RecordId identifies a tuple in a table heap: the page it lives on and its slot on that page.
+ */
+public final class RecordId {
+
+    private final int pageId;
+    private final int slotId;
+
+    public RecordId(int pageId, int slotId) {
+        this.pageId = pageId;
+        this.slotId = slotId;
+    }
+
+    public int getPageId() {
+        return pageId;
+    }
+
+    public int getSlotId() {
+        return slotId;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof RecordId that)) {
+            return false;
+        }
+        return pageId == that.pageId && slotId == that.slotId;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * pageId + slotId;
+    }
+
+    @Override
+    public String toString() {
+        return "RecordId{" + pageId + ", " + slotId + "}";
+    }
+}
@@ -0,0 +1,51 @@
+package com.loki.minidb.storage;
+
+/**
+ * A Replacer decides which buffer pool frame to evict when a new page needs a frame.
+ *
+ * It only tracks frames whose pin count is 0. The BufferPoolManager calls unpin() when
+ * a frame's pin count drops to 0 and pin() when it rises from 0 again. Frame IDs are in
+ * the range [0, capacity). Implementations must be safe to call from several threads.
+ */
+public interface Replacer {
+
+    // Returned by victim() when no frame is evictable.
+    int NO_FRAME = -1;
+
+    /**
+     * Removes and returns the frame that should be evicted next. The frame ID is returned
+     * as a primitive, so a miss in a pool of more than 128 frames does not box an Integer.
+     * @return The frame ID, or NO_FRAME if no frame is evictable.
+     */
+    int victim();
+
+    /**
+     * Called when a frame is pinned. The frame stops being an eviction candidate.
+     * @param frameId The ID of the pinned frame.
+     */
+    void pin(int frameId);
+
+    /**
+     * Called when a frame's pin count drops to 0. The frame becomes an eviction candidate.
+     * @param frameId The ID of the unpinned frame.
+     */
+    void unpin(int frameId);
+
+    /**
+     * Called once a frame that victim() returned has really been evicted. The page it
+     * held is gone, so whatever the replacer remembers of the frame's accesses is stale.
+     * victim() itself must not forget it: the buffer pool may still find the frame pinned
+     * again, and then the frame keeps its page.
+     * @param frameId The ID of the evicted frame.
+     */
+    default void evicted(int frameId) {
+    }
+
+    /**
+     * Returns the frames that victim() is likely to pick next, without removing them.
+     * Used by the background writer to clean pages before they are evicted.
+     * @param max The maximum number of candidates to return.
+     * @return The candidates, the next victim first.
+     */
+    int[] evictionCandidates(int max);
+}
@@ -21,6 +21,12 @@ import com.loki.minidb.catalog.Schema;
  * -------------------------------------------------
  * | tupleOffset (4 bytes) | tupleLength (4 bytes) |
  * -------------------------------------------------
+ *
+ * A deleted tuple leaves an empty slot (tupleLength -1) and dead bytes in the tuple
+ * data. Inserts reuse empty slots, and deleting the last slots shrinks the slot array.
+ * The dead bytes are reclaimed lazily: when a tuple does not fit in the free space
+ * but would fit after reclaiming them, the page is compacted first, which moves the
+ * live tuples together at the end of the page. Slot numbers never change.
  */
 public class SlottedPage {
 
@@ -39,8 +45,9 @@ public class SlottedPage {
 
     public SlottedPage(Page page) {
         this.page = page;
-        // Wrap the entire page's data in a ByteBuffer for easy I/O
-        this.buffer = ByteBuffer.wrap(page.getData());
+        // Work on the page's own buffer, so on-heap and off-heap frames look the same.
+        // Only absolute get/put calls are used, since the buffer is shared.
+        this.buffer = page.getBuffer();
     }
 
     // --- Header Accessor Methods ---
@@ -73,6 +80,36 @@ public class SlottedPage {
     }
     
 
+    /**
+     * @return The number of bytes between the slot array and the tuple data.
+     *         Inserting a tuple uses its length plus one slot.
+     */
+    public int getFreeSpace() {
+        return getFreeSpacePointer() - (HEADER_SIZE + getSlotCount() * SLOT_SIZE);
+    }
+
+    /**
+     * @return The space an insert can use after compaction: the free space plus the dead bytes.
+     */
+    public int getAvailableSpace() {
+        return getFreeSpace() + getDeadBytes();
+    }
+
+    /**
+     * @param tupleLength The length of a tuple in bytes.
+     * @return The free space a page needs to store a tuple of this length, including its new slot.
+     */
+    public static int getSpaceNeeded(int tupleLength) {
+        return tupleLength + SLOT_SIZE;
+    }
+
+    /**
+     * @return The longest tuple that fits on an empty page.
+     */
+    public static int getMaxTupleLength() {
+        return Page.PAGE_SIZE - HEADER_SIZE - SLOT_SIZE;
+    }
+
     /**
      * Tries to insert a tuple into the page.
      * @param tuple The tuple to insert.
@@ -82,34 +119,201 @@ public class SlottedPage {
         byte[] tupleData = tuple.getData();
         int tupleLength = tupleData.length;
 
-        // 1. Check for sufficient space. We need space for the tuple data AND a new slot.
-        int freeSpace = getFreeSpacePointer() - (HEADER_SIZE + getSlotCount() * SLOT_SIZE);
-        if (freeSpace < tupleLength + SLOT_SIZE) {
+        // 1. Reuse an empty slot if there is one. Only a new slot takes extra space.
+        int slotId = findEmptySlot();
+        int spaceNeeded = slotId == -1 ? getSpaceNeeded(tupleLength) : tupleLength;
+
+        // 2. Check for sufficient space, compacting the page if that makes enough room.
+        if (!makeRoom(spaceNeeded)) {
             return null; // Not enough space
         }
 
-        // 2. We have space. Calculate the new tuple's starting offset.
+        // 3. We have space. Calculate the new tuple's starting offset.
         int newTupleOffset = getFreeSpacePointer() - tupleLength;
 
-        // 3. Update the free space pointer in the header.
+        // 4. Update the free space pointer in the header.
         setFreeSpacePointer(newTupleOffset);
 
-        // 4. Get the ID for the new slot and increment the slot count in the header.
-        int slotId = getSlotCount();
-        setSlotCount(slotId + 1);
+        // 5. Take a new slot if no empty one was found, and increment the slot count in the header.
+        if (slotId == -1) {
+            slotId = getSlotCount();
+            setSlotCount(slotId + 1);
+        }
 
-        // 5. Write the tuple data into the page's buffer.
+        // 6. Write the tuple data into the page's buffer.
         buffer.put(newTupleOffset, tupleData);
 
-        // 6. Update the new slot in the slot array with the tuple's offset and length.
+        // 7. Update the slot with the tuple's offset and length.
         int slotOffset = HEADER_SIZE + (slotId * SLOT_SIZE);
         buffer.putInt(slotOffset + TUPLE_OFFSET_OFFSET, newTupleOffset);
         buffer.putInt(slotOffset + TUPLE_LENGTH_OFFSET, tupleLength);
 
-        // 7. Return the new slot ID.
+        // 8. Return the slot ID.
         return slotId;
     }
 
+    /**
+     * Replaces the tuple in a slot, keeping its slot number.
+     * A tuple that is not longer than the old one is rewritten in place. A longer one is
+     * written to the free space, compacting the page first if needed.
+     * @param slotId The slot of the tuple to replace.
+     * @param tuple The new tuple.
+     * @return true if the tuple was updated, false if the slot is empty or the page has no room.
+     */
+    public boolean updateTuple(int slotId, Tuple tuple) {
+        if (slotId >= getSlotCount()) {
+            return false; // Invalid slot
+        }
+        byte[] tupleData = tuple.getData();
+        int tupleLength = tupleData.length;
+        int slotOffset = HEADER_SIZE + (slotId * SLOT_SIZE);
+        int oldOffset = buffer.getInt(slotOffset + TUPLE_OFFSET_OFFSET);
+        int oldLength = buffer.getInt(slotOffset + TUPLE_LENGTH_OFFSET);
+        if (oldLength == -1) {
+            return false; // Slot is empty (deleted tuple)
+        }
+
+        // 1. Same size or smaller: overwrite in place. Any leftover bytes become dead.
+        if (tupleLength <= oldLength) {
+            buffer.put(oldOffset, tupleData);
+            buffer.putInt(slotOffset + TUPLE_LENGTH_OFFSET, tupleLength);
+            return true;
+        }
+
+        // 2. Larger: check first that the page can hold it once the old version is dead,
+        //    so a failed update leaves the page untouched.
+        if (getAvailableSpace() + oldLength < tupleLength) {
+            return false;
+        }
+        buffer.putInt(slotOffset + TUPLE_LENGTH_OFFSET, -1);
+        makeRoom(tupleLength);
+
+        // 3. Write the new version to the free space.
+        int newTupleOffset = getFreeSpacePointer() - tupleLength;
+        setFreeSpacePointer(newTupleOffset);
+        buffer.put(newTupleOffset, tupleData);
+        buffer.putInt(slotOffset + TUPLE_OFFSET_OFFSET, newTupleOffset);
+        buffer.putInt(slotOffset + TUPLE_LENGTH_OFFSET, tupleLength);
+        return true;
+    }
+
+    /**
+     * Moves all live tuples together at the end of the page, turning the dead bytes
+     * left by deletes and shrinking updates back into free space.
+     */
+    public void compact() {
+        // 1. Copy the tuple area aside, so tuples can be moved without overwriting each other.
+        int freeSpacePointer = getFreeSpacePointer();
+        byte[] tupleArea = new byte[Page.PAGE_SIZE - freeSpacePointer];
+        buffer.get(freeSpacePointer, tupleArea);
+
+        // 2. Write the live tuples back, packed from the end of the page.
+        int writePointer = Page.PAGE_SIZE;
+        for (int slotId = 0; slotId < getSlotCount(); slotId++) {
+            int slotOffset = HEADER_SIZE + (slotId * SLOT_SIZE);
+            int tupleLength = buffer.getInt(slotOffset + TUPLE_LENGTH_OFFSET);
+            if (tupleLength == -1) {
+                continue;
+            }
+            int tupleOffset = buffer.getInt(slotOffset + TUPLE_OFFSET_OFFSET);
+            writePointer -= tupleLength;
+            buffer.put(writePointer, tupleArea, tupleOffset - freeSpacePointer, tupleLength);
+            buffer.putInt(slotOffset + TUPLE_OFFSET_OFFSET, writePointer);
+        }
+
+        // 3. Everything between the slot array and the packed tuples is free now.
+        setFreeSpacePointer(writePointer);
+    }
+
+    /**
+     * @param slotId A slot number.
+     * @return true if the slot exists and holds a tuple.
+     */
+    public boolean hasTuple(int slotId) {
+        return slotId < getSlotCount() && getTupleLength(slotId) != -1;
+    }
+
+    // --- Page Statistics ---
+
+    /**
+     * @return The number of slots that hold a tuple.
+     */
+    public int getTupleCount() {
+        int count = 0;
+        for (int slotId = 0; slotId < getSlotCount(); slotId++) {
+            if (getTupleLength(slotId) != -1) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return The total length of the live tuples.
+     */
+    public int getLiveBytes() {
+        int liveBytes = 0;
+        for (int slotId = 0; slotId < getSlotCount(); slotId++) {
+            liveBytes += Math.max(0, getTupleLength(slotId));
+        }
+        return liveBytes;
+    }
+
+    /**
+     * @return The bytes in the tuple area that belong to no live tuple. compact() reclaims them.
+     */
+    public int getDeadBytes() {
+        return (Page.PAGE_SIZE - getFreeSpacePointer()) - getLiveBytes();
+    }
+
+    /**
+     * @return The fraction of the page used by the header, the slots and the live tuples.
+     */
+    public double getFillFactor() {
+        return (double) (HEADER_SIZE + getSlotCount() * SLOT_SIZE + getLiveBytes()) / Page.PAGE_SIZE;
+    }
+
+    /**
+     * @return The fraction of the reclaimable space that is dead bytes rather than contiguous
+     *         free space, from 0 (no dead bytes) to 1 (no free space left except dead bytes).
+     */
+    public double getFragmentation() {
+        int deadBytes = getDeadBytes();
+        int reclaimable = deadBytes + getFreeSpace();
+        return reclaimable == 0 ? 0.0 : (double) deadBytes / reclaimable;
+    }
+
+    /**
+     * Makes sure the free space holds at least the given number of bytes, compacting the
+     * page if that is what it takes.
+     * @return false if even a compacted page would not have enough room.
+     */
+    private boolean makeRoom(int bytes) {
+        if (getFreeSpace() >= bytes) {
+            return true;
+        }
+        if (getAvailableSpace() < bytes) {
+            return false;
+        }
+        compact();
+        return true;
+    }
+
+    /**
+     * @return The first empty slot, or -1 if every slot holds a tuple.
+     */
+    private int findEmptySlot() {
+        for (int slotId = 0; slotId < getSlotCount(); slotId++) {
+            if (getTupleLength(slotId) == -1) {
+                return slotId;
+            }
+        }
+        return -1;
+    }
+
+    private int getTupleLength(int slotId) {
+        return buffer.getInt(HEADER_SIZE + (slotId * SLOT_SIZE) + TUPLE_LENGTH_OFFSET);
+    }
 
     /**
      * Retrieves a tuple from a specific slot.
@@ -137,10 +341,46 @@ public class SlottedPage {
         return new Tuple(tupleData, schema);
     }
 
-    
+
+    /**
+     * Points a TupleView at the tuple in a specific slot, without copying it.
+     * The view reads the page directly, so it is only valid while the page is pinned.
+     * @param slotId The slot number of the tuple.
+     * @param view The view to reposition.
+     * @return true if the slot holds a tuple, false if it is empty or invalid.
+     */
+    public boolean getTupleView(int slotId, TupleView view) {
+        if (slotId >= getSlotCount()) {
+            return false; // Invalid slot
+        }
+
+        int slotOffset = HEADER_SIZE + (slotId * SLOT_SIZE);
+        int tupleLength = buffer.getInt(slotOffset + TUPLE_LENGTH_OFFSET);
+        if (tupleLength == -1) {
+            return false; // Slot is empty (deleted tuple)
+        }
+
+        view.set(buffer, buffer.getInt(slotOffset + TUPLE_OFFSET_OFFSET), tupleLength);
+        return true;
+    }
+
+    /**
+     * Returns where a slot's tuple starts in the page, so a scan can read its columns in
+     * place. The offset is only valid while the page is pinned and read-latched.
+     * @param slotId The slot number of the tuple.
+     * @return The tuple's offset in the page, or -1 if the slot is empty or invalid.
+     */
+    public int getTupleOffset(int slotId) {
+        if (slotId >= getSlotCount() || getTupleLength(slotId) == -1) {
+            return -1;
+        }
+        return buffer.getInt(HEADER_SIZE + (slotId * SLOT_SIZE) + TUPLE_OFFSET_OFFSET);
+    }
+
     /**
      * Deletes a tuple from a specific slot by marking the slot as empty.
-     * Note: This does not reclaim the space used by the tuple data itself.
+     * The tuple's bytes stay where they are until the page is compacted. Empty slots at
+     * the end of the slot array are dropped, which returns their space right away.
      * @param slotId The slot number of the tuple to delete.
      * @return true if deletion was successful, false if slotId was invalid.
      */
@@ -153,7 +393,17 @@ public class SlottedPage {
         
         // Mark the slot as empty by setting its length to -1
         buffer.putInt(slotOffset + TUPLE_LENGTH_OFFSET, -1);
-        
+
+        // Drop the empty slots at the end. An empty page starts over from the end of the page.
+        int slotCount = getSlotCount();
+        while (slotCount > 0 && getTupleLength(slotCount - 1) == -1) {
+            slotCount--;
+        }
+        setSlotCount(slotCount);
+        if (slotCount == 0) {
+            setFreeSpacePointer(Page.PAGE_SIZE);
+        }
+
         return true;
     }
 }
\ No newline at end of file
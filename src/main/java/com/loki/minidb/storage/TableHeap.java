@@ -0,0 +1,246 @@
+package com.loki.minidb.storage;
+
+import com.loki.minidb.catalog.Schema;
+
+import java.io.IOException;
+
+/**
+ * TableHeap stores the tuples of one table in SlottedPages, in no particular order.
+ *
+ * The heap's data pages are listed in a FreeSpaceMap, which also records roughly how
+ * much room each page has left. insertTuple() asks the map for a page with enough
+ * room instead of trying the pages one by one, so inserts cost the same however
+ * large the table grows. A heap is identified by the first page of its map; pass it
+ * to the constructor to open the heap again.
+ *
+ * The heap may be used by several threads. A data page is changed under its write
+ * latch and read under its read latch. The map is told about the change after the
+ * latch is released, so no thread waits for the map's lock while holding a page latch.
+ * Two changes to one page may then reach the map in the opposite order, leaving it a
+ * little off; insertTuple() corrects the map when a page it was sent to is full.
+ *
+ * Concurrent inserts are not spread out: the map sends them all to the page it last
+ * found room on, so they take turns on that page's latch, and many writers insert
+ * into one table little faster than one writer does.
+ */
+public class TableHeap {
+
+    private final BufferPoolManager bufferPoolManager;
+    private final FreeSpaceMap freeSpaceMap;
+
+    /**
+     * Creates a new, empty table heap.
+     * @param bufferPoolManager The buffer pool to store the heap in.
+     * @return The new heap.
+     * @throws IOException if a disk I/O error occurs.
+     */
+    public static TableHeap create(BufferPoolManager bufferPoolManager) throws IOException {
+        return new TableHeap(bufferPoolManager, FreeSpaceMap.create(bufferPoolManager));
+    }
+
+    /**
+     * Opens an existing table heap.
+     * @param bufferPoolManager The buffer pool the heap is stored in.
+     * @param firstPageId The heap's first page, as returned by getFirstPageId().
+     * @throws IOException if a disk I/O error occurs.
+     */
+    public TableHeap(BufferPoolManager bufferPoolManager, int firstPageId) throws IOException {
+        this(bufferPoolManager, new FreeSpaceMap(bufferPoolManager, firstPageId));
+    }
+
+    private TableHeap(BufferPoolManager bufferPoolManager, FreeSpaceMap freeSpaceMap) {
+        this.bufferPoolManager = bufferPoolManager;
+        this.freeSpaceMap = freeSpaceMap;
+    }
+
+    /**
+     * @return The page that identifies this heap.
+     */
+    public int getFirstPageId() {
+        return freeSpaceMap.getFirstDirectoryPageId();
+    }
+
+    /**
+     * Inserts a tuple into a page with enough room, adding a page if none has.
+     * @param tuple The tuple to insert.
+     * @return The RecordId of the new tuple.
+     * @throws IOException if a disk I/O error occurs.
+     */
+    public RecordId insertTuple(Tuple tuple) throws IOException {
+        int tupleLength = tuple.getData().length;
+        if (tupleLength > SlottedPage.getMaxTupleLength()) {
+            throw new IllegalArgumentException("A tuple of " + tupleLength + " bytes does not fit on a page.");
+        }
+        int spaceNeeded = SlottedPage.getSpaceNeeded(tupleLength);
+
+        while (true) {
+            // 1. Ask the free space map for a page, or add a new one.
+            int pageId = freeSpaceMap.findPage(spaceNeeded);
+            if (pageId == Page.INVALID_PAGE_ID) {
+                pageId = appendPage();
+            }
+
+            // 2. Insert into it, and tell the map how much room is left. A concurrent insert
+            //    may have taken the room first, in which case the map is corrected and we retry.
+            Page page = fetch(pageId);
+            Integer slotId;
+            int availableSpace;
+            page.wLatch();
+            try {
+                SlottedPage slottedPage = new SlottedPage(page);
+                slotId = slottedPage.insertTuple(tuple);
+                availableSpace = slottedPage.getAvailableSpace();
+            } finally {
+                page.wUnlatch();
+                bufferPoolManager.unpinPage(pageId, true);
+            }
+            freeSpaceMap.updateFreeSpace(pageId, availableSpace);
+            if (slotId != null) {
+                return new RecordId(pageId, slotId);
+            }
+        }
+    }
+
+    /**
+     * Reads a tuple.
+     * @param recordId The tuple's location.
+     * @param schema The schema to use for interpreting the tuple data.
+     * @return A copy of the tuple, or null if it was deleted.
+     * @throws IOException if a disk I/O error occurs.
+     */
+    public Tuple getTuple(RecordId recordId, Schema schema) throws IOException {
+        Page page = fetch(recordId.getPageId());
+        page.rLatch();
+        try {
+            return new SlottedPage(page).getTuple(recordId.getSlotId(), schema);
+        } finally {
+            page.rUnlatch();
+            bufferPoolManager.unpinPage(recordId.getPageId());
+        }
+    }
+
+    /**
+     * Deletes a tuple.
+     * @param recordId The tuple's location.
+     * @return true if the slot existed.
+     * @throws IOException if a disk I/O error occurs.
+     */
+    public boolean deleteTuple(RecordId recordId) throws IOException {
+        Page page = fetch(recordId.getPageId());
+        boolean deleted;
+        int availableSpace;
+        page.wLatch();
+        try {
+            // The deleted bytes can be reclaimed by compaction, so the page has more room now.
+            SlottedPage slottedPage = new SlottedPage(page);
+            deleted = slottedPage.deleteTuple(recordId.getSlotId());
+            availableSpace = slottedPage.getAvailableSpace();
+        } finally {
+            page.wUnlatch();
+            bufferPoolManager.unpinPage(recordId.getPageId(), true);
+        }
+        freeSpaceMap.updateFreeSpace(recordId.getPageId(), availableSpace);
+        return deleted;
+    }
+
+    /**
+     * Replaces a tuple. It stays on its page if the page has room for the new version,
+     * otherwise it is deleted there and inserted into another page.
+     * @param recordId The tuple's location.
+     * @param tuple The new version of the tuple.
+     * @return The tuple's location after the update, or null if the slot is empty.
+     * @throws IOException if a disk I/O error occurs.
+     */
+    public RecordId updateTuple(RecordId recordId, Tuple tuple) throws IOException {
+        if (tuple.getData().length > SlottedPage.getMaxTupleLength()) {
+            throw new IllegalArgumentException("A tuple of " + tuple.getData().length + " bytes does not fit on a page.");
+        }
+        Page page = fetch(recordId.getPageId());
+        boolean updated;
+        int availableSpace;
+        page.wLatch();
+        try {
+            SlottedPage slottedPage = new SlottedPage(page);
+            if (!slottedPage.hasTuple(recordId.getSlotId())) {
+                return null;
+            }
+            updated = slottedPage.updateTuple(recordId.getSlotId(), tuple);
+            if (!updated) {
+                // No room here: move the tuple to a page that has some.
+                slottedPage.deleteTuple(recordId.getSlotId());
+            }
+            availableSpace = slottedPage.getAvailableSpace();
+        } finally {
+            page.wUnlatch();
+            bufferPoolManager.unpinPage(recordId.getPageId(), true);
+        }
+        freeSpaceMap.updateFreeSpace(recordId.getPageId(), availableSpace);
+        return updated ? recordId : insertTuple(tuple);
+    }
+
+    /**
+     * @return The number of data pages in the heap.
+     */
+    public int getPageCount() {
+        return freeSpaceMap.getPageCount();
+    }
+
+    /**
+     * @return The IDs of the heap's data pages, in the order they were added.
+     * @throws IOException if a disk I/O error occurs.
+     */
+    public int[] getPageIds() throws IOException {
+        return freeSpaceMap.getPageIds();
+    }
+
+    /**
+     * Returns an iterator over all tuples of the heap, page by page.
+     * @param schema The schema to use for interpreting the tuple data.
+     * @return A new iterator.
+     * @throws IOException if a disk I/O error occurs.
+     */
+    public TableIterator iterator(Schema schema) throws IOException {
+        return new TableIterator(this, schema);
+    }
+
+    /**
+     * @return The buffer pool the heap is stored in.
+     */
+    public BufferPoolManager getBufferPoolManager() {
+        return bufferPoolManager;
+    }
+
+    /**
+     * Allocates and formats a new data page and adds it to the free space map.
+     * The map takes pages in page ID order, so both happen under the map's lock.
+     */
+    private int appendPage() throws IOException {
+        synchronized (freeSpaceMap) {
+            Page page = bufferPoolManager.newPage();
+            if (page == null) {
+                throw new IllegalStateException("The buffer pool has no free frame for a new page.");
+            }
+            int pageId = page.getPageId();
+            int freeSpace;
+            page.wLatch();
+            try {
+                SlottedPage slottedPage = new SlottedPage(page);
+                slottedPage.init();
+                freeSpace = slottedPage.getAvailableSpace();
+            } finally {
+                page.wUnlatch();
+                bufferPoolManager.unpinPage(pageId, true);
+            }
+            freeSpaceMap.addPage(pageId, freeSpace);
+            return pageId;
+        }
+    }
+
+    private Page fetch(int pageId) throws IOException {
+        Page page = bufferPoolManager.fetchPage(pageId);
+        if (page == null) {
+            throw new IllegalStateException("The buffer pool has no free frame for page " + pageId + ".");
+        }
+        return page;
+    }
+}
@@ -0,0 +1,94 @@
+package com.loki.minidb.storage;
+
+import com.loki.minidb.catalog.Schema;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * TableIterator walks over the live tuples of a TableHeap, page by page.
+ *
+ * The tuples of one page are copied out under its read latch and the page is unpinned
+ * before they are returned, so the iterator never holds a pin between calls.
+ * The list of pages is taken when the iterator is created. Disk errors are thrown
+ * as UncheckedIOException, since Iterator methods cannot throw IOException.
+ */
+public class TableIterator implements Iterator<Tuple> {
+
+    private final BufferPoolManager bufferPoolManager;
+    private final Schema schema;
+    private final int[] pageIds;
+    private int nextPageIndex;
+
+    // The tuples of the current page and where they live.
+    private final List<Tuple> pageTuples = new ArrayList<>();
+    private final List<RecordId> pageRecordIds = new ArrayList<>();
+    private int position;
+    private RecordId currentRecordId;
+
+    TableIterator(TableHeap tableHeap, Schema schema) throws IOException {
+        this.bufferPoolManager = tableHeap.getBufferPoolManager();
+        this.schema = schema;
+        this.pageIds = tableHeap.getPageIds();
+    }
+
+    @Override
+    public boolean hasNext() {
+        // Move on to the next page that has a live tuple.
+        while (position == pageTuples.size()) {
+            if (nextPageIndex == pageIds.length) {
+                return false;
+            }
+            loadPage(pageIds[nextPageIndex++]);
+        }
+        return true;
+    }
+
+    @Override
+    public Tuple next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        currentRecordId = pageRecordIds.get(position);
+        return pageTuples.get(position++);
+    }
+
+    /**
+     * @return The RecordId of the tuple last returned by next().
+     */
+    public RecordId getRecordId() {
+        return currentRecordId;
+    }
+
+    private void loadPage(int pageId) {
+        pageTuples.clear();
+        pageRecordIds.clear();
+        position = 0;
+        try {
+            Page page = bufferPoolManager.fetchPage(pageId);
+            if (page == null) {
+                throw new IllegalStateException("The buffer pool has no free frame for page " + pageId + ".");
+            }
+            page.rLatch();
+            try {
+                SlottedPage slottedPage = new SlottedPage(page);
+                for (int slotId = 0; slotId < slottedPage.getSlotCount(); slotId++) {
+                    Tuple tuple = slottedPage.getTuple(slotId, schema);
+                    if (tuple != null) {
+                        pageTuples.add(tuple);
+                        pageRecordIds.add(new RecordId(pageId, slotId));
+                    }
+                }
+            } finally {
+                page.rUnlatch();
+                bufferPoolManager.unpinPage(pageId);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -1,26 +1,38 @@
 package com.loki.minidb.storage;
 
+import com.loki.minidb.catalog.ColumnAccessor;
 import com.loki.minidb.catalog.Schema;
 import com.loki.minidb.catalog.Type;
 
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 /**
  * Tuple represents a single row in a table.
+ * The bytes follow the row layout described in Schema.
  */
 public class Tuple {
 
-    private final byte[] data;
+    // Replaced when a variable-length value changes the row's length.
+    private byte[] data;
     private final Schema schema;
 
     /**
      * Creates a new tuple that conforms to the given schema.
-     * Initializes its data array to the correct size.
+     * Initializes its data array to the correct size. Every variable-length column
+     * starts out empty and no column is NULL.
      * @param schema The schema for this tuple.
      */
     public Tuple(Schema schema) {
         this.schema = schema;
         this.data = new byte[schema.getTupleLength()];
+
+        // Every entry of the offset table points at the start of the (empty) variable-length data.
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        for (int i = 0; i < schema.getVarColumnCount(); i++) {
+            buffer.putShort(schema.getVarTableOffset() + i * 2, (short) schema.getVarDataOffset());
+        }
     }
 
     /**
@@ -37,43 +49,61 @@ public class Tuple {
     /**
      * Gets the value of a specific column from the tuple.
      * @param columnIndex The index of the column.
-     * @return The value of the column as an Object.
+     * @return The value of the column as an Object, or null if it is NULL.
      */
     public Object getValue(int columnIndex) {
-        // 1. Get the schema for the requested column.
-        Type columnType = schema.getColumns().get(columnIndex).getColumnType();
-        
-        // 2. Get the starting offset for this column in our byte array.
-        int offset = schema.getColumnOffset(columnIndex);
-        
-        // 3. Wrap our data array in a ByteBuffer to make reading typed data easy.
-        ByteBuffer buffer = ByteBuffer.wrap(data);
+        // 1. The schema has already resolved the column's type, offset and NULL bit.
+        ColumnAccessor accessor = schema.getAccessor(columnIndex);
 
-        // 4. Use a switch statement on the column's type to read the correct data type.
-        return switch (columnType) {
-            case INTEGER -> buffer.getInt(offset);
-            // In the future:
-            // case VARCHAR -> ... logic to read a string ...
-        };
+        // 2. A NULL column has no value, whatever its bytes say.
+        if (accessor.isNull(data)) {
+            return null;
+        }
+
+        // 3. Read the value with the accessor for its type.
+        return accessor.getValue(data);
     }
 
     /**
      * Sets the value of a specific column in the tuple.
      * @param columnIndex The index of the column.
-     * @param value The new value for the column.
+     * @param value The new value for the column, or null to make it NULL.
      */
     public void setValue(int columnIndex, Object value) {
-        Type columnType = schema.getColumns().get(columnIndex).getColumnType();
-        int offset = schema.getColumnOffset(columnIndex);
-        ByteBuffer buffer = ByteBuffer.wrap(data);
+        Type columnType = schema.getColumnType(columnIndex);
+        ColumnAccessor accessor = schema.getAccessor(columnIndex);
 
+        // 1. NULL only sets the column's bit. A variable-length value is emptied as well.
+        if (value == null) {
+            if (!schema.getColumns().get(columnIndex).isNullable()) {
+                throw new IllegalArgumentException("Column " + columnIndex + " cannot be NULL.");
+            }
+            if (columnType.isVariableLength()) {
+                setVarBytes(columnIndex, new byte[0]);
+            }
+            accessor.setNull(data, true);
+            return;
+        }
+        if (schema.getNullBitmapLength() > 0) {
+            accessor.setNull(data, false);
+        }
+
+        // 2. Write the value. A variable-length value may change the row's length.
         switch (columnType) {
-            case INTEGER -> buffer.putInt(offset, (Integer) value);
-            // In the future:
-            // case VARCHAR -> ...
+            case VARCHAR -> setVarBytes(columnIndex, ((String) value).getBytes(StandardCharsets.UTF_8));
+            case VARBINARY -> setVarBytes(columnIndex, (byte[]) value);
+            default -> accessor.setValue(data, value);
         }
     }
-    
+
+    /**
+     * @param columnIndex The index of the column.
+     * @return true if the column is NULL.
+     */
+    public boolean isNull(int columnIndex) {
+        return schema.getAccessor(columnIndex).isNull(data);
+    }
+
     public byte[] getData() {
         return data;
     }
@@ -82,7 +112,8 @@ public class Tuple {
     public String toString() {
         StringBuilder sb = new StringBuilder("Tuple{");
         for (int i = 0; i < schema.getColumnCount(); i++) {
-            sb.append(getValue(i));
+            Object value = getValue(i);
+            sb.append(value instanceof byte[] bytes ? Arrays.toString(bytes) : value);
             if (i < schema.getColumnCount() - 1) {
                 sb.append(", ");
             }
@@ -90,4 +121,32 @@ public class Tuple {
         sb.append("}");
         return sb.toString();
     }
-}
\ No newline at end of file
+
+    /**
+     * Replaces a variable-length value. The row grows or shrinks by the difference, and
+     * the offset table entries of this and every later variable-length column move with it.
+     */
+    private void setVarBytes(int columnIndex, byte[] value) {
+        ColumnAccessor accessor = schema.getAccessor(columnIndex);
+        int start = accessor.getVarStart(data);
+        int end = accessor.getVarEnd(data);
+        int delta = value.length - (end - start);
+        if (data.length + delta > 0xFFFF) {
+            throw new IllegalArgumentException("A row cannot be longer than 65535 bytes.");
+        }
+
+        // 1. Splice the new value into a new array.
+        byte[] newData = new byte[data.length + delta];
+        System.arraycopy(data, 0, newData, 0, start);
+        System.arraycopy(value, 0, newData, start, value.length);
+        System.arraycopy(data, end, newData, start + value.length, data.length - end);
+
+        // 2. Shift the end offsets from this column on.
+        ByteBuffer newBuffer = ByteBuffer.wrap(newData);
+        int tableEnd = schema.getVarDataOffset();
+        for (int entry = schema.getColumnOffset(columnIndex); entry < tableEnd; entry += 2) {
+            newBuffer.putShort(entry, (short) (Short.toUnsignedInt(newBuffer.getShort(entry)) + delta));
+        }
+        this.data = newData;
+    }
+}
@@ -0,0 +1,136 @@
+package com.loki.minidb.storage;
+
+import com.loki.minidb.catalog.ColumnAccessor;
+import com.loki.minidb.catalog.Schema;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * TupleView reads a tuple in place, straight from the buffer that holds it.
+ *
+ * A view is a flyweight: it only remembers a buffer, an offset and a length, and
+ * SlottedPage.getTupleView() points it at another tuple without allocating. A scan
+ * can therefore reuse one view for every tuple of every page, and getInt() reads a
+ * column without copying the tuple or boxing the value.
+ *
+ * The view reads the page frame itself, so it is only valid while the page stays
+ * pinned and read-latched. Use toTuple() for a row that must outlive the pin.
+ */
+public class TupleView {
+
+    private final Schema schema;
+    private ByteBuffer buffer;
+    private int offset;
+    private int length;
+
+    /**
+     * Creates a view that is not pointing at any tuple yet.
+     * @param schema The schema to use for interpreting the tuple data.
+     */
+    public TupleView(Schema schema) {
+        this.schema = schema;
+    }
+
+    /**
+     * Points the view at a tuple.
+     * @param buffer The buffer holding the tuple, usually a page's buffer.
+     * @param offset Where the tuple starts in the buffer.
+     * @param length The tuple's length in bytes.
+     */
+    public void set(ByteBuffer buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Reads an INTEGER column.
+     * @param columnIndex The index of the column.
+     * @return The column's value.
+     */
+    public int getInt(int columnIndex) {
+        return schema.getAccessor(columnIndex).getInt(buffer, offset);
+    }
+
+    /**
+     * Reads a BIGINT column.
+     * @param columnIndex The index of the column.
+     * @return The column's value.
+     */
+    public long getLong(int columnIndex) {
+        return schema.getAccessor(columnIndex).getLong(buffer, offset);
+    }
+
+    /**
+     * Reads a DOUBLE column.
+     * @param columnIndex The index of the column.
+     * @return The column's value.
+     */
+    public double getDouble(int columnIndex) {
+        return schema.getAccessor(columnIndex).getDouble(buffer, offset);
+    }
+
+    /**
+     * Reads a BOOLEAN column.
+     * @param columnIndex The index of the column.
+     * @return The column's value.
+     */
+    public boolean getBoolean(int columnIndex) {
+        return schema.getAccessor(columnIndex).getBoolean(buffer, offset);
+    }
+
+    /**
+     * A NULL column still reads as a value (0, false or empty) through the typed getters,
+     * so check this first for nullable columns.
+     * @param columnIndex The index of the column.
+     * @return true if the column is NULL.
+     */
+    public boolean isNull(int columnIndex) {
+        return schema.getAccessor(columnIndex).isNull(buffer, offset);
+    }
+
+    /**
+     * @param columnIndex The index of a VARCHAR or VARBINARY column.
+     * @return The length of the column's value in bytes.
+     */
+    public int getVarLength(int columnIndex) {
+        ColumnAccessor accessor = schema.getAccessor(columnIndex);
+        return accessor.getVarEnd(buffer, offset) - accessor.getVarStart(buffer, offset);
+    }
+
+    /**
+     * Reads a VARCHAR column. Unlike the other getters this allocates the String.
+     * @param columnIndex The index of the column.
+     * @return The column's value.
+     */
+    public String getString(int columnIndex) {
+        ColumnAccessor accessor = schema.getAccessor(columnIndex);
+        int start = accessor.getVarStart(buffer, offset);
+        int end = accessor.getVarEnd(buffer, offset);
+        byte[] bytes = new byte[end - start];
+        buffer.get(offset + start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return The tuple's length in bytes.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    public Schema getSchema() {
+        return schema;
+    }
+
+    /**
+     * Copies the tuple out of the buffer.
+     * @return A Tuple that owns its own copy of the data.
+     */
+    public Tuple toTuple() {
+        byte[] data = new byte[length];
+        buffer.get(offset, data);
+        return new Tuple(data, schema);
+    }
+}
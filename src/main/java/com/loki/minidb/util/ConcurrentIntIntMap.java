@@ -0,0 +1,128 @@
+package com.loki.minidb.util;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * ConcurrentIntIntMap is a thread-safe int-to-int map built from striped IntIntHashMaps.
+ *
+ * The keys are spread over a fixed number of segments, each an IntIntHashMap guarded by
+ * its own StampedLock. Writers take the segment's write lock. Readers first try an
+ * optimistic read, which takes no lock and writes no shared memory; only if a writer
+ * changed the segment during the lookup do they retry under the read lock. A lookup
+ * therefore does a single probe, allocates nothing, and does not contend with lookups
+ * in other segments, or even in the same one.
+ */
+public class ConcurrentIntIntMap {
+
+    private static final int SEGMENT_BITS = 6;
+    private static final int SEGMENT_COUNT = 1 << SEGMENT_BITS;
+
+    private static final class Segment {
+        final StampedLock lock = new StampedLock();
+        final IntIntHashMap map;
+
+        Segment(int expectedSize) {
+            this.map = new IntIntHashMap(expectedSize);
+        }
+    }
+
+    private final Segment[] segments;
+
+    /**
+     * Creates a new map.
+     * @param expectedSize The number of entries the map should hold without growing.
+     */
+    public ConcurrentIntIntMap(int expectedSize) {
+        this.segments = new Segment[SEGMENT_COUNT];
+        int perSegment = Math.max(4, expectedSize / SEGMENT_COUNT * 2);
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+    }
+
+    /**
+     * Looks up a key.
+     * @param missingValue The value to return if the key is not present.
+     * @return The value for the key, or missingValue.
+     */
+    public int get(int key, int missingValue) {
+        Segment segment = segmentFor(key);
+        long stamp = segment.lock.tryOptimisticRead();
+        if (stamp != 0) {
+            int value = segment.map.get(key, missingValue);
+            if (segment.lock.validate(stamp)) {
+                return value;
+            }
+        }
+        // A writer got in the way; read again under the lock.
+        stamp = segment.lock.readLock();
+        try {
+            return segment.map.get(key, missingValue);
+        } finally {
+            segment.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Adds the entry only if the key is not present yet.
+     * @param missingValue Returned when the entry was added.
+     * @return The value already associated with the key, or missingValue if the entry was added.
+     */
+    public int putIfAbsent(int key, int value, int missingValue) {
+        Segment segment = segmentFor(key);
+        long stamp = segment.lock.writeLock();
+        try {
+            return segment.map.putIfAbsent(key, value, missingValue);
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Associates the value with the key, replacing any previous value.
+     */
+    public void put(int key, int value) {
+        Segment segment = segmentFor(key);
+        long stamp = segment.lock.writeLock();
+        try {
+            segment.map.put(key, value);
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes the key only if it is currently mapped to the given value.
+     * @return true if the entry was removed.
+     */
+    public boolean remove(int key, int value) {
+        Segment segment = segmentFor(key);
+        long stamp = segment.lock.writeLock();
+        try {
+            return segment.map.remove(key, value);
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return The number of entries. Not a snapshot if other threads are writing.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            long stamp = segment.lock.readLock();
+            try {
+                size += segment.map.size();
+            } finally {
+                segment.lock.unlockRead(stamp);
+            }
+        }
+        return size;
+    }
+
+    private Segment segmentFor(int key) {
+        // The maps inside use the low bits of the hash, so pick the segment with the high bits.
+        return segments[IntIntHashMap.hash(key) >>> (32 - SEGMENT_BITS)];
+    }
+}
@@ -0,0 +1,263 @@
+package com.loki.minidb.util;
+
+import java.util.Arrays;
+
+/**
+ * IntIntHashMap maps int keys to int values without boxing.
+ *
+ * It uses open addressing with linear probing. Keys and values are stored next to each
+ * other in a single int[] (key at 2*i, value at 2*i+1), so a lookup touches one array
+ * and usually one cache line, and allocates nothing. The table is kept at most half
+ * full, and deletion shifts later entries back instead of leaving tombstones.
+ *
+ * A free slot is marked by the key 0, so the key 0 itself is stored outside the table.
+ *
+ * This class is not thread-safe. See ConcurrentIntIntMap for a concurrent version.
+ */
+public class IntIntHashMap {
+
+    private static final int FREE_KEY = 0;
+
+    private int[] table;       // Interleaved keys and values.
+    private int mask;          // (number of slots - 1), the slot count is a power of two.
+    private int size;          // Entries in the table, not counting the zero key.
+    private boolean hasZeroKey;
+    private int zeroKeyValue;
+
+    /**
+     * Creates a new map.
+     * @param expectedSize The number of entries the map should hold without growing.
+     */
+    public IntIntHashMap(int expectedSize) {
+        int slots = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        this.table = new int[slots * 2];
+        this.mask = slots - 1;
+    }
+
+    /**
+     * Looks up a key with a single probe sequence.
+     * @param key The key to look up.
+     * @param missingValue The value to return if the key is not present.
+     * @return The value for the key, or missingValue.
+     */
+    public int get(int key, int missingValue) {
+        if (key == FREE_KEY) {
+            return hasZeroKey ? zeroKeyValue : missingValue;
+        }
+        // Read the table once, so a concurrent resize (see ConcurrentIntIntMap) cannot
+        // make us mix two tables. The probe is bounded by the slot count.
+        int[] t = this.table;
+        int m = (t.length >> 1) - 1;
+        int slot = hash(key) & m;
+        for (int probes = 0; probes <= m; probes++) {
+            int k = t[slot << 1];
+            if (k == key) {
+                return t[(slot << 1) + 1];
+            }
+            if (k == FREE_KEY) {
+                return missingValue;
+            }
+            slot = (slot + 1) & m;
+        }
+        return missingValue;
+    }
+
+    /**
+     * @return true if the key is present.
+     */
+    public boolean containsKey(int key) {
+        if (key == FREE_KEY) {
+            return hasZeroKey;
+        }
+        return findSlot(key) >= 0;
+    }
+
+    /**
+     * Associates the value with the key, replacing any previous value.
+     */
+    public void put(int key, int value) {
+        if (key == FREE_KEY) {
+            hasZeroKey = true;
+            zeroKeyValue = value;
+            return;
+        }
+        int slot = hash(key) & mask;
+        while (true) {
+            int k = table[slot << 1];
+            if (k == key) {
+                table[(slot << 1) + 1] = value;
+                return;
+            }
+            if (k == FREE_KEY) {
+                insertAt(slot, key, value);
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Adds the entry only if the key is not present yet.
+     * @param missingValue Returned when the entry was added.
+     * @return The value already associated with the key, or missingValue if the entry was added.
+     */
+    public int putIfAbsent(int key, int value, int missingValue) {
+        if (key == FREE_KEY) {
+            if (hasZeroKey) {
+                return zeroKeyValue;
+            }
+            hasZeroKey = true;
+            zeroKeyValue = value;
+            return missingValue;
+        }
+        int slot = hash(key) & mask;
+        while (true) {
+            int k = table[slot << 1];
+            if (k == key) {
+                return table[(slot << 1) + 1];
+            }
+            if (k == FREE_KEY) {
+                insertAt(slot, key, value);
+                return missingValue;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Removes the key.
+     * @return true if the key was present.
+     */
+    public boolean remove(int key) {
+        if (key == FREE_KEY) {
+            boolean had = hasZeroKey;
+            hasZeroKey = false;
+            return had;
+        }
+        int slot = findSlot(key);
+        if (slot < 0) {
+            return false;
+        }
+        removeAt(slot);
+        return true;
+    }
+
+    /**
+     * Removes the key only if it is currently mapped to the given value.
+     * @return true if the entry was removed.
+     */
+    public boolean remove(int key, int value) {
+        if (key == FREE_KEY) {
+            if (hasZeroKey && zeroKeyValue == value) {
+                hasZeroKey = false;
+                return true;
+            }
+            return false;
+        }
+        int slot = findSlot(key);
+        if (slot < 0 || table[(slot << 1) + 1] != value) {
+            return false;
+        }
+        removeAt(slot);
+        return true;
+    }
+
+    /**
+     * @return The number of entries in the map.
+     */
+    public int size() {
+        return size + (hasZeroKey ? 1 : 0);
+    }
+
+    /**
+     * Removes every entry, keeping the allocated table.
+     */
+    public void clear() {
+        Arrays.fill(table, FREE_KEY);
+        size = 0;
+        hasZeroKey = false;
+    }
+
+    // --- Private helpers ---
+
+    private int findSlot(int key) {
+        int slot = hash(key) & mask;
+        while (true) {
+            int k = table[slot << 1];
+            if (k == key) {
+                return slot;
+            }
+            if (k == FREE_KEY) {
+                return -1;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void insertAt(int slot, int key, int value) {
+        // Grow first if this entry would fill more than half the table.
+        if ((size + 1) * 2 > mask + 1) {
+            rehash((mask + 1) * 2);
+            put(key, value);
+            return;
+        }
+        // Write the value before the key: an optimistic reader that sees the key must see the value.
+        table[(slot << 1) + 1] = value;
+        table[slot << 1] = key;
+        size++;
+    }
+
+    /**
+     * Deletes the entry in the slot, then moves later entries of the same probe run
+     * back into the gap so that no lookup stops early at a free slot.
+     */
+    private void removeAt(int slot) {
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (true) {
+            int k = table[next << 1];
+            if (k == FREE_KEY) {
+                break;
+            }
+            int home = hash(k) & mask;
+            // Move the entry into the gap if its home slot is not between the gap and its position.
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                table[(gap << 1) + 1] = table[(next << 1) + 1];
+                table[gap << 1] = k;
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        table[gap << 1] = FREE_KEY;
+        table[(gap << 1) + 1] = 0;
+        size--;
+    }
+
+    private void rehash(int newSlots) {
+        int[] oldTable = table;
+        int[] newTable = new int[newSlots * 2];
+        int newMask = newSlots - 1;
+        for (int i = 0; i < oldTable.length; i += 2) {
+            int k = oldTable[i];
+            if (k != FREE_KEY) {
+                int slot = hash(k) & newMask;
+                while (newTable[slot << 1] != FREE_KEY) {
+                    slot = (slot + 1) & newMask;
+                }
+                newTable[slot << 1] = k;
+                newTable[(slot << 1) + 1] = oldTable[i + 1];
+            }
+        }
+        // Publish the filled table in one step.
+        this.mask = newMask;
+        this.table = newTable;
+    }
+
+    /**
+     * Scrambles the key so that sequential keys (like page IDs) spread over the table.
+     */
+    static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,162 @@
+package com.loki.minidb.bench;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Bench is a small harness for the benchmarks under src/test, which have a main method
+ * each and are named *Benchmark so that `mvn test` leaves them alone.
+ *
+ * A measurement runs its body for a few untimed warm-up rounds, so the JIT has compiled
+ * it, then for timed rounds. It reports the median time per operation, the throughput,
+ * and the bytes the thread allocated per operation, read from the JVM's per-thread
+ * allocation counter (the same counter JMH's GC profiler reads).
+ *
+ * measureParallel() splits each round between several threads. Its ns/op is wall-clock
+ * time over the operations of all threads, so its ops/s is the total throughput.
+ *
+ * Run a benchmark with:
+ *   mvn -q test-compile
+ *   java -cp target/classes:target/test-classes com.loki.minidb.storage.ReplacerBenchmark
+ */
+public final class Bench {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 10;
+
+    // Results are folded into this, so the JIT cannot drop the work that produced them.
+    private static volatile long sink;
+
+    private Bench() {
+    }
+
+    /**
+     * The code under measurement.
+     */
+    @FunctionalInterface
+    public interface Body {
+        /**
+         * Runs `ops` operations.
+         * @return A value that depends on the work done.
+         * @throws Exception if the work fails; the benchmark stops.
+         */
+        long run(int ops) throws Exception;
+    }
+
+    /**
+     * The outcome of one measurement.
+     */
+    public static final class Result {
+        private final String name;
+        private final double nanosPerOp;
+        private final double bytesPerOp;
+
+        Result(String name, double nanosPerOp, double bytesPerOp) {
+            this.name = name;
+            this.nanosPerOp = nanosPerOp;
+            this.bytesPerOp = bytesPerOp;
+        }
+
+        public double getNanosPerOp() {
+            return nanosPerOp;
+        }
+
+        public double getOpsPerSecond() {
+            return 1e9 / nanosPerOp;
+        }
+
+        /**
+         * @return The bytes allocated per operation, or -1 if the JVM does not count them.
+         */
+        public double getBytesPerOp() {
+            return bytesPerOp;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-44s %12.1f ns/op %14.0f ops/s %10s B/op", name, nanosPerOp,
+                    getOpsPerSecond(), bytesPerOp < 0 ? "n/a" : String.format("%.1f", bytesPerOp));
+        }
+    }
+
+    /**
+     * Measures a body and prints the result.
+     * @param name The name to print.
+     * @param ops The number of operations per round.
+     * @param body The code to measure.
+     * @return The result.
+     * @throws Exception if the body fails.
+     */
+    public static Result measure(String name, int ops, Body body) throws Exception {
+        return measure(name, ops, body, true);
+    }
+
+    private static Result measure(String name, int ops, Body body, boolean countBytes) throws Exception {
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            sink += body.run(ops);
+        }
+
+        long[] nanos = new long[MEASURED_ROUNDS];
+        long allocatedBefore = allocatedBytes();
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            long start = System.nanoTime();
+            sink += body.run(ops);
+            nanos[round] = System.nanoTime() - start;
+        }
+        long allocatedAfter = allocatedBytes();
+
+        Arrays.sort(nanos);
+        double bytesPerOp = allocatedBefore < 0 || !countBytes ? -1
+                : (double) (allocatedAfter - allocatedBefore) / ((long) ops * MEASURED_ROUNDS);
+        Result result = new Result(name, (double) nanos[MEASURED_ROUNDS / 2] / ops, bytesPerOp);
+        System.out.println(result);
+        return result;
+    }
+
+    /**
+     * Measures a body run by several threads at once and prints the result. Each round
+     * splits `ops` operations evenly between the threads and ends when all are done.
+     * The bytes per operation are not reported, as the allocation counter is per thread.
+     * @param name The name to print.
+     * @param threads The number of threads.
+     * @param ops The number of operations per round, for all threads together.
+     * @param body The code to measure. It is called from all threads concurrently.
+     * @return The result.
+     * @throws Exception if the body fails.
+     */
+    public static Result measureParallel(String name, int threads, int ops, Body body) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            return measure(name, ops, n -> {
+                List<Future<Long>> shares = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    int share = n / threads + (t < n % threads ? 1 : 0);
+                    shares.add(executor.submit(() -> body.run(share)));
+                }
+                long sum = 0;
+                for (Future<Long> share : shares) {
+                    sum += share.get();
+                }
+                return sum;
+            }, false);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * @return The bytes the current thread has allocated so far, or -1 if the JVM does not count them.
+     */
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+            return threads.getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+}
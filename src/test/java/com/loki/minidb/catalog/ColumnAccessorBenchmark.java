@@ -0,0 +1,139 @@
+package com.loki.minidb.catalog;
+
+import com.loki.minidb.bench.Bench;
+import com.loki.minidb.storage.Tuple;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * ColumnAccessorBenchmark measures reading every column of a wide row (see Bench for how
+ * to run it). Each operation reads one row of 64 nullable fixed-width columns (INTEGER,
+ * BIGINT, DOUBLE and BOOLEAN in turn), so ns/op is the time per row.
+ *
+ * 1. Typed accessor reads: the accessors are grouped by type once, and each column is a
+ *    getInt()/getLong()/getDouble()/getBoolean() call after its isNull() check.
+ * 2. Tuple.getValue(), which goes through the same accessors but boxes each value.
+ * 3. The path before the accessors: a column-list lookup for the type, a ByteBuffer
+ *    wrapper, the null bitmap, the column offset and a switch on the type, per column.
+ */
+public class ColumnAccessorBenchmark {
+
+    private static final int COLUMNS = 64;
+    private static final int ROWS = 1024;
+    private static final int OPS = 200_000;
+    private static final Type[] TYPES = {Type.INTEGER, Type.BIGINT, Type.DOUBLE, Type.BOOLEAN};
+
+    public static void main(String[] args) throws Exception {
+        // 1. A wide schema and rows of random values, one in ten of them NULL.
+        List<Column> columns = new ArrayList<>();
+        for (int i = 0; i < COLUMNS; i++) {
+            columns.add(new Column("c" + i, TYPES[i % TYPES.length], true));
+        }
+        Schema schema = new Schema(columns);
+        Random random = new Random(17);
+        Tuple[] tuples = new Tuple[ROWS];
+        for (int row = 0; row < ROWS; row++) {
+            Tuple tuple = new Tuple(schema);
+            for (int i = 0; i < COLUMNS; i++) {
+                Object value = switch (schema.getColumnType(i)) {
+                    case INTEGER -> random.nextInt();
+                    case BIGINT -> random.nextLong();
+                    case DOUBLE -> random.nextDouble();
+                    default -> random.nextBoolean();
+                };
+                tuple.setValue(i, random.nextInt(10) == 0 ? null : value);
+            }
+            tuples[row] = tuple;
+        }
+
+        // 2. The accessors of each type, resolved once as a scan would.
+        List<ColumnAccessor.IntAccessor> ints = new ArrayList<>();
+        List<ColumnAccessor.LongAccessor> longs = new ArrayList<>();
+        List<ColumnAccessor.DoubleAccessor> doubles = new ArrayList<>();
+        List<ColumnAccessor.BooleanAccessor> booleans = new ArrayList<>();
+        for (int i = 0; i < COLUMNS; i++) {
+            switch (schema.getAccessor(i)) {
+                case ColumnAccessor.IntAccessor accessor -> ints.add(accessor);
+                case ColumnAccessor.LongAccessor accessor -> longs.add(accessor);
+                case ColumnAccessor.DoubleAccessor accessor -> doubles.add(accessor);
+                case ColumnAccessor.BooleanAccessor accessor -> booleans.add(accessor);
+                default -> throw new IllegalStateException();
+            }
+        }
+        ColumnAccessor.IntAccessor[] intAccessors = ints.toArray(new ColumnAccessor.IntAccessor[0]);
+        ColumnAccessor.LongAccessor[] longAccessors = longs.toArray(new ColumnAccessor.LongAccessor[0]);
+        ColumnAccessor.DoubleAccessor[] doubleAccessors = doubles.toArray(new ColumnAccessor.DoubleAccessor[0]);
+        ColumnAccessor.BooleanAccessor[] booleanAccessors = booleans.toArray(new ColumnAccessor.BooleanAccessor[0]);
+
+        // 3. Read every column of a row per operation.
+        Bench.measure("typed ColumnAccessor reads, 64 columns", OPS, n -> {
+            long sum = 0;
+            for (int i = 0; i < n; i++) {
+                byte[] row = tuples[i % ROWS].getData();
+                for (ColumnAccessor.IntAccessor accessor : intAccessors) {
+                    sum += accessor.isNull(row) ? 0 : accessor.getInt(row);
+                }
+                for (ColumnAccessor.LongAccessor accessor : longAccessors) {
+                    sum += accessor.isNull(row) ? 0 : accessor.getLong(row);
+                }
+                for (ColumnAccessor.DoubleAccessor accessor : doubleAccessors) {
+                    sum += accessor.isNull(row) ? 0 : (long) accessor.getDouble(row);
+                }
+                for (ColumnAccessor.BooleanAccessor accessor : booleanAccessors) {
+                    sum += !accessor.isNull(row) && accessor.getBoolean(row) ? 1 : 0;
+                }
+            }
+            return sum;
+        });
+        Bench.measure("Tuple.getValue, 64 columns", OPS, n -> {
+            long sum = 0;
+            for (int i = 0; i < n; i++) {
+                Tuple tuple = tuples[i % ROWS];
+                for (int column = 0; column < COLUMNS; column++) {
+                    sum += toLong(tuple.getValue(column));
+                }
+            }
+            return sum;
+        });
+        Bench.measure("before: column list + switch, 64 columns", OPS, n -> {
+            long sum = 0;
+            for (int i = 0; i < n; i++) {
+                byte[] row = tuples[i % ROWS].getData();
+                for (int column = 0; column < COLUMNS; column++) {
+                    sum += toLong(getValueBeforeAccessors(schema, row, column));
+                }
+            }
+            return sum;
+        });
+    }
+
+    /**
+     * Tuple.getValue() as it was before the accessors, for the fixed-width types.
+     */
+    private static Object getValueBeforeAccessors(Schema schema, byte[] data, int columnIndex) {
+        Type columnType = schema.getColumnType(columnIndex);
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        if (schema.getNullBitmapLength() != 0
+                && (buffer.get(columnIndex / 8) & (1 << (columnIndex % 8))) != 0) {
+            return null;
+        }
+        int offset = schema.getColumnOffset(columnIndex);
+        return switch (columnType) {
+            case INTEGER -> buffer.getInt(offset);
+            case BIGINT -> buffer.getLong(offset);
+            case DOUBLE -> buffer.getDouble(offset);
+            case BOOLEAN -> buffer.get(offset) != 0;
+            default -> throw new IllegalArgumentException("Only fixed-width columns are read here.");
+        };
+    }
+
+    private static long toLong(Object value) {
+        if (value instanceof Boolean b) {
+            return b ? 1 : 0;
+        }
+        return value == null ? 0 : ((Number) value).longValue();
+    }
+}
@@ -0,0 +1,83 @@
+package com.loki.minidb.catalog;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnAccessorTest {
+
+    @Test
+    void testAccessorsMatchByteBufferLayout() {
+        // 1. ARRANGE: A fixed-width schema (id: INTEGER, total: BIGINT, price: DOUBLE, active: BOOLEAN).
+        Schema schema = new Schema(List.of(
+                new Column("id", Type.INTEGER),
+                new Column("total", Type.BIGINT),
+                new Column("price", Type.DOUBLE),
+                new Column("active", Type.BOOLEAN)));
+        byte[] row = new byte[schema.getTupleLength()];
+
+        // 2. ACT: Write each column through its accessor.
+        ((ColumnAccessor.IntAccessor) schema.getAccessor(0)).setInt(row, -7);
+        ((ColumnAccessor.LongAccessor) schema.getAccessor(1)).setLong(row, 1L << 40);
+        ((ColumnAccessor.DoubleAccessor) schema.getAccessor(2)).setDouble(row, 2.5);
+        ((ColumnAccessor.BooleanAccessor) schema.getAccessor(3)).setBoolean(row, true);
+
+        // 3. ASSERT: The bytes are the big-endian layout a ByteBuffer would have written.
+        ByteBuffer expected = ByteBuffer.allocate(schema.getTupleLength());
+        expected.putInt(-7).putLong(1L << 40).putDouble(2.5).put((byte) 1);
+        assertArrayEquals(expected.array(), row);
+
+        // Reading works from the array and, at any offset, from a buffer.
+        assertEquals(-7, schema.getAccessor(0).getInt(row));
+        assertEquals(1L << 40, schema.getAccessor(1).getLong(row));
+        assertEquals(2.5, schema.getAccessor(2).getDouble(row));
+        assertTrue(schema.getAccessor(3).getBoolean(row));
+
+        ByteBuffer page = ByteBuffer.allocateDirect(100);
+        page.put(13, row);
+        assertEquals(-7, schema.getAccessor(0).getInt(page, 13));
+        assertEquals(1L << 40, schema.getAccessor(1).getLong(page, 13));
+        assertEquals(2.5, schema.getAccessor(2).getDouble(page, 13));
+        assertTrue(schema.getAccessor(3).getBoolean(page, 13));
+        assertFalse(schema.getAccessor(0).isNull(page, 13), "A schema without nullable columns has no NULLs.");
+    }
+
+    @Test
+    void testWrongTypeIsRejected() {
+        Schema schema = new Schema(List.of(new Column("id", Type.INTEGER), new Column("name", Type.VARCHAR)));
+        byte[] row = new byte[schema.getTupleLength()];
+
+        assertThrows(UnsupportedOperationException.class, () -> schema.getAccessor(0).getLong(row));
+        assertThrows(UnsupportedOperationException.class, () -> schema.getAccessor(1).getInt(row));
+        assertThrows(UnsupportedOperationException.class, () -> schema.getAccessor(0).getVarEnd(row));
+    }
+
+    @Test
+    void testNullBitsOfAWideSchema() {
+        // 1. ARRANGE: 20 nullable columns, so the bitmap spans three bytes.
+        List<Column> columns = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            columns.add(new Column("c" + i, Type.INTEGER, true));
+        }
+        Schema schema = new Schema(columns);
+        assertEquals(3, schema.getNullBitmapLength());
+        byte[] row = new byte[schema.getTupleLength()];
+
+        // 2. ACT: Set the NULL bit of column 17 and a value in column 19.
+        schema.getAccessor(17).setNull(row, true);
+        ((ColumnAccessor.IntAccessor) schema.getAccessor(19)).setInt(row, 19);
+
+        // 3. ASSERT: Only column 17 is NULL, and column 19 sits after the bitmap.
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i == 17, schema.getAccessor(i).isNull(row), "Column " + i);
+        }
+        assertEquals(19, ByteBuffer.wrap(row).getInt(3 + 19 * 4));
+
+        schema.getAccessor(17).setNull(row, false);
+        assertFalse(schema.getAccessor(17).isNull(row));
+    }
+}
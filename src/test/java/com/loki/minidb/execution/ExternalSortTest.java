@@ -0,0 +1,148 @@
+package com.loki.minidb.execution;
+
+import com.loki.minidb.catalog.Type;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExternalSortTest {
+
+    private static final Type[] TYPES = {Type.INTEGER, Type.BIGINT, Type.DOUBLE};
+
+    // key in [0, keyRange), amount in [0, 1000) or NULL, and key / 8.0 set by withKeyEighths().
+    private static final int[] NULL_ONE_IN = {0, 10, 0};
+
+    private static int[] bounds(int keyRange) {
+        return new int[] {keyRange, 1000, 1};
+    }
+
+    /**
+     * Sets each row's third column to its key / 8.0, so a test can tell whether a row's
+     * columns stayed together.
+     */
+    private static Number[][] withKeyEighths(Number[][] rows) {
+        for (Number[] row : rows) {
+            row[2] = (Integer) row[0] / 8.0;
+        }
+        return rows;
+    }
+
+    // ORDER BY key ASC, amount DESC: a NULL amount sorts first in descending order.
+    private static final Comparator<Number[]> KEY_ASC_AMOUNT_DESC = Comparator
+            .<Number[]>comparingInt(row -> (Integer) row[0])
+            .thenComparing(row -> row[1] == null ? Long.MAX_VALUE : (Long) row[1], Comparator.reverseOrder());
+
+    private static void assertRowsEqual(List<Number[]> expected, List<Number[]> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(expected.get(i), actual.get(i), "Row " + i);
+        }
+    }
+
+    @Test
+    void testSortInMemory() throws IOException {
+        Number[][] rows = withKeyEighths(ValuesOperator.randomRows(TYPES, bounds(100), NULL_ONE_IN, 5000, 1));
+        ExternalSort sort = new ExternalSort(new ValuesOperator(TYPES, rows), new int[] {0, 1}, new boolean[] {true, false});
+
+        List<Number[]> expected = new ArrayList<>(Arrays.asList(rows));
+        expected.sort(KEY_ASC_AMOUNT_DESC);
+        assertRowsEqual(expected, ValuesOperator.collect(sort));
+        assertEquals(0, sort.getInitialRunCount(), "5000 rows fit in the default budget.");
+        assertEquals(0, sort.getMergePasses());
+    }
+
+    @Test
+    void testSortSpillsAndMergesInSeveralPasses() throws IOException {
+        // 8 pages hold about 800 rows, and allow merging only 2 runs at a time.
+        Number[][] rows = withKeyEighths(ValuesOperator.randomRows(TYPES, bounds(5000), NULL_ONE_IN, 20000, 2));
+        ExternalSort sort = new ExternalSort(new ValuesOperator(TYPES, rows), new int[] {0, 1}, new boolean[] {true, false}, 8);
+
+        List<Number[]> expected = new ArrayList<>(Arrays.asList(rows));
+        expected.sort(KEY_ASC_AMOUNT_DESC);
+        assertRowsEqual(expected, ValuesOperator.collect(sort));
+        assertTrue(sort.getInitialRunCount() >= 20, "Got " + sort.getInitialRunCount() + " runs.");
+        assertTrue(sort.getMergePasses() > 1, "Merging 2 runs at a time takes several passes.");
+    }
+
+    @Test
+    void testDescendingDoubleKeyWithWideBudget() throws IOException {
+        Number[][] rows = withKeyEighths(ValuesOperator.randomRows(TYPES, bounds(1_000_000), NULL_ONE_IN, 30000, 3));
+        ExternalSort sort = new ExternalSort(new ValuesOperator(TYPES, rows), new int[] {2}, new boolean[] {false}, 64);
+
+        List<Number[]> result = ValuesOperator.collect(sort);
+        assertEquals(rows.length, result.size());
+        for (int i = 1; i < result.size(); i++) {
+            assertTrue((Integer) result.get(i - 1)[0] >= (Integer) result.get(i)[0], "Row " + i + " is out of order.");
+            assertEquals((Integer) result.get(i)[0] / 8.0, result.get(i)[2], "A row's columns must stay together.");
+        }
+        assertTrue(sort.getInitialRunCount() > 1);
+        assertEquals(1, sort.getMergePasses(), "15 runs can be merged at once.");
+    }
+
+    @Test
+    void testEmptyInputAndBadArguments() throws IOException {
+        assertTrue(ValuesOperator.collect(new ExternalSort(new ValuesOperator(TYPES, new Number[0][]), new int[] {0}, new boolean[] {true})).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> new ExternalSort(new ValuesOperator(TYPES, new Number[0][]), new int[] {3}, new boolean[] {true}));
+        assertThrows(IllegalArgumentException.class, () -> new ExternalSort(new ValuesOperator(TYPES, new Number[0][]), new int[] {0}, new boolean[0]));
+        assertThrows(IllegalArgumentException.class, () -> new ExternalSort(new ValuesOperator(TYPES, new Number[0][]), new int[] {0}, new boolean[] {true}, 2));
+    }
+
+    @Test
+    void testTopNMatchesTheFullSort() throws IOException {
+        Number[][] rows = withKeyEighths(ValuesOperator.randomRows(TYPES, bounds(300), NULL_ONE_IN, 10000, 4));
+        List<Number[]> sorted = new ArrayList<>(Arrays.asList(rows));
+        sorted.sort(KEY_ASC_AMOUNT_DESC);
+
+        for (int limit : new int[] {0, 1, 17, 2500, 20000}) {
+            TopNSort topN = new TopNSort(new ValuesOperator(TYPES, rows), new int[] {0, 1}, new boolean[] {true, false}, limit);
+            List<Number[]> result = ValuesOperator.collect(topN);
+            List<Number[]> expected = sorted.subList(0, Math.min(limit, rows.length));
+            // Rows with equal keys may come in either order, so compare the keys only.
+            assertEquals(expected.size(), result.size(), "limit " + limit);
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(0, KEY_ASC_AMOUNT_DESC.compare(expected.get(i), result.get(i)), "limit " + limit + ", row " + i);
+                assertEquals((Integer) result.get(i)[0] / 8.0, result.get(i)[2], "A row's columns must stay together.");
+            }
+        }
+    }
+
+    @Test
+    void testLoserTreeMergesAnyNumberOfSources() {
+        for (int k = 1; k <= 9; k++) {
+            int[][] sources = new int[k][];
+            List<Integer> expected = new ArrayList<>();
+            Random random = new Random(k);
+            for (int s = 0; s < k; s++) {
+                sources[s] = random.ints(random.nextInt(20), 0, 100).sorted().toArray();
+                for (int value : sources[s]) {
+                    expected.add(value);
+                }
+            }
+            expected.sort(null);
+
+            int[] positions = new int[k];
+            LoserTree tree = new LoserTree(k, (a, b) -> {
+                boolean aDone = positions[a] == sources[a].length;
+                boolean bDone = positions[b] == sources[b].length;
+                if (aDone || bDone) {
+                    return Boolean.compare(aDone, bDone);
+                }
+                return Integer.compare(sources[a][positions[a]], sources[b][positions[b]]);
+            });
+            List<Integer> merged = new ArrayList<>();
+            while (positions[tree.winner()] < sources[tree.winner()].length) {
+                int winner = tree.winner();
+                merged.add(sources[winner][positions[winner]++]);
+                tree.update();
+            }
+            assertEquals(expected, merged, k + " sources");
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.loki.minidb.execution;
+
+import com.loki.minidb.catalog.Type;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashAggregateTest {
+
+    // (region INTEGER, store BIGINT, amount BIGINT, price DOUBLE)
+    private static final Type[] TYPES = {Type.INTEGER, Type.BIGINT, Type.BIGINT, Type.DOUBLE};
+
+    private static final AggregateFunction[] FUNCTIONS = {
+            AggregateFunction.COUNT, AggregateFunction.COUNT, AggregateFunction.SUM,
+            AggregateFunction.MIN, AggregateFunction.MAX, AggregateFunction.AVG};
+    private static final int[] AGGREGATE_COLUMNS = {HashAggregate.COUNT_STAR, 2, 2, 2, 2, 2};
+
+    // One region, store and amount in 20 is NULL; the price never is.
+    private static final int[] NULL_ONE_IN = {20, 20, 20, 0};
+
+    private static Number[][] randomRows(int count, int regions, int stores, long seed) {
+        return ValuesOperator.randomRows(TYPES, new int[] {regions, stores, 2000, 100}, NULL_ONE_IN, count, seed);
+    }
+
+    /**
+     * The aggregates computed with a HashMap, in the form of ValuesOperator.collectSorted().
+     */
+    private static List<String> expectedGroups(Number[][] rows, int[] groupColumns) {
+        // Per group: COUNT(*), COUNT(amount), SUM, MIN, MAX.
+        Map<List<Number>, long[]> groups = new HashMap<>();
+        for (Number[] row : rows) {
+            List<Number> key = new ArrayList<>();
+            for (int column : groupColumns) {
+                key.add(row[column]);
+            }
+            long[] state = groups.computeIfAbsent(key, k -> new long[] {0, 0, 0, Long.MAX_VALUE, Long.MIN_VALUE});
+            state[0]++;
+            if (row[2] != null) {
+                long amount = row[2].longValue();
+                state[1]++;
+                state[2] += amount;
+                state[3] = Math.min(state[3], amount);
+                state[4] = Math.max(state[4], amount);
+            }
+        }
+        List<String> result = new ArrayList<>();
+        for (Map.Entry<List<Number>, long[]> group : groups.entrySet()) {
+            long[] s = group.getValue();
+            boolean empty = s[1] == 0;
+            List<Number> row = new ArrayList<>(group.getKey());
+            row.addAll(Arrays.asList(s[0], s[1], empty ? null : s[2], empty ? null : s[3], empty ? null : s[4],
+                    empty ? null : (double) s[2] / s[1]));
+            result.add(row.toString());
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    @Test
+    void testGroupByInMemory() throws IOException {
+        Number[][] rows = randomRows(20000, 50, 10, 1);
+        HashAggregate aggregate = new HashAggregate(new ValuesOperator(TYPES, rows), new int[] {0}, FUNCTIONS, AGGREGATE_COLUMNS);
+
+        assertArrayEquals(new Type[] {Type.INTEGER, Type.BIGINT, Type.BIGINT, Type.BIGINT, Type.BIGINT,
+                Type.BIGINT, Type.DOUBLE}, aggregate.getTypes());
+        List<String> groups = ValuesOperator.collectSorted(aggregate);
+        assertEquals(expectedGroups(rows, new int[] {0}), groups);
+        assertEquals(51, groups.size(), "50 regions and the NULL region.");
+        assertEquals(0, aggregate.getPartitionCount());
+    }
+
+    @Test
+    void testGroupByTwoColumnsGrowsTheTable() throws IOException {
+        // About 3300 groups: more than the table starts with, fewer than the budget allows.
+        Number[][] rows = randomRows(30000, 300, 10, 2);
+        HashAggregate aggregate = new HashAggregate(new ValuesOperator(TYPES, rows), new int[] {1, 0}, FUNCTIONS, AGGREGATE_COLUMNS);
+
+        assertEquals(expectedGroups(rows, new int[] {1, 0}), ValuesOperator.collectSorted(aggregate));
+        assertEquals(0, aggregate.getPartitionCount());
+    }
+
+    @Test
+    void testGroupBySpillsPartitions() throws IOException {
+        // 16 pages hold about 300 groups of two keys and six aggregates; there are about 5000.
+        Number[][] rows = randomRows(30000, 500, 10, 3);
+        HashAggregate aggregate = new HashAggregate(new ValuesOperator(TYPES, rows), new int[] {0, 1}, FUNCTIONS, AGGREGATE_COLUMNS, 16);
+
+        assertEquals(expectedGroups(rows, new int[] {0, 1}), ValuesOperator.collectSorted(aggregate));
+        assertTrue(aggregate.getPartitionCount() > 0);
+        assertTrue(aggregate.getMaxLevel() >= 2, "Got " + aggregate.getMaxLevel() + " levels.");
+    }
+
+    @Test
+    void testGroupByManyGroupsWithLittleMemory() throws IOException {
+        // Almost every row is its own group.
+        Number[][] rows = randomRows(40000, 1_000_000, 1, 4);
+        HashAggregate aggregate = new HashAggregate(new ValuesOperator(TYPES, rows), new int[] {0}, FUNCTIONS, AGGREGATE_COLUMNS, 16);
+
+        List<String> groups = ValuesOperator.collectSorted(aggregate);
+        assertEquals(expectedGroups(rows, new int[] {0}), groups);
+        assertTrue(groups.size() > 35000);
+    }
+
+    @Test
+    void testTableCapacityFitsItsBytes() {
+        for (int keyWidth = 2; keyWidth <= 4; keyWidth++) {
+            for (int aggregates = 0; aggregates <= 6; aggregates += 3) {
+                for (long bytes = 1000; bytes < 5_000_000; bytes = bytes * 3 / 2) {
+                    int groups = GroupTable.getCapacity(keyWidth, aggregates, bytes);
+                    assertTrue(GroupTable.getBytes(keyWidth, aggregates, groups) <= bytes, bytes + " bytes");
+                    assertTrue(GroupTable.getBytes(keyWidth, aggregates, groups * 2 + 1) > bytes, bytes + " bytes");
+                }
+            }
+        }
+    }
+
+    @Test
+    void testEmptyInputAndBadArguments() throws IOException {
+        Number[][] none = new Number[0][];
+        assertTrue(ValuesOperator.collectSorted(new HashAggregate(new ValuesOperator(TYPES, none), new int[] {0}, FUNCTIONS, AGGREGATE_COLUMNS)).isEmpty());
+        assertThrows(IllegalArgumentException.class,
+                () -> new HashAggregate(new ValuesOperator(TYPES, none), new int[0], FUNCTIONS, AGGREGATE_COLUMNS));
+        assertThrows(IllegalArgumentException.class,
+                () -> new HashAggregate(new ValuesOperator(TYPES, none), new int[] {3}, FUNCTIONS, AGGREGATE_COLUMNS));
+        assertThrows(IllegalArgumentException.class,
+                () -> new HashAggregate(new ValuesOperator(TYPES, none), new int[] {0}, FUNCTIONS, AGGREGATE_COLUMNS, 8));
+        assertThrows(IllegalArgumentException.class, () -> new HashAggregate(new ValuesOperator(TYPES, none), new int[] {0},
+                new AggregateFunction[] {AggregateFunction.SUM}, new int[] {3}));
+    }
+}
@@ -0,0 +1,157 @@
+package com.loki.minidb.execution;
+
+import com.loki.minidb.catalog.Type;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashJoinTest {
+
+    // Left: (key INTEGER, amount BIGINT). Right: (key BIGINT, price DOUBLE, code INTEGER).
+    private static final Type[] LEFT_TYPES = {Type.INTEGER, Type.BIGINT};
+    private static final Type[] RIGHT_TYPES = {Type.BIGINT, Type.DOUBLE, Type.INTEGER};
+
+    // One key in 20 is NULL, and one other value in 10.
+    private static final int[] LEFT_NULL_ONE_IN = {20, 10};
+    private static final int[] RIGHT_NULL_ONE_IN = {20, 10, 10};
+
+    private static Number[][] leftRows(int count, int keyRange, long seed) {
+        return ValuesOperator.randomRows(LEFT_TYPES, new int[] {keyRange, 100000}, LEFT_NULL_ONE_IN, count, seed);
+    }
+
+    private static Number[][] rightRows(int count, int keyRange, long seed) {
+        return ValuesOperator.randomRows(RIGHT_TYPES, new int[] {keyRange, 100000, 100000}, RIGHT_NULL_ONE_IN, count, seed);
+    }
+
+    /**
+     * The join computed with a HashMap, in the form of ValuesOperator.collectSorted().
+     */
+    private static List<String> expectedJoin(Number[][] left, Number[][] right) {
+        Map<Long, List<Number[]>> rightByKey = new HashMap<>();
+        for (Number[] row : right) {
+            if (row[0] != null) {
+                rightByKey.computeIfAbsent(row[0].longValue(), k -> new ArrayList<>()).add(row);
+            }
+        }
+        List<String> result = new ArrayList<>();
+        for (Number[] row : left) {
+            if (row[0] != null) {
+                for (Number[] match : rightByKey.getOrDefault(row[0].longValue(), List.of())) {
+                    Number[] joined = Arrays.copyOf(row, row.length + match.length);
+                    System.arraycopy(match, 0, joined, row.length, match.length);
+                    result.add(Arrays.toString(joined));
+                }
+            }
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    @Test
+    void testJoinInMemory() throws IOException {
+        Number[][] left = leftRows(5000, 500, 1);
+        Number[][] right = rightRows(300, 400, 2);
+        HashJoin join = new HashJoin(new ValuesOperator(LEFT_TYPES, left), new ValuesOperator(RIGHT_TYPES, right), 0, 0, 4);
+
+        assertArrayEquals(new Type[] {Type.INTEGER, Type.BIGINT, Type.BIGINT, Type.DOUBLE, Type.INTEGER}, join.getTypes());
+        assertEquals(expectedJoin(left, right), ValuesOperator.collectSorted(join));
+        assertEquals(0, join.getPartitionCount(), "300 rows fit in the default budget.");
+    }
+
+    @Test
+    void testJoinPartitionsRecursively() throws IOException {
+        // 32 pages: 8 partitions per level, and a table of about 340 right rows once the
+        // workers' buffers and the spill pages are paid for.
+        Number[][] left = leftRows(20000, 3000, 3);
+        Number[][] right = rightRows(6000, 3000, 4);
+        HashJoin join = new HashJoin(new ValuesOperator(LEFT_TYPES, left), new ValuesOperator(RIGHT_TYPES, right), 0, 0, 4, 32);
+
+        assertEquals(expectedJoin(left, right), ValuesOperator.collectSorted(join));
+        assertEquals(2, join.getMaxLevel(), "750 right rows per partition need a second split.");
+        assertEquals(8 + 8 * 8, join.getPartitionCount(), "Each of the 8 partitions is split in 8.");
+    }
+
+    @Test
+    void testJoinBuildsOnTheSmallerPartition() throws IOException {
+        // The right input spills, but each left partition is small enough to build on.
+        Number[][] left = leftRows(300, 5000, 5);
+        Number[][] right = rightRows(8000, 5000, 6);
+        HashJoin join = new HashJoin(new ValuesOperator(LEFT_TYPES, left), new ValuesOperator(RIGHT_TYPES, right), 0, 0, 3, 16);
+
+        assertEquals(expectedJoin(left, right), ValuesOperator.collectSorted(join));
+        assertEquals(1, join.getMaxLevel());
+    }
+
+    @Test
+    void testJoinOnASkewedKeyStaysWithinTheTable() throws IOException {
+        // Every row has key 7, so no hash can split them: after MAX_LEVELS splits, the
+        // right rows are loaded one table-full at a time.
+        Number[][] left = leftRows(1500, 1, 7);
+        Number[][] right = rightRows(1200, 1, 8);
+        for (Number[] row : left) {
+            row[0] = 7;
+        }
+        for (Number[] row : right) {
+            row[0] = 7L;
+        }
+        HashJoin join = new HashJoin(new ValuesOperator(LEFT_TYPES, left), new ValuesOperator(RIGHT_TYPES, right), 0, 0, 4, 16);
+
+        long rows = 0;
+        join.open();
+        VectorBatch batch;
+        while ((batch = join.next()) != null) {
+            rows += batch.getSelectedCount();
+        }
+        join.close();
+        assertEquals(1500L * 1200, rows);
+        assertEquals(3, join.getMaxLevel());
+    }
+
+    @Test
+    void testCloseBeforeTheEnd() throws IOException {
+        Number[][] left = leftRows(20000, 10, 9);
+        Number[][] right = rightRows(100, 10, 10);
+        HashJoin join = new HashJoin(new ValuesOperator(LEFT_TYPES, left), new ValuesOperator(RIGHT_TYPES, right), 0, 0, 4);
+
+        // The workers fill the queue and wait; close() must stop them.
+        join.open();
+        assertNotNull(join.next());
+        join.close();
+    }
+
+    @Test
+    void testTableCapacityFitsItsBytes() {
+        for (int width = 2; width <= 9; width++) {
+            for (long bytes = 1000; bytes < 5_000_000; bytes = bytes * 3 / 2) {
+                int capacity = JoinHashTable.getCapacity(width, bytes);
+                assertTrue(JoinHashTable.getBytes(width, capacity) <= bytes, width + " longs, " + bytes + " bytes");
+                // The slots take the room of a power of two, but rows fill at least half of it.
+                assertTrue(JoinHashTable.getBytes(width, capacity * 2 + 1) > bytes, width + " longs, " + bytes + " bytes");
+            }
+        }
+    }
+
+    @Test
+    void testBadArguments() {
+        Number[][] none = new Number[0][];
+        assertThrows(IllegalArgumentException.class,
+                () -> new HashJoin(new ValuesOperator(RIGHT_TYPES, none), new ValuesOperator(RIGHT_TYPES, none), 1, 0, 2));
+        assertThrows(IllegalArgumentException.class,
+                () -> new HashJoin(new ValuesOperator(LEFT_TYPES, none), new ValuesOperator(RIGHT_TYPES, none), 2, 0, 2));
+        assertThrows(IllegalArgumentException.class,
+                () -> new HashJoin(new ValuesOperator(LEFT_TYPES, none), new ValuesOperator(RIGHT_TYPES, none), 0, 0, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new HashJoin(new ValuesOperator(LEFT_TYPES, none), new ValuesOperator(RIGHT_TYPES, none), 0, 0, 2, 8));
+        // 64 workers' buffers do not fit in half of 16 pages.
+        assertThrows(IllegalArgumentException.class,
+                () -> new HashJoin(new ValuesOperator(LEFT_TYPES, none), new ValuesOperator(RIGHT_TYPES, none), 0, 0, 64, 16));
+    }
+}
@@ -0,0 +1,138 @@
+package com.loki.minidb.execution;
+
+import com.loki.minidb.catalog.Column;
+import com.loki.minidb.catalog.Schema;
+import com.loki.minidb.catalog.Type;
+import com.loki.minidb.storage.BufferPoolManager;
+import com.loki.minidb.storage.DiskManager;
+import com.loki.minidb.storage.TableHeap;
+import com.loki.minidb.storage.Tuple;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelAggregateTest {
+
+    private static final String TEST_DB_FILE = "parallel_aggregate_test.db";
+    private DiskManager diskManager;
+    private BufferPoolManager bufferPoolManager;
+    private Path dbFilePath;
+    private Schema schema;
+    private TableHeap heap;
+
+    private static final AggregateFunction[] FUNCTIONS = {
+            AggregateFunction.COUNT, AggregateFunction.SUM, AggregateFunction.MIN,
+            AggregateFunction.MAX, AggregateFunction.AVG
+    };
+    private static final int[] COLUMNS = {VectorAggregate.COUNT_STAR, 1, 1, 1, 0};
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dbFilePath = Path.of(TEST_DB_FILE);
+        Files.deleteIfExists(dbFilePath);
+        diskManager = new DiskManager(TEST_DB_FILE);
+        bufferPoolManager = new BufferPoolManager(32, diskManager);
+        schema = new Schema(List.of(
+                new Column("id", Type.INTEGER),
+                new Column("amount", Type.BIGINT, true)
+        ));
+        heap = TableHeap.create(bufferPoolManager);
+        for (int id = 0; id < 30000; id++) {
+            Tuple tuple = new Tuple(schema);
+            tuple.setValue(0, id);
+            tuple.setValue(1, id % 3 == 0 ? null : (id % 101) * 7L - 300);
+            heap.insertTuple(tuple);
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        diskManager.close();
+        Files.deleteIfExists(dbFilePath);
+    }
+
+    private static VectorBatch runOnce(VectorOperator plan) throws IOException {
+        plan.open();
+        VectorBatch result = plan.next();
+        assertNull(plan.next());
+        plan.close();
+        return result;
+    }
+
+    @Test
+    void testParallelAggregateMatchesTheSingleThreadedOne() throws IOException {
+        VectorPredicate[] predicates = {new IntComparison(0, CompareOp.LT, 25000)};
+        VectorBatch expected = runOnce(new VectorAggregate(
+                new VectorFilter(new VectorizedSeqScan(heap, schema, new int[] {0, 1}), predicates),
+                FUNCTIONS, COLUMNS));
+        assertEquals(25000, expected.getLongs(0)[0]);
+
+        for (int parallelism : new int[] {1, 2, 8}) {
+            VectorBatch result = runOnce(new ParallelAggregate(heap, schema, new int[] {0, 1}, predicates,
+                    FUNCTIONS, COLUMNS, parallelism));
+            for (int column = 0; column < 4; column++) {
+                assertEquals(expected.getLongs(column)[0], result.getLongs(column)[0],
+                        FUNCTIONS[column] + " with parallelism " + parallelism);
+            }
+            assertEquals(expected.getDoubles(4)[0], result.getDoubles(4)[0], 1e-9);
+        }
+    }
+
+    @Test
+    void testNoMatchingRows() throws IOException {
+        VectorBatch result = runOnce(new ParallelAggregate(heap, schema, new int[] {0, 1},
+                new VectorPredicate[] {new IntComparison(0, CompareOp.LT, 0)}, FUNCTIONS, COLUMNS, 4));
+        assertEquals(0, result.getLongs(0)[0]);
+        assertTrue(result.getNulls(1)[0]);
+        assertTrue(result.getNulls(4)[0]);
+    }
+
+    @Test
+    void testMorselSizeDoesNotChangeTheResult() throws IOException {
+        VectorPredicate[] predicates = {new IntComparison(0, CompareOp.GE, 1000)};
+        VectorBatch expected = runOnce(new ParallelAggregate(heap, schema, new int[] {0, 1}, predicates,
+                FUNCTIONS, COLUMNS, 4));
+        for (int morselPages : new int[] {1, 3, 1000}) {
+            VectorBatch result = runOnce(new ParallelAggregate(heap, schema, new int[] {0, 1}, predicates,
+                    FUNCTIONS, COLUMNS, 4, morselPages));
+            for (int column = 0; column < 4; column++) {
+                assertEquals(expected.getLongs(column)[0], result.getLongs(column)[0], morselPages + " pages per morsel");
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> new ParallelAggregate(heap, schema, new int[] {0, 1},
+                predicates, FUNCTIONS, COLUMNS, 4, 0));
+    }
+
+    @Test
+    void testWorkerFailureStopsTheOtherWorkers() throws Exception {
+        // The third batch any worker filters fails.
+        AtomicInteger batches = new AtomicInteger();
+        VectorPredicate failing = batch -> {
+            if (batches.incrementAndGet() == 3) {
+                throw new IllegalStateException("Failing on purpose.");
+            }
+        };
+        ParallelAggregate aggregate = new ParallelAggregate(heap, schema, new int[] {0, 1},
+                new VectorPredicate[] {failing}, FUNCTIONS, COLUMNS, 4, 1);
+        aggregate.open();
+        assertThrows(IllegalStateException.class, aggregate::next);
+        aggregate.close();
+
+        // next() waited for every worker: none filters another batch, and none holds a page.
+        int seen = batches.get();
+        Thread.sleep(50);
+        assertEquals(seen, batches.get());
+        assertTrue(seen < 20, "The workers stop early, after " + seen + " batches.");
+        for (int i = 0; i < bufferPoolManager.getPoolSize(); i++) {
+            assertNotNull(bufferPoolManager.newPage(), "Every frame must be unpinned.");
+        }
+    }
+}
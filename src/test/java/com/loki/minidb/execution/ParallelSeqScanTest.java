@@ -0,0 +1,125 @@
+package com.loki.minidb.execution;
+
+import com.loki.minidb.catalog.Column;
+import com.loki.minidb.catalog.Schema;
+import com.loki.minidb.catalog.Type;
+import com.loki.minidb.storage.BufferPoolManager;
+import com.loki.minidb.storage.DiskManager;
+import com.loki.minidb.storage.TableHeap;
+import com.loki.minidb.storage.Tuple;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelSeqScanTest {
+
+    private static final String TEST_DB_FILE = "parallel_scan_test.db";
+    private DiskManager diskManager;
+    private BufferPoolManager bufferPoolManager;
+    private Path dbFilePath;
+    private Schema schema;
+    private TableHeap heap;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dbFilePath = Path.of(TEST_DB_FILE);
+        Files.deleteIfExists(dbFilePath);
+        diskManager = new DiskManager(TEST_DB_FILE);
+        bufferPoolManager = new BufferPoolManager(32, diskManager);
+        schema = new Schema(List.of(
+                new Column("id", Type.INTEGER),
+                new Column("amount", Type.BIGINT)
+        ));
+        heap = TableHeap.create(bufferPoolManager);
+        for (int id = 0; id < 20000; id++) {
+            Tuple tuple = new Tuple(schema);
+            tuple.setValue(0, id);
+            tuple.setValue(1, id * 10L);
+            heap.insertTuple(tuple);
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        diskManager.close();
+        Files.deleteIfExists(dbFilePath);
+    }
+
+    private List<Integer> scanIds(VectorOperator scan) throws IOException {
+        List<Integer> ids = new ArrayList<>();
+        scan.open();
+        VectorBatch batch;
+        while ((batch = scan.next()) != null) {
+            for (int i = 0; i < batch.getSelectedCount(); i++) {
+                int row = batch.getSelectedRow(i);
+                int id = batch.getInts(0)[row];
+                assertEquals(id * 10L, batch.getLongs(1)[row], "A row's columns must stay together.");
+                ids.add(id);
+            }
+        }
+        scan.close();
+        Collections.sort(ids);
+        return ids;
+    }
+
+    @Test
+    void testParallelScanReturnsEveryMatchingRowOnce() throws IOException {
+        assertTrue(heap.getPageCount() > 32 * 2, "The table must be larger than the buffer pool.");
+        List<Integer> expected = new ArrayList<>();
+        for (int id = 0; id < 20000; id++) {
+            if (id % 1000 < 100) {
+                expected.add(id);
+            }
+        }
+
+        for (int parallelism : new int[] {1, 4}) {
+            ParallelSeqScan scan = new ParallelSeqScan(heap, schema, new int[] {0, 1}, parallelism, 2,
+                    new IntComparison(0, CompareOp.GE, 0));
+            List<Integer> all = scanIds(scan);
+            assertEquals(20000, all.size(), "Parallelism " + parallelism);
+
+            VectorPredicate firstHundred = batch -> {
+                // id % 1000 < 100, written as a predicate of its own.
+                int[] selection = batch.getSelection();
+                int kept = 0;
+                for (int i = 0; i < batch.getSelectedCount(); i++) {
+                    if (batch.getInts(0)[selection[i]] % 1000 < 100) {
+                        selection[kept++] = selection[i];
+                    }
+                }
+                batch.setSelectedCount(kept);
+            };
+            assertEquals(expected, scanIds(new ParallelSeqScan(heap, schema, new int[] {0, 1}, parallelism, firstHundred)),
+                    "Parallelism " + parallelism);
+        }
+    }
+
+    @Test
+    void testClosingEarlyStopsTheWorkers() throws IOException {
+        ParallelSeqScan scan = new ParallelSeqScan(heap, schema, new int[] {0}, 4, 1);
+        scan.open();
+        assertNotNull(scan.next());
+        scan.close();
+
+        // Every page must have been unpinned, so the whole pool can be used again.
+        for (int pageId : heap.getPageIds()) {
+            assertNotNull(bufferPoolManager.fetchPage(pageId), "Page " + pageId + " was left pinned.");
+            bufferPoolManager.unpinPage(pageId);
+        }
+    }
+
+    @Test
+    void testBadArgumentsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new ParallelSeqScan(heap, schema, new int[] {0}, 0));
+        assertThrows(IllegalArgumentException.class, () -> new MorselQueue(new int[] {1, 2}, 0));
+    }
+}
@@ -0,0 +1,162 @@
+package com.loki.minidb.execution;
+
+import com.loki.minidb.catalog.Type;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ValuesOperator returns fixed rows, a batch at a time, so the operator tests can feed
+ * their plans without a table.
+ *
+ * A row holds one Number per column, stored as the column's type (intValue(), longValue()
+ * or doubleValue()), and null is a NULL. collect() reads a plan's rows back in the same
+ * form, with an Integer, a Long or a Double per value. randomRows() makes rows in that
+ * form too, so a test can compare what it fed a plan with what came out.
+ */
+final class ValuesOperator implements VectorOperator {
+
+    static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private final Type[] types;
+    private final Number[][] rows;
+    private final int batchSize;
+
+    private VectorBatch batch;
+    private int position;
+
+    /**
+     * @param types The type of each column.
+     * @param rows The rows to return, one value per column.
+     * @param batchSize The number of rows per batch.
+     */
+    ValuesOperator(Type[] types, Number[][] rows, int batchSize) {
+        this.types = types.clone();
+        this.rows = rows;
+        this.batchSize = batchSize;
+    }
+
+    ValuesOperator(Type[] types, Number[][] rows) {
+        this(types, rows, DEFAULT_BATCH_SIZE);
+    }
+
+    @Override
+    public Type[] getTypes() {
+        return types.clone();
+    }
+
+    @Override
+    public void open() {
+        batch = new VectorBatch(types, batchSize);
+        position = 0;
+    }
+
+    @Override
+    public VectorBatch next() {
+        int size = Math.min(batchSize, rows.length - position);
+        if (size == 0) {
+            return null;
+        }
+        for (int row = 0; row < size; row++) {
+            Number[] values = rows[position++];
+            for (int column = 0; column < types.length; column++) {
+                Number value = values[column];
+                batch.getNulls(column)[row] = value == null;
+                switch (types[column]) {
+                    case INTEGER -> batch.getInts(column)[row] = value == null ? 0 : value.intValue();
+                    case BIGINT -> batch.getLongs(column)[row] = value == null ? 0 : value.longValue();
+                    default -> batch.getDoubles(column)[row] = value == null ? 0 : value.doubleValue();
+                }
+            }
+        }
+        batch.setSize(size);
+        return batch;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    /**
+     * Runs a plan and returns its selected rows, checking it never returns an empty batch.
+     * @param plan The plan to run. It is opened and closed.
+     * @return One array per row, in the order the plan returned them.
+     * @throws IOException if a disk I/O error occurs.
+     */
+    static List<Number[]> collect(VectorOperator plan) throws IOException {
+        List<Number[]> result = new ArrayList<>();
+        plan.open();
+        VectorBatch batch;
+        while ((batch = plan.next()) != null) {
+            assertTrue(batch.getSelectedCount() > 0, "An operator must not return an empty batch.");
+            for (int i = 0; i < batch.getSelectedCount(); i++) {
+                int row = batch.getSelectedRow(i);
+                Number[] values = new Number[batch.getColumnCount()];
+                for (int column = 0; column < values.length; column++) {
+                    if (!batch.getNulls(column)[row]) {
+                        values[column] = switch (batch.getType(column)) {
+                            case INTEGER -> batch.getInts(column)[row];
+                            case BIGINT -> batch.getLongs(column)[row];
+                            default -> batch.getDoubles(column)[row];
+                        };
+                    }
+                }
+                result.add(values);
+            }
+        }
+        plan.close();
+        return result;
+    }
+
+    /**
+     * Runs a plan and returns its rows as sorted strings, for plans whose row order is
+     * not defined. A row is formatted as Arrays.toString() does, so an Integer and a Long
+     * of the same value look alike.
+     * @param plan The plan to run. It is opened and closed.
+     * @return One string per row, sorted.
+     * @throws IOException if a disk I/O error occurs.
+     */
+    static List<String> collectSorted(VectorOperator plan) throws IOException {
+        List<String> result = new ArrayList<>();
+        for (Number[] row : collect(plan)) {
+            result.add(Arrays.toString(row));
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    /**
+     * Makes random rows, the same ones for the same seed.
+     * @param types The type of each column: an INTEGER value is an Integer, a BIGINT a
+     *              Long and anything else a Double.
+     * @param bounds Each column's values are drawn from [0, bound).
+     * @param nullOneIn Each column is NULL one time in this many, or never if it is 0.
+     * @param count The number of rows.
+     * @param seed The seed of the random values.
+     * @return The rows, one value per column.
+     */
+    static Number[][] randomRows(Type[] types, int[] bounds, int[] nullOneIn, int count, long seed) {
+        Random random = new Random(seed);
+        Number[][] rows = new Number[count][types.length];
+        for (Number[] row : rows) {
+            for (int column = 0; column < types.length; column++) {
+                if (nullOneIn[column] != 0 && random.nextInt(nullOneIn[column]) == 0) {
+                    continue;
+                }
+                int value = random.nextInt(bounds[column]);
+                row[column] = switch (types[column]) {
+                    case INTEGER -> value;
+                    case BIGINT -> (long) value;
+                    default -> (double) value;
+                };
+            }
+        }
+        return rows;
+    }
+}
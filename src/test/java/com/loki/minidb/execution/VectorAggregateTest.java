@@ -0,0 +1,117 @@
+package com.loki.minidb.execution;
+
+import com.loki.minidb.catalog.Column;
+import com.loki.minidb.catalog.Schema;
+import com.loki.minidb.catalog.Type;
+import com.loki.minidb.storage.BufferPoolManager;
+import com.loki.minidb.storage.DiskManager;
+import com.loki.minidb.storage.TableHeap;
+import com.loki.minidb.storage.Tuple;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VectorAggregateTest {
+
+    private static final String TEST_DB_FILE = "vector_aggregate_test.db";
+    private DiskManager diskManager;
+    private BufferPoolManager bufferPoolManager;
+    private Path dbFilePath;
+    private Schema schema;
+    private TableHeap heap;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dbFilePath = Path.of(TEST_DB_FILE);
+        Files.deleteIfExists(dbFilePath);
+        diskManager = new DiskManager(TEST_DB_FILE);
+        bufferPoolManager = new BufferPoolManager(16, diskManager);
+        schema = new Schema(List.of(
+                new Column("id", Type.INTEGER),
+                new Column("price", Type.INTEGER, true)
+        ));
+        heap = TableHeap.create(bufferPoolManager);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        diskManager.close();
+        Files.deleteIfExists(dbFilePath);
+    }
+
+    private static final AggregateFunction[] ALL = {
+            AggregateFunction.COUNT, AggregateFunction.COUNT, AggregateFunction.SUM,
+            AggregateFunction.MIN, AggregateFunction.MAX, AggregateFunction.AVG
+    };
+    private static final int[] ALL_COLUMNS = {VectorAggregate.COUNT_STAR, 1, 1, 1, 1, 1};
+
+    @Test
+    void testAggregatesOverAFilteredScan() throws IOException {
+        // 1. ARRANGE: price = id * 3, and NULL for every fifth row.
+        for (int id = 0; id < 10000; id++) {
+            Tuple tuple = new Tuple(schema);
+            tuple.setValue(0, id);
+            tuple.setValue(1, id % 5 == 0 ? null : id * 3);
+            heap.insertTuple(tuple);
+        }
+
+        // 2. ACT: SELECT COUNT(*), COUNT(price), SUM(price), MIN(price), MAX(price), AVG(price)
+        //         FROM t WHERE id >= 1000 AND id < 2000
+        VectorOperator plan = new VectorAggregate(
+                new VectorFilter(new VectorizedSeqScan(heap, schema, new int[] {0, 1}),
+                        new IntComparison(0, CompareOp.GE, 1000),
+                        new IntComparison(0, CompareOp.LT, 2000)),
+                ALL, ALL_COLUMNS);
+        plan.open();
+        VectorBatch result = plan.next();
+        assertNull(plan.next(), "An aggregate without GROUP BY returns one row.");
+        plan.close();
+
+        // 3. ASSERT
+        long count = 0;
+        long sum = 0;
+        for (int id = 1000; id < 2000; id++) {
+            if (id % 5 != 0) {
+                count++;
+                sum += id * 3L;
+            }
+        }
+        assertEquals(1, result.getSize());
+        assertEquals(1000, result.getLongs(0)[0]);
+        assertEquals(count, result.getLongs(1)[0]);
+        assertEquals(sum, result.getLongs(2)[0]);
+        assertEquals(1001 * 3, result.getLongs(3)[0]);
+        assertEquals(1999 * 3, result.getLongs(4)[0]);
+        assertEquals((double) sum / count, result.getDoubles(5)[0], 1e-9);
+    }
+
+    @Test
+    void testAggregatesOverNoRows() throws IOException {
+        VectorOperator plan = new VectorAggregate(new VectorizedSeqScan(heap, schema, new int[] {0, 1}), ALL, ALL_COLUMNS);
+        plan.open();
+        VectorBatch result = plan.next();
+        plan.close();
+
+        assertEquals(0, result.getLongs(0)[0]);
+        assertEquals(0, result.getLongs(1)[0]);
+        for (int column = 2; column < ALL.length; column++) {
+            assertTrue(result.getNulls(column)[0], "Aggregate " + ALL[column] + " of nothing is NULL.");
+        }
+    }
+
+    @Test
+    void testBadAggregatesAreRejected() {
+        VectorOperator scan = new VectorizedSeqScan(heap, schema, new int[] {0, 1});
+        assertThrows(IllegalArgumentException.class, () -> new VectorAggregate(scan,
+                new AggregateFunction[] {AggregateFunction.SUM}, new int[] {VectorAggregate.COUNT_STAR}));
+        assertThrows(IllegalArgumentException.class, () -> new VectorAggregate(scan,
+                new AggregateFunction[] {AggregateFunction.SUM, AggregateFunction.MAX}, new int[] {0}));
+    }
+}
@@ -0,0 +1,74 @@
+package com.loki.minidb.execution;
+
+import com.loki.minidb.catalog.Type;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VectorFilterTest {
+
+    private static final Type[] TYPES = {Type.INTEGER, Type.INTEGER};
+
+    /**
+     * An operator that returns the given INTEGER values in batches of `capacity`, each
+     * with its row number (from 1) as a second column. A value of null is a NULL.
+     */
+    private static VectorOperator values(int capacity, Integer... values) {
+        Number[][] rows = new Number[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            rows[i] = new Number[] {values[i], i + 1};
+        }
+        return new ValuesOperator(TYPES, rows, capacity);
+    }
+
+    private static List<Integer> run(VectorOperator plan, int column) throws Exception {
+        List<Integer> result = new ArrayList<>();
+        for (Number[] row : ValuesOperator.collect(plan)) {
+            result.add((Integer) row[column]);
+        }
+        return result;
+    }
+
+    @Test
+    void testEachComparison() throws Exception {
+        Integer[] input = {5, 1, null, 9, 5, Integer.MIN_VALUE, Integer.MAX_VALUE};
+        assertEquals(List.of(5, 5), run(new VectorFilter(values(3, input), new IntComparison(0, CompareOp.EQ, 5)), 0));
+        assertEquals(List.of(1, 9, Integer.MIN_VALUE, Integer.MAX_VALUE),
+                run(new VectorFilter(values(3, input), new IntComparison(0, CompareOp.NE, 5)), 0));
+        assertEquals(List.of(1, Integer.MIN_VALUE), run(new VectorFilter(values(3, input), new IntComparison(0, CompareOp.LT, 5)), 0));
+        assertEquals(List.of(5, 1, 5, Integer.MIN_VALUE), run(new VectorFilter(values(3, input), new IntComparison(0, CompareOp.LE, 5)), 0));
+        assertEquals(List.of(9, Integer.MAX_VALUE), run(new VectorFilter(values(3, input), new IntComparison(0, CompareOp.GT, 5)), 0));
+        assertEquals(List.of(5, 9, 5, Integer.MAX_VALUE), run(new VectorFilter(values(3, input), new IntComparison(0, CompareOp.GE, 5)), 0));
+
+        // The edges of the int range must not overflow into a match.
+        assertEquals(List.of(), run(new VectorFilter(values(3, input), new IntComparison(0, CompareOp.LT, Integer.MIN_VALUE)), 0));
+        assertEquals(List.of(), run(new VectorFilter(values(3, input), new IntComparison(0, CompareOp.GT, Integer.MAX_VALUE)), 0));
+    }
+
+    @Test
+    void testPredicatesCombineAndSkipEmptyBatches() throws Exception {
+        Integer[] input = new Integer[1000];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = i;
+        }
+
+        // 100 <= x < 110, then keep the row number column only.
+        VectorOperator plan = new VectorProjection(
+                new VectorFilter(values(64, input),
+                        new IntComparison(0, CompareOp.GE, 100),
+                        new IntComparison(0, CompareOp.LT, 110)),
+                1);
+        assertArrayEquals(new Type[] {Type.INTEGER}, plan.getTypes());
+        assertEquals(List.of(101, 102, 103, 104, 105, 106, 107, 108, 109, 110), run(plan, 0));
+    }
+
+    @Test
+    void testProjectionCanRepeatAndReorderColumns() throws Exception {
+        VectorOperator plan = new VectorProjection(values(2, 7, 8, 9), 1, 0, 1);
+        assertEquals(List.of(1, 2, 3), run(plan, 0));
+        assertEquals(List.of(7, 8, 9), run(new VectorProjection(values(2, 7, 8, 9), 1, 0, 1), 1));
+    }
+}
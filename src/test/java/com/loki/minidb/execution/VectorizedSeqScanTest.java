@@ -0,0 +1,117 @@
+package com.loki.minidb.execution;
+
+import com.loki.minidb.catalog.Column;
+import com.loki.minidb.catalog.Schema;
+import com.loki.minidb.catalog.Type;
+import com.loki.minidb.storage.BufferPoolManager;
+import com.loki.minidb.storage.DiskManager;
+import com.loki.minidb.storage.RecordId;
+import com.loki.minidb.storage.TableHeap;
+import com.loki.minidb.storage.Tuple;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VectorizedSeqScanTest {
+
+    private static final String TEST_DB_FILE = "vectorized_scan_test.db";
+    private DiskManager diskManager;
+    private BufferPoolManager bufferPoolManager;
+    private Path dbFilePath;
+    private Schema schema;
+    private TableHeap heap;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dbFilePath = Path.of(TEST_DB_FILE);
+        Files.deleteIfExists(dbFilePath);
+        diskManager = new DiskManager(TEST_DB_FILE);
+        bufferPoolManager = new BufferPoolManager(16, diskManager);
+        schema = new Schema(List.of(
+                new Column("id", Type.INTEGER),
+                new Column("name", Type.VARCHAR),
+                new Column("amount", Type.BIGINT, true),
+                new Column("ratio", Type.DOUBLE)
+        ));
+        heap = TableHeap.create(bufferPoolManager);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        diskManager.close();
+        Files.deleteIfExists(dbFilePath);
+    }
+
+    private RecordId insert(int id) throws IOException {
+        Tuple tuple = new Tuple(schema);
+        tuple.setValue(0, id);
+        tuple.setValue(1, "row-" + id);
+        tuple.setValue(2, id % 10 == 0 ? null : id * 1000L);
+        tuple.setValue(3, id / 4.0);
+        return heap.insertTuple(tuple);
+    }
+
+    @Test
+    void testScanReadsEveryLiveRowInBatches() throws IOException {
+        // 1. ARRANGE: Enough rows for many pages, with some deleted.
+        List<RecordId> recordIds = new ArrayList<>();
+        for (int id = 0; id < 3000; id++) {
+            recordIds.add(insert(id));
+        }
+        for (int id = 0; id < 3000; id += 7) {
+            assertTrue(heap.deleteTuple(recordIds.get(id)));
+        }
+        assertTrue(heap.getPageCount() > 16, "The table must not fit in the buffer pool.");
+
+        // 2. ACT: Read three columns, out of order, 100 rows at a time.
+        VectorizedSeqScan scan = new VectorizedSeqScan(bufferPoolManager, heap.getPageIds(), schema, new int[] {3, 0, 2}, 100);
+        scan.open();
+        List<Integer> ids = new ArrayList<>();
+        VectorBatch batch;
+        while ((batch = scan.next()) != null) {
+            assertTrue(batch.getSize() <= 100);
+            assertFalse(batch.isSelectionActive());
+            for (int row = 0; row < batch.getSize(); row++) {
+                int id = batch.getInts(1)[row];
+                ids.add(id);
+                assertEquals(id / 4.0, batch.getDoubles(0)[row]);
+                assertEquals(id % 10 == 0, batch.getNulls(2)[row], "NULL flag of row " + id);
+                if (id % 10 != 0) {
+                    assertEquals(id * 1000L, batch.getLongs(2)[row]);
+                }
+            }
+        }
+        scan.close();
+
+        // 3. ASSERT: Every live row came back exactly once, in heap order, and no page stayed pinned.
+        List<Integer> expected = new ArrayList<>();
+        for (int id = 0; id < 3000; id++) {
+            if (id % 7 != 0) {
+                expected.add(id);
+            }
+        }
+        assertEquals(expected, ids);
+        for (int pageId : heap.getPageIds()) {
+            assertNotNull(bufferPoolManager.fetchPage(pageId), "Page " + pageId + " was left pinned.");
+            bufferPoolManager.unpinPage(pageId);
+        }
+    }
+
+    @Test
+    void testEmptyTableAndUnsupportedColumns() throws IOException {
+        VectorizedSeqScan scan = new VectorizedSeqScan(heap, schema, new int[] {0});
+        scan.open();
+        assertNull(scan.next());
+        scan.close();
+
+        assertThrows(IllegalArgumentException.class, () -> new VectorizedSeqScan(heap, schema, new int[] {1}));
+    }
+}
@@ -0,0 +1,74 @@
+package com.loki.minidb.index;
+
+import com.loki.minidb.bench.Bench;
+import com.loki.minidb.storage.BufferPoolManager;
+import com.loki.minidb.storage.DiskManager;
+import com.loki.minidb.storage.DurabilityMode;
+import com.loki.minidb.storage.IoMode;
+import com.loki.minidb.storage.RecordId;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * BPlusTreeBenchmark measures B+Tree throughput with 1, 2, 4 and 8 threads (see Bench
+ * for how to run it). ops/s is the total throughput of all threads.
+ *
+ * The tree starts with KEYS even keys and the buffer pool holds all of its pages, so
+ * the numbers show the latching, not the disk.
+ * 1. Lookups of random existing keys. Readers only take read latches, or none on the
+ *    optimistic path, so they should scale with the cores.
+ * 2. A mix of 90% lookups and 10% inserts of random odd keys. An insert write-latches
+ *    its leaf, and a split also its parent, so writers contend where they meet.
+ *
+ * The threads only scale up to the number of cores of the machine.
+ */
+public class BPlusTreeBenchmark {
+
+    private static final int KEYS = 500_000;
+    private static final int POOL_SIZE = 16384;
+    private static final int OPS = 500_000;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("Available processors: " + Runtime.getRuntime().availableProcessors());
+
+        Path file = Files.createTempFile("minidb-bench-", ".db");
+        try (DiskManager diskManager = new DiskManager(file.toString(), IoMode.FILE_CHANNEL, DurabilityMode.OS_BUFFERED)) {
+            BufferPoolManager bufferPoolManager = new BufferPoolManager(POOL_SIZE, diskManager);
+            BPlusTree tree = BPlusTree.create(bufferPoolManager);
+            for (int key = 0; key < KEYS; key++) {
+                tree.insert(key * 2, new RecordId(key, 0));
+            }
+
+            for (int threads = 1; threads <= 8; threads *= 2) {
+                Bench.measureParallel("lookup, " + threads + " threads", threads, OPS, n -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    long sum = 0;
+                    for (int i = 0; i < n; i++) {
+                        sum += tree.getValue(random.nextInt(KEYS) * 2).getPageId();
+                    }
+                    return sum;
+                });
+            }
+            for (int threads = 1; threads <= 8; threads *= 2) {
+                Bench.measureParallel("90% lookup / 10% insert, " + threads + " threads", threads, OPS, n -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    long sum = 0;
+                    for (int i = 0; i < n; i++) {
+                        int key = random.nextInt(KEYS);
+                        if (random.nextInt(10) == 0) {
+                            // Odd keys are new, unless an earlier round inserted the same one.
+                            sum += tree.insert(key * 2 + 1, new RecordId(key, 1)) ? 1 : 0;
+                        } else {
+                            sum += tree.getValue(key * 2).getPageId();
+                        }
+                    }
+                    return sum;
+                });
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
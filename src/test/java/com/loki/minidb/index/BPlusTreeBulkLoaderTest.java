@@ -0,0 +1,244 @@
+package com.loki.minidb.index;
+
+import com.loki.minidb.catalog.Column;
+import com.loki.minidb.catalog.Schema;
+import com.loki.minidb.catalog.Type;
+import com.loki.minidb.storage.BufferPoolManager;
+import com.loki.minidb.storage.DiskManager;
+import com.loki.minidb.storage.RecordId;
+import com.loki.minidb.storage.TableHeap;
+import com.loki.minidb.storage.Tuple;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BPlusTreeBulkLoaderTest {
+
+    private static final String TEST_DB_FILE = "bulk_loader_test.db";
+    private DiskManager diskManager;
+    private BufferPoolManager bufferPoolManager;
+    private Path dbFilePath;
+    private Schema schema;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dbFilePath = Path.of(TEST_DB_FILE);
+        Files.deleteIfExists(dbFilePath);
+        diskManager = new DiskManager(TEST_DB_FILE);
+        bufferPoolManager = new BufferPoolManager(64, diskManager);
+        schema = new Schema(List.of(
+                new Column("payload", Type.INTEGER),
+                new Column("id", Type.INTEGER, true)
+        ));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        diskManager.close();
+        Files.deleteIfExists(dbFilePath);
+    }
+
+    /**
+     * Inserts a row per key, in the given order, and returns where each one went.
+     */
+    private Map<Integer, RecordId> fillHeap(TableHeap heap, List<Integer> keys) throws IOException {
+        Map<Integer, RecordId> recordIds = new HashMap<>();
+        for (Integer key : keys) {
+            Tuple tuple = new Tuple(schema);
+            tuple.setValue(0, 7);
+            tuple.setValue(1, key);
+            RecordId recordId = heap.insertTuple(tuple);
+            if (key != null) {
+                recordIds.put(key, recordId);
+            }
+        }
+        return recordIds;
+    }
+
+    @Test
+    void testLoadBuildsASearchableTree() throws IOException {
+        // 1. ARRANGE: 5000 shuffled keys and a few NULLs, sorted with 500 entries in memory.
+        List<Integer> keys = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            keys.add(i * 2);
+        }
+        Collections.shuffle(keys, new Random(7));
+        keys.add(null);
+        keys.add(1234, null);
+        TableHeap heap = TableHeap.create(bufferPoolManager);
+        Map<Integer, RecordId> recordIds = fillHeap(heap, keys);
+
+        // 2. ACT: Leaves of at most 8 entries and inner nodes of at most 4 keys, filled to 75%.
+        long writeCalls = diskManager.getWriteCalls();
+        BPlusTree tree = new BPlusTreeBulkLoader(bufferPoolManager, 8, 4, 0.75, 500).load(heap, schema, 1);
+
+        // 3. ASSERT: 6 entries per leaf make 834 leaves; 4 children per inner node make 5 inner levels.
+        assertEquals(6, tree.getHeight());
+        assertTrue(diskManager.getWriteCalls() - writeCalls < 40,
+                "The ~1100 nodes must be written in batches, not one page at a time.");
+        for (int i = 0; i < 5000; i++) {
+            assertEquals(recordIds.get(i * 2), tree.getValue(i * 2));
+            assertNull(tree.getValue(i * 2 + 1));
+        }
+        BPlusTreeIterator iterator = tree.iterator();
+        int expected = 0;
+        while (iterator.hasNext()) {
+            RecordId recordId = iterator.next();
+            assertEquals(expected, iterator.getKey());
+            assertEquals(recordIds.get(expected), recordId);
+            expected += 2;
+        }
+        assertEquals(10000, expected, "The leaf chain must hold every key exactly once.");
+
+        // The bulk-loaded nodes take later changes like any others.
+        for (int i = 0; i < 5000; i++) {
+            assertTrue(tree.insert(i * 2 + 1, new RecordId(1, i)));
+        }
+        assertTrue(tree.delete(0));
+        assertFalse(tree.insert(10, new RecordId(1, 1)));
+        assertNull(tree.getValue(0));
+        for (int key = 1; key < 10000; key++) {
+            assertNotNull(tree.getValue(key), "Key " + key);
+        }
+    }
+
+    @Test
+    void testFullFillFactorPacksEveryLeaf() throws IOException {
+        List<Integer> keys = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            keys.add(i);
+        }
+        TableHeap heap = TableHeap.create(bufferPoolManager);
+        fillHeap(heap, keys);
+
+        // 64 keys in full leaves of 8 are 8 leaves, under a single root of 8 children.
+        BPlusTree tree = new BPlusTreeBulkLoader(bufferPoolManager, 8, 7, 1.0, 1000).load(heap, schema, 1);
+        assertEquals(2, tree.getHeight());
+
+        // Inserting into a full leaf splits it.
+        assertTrue(tree.insert(-1, new RecordId(1, 1)));
+        assertEquals(new RecordId(1, 1), tree.getValue(-1));
+        assertEquals(3, tree.getHeight(), "The root was full too, so the split must reach it.");
+    }
+
+    @Test
+    void testEmptyTableGivesAnEmptyTree() throws IOException {
+        TableHeap heap = TableHeap.create(bufferPoolManager);
+        BPlusTree tree = new BPlusTreeBulkLoader(bufferPoolManager).load(heap, schema, 1);
+
+        assertEquals(1, tree.getHeight());
+        assertFalse(tree.iterator().hasNext());
+        assertTrue(tree.insert(5, new RecordId(1, 1)));
+        assertEquals(new RecordId(1, 1), tree.getValue(5));
+    }
+
+    @Test
+    void testDuplicateKeysAreRejected() throws IOException {
+        TableHeap heap = TableHeap.create(bufferPoolManager);
+        fillHeap(heap, List.of(3, 1, 4, 1, 5));
+
+        // Runs of 2 entries put the two 1s in different runs.
+        BPlusTreeBulkLoader loader = new BPlusTreeBulkLoader(bufferPoolManager, 4, 4, 0.9, 2);
+        int pages = diskManager.getNumPages();
+        assertThrows(IllegalArgumentException.class, () -> loader.load(heap, schema, 1));
+        assertEquals(pages, diskManager.getNumPages(), "No page may be allocated for a tree that is never built.");
+    }
+
+    @Test
+    void testBadArgumentsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new BPlusTreeBulkLoader(bufferPoolManager, 8, 4, 0, 100));
+        assertThrows(IllegalArgumentException.class, () -> new BPlusTreeBulkLoader(bufferPoolManager, 8, 4, 1.5, 100));
+        assertThrows(IllegalArgumentException.class, () -> new BPlusTreeBulkLoader(bufferPoolManager, 1, 4, 0.5, 100));
+    }
+
+    @Test
+    void testSorterMergesSpilledRuns() throws IOException {
+        Random random = new Random(3);
+        int[] keys = new int[1000];
+        try (KeyRecordSorter sorter = new KeyRecordSorter(128)) {
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = random.nextInt();
+                sorter.add(keys[i], i, -i);
+            }
+            sorter.sort();
+            assertEquals(8, sorter.getRunCount(), "1000 entries in runs of 128 make 8 runs.");
+            assertFalse(sorter.hasDuplicateKey());
+
+            Arrays.sort(keys);
+            for (int key : keys) {
+                assertTrue(sorter.next());
+                assertEquals(key, sorter.key());
+                assertEquals(-sorter.pageId(), sorter.slotId(), "An entry must stay together.");
+            }
+            assertFalse(sorter.next());
+        }
+    }
+
+    @Test
+    void testSorterBoundsItsFanIn() throws IOException {
+        Random random = new Random(4);
+        int[] keys = new int[1000];
+        // 1000 entries in runs of 16 make 63 runs. Up to 64 are merged in one go.
+        for (int maxFanIn : new int[] {64, 4, 2}) {
+            try (KeyRecordSorter sorter = new KeyRecordSorter(16, maxFanIn)) {
+                for (int i = 0; i < keys.length; i++) {
+                    keys[i] = random.nextInt();
+                    sorter.add(keys[i], i, -i);
+                }
+                sorter.sort();
+                assertEquals(63, sorter.getRunCount());
+                if (maxFanIn == 64) {
+                    assertEquals(0, sorter.getMergedRunCount(), "One merge pass needs no extra copy.");
+                } else {
+                    assertTrue(sorter.getMergedRunCount() > 0);
+                }
+
+                Arrays.sort(keys);
+                for (int key : keys) {
+                    assertTrue(sorter.next());
+                    assertEquals(key, sorter.key());
+                    assertEquals(-sorter.pageId(), sorter.slotId(), "An entry must stay together.");
+                }
+                assertFalse(sorter.next());
+                assertFalse(sorter.hasDuplicateKey());
+            }
+        }
+    }
+
+    @Test
+    void testSorterFindsDuplicates() throws IOException {
+        // In memory, within one run, split between two runs, and split between two runs
+        // that an intermediate merge (fan-in 2) brings together.
+        int[][] inputs = {{5, 2, 7, 2}, {9, 9, 1, 3}, {4, 1, 6, 4}, {8, 1, 8, 3, 5, 2}};
+        int[] memoryEntries = {10, 2, 2, 2};
+        int[] duplicates = {2, 9, 4, 8};
+        boolean[] knownAfterSort = {true, true, false, true};
+        for (int i = 0; i < inputs.length; i++) {
+            try (KeyRecordSorter sorter = new KeyRecordSorter(memoryEntries[i], 2)) {
+                for (int key : inputs[i]) {
+                    sorter.add(key, 0, 0);
+                }
+                sorter.sort();
+                assertEquals(knownAfterSort[i], sorter.hasDuplicateKey(), "Input " + i);
+                while (sorter.next()) {
+                    // The final merge compares the entries as they are read.
+                }
+                assertTrue(sorter.hasDuplicateKey(), "Input " + i);
+                assertEquals(duplicates[i], sorter.getDuplicateKey(), "Input " + i);
+            }
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.loki.minidb.index;
+
+import com.loki.minidb.storage.BufferPoolManager;
+import com.loki.minidb.storage.DiskManager;
+import com.loki.minidb.storage.RecordId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BPlusTreeTest {
+
+    private static final String TEST_DB_FILE = "bplus_tree_test.db";
+    private DiskManager diskManager;
+    private BufferPoolManager bufferPoolManager;
+    private Path dbFilePath;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dbFilePath = Path.of(TEST_DB_FILE);
+        Files.deleteIfExists(dbFilePath);
+        diskManager = new DiskManager(TEST_DB_FILE);
+        bufferPoolManager = new BufferPoolManager(64, diskManager);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        diskManager.close();
+        Files.deleteIfExists(dbFilePath);
+    }
+
+    private static RecordId rid(int key) {
+        return new RecordId(key / 100, key % 100);
+    }
+
+    @Test
+    void testInsertAndLookupSplitsNodes() throws IOException {
+        // 1. ARRANGE: Tiny nodes, so a few hundred keys make a tree several levels deep.
+        BPlusTree tree = BPlusTree.create(bufferPoolManager, 4, 3);
+        List<Integer> keys = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            keys.add(i * 3);
+        }
+        Collections.shuffle(keys, new Random(42));
+
+        // 2. ACT: Insert in random order.
+        for (int key : keys) {
+            assertTrue(tree.insert(key, rid(key)));
+        }
+
+        // 3. ASSERT: Every key is found, the gaps between them are not, and duplicates are refused.
+        assertTrue(tree.getHeight() >= 4, "500 keys in nodes of at most 4 entries need several levels.");
+        for (int i = 0; i < 500; i++) {
+            assertEquals(rid(i * 3), tree.getValue(i * 3));
+            assertNull(tree.getValue(i * 3 + 1));
+        }
+        assertFalse(tree.insert(30, new RecordId(9, 9)));
+        assertEquals(rid(30), tree.getValue(30), "A refused duplicate must not change the entry.");
+    }
+
+    @Test
+    void testRangeIteratorReturnsKeysInOrder() throws IOException {
+        BPlusTree tree = BPlusTree.create(bufferPoolManager, 5, 4);
+        for (int key = 999; key >= 0; key--) {
+            tree.insert(key, rid(key));
+        }
+
+        // A range in the middle, inclusive on both ends.
+        BPlusTreeIterator iterator = tree.iterator(250, 260);
+        List<Integer> found = new ArrayList<>();
+        while (iterator.hasNext()) {
+            RecordId recordId = iterator.next();
+            assertEquals(rid(iterator.getKey()), recordId);
+            found.add(iterator.getKey());
+        }
+        List<Integer> expected = new ArrayList<>();
+        for (int key = 250; key <= 260; key++) {
+            expected.add(key);
+        }
+        assertEquals(expected, found);
+
+        // The whole tree, and an empty range.
+        int count = 0;
+        int previous = -1;
+        for (BPlusTreeIterator all = tree.iterator(); all.hasNext(); count++) {
+            all.next();
+            assertTrue(all.getKey() > previous);
+            previous = all.getKey();
+        }
+        assertEquals(1000, count);
+        assertFalse(tree.iterator(10, 9).hasNext());
+        assertFalse(tree.iterator(5000, 6000).hasNext());
+    }
+
+    @Test
+    void testDeleteIsLazyButCorrect() throws IOException {
+        BPlusTree tree = BPlusTree.create(bufferPoolManager, 4, 4);
+        for (int key = 0; key < 200; key++) {
+            tree.insert(key, rid(key));
+        }
+
+        // 1. ACT: Delete every key below 100 and every odd key.
+        for (int key = 0; key < 200; key++) {
+            if (key < 100 || key % 2 == 1) {
+                assertTrue(tree.delete(key));
+            }
+        }
+        assertFalse(tree.delete(1), "A key can only be deleted once.");
+
+        // 2. ASSERT: Lookups and scans skip the deleted keys, including the emptied leaves.
+        assertNull(tree.getValue(50));
+        assertEquals(rid(150), tree.getValue(150));
+        int count = 0;
+        for (BPlusTreeIterator iterator = tree.iterator(); iterator.hasNext(); count++) {
+            iterator.next();
+            assertTrue(iterator.getKey() >= 100 && iterator.getKey() % 2 == 0);
+        }
+        assertEquals(50, count);
+
+        // Deleted keys can be inserted again.
+        assertTrue(tree.insert(51, rid(51)));
+        assertEquals(rid(51), tree.getValue(51));
+    }
+
+    @Test
+    void testTreeSurvivesReopening() throws IOException {
+        BPlusTree tree = BPlusTree.create(bufferPoolManager);
+        for (int key = 0; key < 2000; key++) {
+            tree.insert(key * 7, rid(key));
+        }
+        int headerPageId = tree.getHeaderPageId();
+        bufferPoolManager.flushAllPages();
+
+        // Open the tree through a fresh buffer pool, so every node comes from disk.
+        BPlusTree reopened = new BPlusTree(new BufferPoolManager(16, diskManager), headerPageId);
+        assertEquals(tree.getRootPageId(), reopened.getRootPageId());
+        assertEquals(2, reopened.getHeight());
+        for (int key = 0; key < 2000; key++) {
+            assertEquals(rid(key), reopened.getValue(key * 7));
+        }
+    }
+
+    @Test
+    void testConcurrentInsertsLookupsAndScans() throws Exception {
+        // 1. ARRANGE: Small nodes, so the writers split constantly while the readers run.
+        BPlusTree tree = BPlusTree.create(bufferPoolManager, 8, 8);
+        int writers = 4;
+        int keysPerWriter = 3000;
+        int readers = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(writers + readers);
+
+        // 2. ACT: Each writer inserts its own interleaved keys; readers look up and scan meanwhile.
+        List<Future<?>> futures = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < keysPerWriter; i++) {
+                    int key = i * writers + writer;
+                    assertTrue(tree.insert(key, rid(key)));
+                    // The writer's own key must be visible as soon as insert returns.
+                    assertEquals(rid(key), tree.getValue(key));
+                }
+                return null;
+            }));
+        }
+        for (int r = 0; r < readers; r++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    int key = ThreadLocalRandom.current().nextInt(writers * keysPerWriter);
+                    RecordId found = tree.getValue(key);
+                    assertTrue(found == null || found.equals(rid(key)));
+
+                    // A scan always sees increasing keys with the right values.
+                    BPlusTreeIterator iterator = tree.iterator(key, key + 50);
+                    int previous = Integer.MIN_VALUE;
+                    while (iterator.hasNext()) {
+                        RecordId recordId = iterator.next();
+                        assertEquals(rid(iterator.getKey()), recordId);
+                        assertTrue(iterator.getKey() > previous);
+                        previous = iterator.getKey();
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // 3. ASSERT: Every key made it in, exactly once.
+        int count = 0;
+        for (BPlusTreeIterator iterator = tree.iterator(); iterator.hasNext(); count++) {
+            iterator.next();
+            assertEquals(count, iterator.getKey());
+        }
+        assertEquals(writers * keysPerWriter, count);
+    }
+}
@@ -0,0 +1,200 @@
+package com.loki.minidb.index;
+
+import com.loki.minidb.storage.BufferPoolManager;
+import com.loki.minidb.storage.DiskManager;
+import com.loki.minidb.storage.RecordId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExtendibleHashIndexTest {
+
+    private static final String TEST_DB_FILE = "hash_index_test.db";
+    private DiskManager diskManager;
+    private BufferPoolManager bufferPoolManager;
+    private Path dbFilePath;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dbFilePath = Path.of(TEST_DB_FILE);
+        Files.deleteIfExists(dbFilePath);
+        diskManager = new DiskManager(TEST_DB_FILE);
+        bufferPoolManager = new BufferPoolManager(64, diskManager);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        diskManager.close();
+        Files.deleteIfExists(dbFilePath);
+    }
+
+    private static RecordId rid(int key) {
+        return new RecordId(key / 100, key % 100);
+    }
+
+    @Test
+    void testInsertSplitsBucketsAndGrowsDirectory() throws IOException {
+        // 1. ARRANGE: One directory and buckets of 4 entries, so splits start almost at once.
+        ExtendibleHashIndex index = ExtendibleHashIndex.create(bufferPoolManager, 0, 9, 4);
+        assertEquals(-1, index.getGlobalDepth(0), "The directory is only created by the first insert.");
+        assertNull(index.getValue(0));
+
+        // 2. ACT: Insert enough keys to need many buckets.
+        for (int key = 0; key < 200; key++) {
+            assertTrue(index.insert(key, rid(key)));
+        }
+
+        // 3. ASSERT: The directory grew, every key is found, and others are not.
+        int depth = index.getGlobalDepth(0);
+        assertTrue(depth >= 6 && depth <= 9, "200 keys in buckets of 4 need at least 50 buckets, got depth " + depth);
+        for (int key = 0; key < 200; key++) {
+            assertEquals(rid(key), index.getValue(key));
+        }
+        assertNull(index.getValue(200));
+        assertNull(index.getValue(-1));
+        assertFalse(index.insert(42, new RecordId(7, 7)));
+        assertEquals(rid(42), index.getValue(42), "A refused duplicate must not change the entry.");
+    }
+
+    @Test
+    void testDeleteAndReinsert() throws IOException {
+        ExtendibleHashIndex index = ExtendibleHashIndex.create(bufferPoolManager, 2, 9, 8);
+        for (int key = 0; key < 300; key++) {
+            index.insert(key, rid(key));
+        }
+        for (int key = 0; key < 300; key += 2) {
+            assertTrue(index.delete(key));
+        }
+        assertFalse(index.delete(0), "A key can only be deleted once.");
+
+        for (int key = 0; key < 300; key++) {
+            assertEquals(key % 2 == 0 ? null : rid(key), index.getValue(key));
+        }
+        assertTrue(index.insert(0, rid(0)));
+        assertEquals(rid(0), index.getValue(0));
+    }
+
+    @Test
+    void testFullDirectoryChainsOverflowPages() throws IOException {
+        // 1. ARRANGE: A directory of at most 2 buckets of 2 entries, which used to hold 4 keys.
+        ExtendibleHashIndex index = ExtendibleHashIndex.create(bufferPoolManager, 0, 1, 2);
+
+        // 2. ACT: Insert far more, then delete every other key.
+        for (int key = 0; key < 200; key++) {
+            assertTrue(index.insert(key, rid(key)));
+        }
+        assertEquals(1, index.getGlobalDepth(0));
+        assertFalse(index.insert(199, rid(0)), "A key deep in a chain is still a duplicate.");
+        for (int key = 0; key < 200; key += 2) {
+            assertTrue(index.delete(key));
+        }
+
+        // 3. ASSERT: Every key is found along the chains, and deleted ones are not.
+        for (int key = 0; key < 200; key++) {
+            assertEquals(key % 2 == 0 ? null : rid(key), index.getValue(key));
+        }
+        assertTrue(index.insert(0, rid(0)), "A deleted key's room in a chain is reused.");
+        assertEquals(rid(0), index.getValue(0));
+    }
+
+    @Test
+    void testKeysSharingTheirHashBitsOverflowAFullSizeBucket() throws IOException {
+        // 1. ARRANGE: Keys whose hashes agree on the header's top 9 bits and the directory's
+        //    low 9 bits, so no split can separate them: twice what one bucket page holds.
+        int keyCount = HashBucketPage.CAPACITY * 2 + 10;
+        int[] keys = new int[keyCount];
+        int target = ExtendibleHashIndex.hash(0);
+        int bits = 0xFF8001FF;
+        for (int key = 0, found = 0; found < keyCount; key++) {
+            if ((ExtendibleHashIndex.hash(key) & bits) == (target & bits)) {
+                keys[found++] = key;
+            }
+        }
+        ExtendibleHashIndex index = ExtendibleHashIndex.create(bufferPoolManager);
+
+        // 2. ACT
+        for (int key : keys) {
+            assertTrue(index.insert(key, rid(key)));
+        }
+
+        // 3. ASSERT: The directory reached its maximum depth, and every key made it in.
+        assertEquals(HashDirectoryPage.MAX_DEPTH, index.getGlobalDepth(keys[0]));
+        bufferPoolManager.flushAllPages();
+        ExtendibleHashIndex reopened = new ExtendibleHashIndex(new BufferPoolManager(16, diskManager), index.getHeaderPageId());
+        for (int key : keys) {
+            assertEquals(rid(key), reopened.getValue(key));
+        }
+        assertNull(reopened.getValue(1));
+    }
+
+    @Test
+    void testIndexSurvivesReopening() throws IOException {
+        ExtendibleHashIndex index = ExtendibleHashIndex.create(bufferPoolManager);
+        for (int key = 0; key < 5000; key++) {
+            index.insert(key * 13, rid(key));
+        }
+        bufferPoolManager.flushAllPages();
+
+        // Open the index through a fresh buffer pool, so every page comes from disk.
+        ExtendibleHashIndex reopened = new ExtendibleHashIndex(new BufferPoolManager(16, diskManager), index.getHeaderPageId());
+        for (int key = 0; key < 5000; key++) {
+            assertEquals(rid(key), reopened.getValue(key * 13));
+        }
+        assertNull(reopened.getValue(1));
+    }
+
+    @Test
+    void testConcurrentInsertsAndLookups() throws Exception {
+        // 1. ARRANGE: Small buckets in few directories, so writers split while readers probe.
+        ExtendibleHashIndex index = ExtendibleHashIndex.create(bufferPoolManager, 2, 9, 16);
+        int writers = 4;
+        int keysPerWriter = 2000;
+        int readers = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(writers + readers);
+
+        // 2. ACT
+        List<Future<?>> futures = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < keysPerWriter; i++) {
+                    int key = i * writers + writer;
+                    assertTrue(index.insert(key, rid(key)));
+                    assertEquals(rid(key), index.getValue(key));
+                }
+                return null;
+            }));
+        }
+        for (int r = 0; r < readers; r++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 20000; i++) {
+                    int key = ThreadLocalRandom.current().nextInt(writers * keysPerWriter);
+                    RecordId found = index.getValue(key);
+                    assertTrue(found == null || found.equals(rid(key)));
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // 3. ASSERT: Every key made it in.
+        for (int key = 0; key < writers * keysPerWriter; key++) {
+            assertEquals(rid(key), index.getValue(key));
+        }
+    }
+}
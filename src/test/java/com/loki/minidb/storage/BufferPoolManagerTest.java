@@ -1,12 +1,25 @@
 package com.loki.minidb.storage;
 
+import com.loki.minidb.catalog.Column;
+import com.loki.minidb.catalog.Schema;
+import com.loki.minidb.catalog.Type;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -146,4 +159,412 @@ class BufferPoolManagerTest {
         assertTrue(bufferPoolManager.unpinPage(19));
         assertNotNull(bufferPoolManager.fetchPage(9));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testConcurrentFetchOfSamePage() throws Exception {
+        int pageId = diskManager.allocatePage();
+        int threads = 8;
+
+        // Every thread fetches the same page at the same time.
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Page>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            results.add(executor.submit(() -> bufferPoolManager.fetchPage(pageId)));
+        }
+        Page first = results.get(0).get();
+        for (Future<Page> result : results) {
+            assertSame(first, result.get(), "All threads should share the one cached frame.");
+        }
+        executor.shutdown();
+
+        assertEquals(threads, first.getPinCount());
+        for (int i = 0; i < threads; i++) {
+            assertTrue(bufferPoolManager.unpinPage(pageId));
+        }
+        assertEquals(0, first.getPinCount());
+    }
+
+    @Test
+    void testConcurrentFetchAndEvict() throws Exception {
+        // Write each page's own ID into its first bytes, so we can check what we read back.
+        int pageCount = 40;
+        for (int i = 0; i < pageCount; i++) {
+            int pageId = diskManager.allocatePage();
+            Page page = new Page();
+            ByteBuffer.wrap(page.getData()).putInt(0, pageId);
+            diskManager.writePage(pageId, page);
+        }
+
+        // Several threads fetch random pages from a set four times larger than the pool.
+        int threads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Void>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Callable<Void> worker = () -> {
+                for (int i = 0; i < 2000; i++) {
+                    int pageId = ThreadLocalRandom.current().nextInt(pageCount);
+                    Page page = bufferPoolManager.fetchPage(pageId);
+                    if (page == null) {
+                        continue; // Every frame was pinned at this moment.
+                    }
+                    assertEquals(pageId, page.getPageId());
+                    assertEquals(pageId, ByteBuffer.wrap(page.getData()).getInt(0));
+                    assertTrue(bufferPoolManager.unpinPage(pageId));
+                }
+                return null;
+            };
+            results.add(executor.submit(worker));
+        }
+        for (Future<Void> result : results) {
+            result.get();
+        }
+        executor.shutdown();
+
+        // Nothing is left pinned, so every frame can be reused.
+        for (int i = 0; i < 10; i++) {
+            assertNotNull(bufferPoolManager.fetchPage(pageCount - 1 - i));
+        }
+    }
+
+    @Test
+    void testDirtyPageIsWrittenOnEviction() throws IOException {
+        // Fill the pool, modifying page 0.
+        for (int i = 0; i < 10; i++) {
+            diskManager.allocatePage();
+        }
+        Page page0 = bufferPoolManager.fetchPage(0);
+        ByteBuffer.wrap(page0.getData()).putInt(0, 4242);
+        assertTrue(bufferPoolManager.unpinPage(0, true));
+        assertTrue(page0.isDirty());
+        for (int i = 1; i < 10; i++) {
+            bufferPoolManager.fetchPage(i);
+            bufferPoolManager.unpinPage(i);
+        }
+
+        // Page 0 is the LRU page, so the next miss evicts it and must write it back first.
+        int newPageId = diskManager.allocatePage();
+        assertNotNull(bufferPoolManager.fetchPage(newPageId));
+
+        Page onDisk = new Page();
+        diskManager.readPage(0, onDisk);
+        assertEquals(4242, ByteBuffer.wrap(onDisk.getData()).getInt(0), "Evicted dirty page should be on disk.");
+
+        // Reading it back through the buffer pool sees the change as well.
+        bufferPoolManager.unpinPage(newPageId);
+        assertEquals(4242, ByteBuffer.wrap(bufferPoolManager.fetchPage(0).getData()).getInt(0));
+    }
+
+    @Test
+    void testFlushPageAndFlushAllPages() throws IOException {
+        int pageA = diskManager.allocatePage();
+        int pageB = diskManager.allocatePage();
+
+        Page a = bufferPoolManager.fetchPage(pageA);
+        Page b = bufferPoolManager.fetchPage(pageB);
+        ByteBuffer.wrap(a.getData()).putInt(0, 1);
+        ByteBuffer.wrap(b.getData()).putInt(0, 2);
+        bufferPoolManager.unpinPage(pageA, true);
+        bufferPoolManager.unpinPage(pageB, true);
+
+        // flushPage writes only the requested page.
+        assertTrue(bufferPoolManager.flushPage(pageA));
+        assertFalse(a.isDirty());
+        assertTrue(b.isDirty());
+        assertFalse(bufferPoolManager.flushPage(99), "A page that is not cached cannot be flushed.");
+
+        // flushAllPages writes the rest.
+        bufferPoolManager.flushAllPages();
+        assertFalse(b.isDirty());
+
+        Page onDisk = new Page();
+        diskManager.readPage(pageA, onDisk);
+        assertEquals(1, ByteBuffer.wrap(onDisk.getData()).getInt(0));
+        diskManager.readPage(pageB, onDisk);
+        assertEquals(2, ByteBuffer.wrap(onDisk.getData()).getInt(0));
+    }
+
+    @Test
+    void testBackgroundWriterCleansUnpinnedPages() throws Exception {
+        Page[] pages = new Page[5];
+        for (int i = 0; i < pages.length; i++) {
+            int pageId = diskManager.allocatePage();
+            pages[i] = bufferPoolManager.fetchPage(pageId);
+            ByteBuffer.wrap(pages[i].getData()).putInt(0, 100 + i);
+        }
+        // Unpin all but the last page as dirty. The pinned one is not an eviction candidate.
+        for (int i = 0; i < pages.length - 1; i++) {
+            bufferPoolManager.unpinPage(i, true);
+        }
+
+        bufferPoolManager.startBackgroundWriter(5, 10);
+        try {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (pages[3].isDirty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+        } finally {
+            bufferPoolManager.stopBackgroundWriter();
+        }
+
+        Page onDisk = new Page();
+        for (int i = 0; i < pages.length - 1; i++) {
+            assertFalse(pages[i].isDirty(), "Page " + i + " should have been cleaned.");
+            diskManager.readPage(i, onDisk);
+            assertEquals(100 + i, ByteBuffer.wrap(onDisk.getData()).getInt(0));
+        }
+        bufferPoolManager.unpinPage(pages.length - 1);
+    }
+
+    @Test
+    void testOffHeapFramesSurviveEviction() throws IOException {
+        BufferPoolManager offHeapPool = new BufferPoolManager(2, diskManager, true);
+        Schema schema = new Schema(List.of(new Column("id", Type.INTEGER)));
+        for (int i = 0; i < 3; i++) {
+            diskManager.allocatePage();
+        }
+
+        // Store a tuple in page 0 through a SlottedPage working directly on the off-heap frame.
+        Page page0 = offHeapPool.fetchPage(0);
+        assertTrue(page0.isOffHeap());
+        SlottedPage slottedPage = new SlottedPage(page0);
+        slottedPage.init();
+        Tuple tuple = new Tuple(schema);
+        tuple.setValue(0, 31337);
+        assertEquals(0, slottedPage.insertTuple(tuple));
+        offHeapPool.unpinPage(0, true);
+
+        // Push page 0 out of the two-frame pool.
+        for (int pageId = 1; pageId <= 2; pageId++) {
+            assertNotNull(offHeapPool.fetchPage(pageId));
+            offHeapPool.unpinPage(pageId);
+        }
+
+        // Reading it back goes to disk and into an off-heap frame again.
+        Page reloaded = offHeapPool.fetchPage(0);
+        assertEquals(31337, new SlottedPage(reloaded).getTuple(0, schema).getValue(0));
+        offHeapPool.unpinPage(0);
+    }
+
+    @Test
+    void testPrefetchLoadsPagesWithoutPinningThem() throws IOException {
+        Page page = new Page();
+        for (int i = 0; i < 8; i++) {
+            int pageId = diskManager.allocatePage();
+            ByteBuffer.wrap(page.getData()).putInt(0, 500 + i);
+            diskManager.writePage(pageId, page);
+        }
+
+        assertEquals(4, bufferPoolManager.prefetch(2, 4));
+        assertEquals(0, bufferPoolManager.prefetch(2, 4), "The pages are already cached.");
+        // The range is cut at the end of the file.
+        assertEquals(2, bufferPoolManager.prefetch(6, 10));
+
+        // flushPage() tells whether a page is cached.
+        assertFalse(bufferPoolManager.flushPage(1));
+        for (int pageId = 2; pageId < 8; pageId++) {
+            assertTrue(bufferPoolManager.flushPage(pageId), "Page " + pageId + " should be cached.");
+        }
+
+        // Prefetched pages hold the right data and are not pinned.
+        Page fetched = bufferPoolManager.fetchPage(3);
+        assertEquals(503, ByteBuffer.wrap(fetched.getData()).getInt(0));
+        assertEquals(1, fetched.getPinCount());
+        bufferPoolManager.unpinPage(3);
+
+        // Only the uncached pages of a range are read.
+        assertEquals(2, bufferPoolManager.prefetch(0, 8));
+    }
+
+    @Test
+    void testPrefetchedPagesAreNotTheFirstLRUKVictims() throws IOException {
+        for (int i = 0; i < 5; i++) {
+            diskManager.allocatePage();
+        }
+        BufferPoolManager lruKPool = new BufferPoolManager(4, diskManager, new LRUKReplacer(4, 2));
+        lruKPool.setReadAheadWindow(0);
+
+        // Page 0 is used before pages 1 and 2 are prefetched, and page 3 after.
+        assertNotNull(lruKPool.fetchPage(0));
+        lruKPool.unpinPage(0);
+        assertEquals(2, lruKPool.prefetch(1, 2));
+        assertNotNull(lruKPool.fetchPage(3));
+        lruKPool.unpinPage(3);
+
+        // Every page was accessed once, so the oldest, page 0, makes room for page 4.
+        assertNotNull(lruKPool.fetchPage(4));
+        lruKPool.unpinPage(4);
+        assertFalse(lruKPool.flushPage(0));
+        for (int pageId = 1; pageId <= 4; pageId++) {
+            assertTrue(lruKPool.flushPage(pageId), "Page " + pageId + " should still be cached.");
+        }
+    }
+
+    @Test
+    void testSequentialMissesTriggerReadAhead() throws IOException {
+        for (int i = 0; i < 10; i++) {
+            diskManager.allocatePage();
+        }
+        bufferPoolManager.setReadAheadWindow(4);
+
+        // A single miss only loads its own page.
+        assertNotNull(bufferPoolManager.fetchPage(0));
+        bufferPoolManager.unpinPage(0);
+        assertFalse(bufferPoolManager.flushPage(1));
+
+        // The next page missing as well looks like a scan, so pages 1..4 are read together.
+        assertNotNull(bufferPoolManager.fetchPage(1));
+        bufferPoolManager.unpinPage(1);
+        for (int pageId = 2; pageId <= 4; pageId++) {
+            assertTrue(bufferPoolManager.flushPage(pageId), "Page " + pageId + " should have been read ahead.");
+        }
+        assertFalse(bufferPoolManager.flushPage(5));
+
+        // Scanning on into page 5 continues the read-ahead.
+        for (int pageId = 2; pageId <= 5; pageId++) {
+            assertNotNull(bufferPoolManager.fetchPage(pageId));
+            bufferPoolManager.unpinPage(pageId);
+        }
+        assertTrue(bufferPoolManager.flushPage(8));
+
+        assertThrows(IllegalArgumentException.class, () -> bufferPoolManager.setReadAheadWindow(11));
+    }
+
+    @Test
+    void testFlushAllPagesWritesConsecutivePagesTogether() throws IOException {
+        // Pages 0..5 and 8 are dirty: one run of six pages and a single page.
+        for (int i = 0; i < 9; i++) {
+            diskManager.allocatePage();
+        }
+        for (int pageId : new int[] {5, 2, 8, 0, 4, 1, 3}) {
+            Page page = bufferPoolManager.fetchPage(pageId);
+            ByteBuffer.wrap(page.getData()).putInt(0, 900 + pageId);
+            bufferPoolManager.unpinPage(pageId, true);
+        }
+
+        long writeCalls = diskManager.getWriteCalls();
+        bufferPoolManager.flushAllPages();
+        assertEquals(writeCalls + 2, diskManager.getWriteCalls());
+
+        Page onDisk = new Page();
+        for (int pageId : new int[] {0, 1, 2, 3, 4, 5, 8}) {
+            diskManager.readPage(pageId, onDisk);
+            assertEquals(900 + pageId, ByteBuffer.wrap(onDisk.getData()).getInt(0));
+        }
+    }
+
+    @Test
+    void testFetchPageAsync() throws Exception {
+        Page page = new Page();
+        for (int i = 0; i < 3; i++) {
+            int pageId = diskManager.allocatePage();
+            ByteBuffer.wrap(page.getData()).putInt(0, 40 + i);
+            diskManager.writePage(pageId, page);
+        }
+
+        // A miss is loaded on a virtual thread.
+        Page loaded = bufferPoolManager.fetchPageAsync(0).get();
+        assertEquals(40, ByteBuffer.wrap(loaded.getData()).getInt(0));
+
+        // A hit completes on the calling thread.
+        CompletableFuture<Page> hit = bufferPoolManager.fetchPageAsync(0);
+        assertTrue(hit.isDone());
+        assertSame(loaded, hit.get());
+        assertEquals(2, loaded.getPinCount());
+        bufferPoolManager.unpinPage(0);
+        bufferPoolManager.unpinPage(0);
+
+        // Concurrent requests for the same missing page share one disk read.
+        long readCalls = diskManager.getReadCalls();
+        List<CompletableFuture<Page>> futures = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            futures.add(bufferPoolManager.fetchPageAsync(2));
+        }
+        Page shared = futures.get(0).get();
+        for (CompletableFuture<Page> future : futures) {
+            assertSame(shared, future.get());
+        }
+        assertEquals(readCalls + 1, diskManager.getReadCalls());
+        assertEquals(32, shared.getPinCount());
+        assertEquals(42, ByteBuffer.wrap(shared.getData()).getInt(0));
+        for (int i = 0; i < 32; i++) {
+            bufferPoolManager.unpinPage(2);
+        }
+    }
+
+    @Test
+    void testConcurrentMissesOnOnePageEvictOneVictim() throws Exception {
+        // Fill the pool with pages 0-9, so the next miss has to evict one of them. They are
+        // dirty, so an eviction writes, which keeps the racing requests in flight together.
+        for (int i = 0; i < 11; i++) {
+            diskManager.allocatePage();
+        }
+        for (int pageId = 0; pageId < 10; pageId++) {
+            assertNotNull(bufferPoolManager.fetchPage(pageId));
+            bufferPoolManager.unpinPage(pageId, true);
+        }
+
+        // Many requests for the same missing page need one read and one free frame.
+        long readCalls = diskManager.getReadCalls();
+        List<CompletableFuture<Page>> futures = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            futures.add(bufferPoolManager.fetchPageAsync(10));
+        }
+        for (CompletableFuture<Page> future : futures) {
+            assertEquals(10, future.get().getPageId());
+        }
+        assertEquals(readCalls + 1, diskManager.getReadCalls());
+
+        // flushPage() tells whether a page is cached without loading it.
+        int stillCached = 0;
+        for (int pageId = 0; pageId < 10; pageId++) {
+            if (bufferPoolManager.flushPage(pageId)) {
+                stillCached++;
+            }
+        }
+        assertEquals(9, stillCached, "Only the winning request may evict a page.");
+        for (int i = 0; i < 32; i++) {
+            assertTrue(bufferPoolManager.unpinPage(10));
+        }
+    }
+
+    @Test
+    void testFetchPageAsyncReportsFullPoolAndErrors() throws Exception {
+        BufferPoolManager tinyPool = new BufferPoolManager(1, diskManager);
+        diskManager.allocatePage();
+        diskManager.allocatePage();
+
+        assertNotNull(tinyPool.fetchPageAsync(0).get());
+        assertNull(tinyPool.fetchPageAsync(1).get(), "The only frame is pinned.");
+        tinyPool.unpinPage(0);
+
+        // Reading a page that does not exist fails the future instead of throwing.
+        CompletableFuture<Page> missing = tinyPool.fetchPageAsync(99);
+        assertThrows(ExecutionException.class, missing::get);
+        tinyPool.close();
+    }
+
+    @Test
+    void testNewPage() throws IOException {
+        BufferPoolManager tinyPool = new BufferPoolManager(1, diskManager);
+        Page page = tinyPool.newPage();
+        assertEquals(0, page.getPageId());
+        assertEquals(1, page.getPinCount());
+        assertEquals(1, diskManager.getNumPages());
+        ByteBuffer.wrap(page.getData()).putInt(0, 77);
+
+        // The only frame is pinned, so no page can be created and the file does not grow.
+        assertNull(tinyPool.newPage());
+        assertEquals(1, diskManager.getNumPages());
+        tinyPool.unpinPage(0, true);
+
+        // The next new page reuses the frame, and its contents start zeroed.
+        Page second = tinyPool.newPage();
+        assertEquals(1, second.getPageId());
+        assertEquals(0, ByteBuffer.wrap(second.getData()).getInt(0));
+        tinyPool.unpinPage(1);
+
+        Page first = tinyPool.fetchPage(0);
+        assertEquals(77, ByteBuffer.wrap(first.getData()).getInt(0));
+        tinyPool.unpinPage(0);
+    }
+}
@@ -0,0 +1,63 @@
+package com.loki.minidb.storage;
+
+import com.loki.minidb.bench.Bench;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * BufferPoolScalingBenchmark measures cache-hit throughput of a BufferPoolManager as
+ * threads are added, with the default ClockReplacer and with LRUReplacer (see Bench for
+ * how to run it).
+ *
+ * Every page is cached and unpinned, and each operation is a fetchPage() and unpinPage()
+ * of a random page. Its pin count therefore moves 0 -> 1 -> 0, so every operation also
+ * pins and unpins the frame in the replacer: the worst case for a replacer behind a
+ * lock. ops/s is the total throughput of all threads (see Bench.measureParallel()).
+ *
+ * The hits only scale with threads up to the number of cores of the machine.
+ *
+ * Optional argument: the largest thread count (default 32). Counts double from 1.
+ */
+public class BufferPoolScalingBenchmark {
+
+    private static final int FRAMES = 4096;
+    private static final int OPS = 2_000_000;
+
+    public static void main(String[] args) throws Exception {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        System.out.println("Available processors: " + Runtime.getRuntime().availableProcessors());
+
+        Path file = Files.createTempFile("minidb-bench-", ".db");
+        try (DiskManager diskManager = new DiskManager(file.toString(), IoMode.FILE_CHANNEL, DurabilityMode.OS_BUFFERED)) {
+            diskManager.allocatePages(FRAMES);
+            for (String name : new String[] {"ClockReplacer", "LRUReplacer"}) {
+                Replacer replacer = name.equals("ClockReplacer") ? new ClockReplacer(FRAMES) : new LRUReplacer(FRAMES);
+                BufferPoolManager bufferPoolManager = new BufferPoolManager(FRAMES, diskManager, replacer);
+                bufferPoolManager.setReadAheadWindow(0);
+                // 1. Cache every page, so each fetch below is a hit.
+                for (int pageId = 0; pageId < FRAMES; pageId++) {
+                    bufferPoolManager.fetchPage(pageId);
+                    bufferPoolManager.unpinPage(pageId);
+                }
+
+                // 2. The same number of hits, shared by more and more threads.
+                for (int threads = 1; threads <= maxThreads; threads *= 2) {
+                    Bench.measureParallel(name + " hit, " + threads + " threads", threads, OPS, n -> {
+                        ThreadLocalRandom random = ThreadLocalRandom.current();
+                        long sum = 0;
+                        for (int i = 0; i < n; i++) {
+                            int pageId = random.nextInt(FRAMES);
+                            sum += bufferPoolManager.fetchPage(pageId).getPageId();
+                            bufferPoolManager.unpinPage(pageId);
+                        }
+                        return sum;
+                    });
+                }
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.loki.minidb.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClockReplacerTest {
+
+    private ClockReplacer clockReplacer;
+
+    @BeforeEach
+    void setUp() {
+        // A replacer for a pool of 5 frames.
+        clockReplacer = new ClockReplacer(5);
+    }
+
+    @Test
+    void testVictimFollowsTheHand() {
+        clockReplacer.unpin(0);
+        clockReplacer.unpin(1);
+        clockReplacer.unpin(2);
+        assertEquals(3, clockReplacer.size());
+
+        // All reference bits are set, so the first sweep clears them and the
+        // second one finds frame 0 first.
+        assertEquals(0, clockReplacer.victim());
+        assertEquals(1, clockReplacer.victim());
+        assertEquals(2, clockReplacer.victim());
+        assertEquals(Replacer.NO_FRAME, clockReplacer.victim(), "Replacer should be empty.");
+    }
+
+    @Test
+    void testReferencedFrameGetsSecondChance() {
+        clockReplacer.unpin(0);
+        clockReplacer.unpin(1);
+        clockReplacer.unpin(2);
+        // The first victim clears every bit on its way round.
+        assertEquals(0, clockReplacer.victim());
+
+        // Frame 1 is used again, which sets its reference bit.
+        clockReplacer.pin(1);
+        clockReplacer.unpin(1);
+
+        // Frame 1 is skipped once, so frame 2 goes first.
+        assertEquals(2, clockReplacer.victim());
+        assertEquals(1, clockReplacer.victim());
+    }
+
+    @Test
+    void testPin() {
+        clockReplacer.unpin(0);
+        clockReplacer.unpin(1);
+        clockReplacer.unpin(2);
+
+        // A pinned frame is no longer a candidate.
+        clockReplacer.pin(1);
+        assertEquals(2, clockReplacer.size());
+        assertEquals(0, clockReplacer.victim());
+        assertEquals(2, clockReplacer.victim());
+        assertEquals(Replacer.NO_FRAME, clockReplacer.victim());
+    }
+
+    @Test
+    void testEvictionCandidatesDoNotRemoveFrames() {
+        clockReplacer.unpin(3);
+        clockReplacer.unpin(4);
+
+        int[] candidates = clockReplacer.evictionCandidates(10);
+        assertEquals(2, candidates.length);
+        assertEquals(2, clockReplacer.size(), "Looking at candidates must not evict them.");
+        assertEquals(candidates[0], clockReplacer.victim());
+    }
+
+    @Test
+    void testBufferPoolWithClockReplacer() throws Exception {
+        Path dbFile = Path.of("clock_test.db");
+        Files.deleteIfExists(dbFile);
+        try (DiskManager diskManager = new DiskManager(dbFile.toString())) {
+            BufferPoolManager bufferPoolManager = new BufferPoolManager(3, diskManager, new ClockReplacer(3));
+            for (int i = 0; i < 6; i++) {
+                int pageId = diskManager.allocatePage();
+                assertNotNull(bufferPoolManager.fetchPage(pageId), "Should evict to make room for page " + i);
+                assertTrue(bufferPoolManager.unpinPage(pageId));
+            }
+        } finally {
+            Files.deleteIfExists(dbFile);
+        }
+    }
+}
@@ -6,9 +6,15 @@ import org.junit.jupiter.api.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -58,4 +64,237 @@ class DiskManagerTest {
         // We use assertArrayEquals for byte arrays, not assertEquals.
         assertArrayEquals(testData, readPage.getData(), "Data read from disk should match data written.");
     }
-}
\ No newline at end of file
+
+    @Test
+    void randomAccessFileModeReadsWhatFileChannelModeWrote() throws IOException {
+        // Write with the default (FileChannel) mode.
+        Page writePage = new Page();
+        ByteBuffer.wrap(writePage.getData()).putInt(0, 7).putInt(Page.PAGE_SIZE - 4, 8);
+        diskManager.allocatePage();
+        int pageId = diskManager.allocatePage();
+        diskManager.writePage(pageId, writePage);
+        diskManager.close();
+
+        // Reopen the same file with the RandomAccessFile mode; both modes share one file format.
+        diskManager = new DiskManager(TEST_DB_FILE, IoMode.RANDOM_ACCESS_FILE);
+        Page readPage = new Page();
+        diskManager.readPage(pageId, readPage);
+        assertArrayEquals(writePage.getData(), readPage.getData());
+        assertEquals(2, diskManager.allocatePage(), "Reopening should continue after the existing pages.");
+    }
+
+    @Test
+    void concurrentReadsAndWritesOfDifferentPages() throws Exception {
+        int pageCount = 64;
+        for (int i = 0; i < pageCount; i++) {
+            diskManager.allocatePage();
+        }
+
+        // Each task writes its own page and reads it back, all at the same time.
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < pageCount; i++) {
+            int pageId = i;
+            results.add(executor.submit(() -> {
+                Page page = new Page();
+                Arrays.fill(page.getData(), (byte) pageId);
+                diskManager.writePage(pageId, page);
+
+                Page readBack = new Page();
+                diskManager.readPage(pageId, readBack);
+                return (int) readBack.getData()[Page.PAGE_SIZE / 2];
+            }));
+        }
+        for (int i = 0; i < pageCount; i++) {
+            assertEquals(i, results.get(i).get());
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    void memoryMappedModeWritesSurviveReopen() throws IOException {
+        diskManager.close();
+        diskManager = new DiskManager(TEST_DB_FILE, IoMode.MEMORY_MAPPED);
+
+        // Allocate past the first chunk, so a second mapping has to be created.
+        int lastPageId = -1;
+        for (int i = 0; i <= DiskManager.CHUNK_PAGES; i++) {
+            lastPageId = diskManager.allocatePage();
+        }
+        assertEquals(DiskManager.CHUNK_PAGES, lastPageId);
+
+        Page first = new Page();
+        Arrays.fill(first.getData(), (byte) 1);
+        Page last = new Page();
+        Arrays.fill(last.getData(), (byte) 2);
+        diskManager.writePage(0, first);
+        diskManager.writePage(lastPageId, last);
+
+        Page readPage = new Page();
+        diskManager.readPage(lastPageId, readPage);
+        assertArrayEquals(last.getData(), readPage.getData());
+        diskManager.sync();
+        diskManager.close();
+
+        // Closing trims the file back to the allocated pages.
+        assertEquals((long) (lastPageId + 1) * Page.PAGE_SIZE, Files.size(dbFilePath));
+
+        // The data is readable through the positional mode as well.
+        diskManager = new DiskManager(TEST_DB_FILE);
+        diskManager.readPage(0, readPage);
+        assertArrayEquals(first.getData(), readPage.getData());
+        diskManager.readPage(lastPageId, readPage);
+        assertArrayEquals(last.getData(), readPage.getData());
+    }
+
+    @Test
+    void offHeapPagesWorkInEveryMode() throws IOException {
+        diskManager.close();
+        for (IoMode mode : IoMode.values()) {
+            Files.deleteIfExists(dbFilePath);
+            diskManager = new DiskManager(TEST_DB_FILE, mode);
+
+            Page[] frames = OffHeapFrameAllocator.allocate(2);
+            frames[0].getBuffer().putInt(0, 11).putInt(Page.PAGE_SIZE - 4, 22);
+            int pageId = diskManager.allocatePage();
+            diskManager.writePage(pageId, frames[0]);
+            diskManager.readPage(pageId, frames[1]);
+
+            assertEquals(11, frames[1].getBuffer().getInt(0), "Mode " + mode);
+            assertEquals(22, frames[1].getBuffer().getInt(Page.PAGE_SIZE - 4), "Mode " + mode);
+            diskManager.close();
+        }
+        diskManager = new DiskManager(TEST_DB_FILE);
+    }
+
+    @Test
+    void groupSyncAndBufferedModesKeepTheData() throws Exception {
+        for (DurabilityMode mode : new DurabilityMode[] {DurabilityMode.GROUP_SYNC, DurabilityMode.OS_BUFFERED}) {
+            diskManager.close();
+            Files.deleteIfExists(dbFilePath);
+            diskManager = new DiskManager(TEST_DB_FILE, IoMode.FILE_CHANNEL, mode);
+            for (int i = 0; i < 16; i++) {
+                diskManager.allocatePage();
+            }
+
+            // Concurrent writers; in GROUP_SYNC mode they share their syncs.
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                int pageId = i;
+                results.add(executor.submit(() -> {
+                    Page page = new Page();
+                    Arrays.fill(page.getData(), (byte) (pageId + 1));
+                    diskManager.writePage(pageId, page);
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+            executor.shutdown();
+            diskManager.sync();
+
+            Page readPage = new Page();
+            for (int i = 0; i < 16; i++) {
+                diskManager.readPage(i, readPage);
+                assertEquals((byte) (i + 1), readPage.getData()[0], "Mode " + mode);
+            }
+        }
+    }
+
+    @Test
+    void readPagesReadsARunInEveryMode() throws IOException {
+        diskManager.close();
+        for (IoMode mode : IoMode.values()) {
+            Files.deleteIfExists(dbFilePath);
+            diskManager = new DiskManager(TEST_DB_FILE, mode);
+            Page page = new Page();
+            for (int i = 0; i < 5; i++) {
+                int pageId = diskManager.allocatePage();
+                Arrays.fill(page.getData(), (byte) (i + 1));
+                diskManager.writePage(pageId, page);
+            }
+
+            // Read pages 1..3 into a mix of on-heap and off-heap frames.
+            Page[] run = {new Page(), OffHeapFrameAllocator.allocate(1)[0], new Page()};
+            diskManager.readPages(1, run);
+            for (int i = 0; i < run.length; i++) {
+                assertEquals((byte) (i + 2), run[i].getBuffer().get(0), "Mode " + mode);
+                assertEquals((byte) (i + 2), run[i].getBuffer().get(Page.PAGE_SIZE - 1), "Mode " + mode);
+            }
+
+            // A run that goes past the last page is rejected.
+            assertThrows(IllegalArgumentException.class, () -> diskManager.readPages(3, new Page[] {new Page(), new Page(), new Page()}));
+            diskManager.close();
+        }
+        diskManager = new DiskManager(TEST_DB_FILE);
+    }
+
+    @Test
+    void writePagesWritesARunWithOneCall() throws IOException {
+        diskManager.close();
+        for (IoMode mode : IoMode.values()) {
+            Files.deleteIfExists(dbFilePath);
+            diskManager = new DiskManager(TEST_DB_FILE, mode);
+            Page[] run = new Page[8];
+            for (int i = 0; i < run.length; i++) {
+                diskManager.allocatePage();
+                run[i] = i % 2 == 0 ? new Page() : OffHeapFrameAllocator.allocate(1)[0];
+                run[i].getBuffer().putInt(0, 700 + i);
+            }
+
+            // One page at a time costs one call per page; a run costs one call.
+            for (int i = 0; i < run.length; i++) {
+                diskManager.writePage(i, run[i]);
+            }
+            assertEquals(run.length, diskManager.getWriteCalls(), "Mode " + mode);
+            diskManager.writePages(0, run);
+            assertEquals(run.length + 1, diskManager.getWriteCalls(), "Mode " + mode);
+
+            Page[] readBack = new Page[run.length];
+            for (int i = 0; i < readBack.length; i++) {
+                readBack[i] = new Page();
+            }
+            long readCalls = diskManager.getReadCalls();
+            diskManager.readPages(0, readBack);
+            assertEquals(readCalls + 1, diskManager.getReadCalls(), "Mode " + mode);
+            for (int i = 0; i < readBack.length; i++) {
+                assertEquals(700 + i, readBack[i].getBuffer().getInt(0), "Mode " + mode);
+            }
+
+            assertThrows(IllegalArgumentException.class, () -> diskManager.writePages(7, new Page[] {new Page(), new Page()}));
+            diskManager.close();
+        }
+        diskManager = new DiskManager(TEST_DB_FILE);
+    }
+
+    @Test
+    void allocatePagesReservesAConsecutiveRun() throws IOException {
+        diskManager.close();
+        for (IoMode mode : IoMode.values()) {
+            Files.deleteIfExists(dbFilePath);
+            diskManager = new DiskManager(TEST_DB_FILE, mode);
+            assertEquals(0, diskManager.allocatePage());
+
+            // 1. ACT: Reserve a run, then allocate one more page after it.
+            int first = diskManager.allocatePages(300);
+            int after = diskManager.allocatePage();
+
+            // 2. ASSERT: The run follows the first page, and every page of it can be written.
+            assertEquals(1, first, "Mode " + mode);
+            assertEquals(301, after, "Mode " + mode);
+            assertEquals(302, diskManager.getNumPages(), "Mode " + mode);
+            Page last = new Page();
+            last.getBuffer().putInt(0, 4242);
+            diskManager.writePage(first + 299, last);
+            Page readBack = new Page();
+            diskManager.readPage(first + 299, readBack);
+            assertEquals(4242, readBack.getBuffer().getInt(0), "Mode " + mode);
+
+            assertThrows(IllegalArgumentException.class, () -> diskManager.allocatePages(0));
+            diskManager.close();
+        }
+        diskManager = new DiskManager(TEST_DB_FILE);
+    }
+}
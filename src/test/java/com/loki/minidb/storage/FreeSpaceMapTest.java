@@ -0,0 +1,101 @@
+package com.loki.minidb.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FreeSpaceMapTest {
+
+    private static final String TEST_DB_FILE = "fsm_test.db";
+    // Data page IDs in these tests are only numbers in the map, so they start far past the directory pages.
+    private static final int FIRST_DATA_PAGE = 1_000_000;
+    private DiskManager diskManager;
+    private BufferPoolManager bufferPoolManager;
+    private Path dbFilePath;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dbFilePath = Path.of(TEST_DB_FILE);
+        Files.deleteIfExists(dbFilePath);
+        diskManager = new DiskManager(TEST_DB_FILE);
+        bufferPoolManager = new BufferPoolManager(8, diskManager);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        diskManager.close();
+        Files.deleteIfExists(dbFilePath);
+    }
+
+    @Test
+    void testCategories() {
+        assertEquals(0, FreeSpaceMap.categoryOf(FreeSpaceMap.CATEGORY_UNIT - 1));
+        assertEquals(1, FreeSpaceMap.categoryOf(FreeSpaceMap.CATEGORY_UNIT));
+        assertEquals(FreeSpaceMap.MAX_CATEGORY, FreeSpaceMap.categoryOf(Page.PAGE_SIZE));
+    }
+
+    @Test
+    void testFindPageSpansDirectoryPages() throws IOException {
+        FreeSpaceMap map = FreeSpaceMap.create(bufferPoolManager);
+        int pageCount = FreeSpaceMap.ENTRIES_PER_PAGE * 2 + 100;
+        for (int i = 0; i < pageCount; i++) {
+            map.addPage(FIRST_DATA_PAGE + i, 0);
+        }
+        assertEquals(pageCount, map.getPageCount());
+        assertEquals(Page.INVALID_PAGE_ID, map.findPage(1), "Every page is full.");
+
+        // Free up one page in the second directory and one in the third.
+        int second = FIRST_DATA_PAGE + FreeSpaceMap.ENTRIES_PER_PAGE + 5;
+        int third = FIRST_DATA_PAGE + FreeSpaceMap.ENTRIES_PER_PAGE * 2 + 50;
+        map.updateFreeSpace(second, 1000);
+        map.updateFreeSpace(third, 3000);
+
+        assertEquals(third, map.findPage(2000));
+        assertEquals(third, map.findPage(500), "The hint is used while it has enough room.");
+        map.updateFreeSpace(third, 0);
+        assertEquals(second, map.findPage(500), "Without the hint, the first page with enough room is found.");
+        map.updateFreeSpace(second, 0);
+        assertEquals(Page.INVALID_PAGE_ID, map.findPage(1));
+
+        // Requests bigger than the highest category always need a new page.
+        assertEquals(Page.INVALID_PAGE_ID, map.findPage(Page.PAGE_SIZE - 8));
+        assertThrows(IllegalArgumentException.class, () -> map.updateFreeSpace(FIRST_DATA_PAGE - 1, 0));
+        assertThrows(IllegalArgumentException.class, () -> map.addPage(FIRST_DATA_PAGE, 0));
+    }
+
+    @Test
+    void testHintNeedsNoPageAccess() throws IOException {
+        FreeSpaceMap map = FreeSpaceMap.create(bufferPoolManager);
+        for (int i = 0; i < 10; i++) {
+            map.addPage(FIRST_DATA_PAGE + i, 0);
+        }
+        map.updateFreeSpace(FIRST_DATA_PAGE + 4, 3000);
+
+        // Pin every frame, so the directory page cannot be fetched anymore.
+        for (int i = 0; i < 8; i++) {
+            assertNotNull(bufferPoolManager.newPage());
+        }
+        assertEquals(FIRST_DATA_PAGE + 4, map.findPage(500));
+    }
+
+    @Test
+    void testReopen() throws IOException {
+        FreeSpaceMap map = FreeSpaceMap.create(bufferPoolManager);
+        int pageCount = FreeSpaceMap.ENTRIES_PER_PAGE + 10;
+        for (int i = 0; i < pageCount; i++) {
+            map.addPage(FIRST_DATA_PAGE + i, i == 3 ? 2048 : 0);
+        }
+        int[] pageIds = map.getPageIds();
+
+        FreeSpaceMap reopened = new FreeSpaceMap(bufferPoolManager, map.getFirstDirectoryPageId());
+        assertEquals(pageCount, reopened.getPageCount());
+        assertArrayEquals(pageIds, reopened.getPageIds());
+        assertEquals(FIRST_DATA_PAGE + 3, reopened.findPage(2000));
+    }
+}
@@ -0,0 +1,98 @@
+package com.loki.minidb.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GroupSyncTest {
+
+    @Test
+    void concurrentWritersShareOneSync() throws Exception {
+        AtomicInteger syncCount = new AtomicInteger();
+        int writers = 16;
+        // A long delay and a batch of exactly `writers`: the leader waits until everyone has arrived.
+        GroupSync groupSync = new GroupSync(syncCount::incrementAndGet, 10_000_000, writers);
+
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < writers; i++) {
+            results.add(executor.submit(() -> {
+                groupSync.awaitDurable();
+                return null;
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get();
+        }
+        executor.shutdown();
+
+        assertEquals(1, syncCount.get(), "All writers should have been covered by a single sync.");
+    }
+
+    @Test
+    void loneWriterSyncsAfterTheDelay() throws IOException {
+        AtomicInteger syncCount = new AtomicInteger();
+        GroupSync groupSync = new GroupSync(syncCount::incrementAndGet, 1000, 32);
+
+        groupSync.awaitDurable();
+        groupSync.awaitDurable();
+        assertEquals(2, syncCount.get(), "Each sequential write needs its own sync.");
+    }
+
+    @Test
+    void failedSyncFailsEveryWriterItCovered() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        int writers = 4;
+        // The leader waits for all writers, so the first sync covers every one of them.
+        GroupSync groupSync = new GroupSync(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new IOException("device error");
+            }
+        }, 10_000_000, writers);
+
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < writers; i++) {
+            results.add(executor.submit(() -> {
+                groupSync.awaitDurable();
+                return null;
+            }));
+        }
+        for (Future<?> result : results) {
+            ExecutionException e = assertThrows(ExecutionException.class, result::get);
+            assertInstanceOf(IOException.class, e.getCause());
+        }
+        executor.shutdown();
+        assertEquals(1, attempts.get(), "The followers must not retry a sync that covered them.");
+
+        // A write issued after the failure gets a new sync.
+        groupSync.awaitDurable();
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    void uncheckedSyncFailureReleasesTheLeadership() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        GroupSync groupSync = new GroupSync(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new UncheckedIOException(new IOException("device error"));
+            }
+        }, 0, 1);
+
+        assertThrows(UncheckedIOException.class, groupSync::awaitDurable);
+        // Before the fix the failed leader stayed active and this call waited forever.
+        assertTimeoutPreemptively(Duration.ofSeconds(10), groupSync::awaitDurable);
+        assertEquals(2, attempts.get());
+    }
+}
@@ -0,0 +1,71 @@
+package com.loki.minidb.storage;
+
+import com.loki.minidb.bench.Bench;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * IoModeBenchmark compares the DiskManager's IoModes on page reads and writes, to help
+ * choose one per deployment (see Bench for how to run it).
+ *
+ * The file is small enough to stay in the OS page cache, which is the case the
+ * MEMORY_MAPPED mode is meant for: the numbers show the cost of the I/O path itself
+ * (a seek and a read, a pread, or a memory copy), not of the device. Writes use
+ * OS_BUFFERED durability, so no write waits for a sync.
+ *
+ * Optional arguments: the file size in pages (default 16384, 64 MB) and the number of
+ * operations per round (default 100000).
+ */
+public class IoModeBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int pages = args.length > 0 ? Integer.parseInt(args[0]) : 16384;
+        int ops = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+
+        for (IoMode ioMode : IoMode.values()) {
+            Path file = Files.createTempFile("minidb-bench-", ".db");
+            try (DiskManager diskManager = new DiskManager(file.toString(), ioMode, DurabilityMode.OS_BUFFERED)) {
+                // 1. Fill the file, so every read below finds data in the page cache.
+                Page page = new Page();
+                diskManager.allocatePages(pages);
+                for (int pageId = 0; pageId < pages; pageId++) {
+                    page.getBuffer().putInt(0, pageId);
+                    diskManager.writePage(pageId, page);
+                }
+
+                // 2. Reads at random pages, reads in file order, and writes at random pages.
+                Random random = new Random(42);
+                Bench.measure(ioMode + " random readPage", ops, n -> {
+                    long sum = 0;
+                    for (int i = 0; i < n; i++) {
+                        diskManager.readPage(random.nextInt(pages), page);
+                        sum += page.getBuffer().getInt(0);
+                    }
+                    return sum;
+                });
+                int[] next = {0};
+                Bench.measure(ioMode + " sequential readPage", ops, n -> {
+                    long sum = 0;
+                    for (int i = 0; i < n; i++) {
+                        diskManager.readPage(next[0], page);
+                        next[0] = (next[0] + 1) % pages;
+                        sum += page.getBuffer().getInt(0);
+                    }
+                    return sum;
+                });
+                Bench.measure(ioMode + " random writePage", ops, n -> {
+                    for (int i = 0; i < n; i++) {
+                        int pageId = random.nextInt(pages);
+                        page.getBuffer().putInt(0, pageId);
+                        diskManager.writePage(pageId, page);
+                    }
+                    return n;
+                });
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.loki.minidb.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LRUKReplacerTest {
+
+    private static final String TEST_DB_FILE = "lruk_test.db";
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(Path.of(TEST_DB_FILE));
+    }
+
+    /** Simulates a fetch followed by an unpin of the frame. */
+    private static void access(LRUKReplacer replacer, int frameId) {
+        replacer.pin(frameId);
+        replacer.unpin(frameId);
+    }
+
+    @Test
+    void testFramesSeenOnceAreEvictedFirst() {
+        LRUKReplacer replacer = new LRUKReplacer(5, 2);
+
+        // Frames 0 and 1 are referenced twice: they are "hot".
+        access(replacer, 0);
+        access(replacer, 1);
+        access(replacer, 0);
+        access(replacer, 1);
+        // Frames 2, 3, 4 are touched once, like a sequential scan would.
+        access(replacer, 2);
+        access(replacer, 3);
+        access(replacer, 4);
+        assertEquals(5, replacer.size());
+
+        // The scanned frames go first, in the order they were first seen.
+        assertEquals(2, replacer.victim());
+        assertEquals(3, replacer.victim());
+        assertEquals(4, replacer.victim());
+        // Then the hot frame whose second-to-last access is oldest.
+        assertEquals(0, replacer.victim());
+        assertEquals(1, replacer.victim());
+        assertEquals(Replacer.NO_FRAME, replacer.victim());
+    }
+
+    @Test
+    void testBackwardKDistance() {
+        LRUKReplacer replacer = new LRUKReplacer(3, 2);
+        access(replacer, 0); // t=1
+        access(replacer, 1); // t=2
+        access(replacer, 1); // t=3
+        access(replacer, 0); // t=4
+        access(replacer, 0); // t=5
+
+        // Frame 0's 2nd most recent access is t=4, frame 1's is t=2.
+        assertEquals(1, replacer.victim());
+        assertEquals(0, replacer.victim());
+    }
+
+    @Test
+    void testPinnedFramesAreNotVictims() {
+        LRUKReplacer replacer = new LRUKReplacer(3, 2);
+        access(replacer, 0);
+        replacer.pin(1);
+        assertEquals(0, replacer.victim());
+        assertEquals(Replacer.NO_FRAME, replacer.victim(), "Frame 1 is still pinned.");
+    }
+
+    @Test
+    void testCorrelatedAccessesCountOnce() {
+        // Accesses less than 3 ticks apart belong to the same reference.
+        LRUKReplacer replacer = new LRUKReplacer(3, 2, 3);
+        access(replacer, 0); // t=1
+        access(replacer, 0); // t=2, correlated: frame 0 still has one reference
+        access(replacer, 1); // t=3
+        access(replacer, 2); // t=4
+        access(replacer, 1); // t=5
+        access(replacer, 2); // t=6
+        access(replacer, 1); // t=7, 2 ticks after t=5: correlated
+        access(replacer, 2); // t=8, correlated
+        access(replacer, 1); // t=9, correlated
+        access(replacer, 2); // t=10, correlated
+
+        // Frame 0 never got a second uncorrelated reference, so it goes first.
+        assertEquals(0, replacer.victim());
+    }
+
+    @Test
+    void testVictimKeepsTheHistoryUntilTheFrameIsEvicted() {
+        LRUKReplacer replacer = new LRUKReplacer(2, 2);
+        access(replacer, 0);
+        access(replacer, 0);
+        assertEquals(0, replacer.victim());
+
+        // The buffer pool lost the race for frame 0: it was pinned again and keeps its page,
+        // so it is still hot, and the frame seen once goes first.
+        access(replacer, 0);
+        access(replacer, 1);
+        assertEquals(1, replacer.victim());
+        replacer.evicted(1);
+
+        // Frame 1 now holds another page, which has been seen once.
+        access(replacer, 1);
+        assertEquals(1, replacer.victim());
+        assertEquals(0, replacer.victim());
+    }
+
+    @Test
+    void testEvictionCandidatesAreTheNextVictims() {
+        LRUKReplacer replacer = new LRUKReplacer(64, 2);
+        Random random = new Random(5);
+        for (int i = 0; i < 1000; i++) {
+            access(replacer, random.nextInt(64));
+        }
+        for (int frameId = 0; frameId < 64; frameId += 7) {
+            replacer.pin(frameId);
+        }
+
+        int[] candidates = replacer.evictionCandidates(20);
+        assertEquals(20, candidates.length);
+        assertEquals(64 - 10, replacer.size(), "Looking at the candidates must not remove them.");
+        for (int candidate : candidates) {
+            assertEquals(candidate, replacer.victim());
+        }
+        assertEquals(64 - 10 - 20, replacer.evictionCandidates(100).length);
+    }
+
+    @Test
+    void testHotPagesSurviveAScan() throws IOException {
+        try (DiskManager diskManager = new DiskManager(TEST_DB_FILE)) {
+            BufferPoolManager bufferPoolManager = new BufferPoolManager(4, diskManager, new LRUKReplacer(4, 2));
+            for (int i = 0; i < 12; i++) {
+                diskManager.allocatePage();
+            }
+
+            // Pages 0 and 1 are used repeatedly, like index roots.
+            Page hot0 = bufferPoolManager.fetchPage(0);
+            Page hot1 = bufferPoolManager.fetchPage(1);
+            bufferPoolManager.unpinPage(0);
+            bufferPoolManager.unpinPage(1);
+            for (int round = 0; round < 2; round++) {
+                bufferPoolManager.fetchPage(0);
+                bufferPoolManager.unpinPage(0);
+                bufferPoolManager.fetchPage(1);
+                bufferPoolManager.unpinPage(1);
+            }
+
+            // A scan touches ten other pages once each, through the two remaining frames.
+            for (int pageId = 2; pageId < 12; pageId++) {
+                assertNotNull(bufferPoolManager.fetchPage(pageId));
+                bufferPoolManager.unpinPage(pageId);
+            }
+
+            // The hot pages were never evicted: their frames still hold them.
+            assertEquals(0, hot0.getPageId());
+            assertEquals(1, hot1.getPageId());
+            assertSame(hot0, bufferPoolManager.fetchPage(0));
+            assertSame(hot1, bufferPoolManager.fetchPage(1));
+        }
+    }
+}
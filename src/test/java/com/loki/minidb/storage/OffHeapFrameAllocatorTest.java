@@ -0,0 +1,34 @@
+package com.loki.minidb.storage;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapFrameAllocatorTest {
+
+    @Test
+    void framesAreSeparateOffHeapPages() {
+        Page[] frames = OffHeapFrameAllocator.allocate(8);
+        assertEquals(8, frames.length);
+
+        for (int i = 0; i < frames.length; i++) {
+            assertTrue(frames[i].isOffHeap(), "Frame " + i + " should live in direct memory.");
+            assertEquals(Page.PAGE_SIZE, frames[i].getBuffer().capacity());
+            frames[i].getBuffer().putInt(0, i);
+            frames[i].getBuffer().putInt(Page.PAGE_SIZE - 4, -i);
+        }
+
+        // Writing to one frame must not touch its neighbours.
+        for (int i = 0; i < frames.length; i++) {
+            assertEquals(i, frames[i].getBuffer().getInt(0));
+            assertEquals(-i, frames[i].getBuffer().getInt(Page.PAGE_SIZE - 4));
+        }
+    }
+
+    @Test
+    void offHeapPageHasNoByteArray() {
+        Page frame = OffHeapFrameAllocator.allocate(1)[0];
+        assertThrows(UnsupportedOperationException.class, frame::getData);
+        assertFalse(new Page().isOffHeap());
+    }
+}
@@ -0,0 +1,149 @@
+package com.loki.minidb.storage;
+
+import com.loki.minidb.bench.Bench;
+import com.loki.minidb.util.ConcurrentIntIntMap;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * PageTableBenchmark measures the time and the allocation rate of a buffer pool hit,
+ * before and after the page table and the LRUReplacer moved to primitive int maps
+ * (see Bench for how to run it).
+ *
+ * 1. Page-table lookups: a ConcurrentHashMap of boxed Integers, as the page table used
+ *    to be, against a ConcurrentIntIntMap. Page ids are above 127, so they are not in
+ *    the Integer cache and a boxed lookup has to allocate unless the JIT removes it.
+ * 2. LRU pin and unpin: NodeLRU, a copy of the old LRUReplacer (a HashMap of linked
+ *    nodes), against the current LRUReplacer.
+ * 3. A BufferPoolManager fetchPage and unpinPage of a page that is already cached,
+ *    which uses both.
+ */
+public class PageTableBenchmark {
+
+    private static final int FRAMES = 1024;
+    private static final int FIRST_PAGE_ID = 1000;
+    private static final int OPS = 1_000_000;
+
+    /**
+     * The LRUReplacer before the change: a HashMap from frame ID to a node of a doubly
+     * linked list. unpin() allocates a node and the map boxes the frame ID.
+     */
+    private static final class NodeLRU {
+        private static final class Node {
+            final int frameId;
+            Node prev;
+            Node next;
+
+            Node(int frameId) {
+                this.frameId = frameId;
+            }
+        }
+
+        private final Map<Integer, Node> nodeMap = new HashMap<>();
+        private final Node head = new Node(-1);
+        private final Node tail = new Node(-1);
+
+        NodeLRU() {
+            head.next = tail;
+            tail.prev = head;
+        }
+
+        synchronized void pin(int frameId) {
+            Node node = nodeMap.remove(frameId);
+            if (node != null) {
+                node.prev.next = node.next;
+                node.next.prev = node.prev;
+            }
+        }
+
+        synchronized void unpin(int frameId) {
+            if (nodeMap.containsKey(frameId)) {
+                return;
+            }
+            Node node = new Node(frameId);
+            nodeMap.put(frameId, node);
+            node.next = head.next;
+            node.prev = head;
+            head.next.prev = node;
+            head.next = node;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        // 1. Page-table lookups, for page ids that are all present.
+        Map<Integer, Integer> boxedTable = new ConcurrentHashMap<>(FRAMES * 2);
+        ConcurrentIntIntMap intTable = new ConcurrentIntIntMap(FRAMES);
+        for (int frameId = 0; frameId < FRAMES; frameId++) {
+            boxedTable.put(FIRST_PAGE_ID + frameId, frameId);
+            intTable.putIfAbsent(FIRST_PAGE_ID + frameId, frameId, Replacer.NO_FRAME);
+        }
+        Random random = new Random(3);
+        Bench.measure("before: ConcurrentHashMap<Integer> get", OPS, n -> {
+            long sum = 0;
+            for (int i = 0; i < n; i++) {
+                Integer frameId = boxedTable.get(FIRST_PAGE_ID + random.nextInt(FRAMES));
+                sum += frameId == null ? -1 : frameId;
+            }
+            return sum;
+        });
+        Bench.measure("after:  ConcurrentIntIntMap get", OPS, n -> {
+            long sum = 0;
+            for (int i = 0; i < n; i++) {
+                sum += intTable.get(FIRST_PAGE_ID + random.nextInt(FRAMES), Replacer.NO_FRAME);
+            }
+            return sum;
+        });
+
+        // 2. LRU pin and unpin, with every frame starting as a candidate.
+        NodeLRU nodeLRU = new NodeLRU();
+        LRUReplacer lruReplacer = new LRUReplacer(FRAMES);
+        for (int frameId = 0; frameId < FRAMES; frameId++) {
+            nodeLRU.unpin(frameId);
+            lruReplacer.unpin(frameId);
+        }
+        Bench.measure("before: node LRU pin+unpin", OPS, n -> {
+            for (int i = 0; i < n; i++) {
+                int frameId = random.nextInt(FRAMES);
+                nodeLRU.pin(frameId);
+                nodeLRU.unpin(frameId);
+            }
+            return n;
+        });
+        Bench.measure("after:  LRUReplacer pin+unpin", OPS, n -> {
+            for (int i = 0; i < n; i++) {
+                int frameId = random.nextInt(FRAMES);
+                lruReplacer.pin(frameId);
+                lruReplacer.unpin(frameId);
+            }
+            return n;
+        });
+
+        // 3. A buffer pool hit.
+        Path file = Files.createTempFile("minidb-bench-", ".db");
+        try (DiskManager diskManager = new DiskManager(file.toString(), IoMode.FILE_CHANNEL, DurabilityMode.OS_BUFFERED)) {
+            diskManager.allocatePages(FIRST_PAGE_ID + FRAMES);
+            BufferPoolManager bufferPoolManager = new BufferPoolManager(FRAMES, diskManager, new LRUReplacer(FRAMES));
+            bufferPoolManager.setReadAheadWindow(0);
+            for (int pageId = FIRST_PAGE_ID; pageId < FIRST_PAGE_ID + FRAMES; pageId++) {
+                bufferPoolManager.fetchPage(pageId);
+                bufferPoolManager.unpinPage(pageId);
+            }
+            Bench.measure("after:  BufferPoolManager hit", OPS, n -> {
+                long sum = 0;
+                for (int i = 0; i < n; i++) {
+                    int pageId = FIRST_PAGE_ID + random.nextInt(FRAMES);
+                    sum += bufferPoolManager.fetchPage(pageId).getPageId();
+                    bufferPoolManager.unpinPage(pageId);
+                }
+                return sum;
+            });
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
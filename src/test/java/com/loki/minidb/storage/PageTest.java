@@ -3,6 +3,9 @@ package com.loki.minidb.storage;
 
 // Importing the testing tools from the JUnit 5 library.
 import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -33,4 +36,29 @@ class PageTest {
         // If they are not equal, the test fails.
         assertEquals(Page.PAGE_SIZE, data.length, "The page's data should be exactly PAGE_SIZE bytes long.");
     }
-}
\ No newline at end of file
+
+    @Test
+    void optimisticReadFailsValidationAfterAWrite() {
+        // 1. Arrange: take a version, as an optimistic reader would.
+        Page page = new Page();
+        long version = page.readVersion();
+        assertTrue(page.validate(version), "Nothing changed yet.");
+
+        // 2. Act: a writer takes and releases the latch.
+        page.wLatch();
+        page.getBuffer().putInt(0, 42);
+        page.wUnlatch();
+
+        // 3. Assert: the old version no longer validates, and cannot be upgraded.
+        assertFalse(page.validate(version));
+        assertFalse(page.upgrade(version));
+
+        // A fresh version can be upgraded, and another thread cannot read-latch the page meanwhile.
+        long fresh = page.readVersion();
+        assertTrue(page.upgrade(fresh));
+        assertFalse(CompletableFuture.supplyAsync(page::tryRLatch).join());
+        page.wUnlatch();
+        assertTrue(page.tryRLatch());
+        page.rUnlatch();
+    }
+}
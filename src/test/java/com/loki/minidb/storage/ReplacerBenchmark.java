@@ -0,0 +1,95 @@
+package com.loki.minidb.storage;
+
+import com.loki.minidb.bench.Bench;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntFunction;
+
+/**
+ * ReplacerBenchmark compares the Replacer implementations (see Bench for how to run it).
+ *
+ * 1. The replacer alone: a pin and an unpin of a random frame per operation, and a
+ *    victim() every 8 operations, as a buffer pool with a miss ratio of 1/8 would call it.
+ * 2. A BufferPoolManager with each replacer, fetching pages from a skewed workload over
+ *    four times as many pages as there are frames (80% of fetches go to 20% of the
+ *    pages), plus a sequential scan. The hit ratio is printed with each result.
+ */
+public class ReplacerBenchmark {
+
+    private static final int FRAMES = 1024;
+
+    public static void main(String[] args) throws Exception {
+        String[] names = {"LRUReplacer", "ClockReplacer", "LRUKReplacer(k=2)"};
+        List<IntFunction<Replacer>> replacers = List.of(
+                LRUReplacer::new,
+                ClockReplacer::new,
+                capacity -> new LRUKReplacer(capacity, 2));
+
+        // 1. The replacer alone.
+        for (int r = 0; r < replacers.size(); r++) {
+            Replacer replacer = replacers.get(r).apply(FRAMES);
+            for (int frameId = 0; frameId < FRAMES; frameId++) {
+                replacer.unpin(frameId);
+            }
+            Random random = new Random(7);
+            Bench.measure(names[r] + " pin+unpin, victim per 8", 1_000_000, n -> {
+                long sum = 0;
+                for (int i = 0; i < n; i++) {
+                    int frameId = random.nextInt(FRAMES);
+                    replacer.pin(frameId);
+                    replacer.unpin(frameId);
+                    if ((i & 7) == 0) {
+                        int victim = replacer.victim();
+                        sum += victim;
+                        // The frame now holds another page, which is unpinned once it is read.
+                        replacer.evicted(victim);
+                        replacer.pin(victim);
+                        replacer.unpin(victim);
+                    }
+                }
+                return sum;
+            });
+        }
+
+        // 2. Through the buffer pool.
+        int pages = FRAMES * 4;
+        Path file = Files.createTempFile("minidb-bench-", ".db");
+        try (DiskManager diskManager = new DiskManager(file.toString(), IoMode.FILE_CHANNEL, DurabilityMode.OS_BUFFERED)) {
+            diskManager.allocatePages(pages);
+            for (int r = 0; r < replacers.size(); r++) {
+                BufferPoolManager bufferPoolManager = new BufferPoolManager(FRAMES, diskManager, replacers.get(r).apply(FRAMES));
+                bufferPoolManager.setReadAheadWindow(0);
+                Random random = new Random(11);
+                int[] scan = {0};
+                long readsBefore = diskManager.getReadCalls();
+                long[] fetches = {0};
+                Bench.measure(names[r] + " fetchPage, 80/20 + scan", 200_000, n -> {
+                    long sum = 0;
+                    for (int i = 0; i < n; i++) {
+                        int pageId;
+                        if (i % 10 == 0) {
+                            pageId = scan[0];
+                            scan[0] = (scan[0] + 1) % pages;
+                        } else if (random.nextInt(10) < 8) {
+                            pageId = random.nextInt(pages / 5);
+                        } else {
+                            pageId = pages / 5 + random.nextInt(pages - pages / 5);
+                        }
+                        Page page = bufferPoolManager.fetchPage(pageId);
+                        sum += page.getPageId();
+                        bufferPoolManager.unpinPage(pageId);
+                    }
+                    fetches[0] += n;
+                    return sum;
+                });
+                long misses = diskManager.getReadCalls() - readsBefore;
+                System.out.printf("%-44s hit ratio %.3f%n", names[r], 1 - (double) misses / fetches[0]);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
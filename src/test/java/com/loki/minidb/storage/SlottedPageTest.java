@@ -6,6 +6,7 @@ import com.loki.minidb.catalog.Type;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -100,4 +101,138 @@ class SlottedPageTest {
         lastTuple.setValue(0, 999);
         assertNull(slottedPage.insertTuple(lastTuple), "Should not be able to insert into a full page.");
     }
-}
\ No newline at end of file
+
+    @Test
+    void testTupleViewReadsInPlace() {
+        for (int i = 0; i < 5; i++) {
+            Tuple t = new Tuple(schema);
+            t.setValue(0, i);
+            t.setValue(1, i * 100);
+            slottedPage.insertTuple(t);
+        }
+        slottedPage.deleteTuple(2);
+
+        // One view is reused for every slot.
+        TupleView view = new TupleView(schema);
+        int sum = 0;
+        int live = 0;
+        for (int slotId = 0; slotId < slottedPage.getSlotCount(); slotId++) {
+            if (slottedPage.getTupleView(slotId, view)) {
+                assertEquals(slotId, view.getInt(0));
+                sum += view.getInt(1);
+                live++;
+            }
+        }
+        assertEquals(4, live);
+        assertEquals(800, sum);
+        assertFalse(slottedPage.getTupleView(99, view));
+
+        // toTuple() copies the row, so it does not change when the page does.
+        assertTrue(slottedPage.getTupleView(4, view));
+        Tuple copy = view.toTuple();
+        assertEquals(schema.getTupleLength(), view.getLength());
+        slottedPage.deleteTuple(4);
+        assertEquals(400, copy.getValue(1));
+    }
+
+    private Tuple rawTuple(int length, int fill) {
+        byte[] data = new byte[length];
+        Arrays.fill(data, (byte) fill);
+        return new Tuple(data, schema);
+    }
+
+    @Test
+    void testDeletedSlotsAreReused() {
+        for (int i = 0; i < 4; i++) {
+            slottedPage.insertTuple(rawTuple(100, i));
+        }
+        slottedPage.deleteTuple(1);
+
+        // The empty slot is reused, so the slot array does not grow.
+        assertEquals(1, slottedPage.insertTuple(rawTuple(50, 9)));
+        assertEquals(4, slottedPage.getSlotCount());
+
+        // Deleting the last slots shrinks the slot array; deleting everything resets the page.
+        slottedPage.deleteTuple(3);
+        slottedPage.deleteTuple(2);
+        assertEquals(2, slottedPage.getSlotCount());
+        slottedPage.deleteTuple(0);
+        slottedPage.deleteTuple(1);
+        assertEquals(0, slottedPage.getSlotCount());
+        assertEquals(Page.PAGE_SIZE, slottedPage.getFreeSpacePointer());
+    }
+
+    @Test
+    void testInsertCompactsWhenFreeSpaceRunsOut() {
+        // Fill the page with 1000-byte tuples: four fit.
+        for (int i = 0; i < 4; i++) {
+            assertNotNull(slottedPage.insertTuple(rawTuple(1000, i)));
+        }
+        assertNull(slottedPage.insertTuple(rawTuple(1000, 4)));
+
+        // Delete two of them. Their 2000 bytes are dead, not free.
+        slottedPage.deleteTuple(0);
+        slottedPage.deleteTuple(2);
+        assertEquals(2000, slottedPage.getDeadBytes());
+        assertTrue(slottedPage.getFragmentation() > 0.9);
+
+        // A 1500-byte tuple only fits after compaction, which keeps the other tuples intact.
+        assertEquals(0, slottedPage.insertTuple(rawTuple(1500, 7)));
+        assertEquals(0, slottedPage.getDeadBytes());
+        assertEquals(7, slottedPage.getTuple(0, schema).getData()[0]);
+        assertEquals(1, slottedPage.getTuple(1, schema).getData()[999]);
+        assertEquals(3, slottedPage.getTuple(3, schema).getData()[0]);
+        assertEquals(3500, slottedPage.getLiveBytes());
+        assertEquals(3, slottedPage.getTupleCount());
+    }
+
+    @Test
+    void testUpdateTuple() {
+        slottedPage.insertTuple(rawTuple(100, 1));
+        slottedPage.insertTuple(rawTuple(100, 2));
+        int freeSpacePointer = slottedPage.getFreeSpacePointer();
+
+        // A shorter tuple is written in place.
+        assertTrue(slottedPage.updateTuple(0, rawTuple(60, 3)));
+        assertEquals(freeSpacePointer, slottedPage.getFreeSpacePointer());
+        assertEquals(60, slottedPage.getTuple(0, schema).getData().length);
+        assertEquals(40, slottedPage.getDeadBytes());
+
+        // A longer one moves to the free space and keeps its slot.
+        assertTrue(slottedPage.updateTuple(1, rawTuple(300, 4)));
+        assertEquals(4, slottedPage.getTuple(1, schema).getData()[299]);
+        assertEquals(3, slottedPage.getTuple(0, schema).getData()[0]);
+
+        // An update that cannot fit leaves the old tuple alone.
+        assertFalse(slottedPage.updateTuple(1, rawTuple(SlottedPage.getMaxTupleLength(), 5)));
+        assertEquals(300, slottedPage.getTuple(1, schema).getData().length);
+        assertFalse(slottedPage.updateTuple(7, rawTuple(10, 0)), "Invalid slot.");
+
+        // Growing into the dead bytes compacts the page.
+        int room = slottedPage.getAvailableSpace() + 300;
+        assertTrue(slottedPage.updateTuple(1, rawTuple(room, 6)));
+        assertEquals(0, slottedPage.getFreeSpace());
+        assertEquals(3, slottedPage.getTuple(0, schema).getData()[59]);
+    }
+
+    @Test
+    void testFillFactor() {
+        assertEquals(8.0 / Page.PAGE_SIZE, slottedPage.getFillFactor(), 1e-9);
+        assertNotNull(slottedPage.insertTuple(rawTuple(2036, 0)));
+        assertNotNull(slottedPage.insertTuple(rawTuple(2036, 0)));
+        assertEquals(1.0, slottedPage.getFillFactor(), 1e-9);
+        assertEquals(0.0, slottedPage.getFragmentation());
+    }
+
+    @Test
+    void testTupleOffset() {
+        int slot0 = slottedPage.insertTuple(rawTuple(8, 1));
+        int slot1 = slottedPage.insertTuple(rawTuple(8, 2));
+        assertEquals(Page.PAGE_SIZE - 8, slottedPage.getTupleOffset(slot0));
+        assertEquals(Page.PAGE_SIZE - 16, slottedPage.getTupleOffset(slot1));
+
+        slottedPage.deleteTuple(slot0);
+        assertEquals(-1, slottedPage.getTupleOffset(slot0), "Empty slot.");
+        assertEquals(-1, slottedPage.getTupleOffset(5), "Invalid slot.");
+    }
+}
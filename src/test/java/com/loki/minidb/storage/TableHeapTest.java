@@ -0,0 +1,200 @@
+package com.loki.minidb.storage;
+
+import com.loki.minidb.catalog.Column;
+import com.loki.minidb.catalog.Schema;
+import com.loki.minidb.catalog.Type;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TableHeapTest {
+
+    private static final String TEST_DB_FILE = "table_heap_test.db";
+    private DiskManager diskManager;
+    private BufferPoolManager bufferPoolManager;
+    private Path dbFilePath;
+    private Schema schema;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dbFilePath = Path.of(TEST_DB_FILE);
+        Files.deleteIfExists(dbFilePath);
+        diskManager = new DiskManager(TEST_DB_FILE);
+        bufferPoolManager = new BufferPoolManager(16, diskManager);
+        schema = new Schema(List.of(
+                new Column("id", Type.INTEGER),
+                new Column("value", Type.INTEGER)
+        ));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        diskManager.close();
+        Files.deleteIfExists(dbFilePath);
+    }
+
+    private Tuple tuple(int id, int value) {
+        Tuple tuple = new Tuple(schema);
+        tuple.setValue(0, id);
+        tuple.setValue(1, value);
+        return tuple;
+    }
+
+    @Test
+    void testInsertFillsPagesBeforeAddingNewOnes() throws IOException {
+        TableHeap heap = TableHeap.create(bufferPoolManager);
+        // An 8-byte tuple uses 16 bytes of a page, so 4088 / 16 = 255 tuples fit on one.
+        int tuplesPerPage = (Page.PAGE_SIZE - 8) / SlottedPage.getSpaceNeeded(schema.getTupleLength());
+        int count = tuplesPerPage * 3 + 10;
+
+        List<RecordId> recordIds = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            recordIds.add(heap.insertTuple(tuple(i, i * 10)));
+        }
+
+        // Pages are filled up to the last category unit before a new one is added.
+        assertTrue(heap.getPageCount() <= 5, "Expected about 4 pages, got " + heap.getPageCount());
+        for (int i = 0; i < count; i++) {
+            Tuple tuple = heap.getTuple(recordIds.get(i), schema);
+            assertEquals(i, tuple.getValue(0));
+            assertEquals(i * 10, tuple.getValue(1));
+        }
+    }
+
+    @Test
+    void testIteratorSkipsDeletedTuples() throws IOException {
+        TableHeap heap = TableHeap.create(bufferPoolManager);
+        List<RecordId> recordIds = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            recordIds.add(heap.insertTuple(tuple(i, 0)));
+        }
+        for (int i = 0; i < 600; i += 3) {
+            assertTrue(heap.deleteTuple(recordIds.get(i)));
+        }
+        assertNull(heap.getTuple(recordIds.get(0), schema));
+
+        TableIterator iterator = heap.iterator(schema);
+        Set<Integer> seen = new HashSet<>();
+        while (iterator.hasNext()) {
+            Tuple tuple = iterator.next();
+            int id = (Integer) tuple.getValue(0);
+            assertNotEquals(0, id % 3, "Deleted tuple " + id + " was returned.");
+            assertEquals(recordIds.get(id), iterator.getRecordId());
+            seen.add(id);
+        }
+        assertEquals(400, seen.size());
+    }
+
+    @Test
+    void testReopenedHeapKeepsItsPagesAndFreeSpace() throws IOException {
+        TableHeap heap = TableHeap.create(bufferPoolManager);
+        for (int i = 0; i < 300; i++) {
+            heap.insertTuple(tuple(i, i));
+        }
+        int firstPageId = heap.getFirstPageId();
+        int[] pageIds = heap.getPageIds();
+        bufferPoolManager.close();
+
+        // Open the heap in a fresh buffer pool and keep inserting.
+        BufferPoolManager reopenedPool = new BufferPoolManager(16, diskManager);
+        TableHeap reopened = new TableHeap(reopenedPool, firstPageId);
+        assertArrayEquals(pageIds, reopened.getPageIds());
+
+        RecordId recordId = reopened.insertTuple(tuple(300, 300));
+        assertEquals(pageIds[pageIds.length - 1], recordId.getPageId(), "The second page still has room.");
+        assertEquals(300, reopened.getTuple(recordId, schema).getValue(0));
+
+        int count = 0;
+        for (TableIterator iterator = reopened.iterator(schema); iterator.hasNext(); iterator.next()) {
+            count++;
+        }
+        assertEquals(301, count);
+    }
+
+    @Test
+    void testConcurrentInserts() throws Exception {
+        TableHeap heap = TableHeap.create(bufferPoolManager);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<List<RecordId>>> results = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int base = t * 1000;
+            results.add(executor.submit(() -> {
+                List<RecordId> recordIds = new ArrayList<>();
+                for (int i = 0; i < 500; i++) {
+                    recordIds.add(heap.insertTuple(tuple(base + i, i)));
+                }
+                return recordIds;
+            }));
+        }
+
+        Set<RecordId> allRecordIds = new HashSet<>();
+        for (int t = 0; t < 4; t++) {
+            List<RecordId> recordIds = results.get(t).get();
+            for (int i = 0; i < recordIds.size(); i++) {
+                assertEquals(t * 1000 + i, heap.getTuple(recordIds.get(i), schema).getValue(0));
+            }
+            allRecordIds.addAll(recordIds);
+        }
+        executor.shutdown();
+        assertEquals(2000, allRecordIds.size(), "Every insert should get its own slot.");
+    }
+
+    @Test
+    void testTooLargeTupleIsRejected() throws IOException {
+        TableHeap heap = TableHeap.create(bufferPoolManager);
+        Tuple huge = new Tuple(new byte[SlottedPage.getMaxTupleLength() + 1], schema);
+        assertThrows(IllegalArgumentException.class, () -> heap.insertTuple(huge));
+    }
+
+    @Test
+    void testChurnReusesSpace() throws IOException {
+        TableHeap heap = TableHeap.create(bufferPoolManager);
+        List<RecordId> recordIds = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            recordIds.add(heap.insertTuple(tuple(i, 0)));
+        }
+        int pageCount = heap.getPageCount();
+
+        // Replace the whole table several times. Deleted space is reused, so the heap does not grow.
+        for (int round = 1; round <= 5; round++) {
+            for (int i = 0; i < recordIds.size(); i++) {
+                heap.deleteTuple(recordIds.get(i));
+                recordIds.set(i, heap.insertTuple(tuple(i, round)));
+            }
+        }
+        assertEquals(pageCount, heap.getPageCount());
+        assertEquals(5, heap.getTuple(recordIds.get(999), schema).getValue(1));
+    }
+
+    @Test
+    void testUpdateTupleMovesOnlyWhenThePageIsFull() throws IOException {
+        TableHeap heap = TableHeap.create(bufferPoolManager);
+        RecordId small = heap.insertTuple(tuple(1, 1));
+        assertEquals(small, heap.updateTuple(small, tuple(1, 2)), "Same size stays in place.");
+        assertEquals(2, heap.getTuple(small, schema).getValue(1));
+
+        // Fill the first page completely, then grow a tuple on it.
+        RecordId big = heap.insertTuple(new Tuple(new byte[2000], schema));
+        while (heap.getPageCount() == 1) {
+            heap.insertTuple(tuple(0, 0));
+        }
+        RecordId moved = heap.updateTuple(big, new Tuple(new byte[3000], schema));
+        assertNotEquals(big.getPageId(), moved.getPageId());
+        assertEquals(3000, heap.getTuple(moved, schema).getData().length);
+        assertNull(heap.getTuple(big, schema));
+        assertNull(heap.updateTuple(big, tuple(0, 0)), "The old location is empty now.");
+    }
+}
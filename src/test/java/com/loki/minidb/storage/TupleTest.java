@@ -59,4 +59,108 @@ class TupleTest {
         // 3. ASSERT: The new tuple should have the same value.
         assertEquals(999, deserializedTuple.getValue(0), "Deserialized tuple should contain the original value.");
     }
-}
\ No newline at end of file
+
+    private Schema mixedSchema() {
+        // (id INTEGER, name VARCHAR NULL, balance DOUBLE NULL, active BOOLEAN, note VARCHAR, blob VARBINARY NULL, big BIGINT)
+        return new Schema(List.of(
+                new Column("id", Type.INTEGER),
+                new Column("name", Type.VARCHAR, true),
+                new Column("balance", Type.DOUBLE, true),
+                new Column("active", Type.BOOLEAN),
+                new Column("note", Type.VARCHAR),
+                new Column("blob", Type.VARBINARY, true),
+                new Column("big", Type.BIGINT)
+        ));
+    }
+
+    @Test
+    void testRowLayoutWithNullsAndVariableLengthColumns() {
+        Schema schema = mixedSchema();
+        // 1 byte of null bitmap, then 4 + 8 + 1 + 8 fixed bytes, then three 2-byte offset entries.
+        assertEquals(1, schema.getNullBitmapLength());
+        assertEquals(1, schema.getColumnOffset(0));
+        assertEquals(5, schema.getColumnOffset(2));
+        assertEquals(13, schema.getColumnOffset(3));
+        assertEquals(14, schema.getColumnOffset(6));
+        assertEquals(22, schema.getVarTableOffset());
+        assertEquals(28, schema.getVarDataOffset());
+        assertEquals(28, schema.getTupleLength(), "An empty row has no variable-length data.");
+    }
+
+    @Test
+    void testVariableLengthValuesTakeOnlyTheSpaceTheyNeed() {
+        Schema schema = mixedSchema();
+        Tuple tuple = new Tuple(schema);
+        tuple.setValue(0, 7);
+        tuple.setValue(1, "Ada");
+        tuple.setValue(2, 12.5);
+        tuple.setValue(3, true);
+        tuple.setValue(4, "héllo");
+        tuple.setValue(5, new byte[] {1, 2, 3});
+        tuple.setValue(6, 1L << 40);
+        // "héllo" is 6 bytes of UTF-8.
+        assertEquals(28 + 3 + 6 + 3, tuple.getData().length);
+
+        // Growing and shrinking a value in the middle keeps the others intact.
+        tuple.setValue(1, "Ada Lovelace");
+        tuple.setValue(4, "");
+        assertEquals(28 + 12 + 0 + 3, tuple.getData().length);
+
+        Tuple copy = new Tuple(tuple.getData(), schema);
+        assertEquals(7, copy.getValue(0));
+        assertEquals("Ada Lovelace", copy.getValue(1));
+        assertEquals(12.5, copy.getValue(2));
+        assertEquals(true, copy.getValue(3));
+        assertEquals("", copy.getValue(4));
+        assertArrayEquals(new byte[] {1, 2, 3}, (byte[]) copy.getValue(5));
+        assertEquals(1L << 40, copy.getValue(6));
+    }
+
+    @Test
+    void testNullValues() {
+        Schema schema = mixedSchema();
+        Tuple tuple = new Tuple(schema);
+        tuple.setValue(1, "gone soon");
+        tuple.setValue(1, null);
+        tuple.setValue(2, null);
+
+        assertTrue(tuple.isNull(1));
+        assertTrue(tuple.isNull(2));
+        assertFalse(tuple.isNull(0));
+        assertNull(tuple.getValue(1));
+        assertNull(tuple.getValue(2));
+        assertEquals(28, tuple.getData().length, "A NULL string takes no space.");
+        assertThrows(IllegalArgumentException.class, () -> tuple.setValue(0, null), "id is not nullable.");
+
+        // Setting a value clears the NULL bit again.
+        tuple.setValue(2, 1.0);
+        assertFalse(tuple.isNull(2));
+        assertEquals("Tuple{0, null, 1.0, false, , [], 0}", tuple.toString());
+    }
+
+    @Test
+    void testTupleViewReadsTheSameRowFormat() {
+        Schema schema = mixedSchema();
+        Tuple tuple = new Tuple(schema);
+        tuple.setValue(0, 3);
+        tuple.setValue(1, "view");
+        tuple.setValue(2, null);
+        tuple.setValue(6, -5L);
+
+        // Store the row at an offset in a page-sized buffer, as a page would.
+        Page page = new Page();
+        SlottedPage slottedPage = new SlottedPage(page);
+        slottedPage.init();
+        int slotId = slottedPage.insertTuple(tuple);
+
+        TupleView view = new TupleView(schema);
+        assertTrue(slottedPage.getTupleView(slotId, view));
+        assertEquals(3, view.getInt(0));
+        assertEquals("view", view.getString(1));
+        assertEquals(4, view.getVarLength(1));
+        assertTrue(view.isNull(2));
+        assertFalse(view.getBoolean(3));
+        assertEquals(0, view.getVarLength(4));
+        assertEquals(-5L, view.getLong(6));
+    }
+}
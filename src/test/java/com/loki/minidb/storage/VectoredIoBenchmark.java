@@ -0,0 +1,110 @@
+package com.loki.minidb.storage;
+
+import com.loki.minidb.bench.Bench;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * VectoredIoBenchmark compares moving runs of consecutive pages with readPages() and
+ * writePages() against a readPage() or writePage() call per page, in each IoMode (see
+ * Bench for how to run it).
+ *
+ * Each operation moves one page, so ns/op is the time per page. After each result the
+ * number of calls issued to the file per page is printed, from the DiskManager's
+ * getReadCalls() and getWriteCalls() counters: one per page for the single-page calls,
+ * and one per run for the vectored ones.
+ *
+ * Optional arguments: the run length in pages (default 64, as the flushers use) and the
+ * file size in pages (default 16384, 64 MB).
+ */
+public class VectoredIoBenchmark {
+
+    private static final int PAGES_PER_ROUND = 65536;
+
+    public static void main(String[] args) throws Exception {
+        int runLength = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int filePages = args.length > 1 ? Integer.parseInt(args[1]) : 16384;
+        int runs = filePages / runLength;
+
+        for (IoMode ioMode : IoMode.values()) {
+            Path file = Files.createTempFile("minidb-bench-", ".db");
+            try (DiskManager diskManager = new DiskManager(file.toString(), ioMode, DurabilityMode.OS_BUFFERED)) {
+                // 1. Fill the file, so every read below finds data in the page cache.
+                Page[] run = new Page[runLength];
+                for (int i = 0; i < runLength; i++) {
+                    run[i] = new Page();
+                }
+                diskManager.allocatePages(filePages);
+                for (int startPageId = 0; startPageId < runs * runLength; startPageId += runLength) {
+                    diskManager.writePages(startPageId, run);
+                }
+
+                // 2. The same random runs, read and written a page at a time and all at once.
+                Random random = new Random(5);
+                long[] pagesMoved = {0};
+
+                long callsBefore = diskManager.getReadCalls();
+                Bench.measure(ioMode + " readPage x" + runLength, PAGES_PER_ROUND, n -> {
+                    long sum = 0;
+                    for (int done = 0; done < n; done += runLength) {
+                        int startPageId = random.nextInt(runs) * runLength;
+                        for (int i = 0; i < runLength; i++) {
+                            diskManager.readPage(startPageId + i, run[i]);
+                            sum += run[i].getBuffer().getInt(0);
+                        }
+                        pagesMoved[0] += runLength;
+                    }
+                    return sum;
+                });
+                printCallsPerPage(diskManager.getReadCalls() - callsBefore, pagesMoved);
+
+                callsBefore = diskManager.getReadCalls();
+                Bench.measure(ioMode + " readPages(" + runLength + ")", PAGES_PER_ROUND, n -> {
+                    long sum = 0;
+                    for (int done = 0; done < n; done += runLength) {
+                        diskManager.readPages(random.nextInt(runs) * runLength, run);
+                        sum += run[0].getBuffer().getInt(0);
+                        pagesMoved[0] += runLength;
+                    }
+                    return sum;
+                });
+                printCallsPerPage(diskManager.getReadCalls() - callsBefore, pagesMoved);
+
+                callsBefore = diskManager.getWriteCalls();
+                Bench.measure(ioMode + " writePage x" + runLength, PAGES_PER_ROUND, n -> {
+                    for (int done = 0; done < n; done += runLength) {
+                        int startPageId = random.nextInt(runs) * runLength;
+                        for (int i = 0; i < runLength; i++) {
+                            diskManager.writePage(startPageId + i, run[i]);
+                        }
+                        pagesMoved[0] += runLength;
+                    }
+                    return n;
+                });
+                printCallsPerPage(diskManager.getWriteCalls() - callsBefore, pagesMoved);
+
+                callsBefore = diskManager.getWriteCalls();
+                Bench.measure(ioMode + " writePages(" + runLength + ")", PAGES_PER_ROUND, n -> {
+                    for (int done = 0; done < n; done += runLength) {
+                        diskManager.writePages(random.nextInt(runs) * runLength, run);
+                        pagesMoved[0] += runLength;
+                    }
+                    return n;
+                });
+                printCallsPerPage(diskManager.getWriteCalls() - callsBefore, pagesMoved);
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Prints the calls issued per page moved, and resets the page count.
+     */
+    private static void printCallsPerPage(long calls, long[] pagesMoved) {
+        System.out.printf("%-44s %12.4f calls/page%n", "", (double) calls / pagesMoved[0]);
+        pagesMoved[0] = 0;
+    }
+}
@@ -0,0 +1,68 @@
+package com.loki.minidb.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentIntIntMapTest {
+
+    @Test
+    void testBasicOperations() {
+        ConcurrentIntIntMap map = new ConcurrentIntIntMap(16);
+        assertEquals(-1, map.putIfAbsent(7, 70, -1));
+        assertEquals(70, map.putIfAbsent(7, 71, -1));
+        assertEquals(70, map.get(7, -1));
+        assertFalse(map.remove(7, 71));
+        assertTrue(map.remove(7, 70));
+        assertEquals(-1, map.get(7, -1));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    void testReadersSeeStableKeysWhileWritersChurn() throws Exception {
+        ConcurrentIntIntMap map = new ConcurrentIntIntMap(16);
+        // Keys 0..999 are fixed and must always be found with their value.
+        for (int key = 0; key < 1000; key++) {
+            map.put(key, key * 2);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> results = new ArrayList<>();
+        // Two writers add and remove other keys, forcing resizes and entry shifts.
+        for (int w = 0; w < 2; w++) {
+            int base = 10_000 + w * 100_000;
+            results.add(executor.submit(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    map.putIfAbsent(base + i, i, -1);
+                    if (i >= 100) {
+                        map.remove(base + i - 100, i - 100);
+                    }
+                }
+                return null;
+            }));
+        }
+        // Two readers check the fixed keys the whole time.
+        for (int r = 0; r < 2; r++) {
+            results.add(executor.submit(() -> {
+                for (int round = 0; round < 50; round++) {
+                    for (int key = 0; key < 1000; key++) {
+                        assertEquals(key * 2, map.get(key, -1));
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get();
+        }
+        executor.shutdown();
+
+        assertEquals(1000 + 2 * 100, map.size());
+    }
+}
@@ -0,0 +1,69 @@
+package com.loki.minidb.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntIntHashMapTest {
+
+    @Test
+    void testPutGetAndRemove() {
+        IntIntHashMap map = new IntIntHashMap(4);
+        map.put(1, 10);
+        map.put(2, 20);
+        map.put(0, 99); // The zero key is stored outside the table.
+
+        assertEquals(10, map.get(1, -1));
+        assertEquals(20, map.get(2, -1));
+        assertEquals(99, map.get(0, -1));
+        assertEquals(-1, map.get(3, -1), "A missing key returns the default.");
+        assertEquals(3, map.size());
+
+        map.put(1, 11);
+        assertEquals(11, map.get(1, -1), "put should replace the old value.");
+
+        assertTrue(map.remove(1));
+        assertFalse(map.remove(1));
+        assertTrue(map.remove(0));
+        assertFalse(map.containsKey(0));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void testPutIfAbsentAndConditionalRemove() {
+        IntIntHashMap map = new IntIntHashMap(4);
+        assertEquals(-1, map.putIfAbsent(5, 50, -1), "Adding a new key returns the missing value.");
+        assertEquals(50, map.putIfAbsent(5, 51, -1), "An existing key keeps its value.");
+
+        assertFalse(map.remove(5, 51), "Only the current value can be removed.");
+        assertTrue(map.remove(5, 50));
+        assertFalse(map.containsKey(5));
+    }
+
+    @Test
+    void testMatchesHashMapUnderRandomOperations() {
+        // Many keys in a small range, so probe runs collide, wrap around and get shifted on removal.
+        IntIntHashMap map = new IntIntHashMap(2);
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 100_000; i++) {
+            int key = random.nextInt(2000) - 1000;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key) != null, map.remove(key));
+            } else {
+                map.put(key, i);
+                expected.put(key, i);
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (int key = -1000; key < 1000; key++) {
+            assertEquals(expected.getOrDefault(key, Integer.MIN_VALUE), map.get(key, Integer.MIN_VALUE), "Key " + key);
+        }
+    }
+}